@@ -22,4 +22,10 @@
 DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
 
 cd $DIR
-java -DlogFileName=latencyCalculator -Xmx2g -cp ./target/streamteam-evaluation-1.2.0-jar-with-dependencies.jar ch.unibas.dmi.dbis.streamteam.evaluation.LatencyCalculator
+
+# Receive system times written to binary journals by the EvaluationConsumer have to be converted first
+if ls ./log/*.journal 1> /dev/null 2>&1; then
+	./convertReceiveSystemTimeJournals.sh
+fi
+
+java -DlogFileName=latencyCalculator -Xmx2g -cp ./target/streamteam-evaluation-1.2.0-jar-with-dependencies.jar ch.unibas.dmi.dbis.streamteam.evaluation.LatencyCalculator "$@"
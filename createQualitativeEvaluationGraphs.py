@@ -28,28 +28,32 @@ from matplotlib.table import Table
 def main():
     eventTypes = ['interceptionEvent', 'successfulPassEvent', 'freekickEvent', 'cornerkickEvent', 'throwinEvent', 'goalkickEvent']
 
-    # https://stackoverflow.com/questions/47649284/half-space-in-matplotlib-labels-and-legend
-    rowLabels = ['1$\,$s', '2$\,$s', '3$\,$s', '4$\,$s', '5$\,$s']
-    columnLabels = ['1$\,$m', '3$\,$m', '5$\,$m', '7$\,$m', '9$\,$m', 'No distance\nthreshold']
-
     for eventType in eventTypes:
         # https://stackoverflow.com/questions/3518778/how-do-i-read-csv-data-into-a-record-array-in-numpy & https://docs.scipy.org/doc/numpy/reference/generated/numpy.genfromtxt.html
         csvContent = np.genfromtxt("./qualitativeEvalStats/" + eventType + "Stats.csv", delimiter=',', names=True)
 
+        # The threshold grid is configured in eventComparer.properties (rows: time thresholds, columns: distance thresholds)
+        timeThresholds = np.unique(csvContent[::1]['timeThreshold'])
+        distanceThresholds = np.unique(csvContent[::1]['distanceThreshold'])
+        shape = (timeThresholds.size, distanceThresholds.size)
+        # https://stackoverflow.com/questions/47649284/half-space-in-matplotlib-labels-and-legend
+        rowLabels = ['{:g}$\,$s'.format(timeThreshold / 1000.0) for timeThreshold in timeThresholds]
+        columnLabels = ['No distance\nthreshold' if np.isinf(distanceThreshold) else '{:g}$\,$m'.format(distanceThreshold) for distanceThreshold in distanceThresholds]
+
         correctDetections = csvContent[::1]['correctDetectionsPercentage']
-        correctDetectionsArray = correctDetections.reshape((5, 6))
+        correctDetectionsArray = correctDetections.reshape(shape)
         drawTable(correctDetectionsArray, rowLabels, columnLabels, 1, True)
         plt.savefig("./qualitativeEvalStats/" + eventType + "CorrectDetections.pdf")
         plt.clf()
 
         wrongDetections = csvContent[::1]['wrongDetectionsPercentage']
-        wrongDetectionsArray = wrongDetections.reshape((5, 6))
+        wrongDetectionsArray = wrongDetections.reshape(shape)
         drawTable(wrongDetectionsArray, rowLabels, columnLabels, 1, False)
         plt.savefig("./qualitativeEvalStats/" + eventType + "WrongDetections.pdf")
         plt.clf()
 
         missedDetections = csvContent[::1]['missedDetectionsPercentage']
-        missedDetectionsArray = missedDetections.reshape((5, 6))
+        missedDetectionsArray = missedDetections.reshape(shape)
         drawTable(missedDetectionsArray, rowLabels, columnLabels, 1, False)
         plt.savefig("./qualitativeEvalStats/" + eventType + "MissedDetections.pdf")
         plt.clf()
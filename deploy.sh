@@ -37,4 +37,7 @@ ssh -i $KEY $USER@$IP "mkdir $FOLDER/target"
 scp -i $KEY ./target/streamteam-evaluation-1.2.0-jar-with-dependencies.jar $USER@$IP:$FOLDER/target
 scp -i $KEY ./startEvaluationConsumer.sh $USER@$IP:$FOLDER
 scp -i $KEY ./stopEvaluationConsumer.sh $USER@$IP:$FOLDER
-scp -i $KEY ./calculateLatencies.sh $USER@$IP:$FOLDER
\ No newline at end of file
+scp -i $KEY ./calculateLatencies.sh $USER@$IP:$FOLDER
+scp -i $KEY ./calculateLatencyStatistics.sh $USER@$IP:$FOLDER
+scp -i $KEY ./convertReceiveSystemTimeJournals.sh $USER@$IP:$FOLDER
+scp -i $KEY ./exportLatenciesToCsv.sh $USER@$IP:$FOLDER
\ No newline at end of file
@@ -54,7 +54,8 @@ echo "Fetches Samza metrics"
 echo "Stopped SensorSimulator."
 
 ./fetchLatenciesFromCluster.sh
-./calculateLatencyStatistics.py
-echo "Fetch latencies and calculated latency statistics"
+echo "Calculated latencies and latency statistics on the cluster and fetched them"
+./plotLatencyCDFs.py
+echo "Plotted latency CDFs"
 
 echo "Finished evaluation"
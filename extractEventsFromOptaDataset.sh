@@ -22,7 +22,7 @@ die() {
   echo >&2 "$@"
   exit 1
 }
-[ "$#" -ge 5 ] || die "requires at least two arguments (f24FilePath, fieldLength, fieldWidth, mirrorX, mirrorY), $# provided"
+[ "$#" -ge 5 ] || die "requires at least five arguments (f24FilePath, fieldLength, fieldWidth, mirrorX, mirrorY, optional: --parser dom|stax), $# provided"
 
 #http://stackoverflow.com/questions/59895/getting-the-source-directory-of-a-bash-script-from-within
 DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
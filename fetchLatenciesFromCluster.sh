@@ -28,9 +28,10 @@ DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
 
 cd $DIR
 
-ssh -i $KEY $USER@$IP "rm -r $FOLDER/latencies"
+ssh -i $KEY $USER@$IP "rm -r $FOLDER/latencies $FOLDER/stats"
 ssh -i $KEY $USER@$IP "$FOLDER/calculateLatencies.sh"
-ssh -i $KEY $USER@$IP "cd $FOLDER; tar -cf latencies.tar latencies"
+ssh -i $KEY $USER@$IP "$FOLDER/calculateLatencyStatistics.sh"
+ssh -i $KEY $USER@$IP "cd $FOLDER; tar -cf latencies.tar latencies stats"
 scp -i $KEY $USER@$IP:$FOLDER/latencies.tar ./
 tar -xf latencies.tar
 ssh -i $KEY $USER@$IP "rm $FOLDER/latencies.tar"
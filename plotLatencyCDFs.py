@@ -36,22 +36,14 @@ colors = {'ballObjectState': '#1F77B4', 'A1FullGameHeatmapStatistics': '#FF7F0E'
 # https://www.pythonforbeginners.com/files/reading-and-writing-files-in-python & https://thispointer.com/how-to-create-a-directory-in-python/
 if not os.path.exists("./stats/"):
     os.makedirs("./stats/")
-file = open("./stats/latencyStats.csv", "w")
-file.write("streamName,mean,std,var,median,90thPercentile,99thPercentile\n")
 
 for streamName in streamNames:
     # https://stackoverflow.com/questions/3518778/how-do-i-read-csv-data-into-a-record-array-in-numpy & https://docs.scipy.org/doc/numpy/reference/generated/numpy.genfromtxt.html
     csvContent = np.genfromtxt("./latencies/" + streamName + 'Latencies.csv', delimiter=',', names=True)
     latencies = csvContent[::1]['latencyInMs']
 
-    # https://docs.scipy.org/doc/numpy/reference/generated/numpy.median.html
-    mean = np.mean(latencies)
-    std = np.std(latencies)
-    var = np.var(latencies)
-    median = np.median(latencies)
-    percentile90 = np.percentile(latencies, 90)
+    # The latency statistics are calculated by the LatencyStatistics component (calculateLatencyStatistics.sh), the 99th percentile is only used to limit the x-axis
     percentile99 = np.percentile(latencies, 99)
-    file.write(streamName + "," + str(mean) + "," + str(std) + "," + str(var) + "," + str(median) + "," + str(percentile90) + "," + str(percentile99) + "\n")
 
     # https://stackoverflow.com/questions/10640759/how-to-get-the-cumulative-distribution-function-with-numpy & https://futurestud.io/tutorials/matplotlib-save-plots-as-file & https://matplotlib.org/3.1.1/api/_as_gen/matplotlib.pyplot.xlim.html
     F2 = np.array(range(latencies.size)) / float(latencies.size)
@@ -69,8 +61,6 @@ for streamName in streamNames:
     X2ALL[streamName] = X2
     maxPercentile99 = max(maxPercentile99, percentile99)
 
-file.close()
-
 plt.xlim(0, maxPercentile99)
 plt.grid(True)
 plt.xlabel('Latency in ms')
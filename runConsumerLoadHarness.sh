@@ -0,0 +1,30 @@
+#!/bin/bash
+
+#
+# StreamTeam
+# Copyright (C) 2019  University of Basel
+#
+# This program is free software: you can redistribute it and/or modify
+# it under the terms of the GNU Affero General Public License as
+# published by the Free Software Foundation, either version 3 of the
+# License, or (at your option) any later version.
+#
+# This program is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+# GNU Affero General Public License for more details.
+#
+# You should have received a copy of the GNU Affero General Public License
+# along with this program.  If not, see <https://www.gnu.org/licenses/>.
+#
+
+#http://stackoverflow.com/questions/59895/getting-the-source-directory-of-a-bash-script-from-within
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+
+cd $DIR
+
+# Builds the benchmark jar (benchmark profile) and measures the throughput ceiling of the EvaluationConsumer against an in-process Kafka broker (no network access required)
+# Optional parameters: --matches n, --partitions n, --rates r1,r2,..., --stepDurationInS s, and --drainRecords n
+mvn -q -P benchmark package -DskipTests || exit 1
+
+java -DlogFileName=consumerLoadHarness -Xmx4g -cp ./target/streamteam-evaluation-benchmarks-1.2.0-jar-with-dependencies.jar ch.unibas.dmi.dbis.streamteam.evaluation.consumer.EvaluationConsumerLoadHarness "$@"
@@ -0,0 +1,103 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.SyntheticEventSetGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the event comparison of the EventComparer (matching of the StreamTeam events with the OPTA events for all combinations of the default thresholds) on synthetic event sets (see SyntheticEventSetGenerator).
+ * Run with -prof gc to additionally measure the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EventMatcherBenchmark {
+
+    /**
+     * Time thresholds (in ms) of eventComparer.properties
+     */
+    private static final int[] TIME_THRESHOLDS = {1000, 2000, 3000, 4000, 5000};
+
+    /**
+     * Distance thresholds (in m) of eventComparer.properties
+     */
+    private static final double[] DIST_THRESHOLDS = {1.0, 3.0, 5.0, 7.0, 9.0, Double.POSITIVE_INFINITY};
+
+    /**
+     * Number of OPTA events (a match contains about 1000 successful passes)
+     */
+    @Param({"1000", "10000"})
+    public int numberOfEvents;
+
+    /**
+     * Flag which indicates if the events have a second position (as the successful passes)
+     */
+    @Param({"true"})
+    public boolean withSecondPosition;
+
+    /**
+     * Mode of the assignment of the events
+     */
+    @Param({"GREEDY", "MAXIMUM"})
+    public AssignmentMode assignmentMode;
+
+    /**
+     * OPTA events
+     */
+    private EventSet optaEvents;
+
+    /**
+     * StreamTeam events
+     */
+    private EventSet streamTeamEvents;
+
+    /**
+     * Generates the event sets.
+     */
+    @Setup
+    public void setup() {
+        this.optaEvents = SyntheticEventSetGenerator.generateOptaEvents(this.numberOfEvents, this.withSecondPosition, 42);
+        this.streamTeamEvents = SyntheticEventSetGenerator.generateStreamTeamEvents(this.optaEvents, 0.8, 0.2, 3000, 3.0, 43);
+    }
+
+    /**
+     * Matches the events for all combinations of the thresholds.
+     *
+     * @return Matching results
+     */
+    @Benchmark
+    public EventMatchingResult[][] matchAll() {
+        return EventMatcher.matchAll(this.streamTeamEvents, this.optaEvents, TIME_THRESHOLDS, DIST_THRESHOLDS, this.assignmentMode);
+    }
+
+    /**
+     * Matches the events for the largest thresholds only.
+     *
+     * @return Matching result
+     */
+    @Benchmark
+    public EventMatchingResult matchLargestThresholds() {
+        return EventMatcher.match(this.streamTeamEvents, this.optaEvents, TIME_THRESHOLDS[TIME_THRESHOLDS.length - 1], DIST_THRESHOLDS[DIST_THRESHOLDS.length - 1], this.assignmentMode);
+    }
+}
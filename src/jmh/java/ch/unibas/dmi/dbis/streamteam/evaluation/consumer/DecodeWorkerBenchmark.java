@@ -0,0 +1,133 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the decode/filter loop of the decode workers of the EvaluationConsumer (lazy decoding path, see SyntheticRecordGenerator).
+ * Each invocation handles one record as in DecodeWorker.run() (decoding, selecting, writing the receive system time to the sink, and recording the decode statistics and consumer metrics).
+ * Run with -prof gc to additionally measure the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DecodeWorkerBenchmark {
+
+    /**
+     * Number of distinct records which are decoded in a round-robin manner
+     */
+    @Param({"100000"})
+    public int numberOfRecords;
+
+    /**
+     * Number of matches (keys) over which the records are distributed
+     */
+    @Param({"10"})
+    public int numberOfMatches;
+
+    /**
+     * Synthetic records
+     */
+    private ReceivedRecord[] records;
+
+    /**
+     * Decode worker (its thread is not started)
+     */
+    private DecodeWorker decodeWorker;
+
+    /**
+     * Self-instrumentation of the EvaluationConsumer
+     */
+    private ConsumerMetrics consumerMetrics;
+
+    /**
+     * Sink which counts the selected data stream elements
+     */
+    private CountingSink sink;
+
+    /**
+     * Index of the next record
+     */
+    private int nextRecord;
+
+    /**
+     * Generates the records and creates the decode worker.
+     *
+     * @throws IOException Thrown if evaluationConsumer.properties could not be loaded
+     */
+    @Setup
+    public void setup() throws IOException {
+        this.records = SyntheticRecordGenerator.generate(this.numberOfRecords, this.numberOfMatches, 42);
+        Properties properties = SyntheticRecordGenerator.createConsumerProperties(0);
+        LazyDecodingConfiguration lazyDecodingConfiguration = new LazyDecodingConfiguration(properties);
+        MeasurementDispatchTable measurementDispatchTable = new MeasurementDispatchTable(properties, lazyDecodingConfiguration.isEnabled());
+        this.consumerMetrics = new ConsumerMetrics(measurementDispatchTable.getTopics(), measurementDispatchTable.getMeasurements());
+        this.sink = new CountingSink();
+        this.decodeWorker = new DecodeWorker(1, this.consumerMetrics, this.sink, lazyDecodingConfiguration, measurementDispatchTable);
+        this.nextRecord = 0;
+    }
+
+    /**
+     * Decodes the next record.
+     *
+     * @return Number of selected data stream elements so far (prevents dead code elimination)
+     */
+    @Benchmark
+    public long decodeLazily() {
+        ReceivedRecord receivedRecord = this.records[this.nextRecord];
+        this.nextRecord = this.nextRecord + 1 == this.records.length ? 0 : this.nextRecord + 1;
+
+        long decodeStartNanos = System.nanoTime();
+        boolean successful = this.decodeWorker.decodeAndWrite(receivedRecord);
+        long decodeEndNanos = System.nanoTime();
+        this.consumerMetrics.addDecodedRecord(receivedRecord, decodeStartNanos, decodeEndNanos, successful);
+        return this.sink.count;
+    }
+
+    /**
+     * Sink which only counts the selected data stream elements (to measure the decoding and not the writing of the receive system times).
+     */
+    private static class CountingSink implements ReceiveSystemTimeSink {
+
+        /**
+         * Number of selected data stream elements
+         */
+        private long count;
+
+        @Override
+        public void write(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+            this.count++;
+        }
+
+        @Override
+        public int getBacklog() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
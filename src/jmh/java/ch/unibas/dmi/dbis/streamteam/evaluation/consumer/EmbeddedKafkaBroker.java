@@ -0,0 +1,166 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaServerStartable;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * In-process Kafka broker (with an in-process ZooKeeper server) which only listens on the loopback interface and stores its data in a temporary directory.
+ * https://cwiki.apache.org/confluence/display/KAFKA/FAQ#FAQ-HowdoIwriteunittestsusingKafka?
+ */
+public class EmbeddedKafkaBroker {
+
+    /**
+     * Temporary directory which contains the data of ZooKeeper and Kafka
+     */
+    private final File directory;
+
+    /**
+     * ZooKeeper server
+     */
+    private final ZooKeeperServer zooKeeperServer;
+
+    /**
+     * Connection factory of the ZooKeeper server
+     */
+    private final ServerCnxnFactory zooKeeperConnectionFactory;
+
+    /**
+     * Kafka broker
+     */
+    private final KafkaServerStartable kafkaServer;
+
+    /**
+     * Kafka broker list (host:port)
+     */
+    private final String brokerList;
+
+    /**
+     * EmbeddedKafkaBroker constructor. Starts ZooKeeper and the Kafka broker.
+     *
+     * @throws IOException          Thrown if the temporary directory could not be created or ZooKeeper could not be started
+     * @throws InterruptedException Thrown if the thread is interrupted while starting ZooKeeper
+     */
+    public EmbeddedKafkaBroker() throws IOException, InterruptedException {
+        this.directory = Files.createTempDirectory("embeddedKafkaBroker").toFile();
+
+        this.zooKeeperServer = new ZooKeeperServer(new File(this.directory, "zookeeper"), new File(this.directory, "zookeeper"), 500);
+        this.zooKeeperConnectionFactory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", 0), 100);
+        this.zooKeeperConnectionFactory.startup(this.zooKeeperServer);
+
+        int kafkaPort = findFreePort();
+        this.brokerList = "127.0.0.1:" + kafkaPort;
+        Properties props = new Properties();
+        props.put("broker.id", "0");
+        props.put("zookeeper.connect", "127.0.0.1:" + this.zooKeeperConnectionFactory.getLocalPort());
+        props.put("listeners", "PLAINTEXT://" + this.brokerList);
+        props.put("log.dirs", new File(this.directory, "kafka").getPath());
+        props.put("auto.create.topics.enable", "false");
+        props.put("offsets.topic.replication.factor", "1");
+        props.put("offsets.topic.num.partitions", "1");
+        props.put("transaction.state.log.replication.factor", "1");
+        props.put("transaction.state.log.min.isr", "1");
+        props.put("group.initial.rebalance.delay.ms", "0");
+        this.kafkaServer = new KafkaServerStartable(new KafkaConfig(props));
+        this.kafkaServer.startup();
+    }
+
+    /**
+     * Returns the Kafka broker list.
+     *
+     * @return Kafka broker list (host:port)
+     */
+    public String getBrokerList() {
+        return this.brokerList;
+    }
+
+    /**
+     * Creates topics.
+     *
+     * @param topics             Names of the topics
+     * @param numberOfPartitions Number of partitions per topic
+     * @throws ExecutionException   Thrown if a topic could not be created
+     * @throws InterruptedException Thrown if the thread is interrupted while waiting for the topics to be created
+     */
+    public void createTopics(List<String> topics, int numberOfPartitions) throws ExecutionException, InterruptedException {
+        Properties props = new Properties();
+        props.put("bootstrap.servers", this.brokerList);
+        try (AdminClient adminClient = AdminClient.create(props)) {
+            List<NewTopic> newTopics = new ArrayList<>();
+            for (String topic : topics) {
+                newTopics.add(new NewTopic(topic, numberOfPartitions, (short) 1));
+            }
+            adminClient.createTopics(newTopics).all().get();
+        }
+    }
+
+    /**
+     * Stops the Kafka broker and ZooKeeper and deletes the temporary directory.
+     */
+    public void shutdown() {
+        this.kafkaServer.shutdown();
+        this.kafkaServer.awaitShutdown();
+        this.zooKeeperConnectionFactory.shutdown();
+        deleteRecursively(this.directory);
+    }
+
+    /**
+     * Finds a free port on the loopback interface.
+     *
+     * @return Port
+     * @throws IOException Thrown if no port could be found
+     */
+    private static int findFreePort() throws IOException {
+        // https://stackoverflow.com/questions/2675362/how-to-find-an-available-port
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    /**
+     * Deletes a file or a directory with all its content.
+     *
+     * @param file File or directory
+     */
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
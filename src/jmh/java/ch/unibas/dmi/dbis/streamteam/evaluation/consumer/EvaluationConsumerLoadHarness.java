@@ -0,0 +1,373 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.EvaluationConsumer;
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Self-contained load harness which measures the throughput ceiling and the overhead of the EvaluationConsumer without the cluster.
+ * It starts an in-process Kafka broker on the loopback interface, produces synthetic data stream elements (see SyntheticRecordGenerator, decoded with the lazy decoding path), and runs the consumption loop and the decode workers of the EvaluationConsumer with the poll timeout, decode worker settings, and measurement specification of evaluationConsumer.properties.
+ * <p>
+ * First, a backlog of drainRecords elements is produced before the consumer starts, and the time the consumer needs to drain it yields the maximum records/s and the CPU time per record (consumer thread and decode workers).
+ * Afterwards, the elements are produced at each of the given rates for stepDurationInS seconds. A rate is sustainable if the consumer has caught up at most GRACE_PERIOD_IN_MS after the step.
+ * For each step, the latency of the selected elements (receive system time - send time of the producer) is reported. Since broker, producer, and consumer share the loopback interface, this is the error the measurement setup adds to the latencies measured on the cluster.
+ * Producer, broker, and consumer run in the same JVM, i.e., on a box with few cores the producer can limit the achieved rate (reported as producer-limited).
+ * The results are logged and written to loadHarness/consumerLoadHarnessResults.csv.
+ */
+public class EvaluationConsumerLoadHarness {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EvaluationConsumerLoadHarness.class);
+
+    /**
+     * Maximum time (in ms) the consumer may need after a step to catch up for the rate of the step to count as sustainable
+     */
+    private static final long GRACE_PERIOD_IN_MS = 2000;
+
+    /**
+     * Share of the target rate which the producer has to achieve (otherwise the step is producer-limited)
+     */
+    private static final double MIN_ACHIEVED_RATE_SHARE = 0.95;
+
+    /**
+     * Main method of the EvaluationConsumerLoadHarness.
+     *
+     * @param args Parameters (optional: --matches n, --partitions n, --rates r1,r2,..., --stepDurationInS s, and --drainRecords n)
+     */
+    public static void main(String[] args) {
+        int numberOfMatches = 4;
+        int numberOfPartitions = 4;
+        List<Integer> rates = new ArrayList<>();
+        int stepDurationInS = 10;
+        int drainRecords = 1000000;
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                if (args[i].equals("--matches") && i + 1 < args.length) {
+                    numberOfMatches = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--partitions") && i + 1 < args.length) {
+                    numberOfPartitions = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--rates") && i + 1 < args.length) {
+                    for (String rate : args[++i].split(",")) {
+                        rates.add(Integer.parseInt(rate.trim()));
+                    }
+                } else if (args[i].equals("--stepDurationInS") && i + 1 < args.length) {
+                    stepDurationInS = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--drainRecords") && i + 1 < args.length) {
+                    drainRecords = Integer.parseInt(args[++i]);
+                } else {
+                    logger.error("Unknown parameter {} (expected --matches n, --partitions n, --rates r1,r2,..., --stepDurationInS s, or --drainRecords n).", args[i]);
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            logger.error("Unable to parse parameter.", e);
+            System.exit(1);
+        }
+        if (rates.isEmpty()) {
+            rates.add(10000);
+            rates.add(25000);
+            rates.add(50000);
+            rates.add(100000);
+            rates.add(200000);
+        }
+
+        Properties properties = null;
+        try {
+            properties = SyntheticRecordGenerator.createConsumerProperties(0);
+            properties.setProperty("kafka.partitionAssignment", "subscribe"); // The drain phase consumes the records which are produced before the consumer starts
+        } catch (IOException e) {
+            logger.error("Unable to load evaluationConsumer.properties", e);
+            System.exit(1);
+        }
+        long pollTimeout = PropertyReadHelper.readLongOrDie(properties, "kafka.pollTimeout");
+        int numberOfDecodeWorkers = PropertyReadHelper.readIntOrDie(properties, "decoding.numberOfWorkers");
+        int decodeQueueCapacity = PropertyReadHelper.readIntOrDie(properties, "decoding.queueCapacity");
+        LazyDecodingConfiguration lazyDecodingConfiguration = new LazyDecodingConfiguration(properties);
+        MeasurementDispatchTable measurementDispatchTable = new MeasurementDispatchTable(properties, lazyDecodingConfiguration.isEnabled());
+
+        // The broker logs every topic and partition at info level
+        Configurator.setLevel("kafka", Level.WARN);
+        Configurator.setLevel("org.apache.kafka", Level.WARN);
+        Configurator.setLevel("org.apache.zookeeper", Level.WARN);
+        Configurator.setLevel("org.I0Itec.zkclient", Level.WARN);
+        Configurator.setLevel("state.change.logger", Level.WARN);
+
+        EmbeddedKafkaBroker broker = null;
+        try {
+            logger.info("Start embedded Kafka broker");
+            broker = new EmbeddedKafkaBroker();
+            broker.createTopics(measurementDispatchTable.getTopics(), numberOfPartitions);
+            run(broker.getBrokerList(), numberOfMatches, rates, stepDurationInS, drainRecords, pollTimeout, numberOfDecodeWorkers, decodeQueueCapacity, lazyDecodingConfiguration, measurementDispatchTable, properties);
+        } catch (IOException | ExecutionException e) {
+            logger.error("Caught exception.", e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            logger.info("Interrupted.");
+        } finally {
+            if (broker != null) {
+                broker.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs the drain phase and the rate steps against a Kafka broker.
+     *
+     * @param brokerList                Kafka broker list
+     * @param numberOfMatches           Number of matches (keys)
+     * @param rates                     Rates (in records/s) of the steps
+     * @param stepDurationInS           Duration of each step (in s)
+     * @param drainRecords              Number of records of the drain phase
+     * @param pollTimeout               Poll timeout (in ms)
+     * @param numberOfDecodeWorkers     Number of decode workers
+     * @param decodeQueueCapacity       Maximum number of received but not yet decoded records per decode worker
+     * @param lazyDecodingConfiguration Configuration of the lazy decoding path
+     * @param measurementDispatchTable  Dispatch table which determines the measurements of the records
+     * @param properties                Properties of the EvaluationConsumer
+     * @throws IOException              Thrown if the results could not be written
+     * @throws InterruptedException     Thrown if the thread is interrupted
+     */
+    private static void run(String brokerList, int numberOfMatches, List<Integer> rates, int stepDurationInS, int drainRecords, long pollTimeout, int numberOfDecodeWorkers, int decodeQueueCapacity, LazyDecodingConfiguration lazyDecodingConfiguration, MeasurementDispatchTable measurementDispatchTable, Properties properties) throws IOException, InterruptedException {
+        Properties producerProps = new Properties();
+        producerProps.put("bootstrap.servers", brokerList);
+        producerProps.put("acks", "1");
+        producerProps.put("linger.ms", "1");
+        producerProps.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        producerProps.put("value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        KafkaProducer<String, byte[]> producer = new KafkaProducer<>(producerProps);
+        Random random = new Random(42);
+
+        logger.info("Produce {} records for the drain phase", drainRecords);
+        for (int i = 0; i < drainRecords; ++i) {
+            send(producer, random, numberOfMatches, i);
+        }
+        producer.flush();
+
+        LatencyRecordingSink sink = new LatencyRecordingSink();
+        ConsumerMetrics consumerMetrics = new ConsumerMetrics(measurementDispatchTable.getTopics(), measurementDispatchTable.getMeasurements());
+        DecodeWorker[] decodeWorkers = new DecodeWorker[numberOfDecodeWorkers];
+        List<Thread> consumerThreads = new ArrayList<>();
+        for (int i = 0; i < numberOfDecodeWorkers; ++i) {
+            decodeWorkers[i] = new DecodeWorker(decodeQueueCapacity, consumerMetrics, sink, lazyDecodingConfiguration, measurementDispatchTable);
+            consumerThreads.add(new Thread(decodeWorkers[i], "decodeWorker-" + i));
+        }
+        KafkaConsumer<String, byte[]> kafkaConsumer = EvaluationConsumer.createKafkaConsumer(brokerList, "loadHarness", measurementDispatchTable.getTopics(), properties);
+        Thread consumptionLoopThread = new Thread(() -> EvaluationConsumer.runConsumptionLoop(kafkaConsumer, pollTimeout, decodeWorkers, consumerMetrics), "consumptionLoop");
+        consumerThreads.add(consumptionLoopThread);
+        for (Thread thread : consumerThreads) {
+            thread.start();
+        }
+
+        // https://docs.oracle.com/javase/8/docs/api/java/lang/management/ThreadMXBean.html
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        // Drain phase (measured from the first decoded record to exclude the consumer group join)
+        while (getTotalDecodedRecords(consumerMetrics) == 0) {
+            Thread.sleep(1);
+        }
+        long drainStartNanos = System.nanoTime();
+        long drainStartRecords = getTotalDecodedRecords(consumerMetrics);
+        long drainStartCpuNanos = getCpuNanos(threadMXBean, consumerThreads);
+        while (getTotalDecodedRecords(consumerMetrics) < drainRecords) {
+            Thread.sleep(1);
+        }
+        double drainDurationInS = (System.nanoTime() - drainStartNanos) / 1e9;
+        long drainedRecords = getTotalDecodedRecords(consumerMetrics) - drainStartRecords;
+        double maxRecordsPerS = drainedRecords / drainDurationInS;
+        double cpuNanosPerRecord = (double) (getCpuNanos(threadMXBean, consumerThreads) - drainStartCpuNanos) / drainedRecords;
+        logger.info("Drain phase: consumed {} records in {} s, i.e., the throughput ceiling is {} records/s ({} ns CPU time per record).", drainedRecords, String.format("%.2f", drainDurationInS), String.format("%.0f", maxRecordsPerS), String.format("%.0f", cpuNanosPerRecord));
+
+        File resultsFile = new File("loadHarness/consumerLoadHarnessResults.csv");
+        resultsFile.getParentFile().mkdirs();
+        FileWriter fileWriter = new FileWriter(resultsFile, false);
+        fileWriter.append("phase,targetRecordsPerS,producedRecordsPerS,consumedRecordsPerS,cpuNanosPerRecord,lagAfterStep,catchUpTimeInMs,sustainable,latencyP50InMs,latencyP99InMs,latencyMaxInMs\n");
+        fileWriter.append("drain,,," + String.format("%.0f", maxRecordsPerS) + "," + String.format("%.0f", cpuNanosPerRecord) + ",,,,,,\n");
+
+        // Rate steps
+        long producedRecords = drainRecords;
+        int maxSustainableRate = 0;
+        for (int rate : rates) {
+            sink.reset();
+            long stepStartRecords = getTotalDecodedRecords(consumerMetrics);
+            long stepStartCpuNanos = getCpuNanos(threadMXBean, consumerThreads);
+            long stepStartNanos = System.nanoTime();
+            long stepEndNanos = stepStartNanos + stepDurationInS * 1_000_000_000L;
+            long stepRecords = 0;
+            long now;
+            while ((now = System.nanoTime()) < stepEndNanos) {
+                long dueRecords = (now - stepStartNanos) * rate / 1_000_000_000L;
+                if (stepRecords < dueRecords) {
+                    send(producer, random, numberOfMatches, producedRecords++);
+                    stepRecords++;
+                } else {
+                    Thread.sleep(0, 100000);
+                }
+            }
+            producer.flush();
+            double producedRecordsPerS = stepRecords / ((System.nanoTime() - stepStartNanos) / 1e9);
+            long lagAfterStep = producedRecords - getTotalDecodedRecords(consumerMetrics);
+
+            long catchUpStartNanos = System.nanoTime();
+            while (getTotalDecodedRecords(consumerMetrics) < producedRecords && System.nanoTime() - catchUpStartNanos < GRACE_PERIOD_IN_MS * 1_000_000L) {
+                Thread.sleep(1);
+            }
+            long catchUpTimeInMs = (System.nanoTime() - catchUpStartNanos) / 1_000_000L;
+            long consumedRecords = getTotalDecodedRecords(consumerMetrics) - stepStartRecords;
+            double consumedRecordsPerS = consumedRecords / ((System.nanoTime() - stepStartNanos) / 1e9);
+            double stepCpuNanosPerRecord = consumedRecords == 0 ? 0 : (double) (getCpuNanos(threadMXBean, consumerThreads) - stepStartCpuNanos) / consumedRecords;
+            boolean caughtUp = getTotalDecodedRecords(consumerMetrics) >= producedRecords;
+            boolean producerLimited = producedRecordsPerS < MIN_ACHIEVED_RATE_SHARE * rate;
+            boolean sustainable = caughtUp && !producerLimited;
+            if (sustainable) {
+                maxSustainableRate = Math.max(maxSustainableRate, rate);
+            }
+
+            Histogram latencies = sink.getLatencies();
+            logger.info("Step {} records/s: produced {} records/s{}, consumed {} records/s ({} ns CPU time per record), lag {} records after the step, {} (latency of {} selected elements: p50 {} ms, p99 {} ms, max {} ms).",
+                    rate, String.format("%.0f", producedRecordsPerS), producerLimited ? " (producer-limited)" : "", String.format("%.0f", consumedRecordsPerS), String.format("%.0f", stepCpuNanosPerRecord), lagAfterStep,
+                    caughtUp ? "caught up after " + catchUpTimeInMs + " ms" : "not caught up after " + GRACE_PERIOD_IN_MS + " ms",
+                    latencies.getTotalCount(), latencies.getValueAtPercentile(50), latencies.getValueAtPercentile(99), latencies.getMaxValue());
+            fileWriter.append("step," + rate + "," + String.format("%.0f", producedRecordsPerS) + "," + String.format("%.0f", consumedRecordsPerS) + "," + String.format("%.0f", stepCpuNanosPerRecord) + "," + lagAfterStep + "," + catchUpTimeInMs + "," + sustainable + "," + latencies.getValueAtPercentile(50) + "," + latencies.getValueAtPercentile(99) + "," + latencies.getMaxValue() + "\n");
+
+            if (!caughtUp) {
+                break; // Higher rates are not sustainable either
+            }
+        }
+        fileWriter.close();
+        logger.info("Maximum sustainable rate: {} records/s (throughput ceiling in the drain phase: {} records/s).", maxSustainableRate, String.format("%.0f", maxRecordsPerS));
+
+        producer.close();
+        EvaluationConsumer.stopConsumptionLoop(kafkaConsumer);
+        consumptionLoopThread.join();
+        kafkaConsumer.close();
+        for (DecodeWorker decodeWorker : decodeWorkers) {
+            decodeWorker.stop();
+        }
+        for (Thread thread : consumerThreads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Sends a synthetic element. The generation timestamp of the element is the current system time.
+     *
+     * @param producer        Kafka producer
+     * @param random          Random number generator
+     * @param numberOfMatches Number of matches (keys)
+     * @param recordNumber    Number of the record (selects the match)
+     */
+    private static void send(KafkaProducer<String, byte[]> producer, Random random, int numberOfMatches, long recordNumber) {
+        String topic = SyntheticRecordGenerator.selectTopic(random);
+        producer.send(new ProducerRecord<>(topic, "match" + (recordNumber % numberOfMatches), SyntheticRecordGenerator.generateValue(topic, System.currentTimeMillis(), random)));
+    }
+
+    /**
+     * Returns the CPU time of threads.
+     *
+     * @param threadMXBean Thread MXBean
+     * @param threads      Threads
+     * @return Sum of the CPU times (in ns)
+     */
+    private static long getCpuNanos(ThreadMXBean threadMXBean, List<Thread> threads) {
+        long cpuNanos = 0;
+        for (Thread thread : threads) {
+            cpuNanos += Math.max(0, threadMXBean.getThreadCpuTime(thread.getId()));
+        }
+        return cpuNanos;
+    }
+
+    /**
+     * Returns the number of decoded records of all topics since the start.
+     *
+     * @param consumerMetrics Consumer metrics of the decode workers
+     * @return Number of decoded records
+     */
+    private static long getTotalDecodedRecords(ConsumerMetrics consumerMetrics) {
+        long totalDecodedRecords = 0;
+        for (long decodedRecords : consumerMetrics.getDecodedRecords().values()) {
+            totalDecodedRecords += decodedRecords;
+        }
+        return totalDecodedRecords;
+    }
+
+    /**
+     * Sink which records the latencies of the selected elements (receive system time - generation timestamp, which is the send time of the producer) in a high dynamic range histogram.
+     */
+    private static class LatencyRecordingSink implements ReceiveSystemTimeSink {
+
+        /**
+         * Recorder of the latencies (in ms)
+         */
+        private final Recorder recorder = new Recorder(3);
+
+        @Override
+        public void write(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+            this.recorder.recordValue(Math.max(0, receiveSystemTime - generationTimestamp));
+        }
+
+        @Override
+        public int getBacklog() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Resets the recorded latencies.
+         */
+        public void reset() {
+            this.recorder.reset();
+        }
+
+        /**
+         * Returns the latencies which have been recorded since the last call (or reset).
+         *
+         * @return Latencies (in ms)
+         */
+        public Histogram getLatencies() {
+            return this.recorder.getIntervalHistogram();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.football.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Generator of synthetic serialized data stream elements for the DecodeWorkerBenchmark and the EvaluationConsumerLoadHarness.
+ * The elements are encoded in the protobuf wire format with the synthetic field paths of createConsumerProperties (generation timestamp in field 1, content in the message of field 2, and padding in field 3), i.e., they can only be decoded lazily.
+ * The topics are distributed roughly as in a match (mostly fieldObjectState elements of the ball and the players).
+ * https://developers.google.com/protocol-buffers/docs/encoding
+ */
+public class SyntheticRecordGenerator {
+
+    /**
+     * Number of padding bytes per element (stands in for the positions, velocities, etc. of a real element)
+     */
+    private static final int PADDING_SIZE = 48;
+
+    /**
+     * ObjectIds of the field objects (ball and players)
+     */
+    private static final String[] OBJECT_IDS = {"BALL", "A1", "A2", "A3", "A4", "A5", "A6", "A7", "A8", "A9", "A10", "A11", "B1", "B2", "B3", "B4", "B5", "B6", "B7", "B8", "B9", "B10", "B11"};
+
+    /**
+     * Creates the properties of the EvaluationConsumer (including the measurement specification) with the lazy decoding settings which match the synthetic elements.
+     *
+     * @param verificationInterval Every verificationInterval-th lazily decoded record is additionally decoded completely (has to be 0 for synthetic elements)
+     * @return Properties
+     * @throws IOException Thrown if evaluationConsumer.properties could not be loaded
+     */
+    public static Properties createConsumerProperties(int verificationInterval) throws IOException {
+        Properties properties = new Properties();
+        //http://stackoverflow.com/questions/29070109/how-to-read-properties-file-inside-jar
+        try (InputStream in = SyntheticRecordGenerator.class.getResourceAsStream("/evaluationConsumer.properties")) {
+            properties.load(in);
+        }
+        properties.setProperty("decoding.lazy", "true");
+        properties.setProperty("decoding.lazy.verificationInterval", Integer.toString(verificationInterval));
+        properties.setProperty("decoding.lazy.initialVerifications", "0");
+        properties.setProperty("decoding.lazy.fieldPath.generationTimestamp", "1");
+        properties.setProperty("decoding.lazy.fieldPath.fieldObjectState.objectId", "2.1");
+        properties.setProperty("decoding.lazy.fieldPath.heatmapStatistics.teamStatistics", "2.1");
+        properties.setProperty("decoding.lazy.fieldPath.heatmapStatistics.playerId", "2.2");
+        properties.setProperty("decoding.lazy.fieldPath.heatmapStatistics.intervalInS", "2.3");
+        properties.setProperty("decoding.lazy.fieldPath.passStatistics.teamStatistics", "2.1");
+        properties.setProperty("decoding.lazy.fieldPath.passStatistics.teamId", "2.2");
+        return properties;
+    }
+
+    /**
+     * Generates synthetic received records.
+     *
+     * @param numberOfRecords Number of records
+     * @param numberOfMatches Number of matches (keys) over which the records are distributed
+     * @param seed            Seed of the random number generator
+     * @return Received records
+     */
+    public static ReceivedRecord[] generate(int numberOfRecords, int numberOfMatches, long seed) {
+        Random random = new Random(seed);
+        ReceivedRecord[] records = new ReceivedRecord[numberOfRecords];
+        for (int i = 0; i < numberOfRecords; ++i) {
+            String matchId = "match" + random.nextInt(numberOfMatches);
+            long generationTimestamp = 1_500_000_000_000L + i * 40L;
+            String topic = selectTopic(random);
+            records[i] = new ReceivedRecord(topic, random.nextInt(8), i, matchId, generateValue(topic, generationTimestamp, random), generationTimestamp + 20, System.nanoTime());
+        }
+        return records;
+    }
+
+    /**
+     * Selects the topic of the next element (80% fieldObjectState, 10% heatmapStatistics, 4% passStatistics, 3% kickEvent, and 3% passSequenceEvent).
+     *
+     * @param random Random number generator
+     * @return Topic
+     */
+    public static String selectTopic(Random random) {
+        int topicSelector = random.nextInt(100);
+        if (topicSelector < 80) {
+            return FieldObjectStateStreamElement.STREAMNAME;
+        } else if (topicSelector < 90) {
+            return HeatmapStatisticsStreamElement.STREAMNAME;
+        } else if (topicSelector < 94) {
+            return PassStatisticsStreamElement.STREAMNAME;
+        } else if (topicSelector < 97) {
+            return KickEventStreamElement.STREAMNAME;
+        } else {
+            return PassSequenceEventStreamElement.STREAMNAME;
+        }
+    }
+
+    /**
+     * Generates a serialized synthetic element.
+     *
+     * @param topic               Topic of the element
+     * @param generationTimestamp Generation timestamp of the element
+     * @param random              Random number generator
+     * @return Serialized element
+     */
+    public static byte[] generateValue(String topic, long generationTimestamp, Random random) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        if (topic.equals(FieldObjectStateStreamElement.STREAMNAME)) {
+            writeString(content, 1, OBJECT_IDS[random.nextInt(OBJECT_IDS.length)]);
+        } else if (topic.equals(HeatmapStatisticsStreamElement.STREAMNAME)) {
+            boolean teamStatistics = random.nextInt(4) == 0;
+            writeVarint(content, 1, teamStatistics ? 1 : 0);
+            writeString(content, 2, teamStatistics ? "A" : OBJECT_IDS[1 + random.nextInt(OBJECT_IDS.length - 1)]);
+            writeVarint(content, 3, random.nextInt(3) * 300);
+        } else if (topic.equals(PassStatisticsStreamElement.STREAMNAME)) {
+            writeVarint(content, 1, random.nextBoolean() ? 1 : 0);
+            writeString(content, 2, random.nextBoolean() ? "A" : "B");
+        }
+
+        byte[] padding = new byte[PADDING_SIZE];
+        random.nextBytes(padding);
+
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        writeVarint(value, 1, generationTimestamp);
+        writeBytes(value, 3, padding);
+        writeBytes(value, 2, content.toByteArray());
+        return value.toByteArray();
+    }
+
+    /**
+     * Writes a varint field.
+     *
+     * @param out         Output stream
+     * @param fieldNumber Field number
+     * @param value       Value
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int fieldNumber, long value) {
+        writeRawVarint(out, fieldNumber << 3);
+        writeRawVarint(out, value);
+    }
+
+    /**
+     * Writes a string field.
+     *
+     * @param out         Output stream
+     * @param fieldNumber Field number
+     * @param value       Value
+     */
+    private static void writeString(ByteArrayOutputStream out, int fieldNumber, String value) {
+        writeBytes(out, fieldNumber, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a length-delimited field.
+     *
+     * @param out         Output stream
+     * @param fieldNumber Field number
+     * @param value       Value
+     */
+    private static void writeBytes(ByteArrayOutputStream out, int fieldNumber, byte[] value) {
+        writeRawVarint(out, (fieldNumber << 3) | 2);
+        writeRawVarint(out, value.length);
+        out.write(value, 0, value.length);
+    }
+
+    /**
+     * Writes a varint without a tag.
+     *
+     * @param out   Output stream
+     * @param value Value
+     */
+    private static void writeRawVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
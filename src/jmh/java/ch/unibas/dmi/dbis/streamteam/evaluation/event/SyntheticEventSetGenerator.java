@@ -0,0 +1,135 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.event;
+
+import java.util.Random;
+
+/**
+ * Generator of synthetic OPTA and StreamTeam event sets for the EventMatcherBenchmark.
+ * The OPTA events are distributed over a match of 90 minutes on a 105 x 68 field. The StreamTeam events detect a share of the OPTA events with a time and position error and additionally contain wrong detections.
+ */
+public class SyntheticEventSetGenerator {
+
+    /**
+     * Duration of the match (in ms)
+     */
+    private static final int MATCH_DURATION_IN_MS = 90 * 60 * 1000;
+
+    /**
+     * Length of the field (in m)
+     */
+    private static final double FIELD_LENGTH = 105.0;
+
+    /**
+     * Width of the field (in m)
+     */
+    private static final double FIELD_WIDTH = 68.0;
+
+    /**
+     * Generates the OPTA events.
+     *
+     * @param numberOfEvents     Number of events
+     * @param withSecondPosition Flag which indicates if the events have a second position
+     * @param seed               Seed of the random number generator
+     * @return OPTA events (ordered by timestamp)
+     */
+    public static EventSet generateOptaEvents(int numberOfEvents, boolean withSecondPosition, long seed) {
+        Random random = new Random(seed);
+        EventSet.Builder builder = new EventSet.Builder(withSecondPosition);
+        double meanInterval = (double) MATCH_DURATION_IN_MS / numberOfEvents;
+        double timestamp = 0;
+        for (int i = 0; i < numberOfEvents; ++i) {
+            timestamp += -Math.log(1.0 - random.nextDouble()) * meanInterval;
+            double x = (random.nextDouble() - 0.5) * FIELD_LENGTH;
+            double y = (random.nextDouble() - 0.5) * FIELD_WIDTH;
+            if (withSecondPosition) {
+                builder.add((int) timestamp, x, y, clamp(x + random.nextGaussian() * 15.0, FIELD_LENGTH), clamp(y + random.nextGaussian() * 15.0, FIELD_WIDTH));
+            } else {
+                builder.add((int) timestamp, x, y);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Generates the StreamTeam events for a set of OPTA events.
+     *
+     * @param optaEvents          OPTA events
+     * @param detectionRate       Share of the OPTA events which are detected
+     * @param wrongDetectionRate  Number of wrong detections relative to the number of OPTA events
+     * @param maxTimeErrorInMs    Maximum time error (in ms) of a detection
+     * @param positionErrorStdDev Standard deviation of the position error (in m) of a detection
+     * @param seed                Seed of the random number generator
+     * @return StreamTeam events (ordered by timestamp)
+     */
+    public static EventSet generateStreamTeamEvents(EventSet optaEvents, double detectionRate, double wrongDetectionRate, int maxTimeErrorInMs, double positionErrorStdDev, long seed) {
+        Random random = new Random(seed);
+        boolean withSecondPosition = optaEvents.hasSecondPosition();
+        EventSet wrongDetections = generateOptaEvents((int) (optaEvents.size() * wrongDetectionRate), withSecondPosition, seed + 1);
+
+        // Merges the detections and the wrong detections in the order of their timestamps (the detections are ordered since the time error is smaller than the distance of most OPTA events)
+        EventSet.Builder builder = new EventSet.Builder(withSecondPosition);
+        int nextWrongDetection = 0;
+        int previousTimestamp = Integer.MIN_VALUE;
+        for (int i = 0; i < optaEvents.size(); ++i) {
+            if (random.nextDouble() >= detectionRate) {
+                continue;
+            }
+            int timestamp = Math.max(previousTimestamp, optaEvents.getTimestamp(i) + random.nextInt(2 * maxTimeErrorInMs + 1) - maxTimeErrorInMs);
+            while (nextWrongDetection < wrongDetections.size() && wrongDetections.getTimestamp(nextWrongDetection) <= timestamp) {
+                addEvent(builder, wrongDetections, nextWrongDetection++, 0, 0);
+            }
+            addEvent(builder, optaEvents, i, timestamp - optaEvents.getTimestamp(i), positionErrorStdDev * random.nextGaussian());
+            previousTimestamp = timestamp;
+        }
+        while (nextWrongDetection < wrongDetections.size()) {
+            addEvent(builder, wrongDetections, nextWrongDetection++, 0, 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Appends an event of an event set with a time and position error.
+     *
+     * @param builder       Builder to which the event is appended
+     * @param eventSet      Event set
+     * @param event         Index of the event
+     * @param timeError     Time error (in ms)
+     * @param positionError Position error (in m, applied to all coordinates)
+     */
+    private static void addEvent(EventSet.Builder builder, EventSet eventSet, int event, int timeError, double positionError) {
+        if (eventSet.hasSecondPosition()) {
+            builder.add(eventSet.getTimestamp(event) + timeError, eventSet.getX(event) + positionError, eventSet.getY(event) + positionError, eventSet.getX2(event) + positionError, eventSet.getY2(event) + positionError);
+        } else {
+            builder.add(eventSet.getTimestamp(event) + timeError, eventSet.getX(event) + positionError, eventSet.getY(event) + positionError);
+        }
+    }
+
+    /**
+     * Clamps a coordinate to the field.
+     *
+     * @param coordinate Coordinate
+     * @param extent     Length or width of the field
+     * @return Clamped coordinate
+     */
+    private static double clamp(double coordinate, double extent) {
+        return Math.max(-extent / 2, Math.min(extent / 2, coordinate));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.LatencyCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the LatencyCalculator (CSV parsing, construction of the send system time index, and the sequential, parallel, and merge-join modes) on synthetic system time files (see SyntheticSystemTimeFileGenerator).
+ * Each invocation processes all files once. Run with -prof gc to additionally measure the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LatencyCalculationBenchmark {
+
+    /**
+     * Number of concurrent matches
+     */
+    @Param({"4"})
+    public int numberOfMatches;
+
+    /**
+     * Duration of the matches (in s)
+     */
+    @Param({"600"})
+    public int durationInS;
+
+    /**
+     * Number of send system times per matchId-generationTs-combination
+     */
+    @Param({"4"})
+    public int sensorsPerTimestamp;
+
+    /**
+     * Format of the latency files
+     */
+    @Param({"CSV", "COLUMNAR"})
+    public LatencyFileFormat latencyFileFormat;
+
+    /**
+     * Directory which contains the synthetic files
+     */
+    private File directory;
+
+    /**
+     * Path to the send system time file
+     */
+    private String sendSystemTimeFilePath;
+
+    /**
+     * Paths to the receive system time files
+     */
+    private List<String> receiveSystemTimeFilePaths;
+
+    /**
+     * Paths to the latency files
+     */
+    private List<String> latencyFilePaths;
+
+    /**
+     * Index containing the minimum send system time for each matchId-generationTs-combination (for the sequential and parallel mode)
+     */
+    private SendSystemTimeIndex minimumSendSystemTimeIndex;
+
+    /**
+     * Generates the system time files and constructs the send system time index.
+     *
+     * @throws IOException Thrown if the files could not be generated
+     */
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("latencyCalculationBenchmark").toFile();
+        this.sendSystemTimeFilePath = new File(this.directory, "rawPositionSensorDataSendSystemTimes.csv").getPath();
+        this.receiveSystemTimeFilePaths = new ArrayList<>();
+        this.latencyFilePaths = new ArrayList<>();
+        for (String measurementName : LatencyCalculator.readMeasurementNamesOrDie()) {
+            this.receiveSystemTimeFilePaths.add(new File(this.directory, measurementName + "ReceiveSystemTimes.csv").getPath());
+            this.latencyFilePaths.add(new File(this.directory, measurementName + "Latencies." + this.latencyFileFormat.getFileExtension()).getPath());
+        }
+        SyntheticSystemTimeFileGenerator.generate(this.sendSystemTimeFilePath, this.receiveSystemTimeFilePaths, this.numberOfMatches, this.durationInS, this.sensorsPerTimestamp, 42);
+        this.minimumSendSystemTimeIndex = LatencyCalculator.constructMinimumSendSystemTimeMap(this.sendSystemTimeFilePath);
+    }
+
+    /**
+     * Deletes the synthetic files and the latency files.
+     */
+    @TearDown
+    public void tearDown() {
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    /**
+     * Parses the send system time file and constructs the send system time index.
+     *
+     * @return Send system time index
+     * @throws IOException Thrown if the send system time file could not be read
+     */
+    @Benchmark
+    public SendSystemTimeIndex constructSendSystemTimeIndex() throws IOException {
+        return LatencyCalculator.constructMinimumSendSystemTimeMap(this.sendSystemTimeFilePath);
+    }
+
+    /**
+     * Calculates the latencies of all receive system time files sequentially (without constructing the index).
+     *
+     * @throws IOException Thrown if a file could not be read or written
+     */
+    @Benchmark
+    public void calculateSequentially() throws IOException {
+        for (int i = 0; i < this.receiveSystemTimeFilePaths.size(); ++i) {
+            LatencyCalculator.constructAndWriteLatencyFile(this.minimumSendSystemTimeIndex, this.receiveSystemTimeFilePaths.get(i), this.latencyFilePaths.get(i), this.latencyFileFormat);
+        }
+    }
+
+    /**
+     * Calculates the latencies of all receive system time files in parallel (without constructing the index).
+     *
+     * @throws IOException Thrown if a file could not be read or written
+     */
+    @Benchmark
+    public void calculateInParallel() throws IOException {
+        ParallelLatencyCalculator parallelLatencyCalculator = new ParallelLatencyCalculator(this.minimumSendSystemTimeIndex, Runtime.getRuntime().availableProcessors(), 8 << 20, this.latencyFileFormat);
+        try {
+            parallelLatencyCalculator.constructAndWriteLatencyFiles(this.receiveSystemTimeFilePaths, this.latencyFilePaths);
+        } finally {
+            parallelLatencyCalculator.shutdown();
+        }
+    }
+
+    /**
+     * Calculates the latencies of all receive system time files with the streaming merge-join (including the pass over the send system time file).
+     *
+     * @throws IOException Thrown if a file could not be read or written
+     */
+    @Benchmark
+    public void calculateWithMergeJoin() throws IOException {
+        new MergeJoinLatencyCalculator(1 << 16, 1 << 21, this.latencyFileFormat).constructAndWriteLatencyFiles(this.sendSystemTimeFilePath, this.receiveSystemTimeFilePaths, this.latencyFilePaths);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic send and receive system time CSV files (matchId,generationTimestamp,systemTimestamp) for the LatencyCalculationBenchmark.
+ * The sensor simulator sends sensorsPerTimestamp raw position sensor data stream elements per match every 40 ms (all matches interleaved), and each receive system time file contains one line per matchId-generationTs-combination with a latency between 5 and 100 ms.
+ * As in the real files, the lines of the receive system time files are slightly out of order.
+ */
+public class SyntheticSystemTimeFileGenerator {
+
+    /**
+     * Interval (in ms) between two generation timestamps of a match
+     */
+    private static final int GENERATION_INTERVAL_IN_MS = 40;
+
+    /**
+     * Generation timestamp at which the matches start
+     */
+    private static final long START_TIMESTAMP = 1_500_000_000_000L;
+
+    /**
+     * Generates the send system time file and the receive system time files.
+     *
+     * @param sendSystemTimeFilePath     Path to the send system time file
+     * @param receiveSystemTimeFilePaths Paths to the receive system time files
+     * @param numberOfMatches            Number of concurrent matches
+     * @param durationInS                Duration of the matches (in s)
+     * @param sensorsPerTimestamp        Number of send system times per matchId-generationTs-combination
+     * @param seed                       Seed of the random number generator
+     * @throws IOException Thrown if a file could not be written
+     */
+    public static void generate(String sendSystemTimeFilePath, List<String> receiveSystemTimeFilePaths, int numberOfMatches, int durationInS, int sensorsPerTimestamp, long seed) throws IOException {
+        Random random = new Random(seed);
+        int numberOfReceiveFiles = receiveSystemTimeFilePaths.size();
+        BufferedWriter sendWriter = new BufferedWriter(new FileWriter(sendSystemTimeFilePath, false));
+        BufferedWriter[] receiveWriters = new BufferedWriter[numberOfReceiveFiles];
+        try {
+            sendWriter.write("matchId,generationTimestamp,systemTimestamp\n");
+            for (int i = 0; i < numberOfReceiveFiles; ++i) {
+                receiveWriters[i] = new BufferedWriter(new FileWriter(receiveSystemTimeFilePaths.get(i), false));
+                receiveWriters[i].write("matchId,generationTimestamp,systemTimestamp\n");
+            }
+
+            String[] matchIds = new String[numberOfMatches];
+            for (int m = 0; m < numberOfMatches; ++m) {
+                matchIds[m] = "match" + m;
+            }
+
+            // Lines of the previous generation timestamp which are written with a delay to produce local disorder in the receive system time files
+            String[][] delayedLines = new String[numberOfReceiveFiles][numberOfMatches];
+            for (long generationTimestamp = START_TIMESTAMP; generationTimestamp < START_TIMESTAMP + durationInS * 1000L; generationTimestamp += GENERATION_INTERVAL_IN_MS) {
+                for (int m = 0; m < numberOfMatches; ++m) {
+                    long minimumSendSystemTime = Long.MAX_VALUE;
+                    for (int s = 0; s < sensorsPerTimestamp; ++s) {
+                        long sendSystemTime = generationTimestamp + random.nextInt(5);
+                        minimumSendSystemTime = Math.min(minimumSendSystemTime, sendSystemTime);
+                        sendWriter.write(matchIds[m] + "," + generationTimestamp + "," + sendSystemTime + "\n");
+                    }
+
+                    for (int i = 0; i < numberOfReceiveFiles; ++i) {
+                        String line = matchIds[m] + "," + generationTimestamp + "," + (minimumSendSystemTime + 5 + random.nextInt(96)) + "\n";
+                        if (random.nextInt(10) == 0) {
+                            if (delayedLines[i][m] != null) {
+                                receiveWriters[i].write(delayedLines[i][m]);
+                            }
+                            delayedLines[i][m] = line;
+                        } else {
+                            receiveWriters[i].write(line);
+                            if (delayedLines[i][m] != null) {
+                                receiveWriters[i].write(delayedLines[i][m]);
+                                delayedLines[i][m] = null;
+                            }
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < numberOfReceiveFiles; ++i) {
+                for (int m = 0; m < numberOfMatches; ++m) {
+                    if (delayedLines[i][m] != null) {
+                        receiveWriters[i].write(delayedLines[i][m]);
+                    }
+                }
+            }
+        } finally {
+            sendWriter.close();
+            for (BufferedWriter receiveWriter : receiveWriters) {
+                if (receiveWriter != null) {
+                    receiveWriter.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.ColumnarLatencyFileReader;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.CsvLatencyFileWriter;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.LatencyFileFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Component which exports the columnar binary latency files written by the LatencyCalculator into latency CSV files (matchId,generationTimestamp,latencyInMs).
+ */
+public class ColumnarLatencyFileExporter {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarLatencyFileExporter.class);
+
+    /**
+     * Main method of the Columnar Latency File Exporter.
+     *
+     * @param args Parameters (optional: directory containing the columnar latency files and in which the CSV files are written)
+     */
+    public static void main(String[] args) {
+        String directoryPath = "./latencies";
+        if (args.length > 0) {
+            directoryPath = args[0];
+        }
+
+        String columnarFileExtension = "." + LatencyFileFormat.COLUMNAR.getFileExtension();
+        File[] columnarLatencyFiles = new File(directoryPath).listFiles((dir, name) -> name.endsWith(columnarFileExtension));
+        if (columnarLatencyFiles == null || columnarLatencyFiles.length == 0) {
+            logger.error("There is no columnar latency file in {}.", directoryPath);
+            System.exit(1);
+        }
+        Arrays.sort(columnarLatencyFiles);
+
+        try {
+            for (File columnarLatencyFile : columnarLatencyFiles) {
+                String fileName = columnarLatencyFile.getName();
+                String csvLatencyFilePath = directoryPath + "/" + fileName.substring(0, fileName.length() - columnarFileExtension.length()) + "." + LatencyFileFormat.CSV.getFileExtension();
+                long numberOfLines = exportLatencyFile(columnarLatencyFile.getPath(), csvLatencyFilePath);
+                logger.info("Exported {} latencies from {} to {}", numberOfLines, columnarLatencyFile, csvLatencyFilePath);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to export latency files.", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Exports a columnar latency file into a latency CSV file.
+     *
+     * @param columnarLatencyFilePath Path to the columnar latency file
+     * @param csvLatencyFilePath      Path to the latency CSV file
+     * @return Number of exported latencies
+     * @throws IOException Thrown if the columnar latency file could not be read properly or the latency CSV file could not be written properly
+     */
+    public static long exportLatencyFile(String columnarLatencyFilePath, String csvLatencyFilePath) throws IOException {
+        long numberOfLines = 0;
+        try (ColumnarLatencyFileReader reader = new ColumnarLatencyFileReader(columnarLatencyFilePath);
+             CsvLatencyFileWriter writer = new CsvLatencyFileWriter(csvLatencyFilePath)) {
+            while (reader.next()) {
+                byte[] matchIdBytes = reader.getMatchIdBytes();
+                writer.appendLine(matchIdBytes, 0, matchIdBytes.length, reader.getGenerationTimestamp(), reader.getLatency());
+                numberOfLines++;
+            }
+        }
+        return numberOfLines;
+    }
+}
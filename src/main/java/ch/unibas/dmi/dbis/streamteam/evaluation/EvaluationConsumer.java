@@ -18,29 +18,49 @@
 
 package ch.unibas.dmi.dbis.streamteam.evaluation;
 
-import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.AbstractImmutableDataStreamElement;
-import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.football.*;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.ConsumerMetrics;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.DecodeWorker;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.LazyDecodingConfiguration;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.Log4jReceiveSystemTimeSink;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.MeasurementDispatchTable;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.OnlineLatencyTracker;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.ReceiveSystemTimeJournal;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.ReceiveSystemTimeSink;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.ReceivedRecord;
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.SendSystemTimeTailer;
 import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
-import com.google.protobuf.InvalidProtocolBufferException;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
+import org.apache.logging.log4j.LogManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.Marker;
-import org.slf4j.MarkerFactory;
 
+import javax.management.JMException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Component which consumes selected data stream elements from Kafka and logs the system time when they are received to dedicated CSV files
+ * Component which consumes selected data stream elements from Kafka and writes the system time when they are received to dedicated CSV files (via Log4j) or to a binary journal.
+ * The selected data stream elements are declared by the measurement specification in the properties which is compiled into a topic-indexed dispatch table (see MeasurementDispatchTable).
+ * The receive system time is captured directly after the poll call. Decoding the records is performed by a pool of decode workers to which the partitions are assigned.
+ * The decode cost is not part of the measured latencies but periodically logged as a separate metric.
+ * The health of the consumer itself (poll timing, throughput, decode times, filter hit ratios, lag, and backlogs) is exposed via JMX and a periodic stats line (see ConsumerMetrics).
+ * The consumer either joins a new consumer group and replays the topics from the earliest offsets or, for a fast start, assigns all partitions directly and seeks to a start time (e.g., the start of the sensor simulator).
+ * Optionally, the latencies are additionally calculated online by following the send system time file of the sensor simulator.
  */
 public class EvaluationConsumer {
 
@@ -50,34 +70,9 @@ public class EvaluationConsumer {
     private static final Logger logger = LoggerFactory.getLogger(EvaluationConsumer.class);
 
     /**
-     * Parent receive system time marker
+     * Flag which indicates if the consumption loop should keep running
      */
-    private static final Marker parentReceiveSystemTimeMarker = MarkerFactory.getMarker("PARENT_RECEIVESYSTEMTIME");
-
-    /**
-     * Ball object state receive system time marker
-     */
-    private static final Marker ballObjectStateReceiveSystemTimeMarker = MarkerFactory.getMarker("BALLOBJECTSTATE_RECEIVESYSTEMTIME");
-
-    /**
-     * A1 full game heatmap statistics receive system time marker
-     */
-    private static final Marker A1FullGameHeatmapStatisticsReceiveSystemTimeMarker = MarkerFactory.getMarker("A1FULLGAMEHEATMAPSTATISTICS_RECEIVESYSTEMTIME");
-
-    /**
-     * Kick event receive system time marker
-     */
-    private static final Marker kickEventReceiveSystemTimeMarker = MarkerFactory.getMarker("KICKEVENT_RECEIVESYSTEMTIME");
-
-    /**
-     * Team B pass statistics receive system time marker
-     */
-    private static final Marker BPassStatisticsReceiveSystemTimeMarker = MarkerFactory.getMarker("BPASSSTATISTICS_RECEIVESYSTEMTIME");
-
-    /**
-     * Pass sequence event receive system time marker
-     */
-    private static final Marker passSequenceEventReceiveSystemTimeMarker = MarkerFactory.getMarker("PASSSEQUENCEEVENT_RECEIVESYSTEMTIME");
+    private static volatile boolean runFlag = true;
 
     /**
      * Main method of the EvaluationConsumer.
@@ -101,73 +96,256 @@ public class EvaluationConsumer {
         long pollTimeout = PropertyReadHelper.readLongOrDie(properties, "kafka.pollTimeout");
         String brokerList = PropertyReadHelper.readStringOrDie(properties, "kafka.brokerList");
         String groupIdPrefix = PropertyReadHelper.readStringOrDie(properties, "kafka.groupIdPrefix");
+        int numberOfDecodeWorkers = PropertyReadHelper.readIntOrDie(properties, "decoding.numberOfWorkers");
+        int decodeQueueCapacity = PropertyReadHelper.readIntOrDie(properties, "decoding.queueCapacity");
+        long metricsLogInterval = PropertyReadHelper.readLongOrDie(properties, "metrics.logIntervalInS");
+        boolean jmxEnabled = PropertyReadHelper.readBooleanOrDie(properties, "metrics.jmx");
+        LazyDecodingConfiguration lazyDecodingConfiguration = new LazyDecodingConfiguration(properties);
+        MeasurementDispatchTable measurementDispatchTable = new MeasurementDispatchTable(properties, lazyDecodingConfiguration.isEnabled());
+        String receiveSystemTimeSinkType = PropertyReadHelper.readStringOrDie(properties, "receiveSystemTimes.sink").trim();
+
+        ReceiveSystemTimeSink receiveSystemTimeSink = null;
+        if (receiveSystemTimeSinkType.equals("journal")) {
+            String journalDirectory = PropertyReadHelper.readStringOrDie(properties, "receiveSystemTimes.journalDirectory");
+            int journalQueueCapacity = PropertyReadHelper.readIntOrDie(properties, "receiveSystemTimes.journalQueueCapacity");
+            String journalFilePath = journalDirectory + "/receiveSystemTimes_" + System.currentTimeMillis() + ReceiveSystemTimeJournal.FILE_EXTENSION;
+            try {
+                receiveSystemTimeSink = new ReceiveSystemTimeJournal(journalFilePath, measurementDispatchTable.getMeasurements(), journalQueueCapacity);
+                logger.info("Writes receive system times to journal {}", journalFilePath);
+            } catch (IOException e) {
+                logger.error("Unable to create journal {}", journalFilePath, e);
+                System.exit(1);
+            }
+        } else if (receiveSystemTimeSinkType.equals("log4j")) {
+            receiveSystemTimeSink = new Log4jReceiveSystemTimeSink();
+        } else {
+            logger.error("Unknown receive system time sink: {}", receiveSystemTimeSinkType);
+            System.exit(1);
+        }
+
+        boolean onlineLatencyEnabled = PropertyReadHelper.readBooleanOrDie(properties, "onlineLatency.enabled");
+        OnlineLatencyTracker onlineLatencyTracker = null;
+        SendSystemTimeTailer sendSystemTimeTailer = null;
+        long onlineLatencySnapshotInterval = 0;
+        if (onlineLatencyEnabled) {
+            String sendSystemTimeFilePath = PropertyReadHelper.readStringOrDie(properties, "onlineLatency.sendSystemTimeFile");
+            long tailInterval = PropertyReadHelper.readLongOrDie(properties, "onlineLatency.tailIntervalInMs");
+            long maxPendingTime = PropertyReadHelper.readLongOrDie(properties, "onlineLatency.maxPendingTimeInMs");
+            String statsFilePath = PropertyReadHelper.readStringOrDie(properties, "onlineLatency.statsFile");
+            onlineLatencySnapshotInterval = PropertyReadHelper.readLongOrDie(properties, "onlineLatency.snapshotIntervalInS");
+            try {
+                onlineLatencyTracker = new OnlineLatencyTracker(receiveSystemTimeSink, measurementDispatchTable.getMeasurements(), maxPendingTime, statsFilePath);
+            } catch (IOException e) {
+                logger.error("Unable to create {}", statsFilePath, e);
+                System.exit(1);
+            }
+            receiveSystemTimeSink = onlineLatencyTracker;
+            sendSystemTimeTailer = new SendSystemTimeTailer(sendSystemTimeFilePath, onlineLatencyTracker, tailInterval);
+            logger.info("Calculates latencies online using the send system times in {}", sendSystemTimeFilePath);
+        }
 
         logger.info("Initializing EvaluationConsumer");
+        KafkaConsumer<String, byte[]> kafkaConsumer = createKafkaConsumer(brokerList, groupIdPrefix, measurementDispatchTable.getTopics(), properties);
+
+        logger.info("Start {} decode workers", numberOfDecodeWorkers);
+        ScheduledExecutorService statisticsExecutor = Executors.newSingleThreadScheduledExecutor();
+        ConsumerMetrics consumerMetrics = new ConsumerMetrics(measurementDispatchTable.getTopics(), measurementDispatchTable.getMeasurements());
+        statisticsExecutor.scheduleAtFixedRate(consumerMetrics, metricsLogInterval, metricsLogInterval, TimeUnit.SECONDS);
+        if (jmxEnabled) {
+            try {
+                consumerMetrics.registerMBean();
+                logger.info("Registered metrics as {}", ConsumerMetrics.OBJECT_NAME);
+            } catch (JMException e) {
+                logger.error("Unable to register metrics as {}", ConsumerMetrics.OBJECT_NAME, e);
+            }
+        }
+        Thread sendSystemTimeTailerThread = null;
+        if (onlineLatencyEnabled) {
+            statisticsExecutor.scheduleAtFixedRate(onlineLatencyTracker::writeSnapshot, onlineLatencySnapshotInterval, onlineLatencySnapshotInterval, TimeUnit.SECONDS);
+            sendSystemTimeTailerThread = new Thread(sendSystemTimeTailer, "sendSystemTimeTailer");
+            sendSystemTimeTailerThread.start();
+        }
+        DecodeWorker[] decodeWorkers = new DecodeWorker[numberOfDecodeWorkers];
+        Thread[] decodeWorkerThreads = new Thread[numberOfDecodeWorkers];
+        for (int i = 0; i < numberOfDecodeWorkers; ++i) {
+            decodeWorkers[i] = new DecodeWorker(decodeQueueCapacity, consumerMetrics, receiveSystemTimeSink, lazyDecodingConfiguration, measurementDispatchTable);
+            decodeWorkerThreads[i] = new Thread(decodeWorkers[i], "decodeWorker-" + i);
+            decodeWorkerThreads[i].start();
+        }
+        consumerMetrics.attach(kafkaConsumer, decodeWorkers, receiveSystemTimeSink);
+
+        // https://stackoverflow.com/questions/2921945/useful-example-of-a-shutdown-hook-in-java
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopConsumptionLoop(kafkaConsumer);
+            try {
+                mainThread.join();
+            } catch (InterruptedException e) {
+                logger.trace("InterruptedException in shutdown hook.", e);
+            }
+        }));
+
+        logger.info("Start consumption loop");
+        runConsumptionLoop(kafkaConsumer, pollTimeout, decodeWorkers, consumerMetrics);
+
+        kafkaConsumer.close();
+        logger.info("Closed StreamConsumer");
+
+        for (int i = 0; i < numberOfDecodeWorkers; ++i) {
+            decodeWorkers[i].stop();
+        }
+        for (int i = 0; i < numberOfDecodeWorkers; ++i) {
+            try {
+                decodeWorkerThreads[i].join();
+            } catch (InterruptedException e) {
+                logger.trace("InterruptedException while waiting for the decode workers.", e);
+            }
+        }
+        logger.info("Stopped decode workers");
+
+        if (onlineLatencyEnabled) {
+            sendSystemTimeTailer.stop();
+            try {
+                sendSystemTimeTailerThread.join();
+            } catch (InterruptedException e) {
+                logger.trace("InterruptedException while waiting for the send system time tailer.", e);
+            }
+        }
+
+        statisticsExecutor.shutdown();
+        try {
+            statisticsExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            logger.trace("InterruptedException while waiting for the statistics executor.", e);
+        }
+        consumerMetrics.run(); // Final report
+
+        receiveSystemTimeSink.close();
+        logger.info("Closed receive system time sink");
+
+        LogManager.shutdown(); // The automatic shutdown hook of Log4j2 is disabled in startEvaluationConsumer.sh (-Dlog4j.shutdownHookEnabled=false) to be able to write the remaining receive system times
+    }
+
+    /**
+     * Creates a Kafka consumer which consumes the topics of the selected data stream elements.
+     * In the subscribe mode, the consumer joins a new consumer group and starts at the earliest offsets, i.e., it replays the whole retained history of the topics.
+     * In the assign mode, all partitions of the topics are assigned directly (no consumer group and hence no rebalance) and the consumer seeks to the first records whose timestamps are not before the start time.
+     *
+     * @param brokerList    Kafka broker list
+     * @param groupIdPrefix Prefix of the consumer group id (only used in the subscribe mode)
+     * @param topics        Topics which have at least one measurement
+     * @param properties    Properties of the EvaluationConsumer (kafka.partitionAssignment, kafka.startTime, kafka.fetchMinBytes, kafka.maxPollRecords, and kafka.receiveBufferBytes)
+     * @return Kafka consumer
+     */
+    public static KafkaConsumer<String, byte[]> createKafkaConsumer(String brokerList, String groupIdPrefix, List<String> topics, Properties properties) {
+        String partitionAssignment = PropertyReadHelper.readStringOrDie(properties, "kafka.partitionAssignment").trim();
+        if (!partitionAssignment.equals("subscribe") && !partitionAssignment.equals("assign")) {
+            logger.error("Unknown partition assignment: {} (expected subscribe or assign)", partitionAssignment);
+            System.exit(1);
+        }
+        boolean assign = partitionAssignment.equals("assign");
+
         // https://kafka.apache.org/0100/javadoc/index.html?org/apache/kafka/clients/consumer/KafkaConsumer.html
         Properties props = new Properties();
         props.put("bootstrap.servers", brokerList);
-        props.put("group.id", groupIdPrefix + "_" + UUID.randomUUID().toString());
-        props.put("enable.auto.commit", "true");
+        if (assign) {
+            props.put("enable.auto.commit", "false"); // There is no consumer group to which the offsets could be committed
+        } else {
+            props.put("group.id", groupIdPrefix + "_" + UUID.randomUUID().toString());
+            props.put("enable.auto.commit", "true");
+        }
         props.put("auto.offset.reset", "earliest");
+        // https://kafka.apache.org/20/documentation.html#newconsumerconfigs
+        props.put("fetch.min.bytes", Integer.toString(PropertyReadHelper.readIntOrDie(properties, "kafka.fetchMinBytes")));
+        props.put("max.poll.records", Integer.toString(PropertyReadHelper.readIntOrDie(properties, "kafka.maxPollRecords")));
+        props.put("receive.buffer.bytes", Integer.toString(PropertyReadHelper.readIntOrDie(properties, "kafka.receiveBufferBytes")));
         props.put("key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
         props.put("value.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
         KafkaConsumer<String, byte[]> kafkaConsumer = new KafkaConsumer<>(props);
 
-        List<String> topicsToSubscribe = new LinkedList<>();
-        topicsToSubscribe.add("fieldObjectState");
-        topicsToSubscribe.add("heatmapStatistics");
-        topicsToSubscribe.add("kickEvent");
-        topicsToSubscribe.add("passStatistics");
-        topicsToSubscribe.add("passSequenceEvent");
-        kafkaConsumer.subscribe(topicsToSubscribe);
-
-        // Marker Hierarchy
-        ballObjectStateReceiveSystemTimeMarker.add(parentReceiveSystemTimeMarker);
-        A1FullGameHeatmapStatisticsReceiveSystemTimeMarker.add(parentReceiveSystemTimeMarker);
-        kickEventReceiveSystemTimeMarker.add(parentReceiveSystemTimeMarker);
-        BPassStatisticsReceiveSystemTimeMarker.add(parentReceiveSystemTimeMarker);
-        passSequenceEventReceiveSystemTimeMarker.add(parentReceiveSystemTimeMarker);
+        if (assign) {
+            String startTime = PropertyReadHelper.readStringOrDie(properties, "kafka.startTime").trim();
+            long startTimestamp = startTime.equals("now") ? System.currentTimeMillis() : PropertyReadHelper.readLongOrDie(properties, "kafka.startTime");
+            assignAndSeek(kafkaConsumer, topics, startTimestamp);
+        } else {
+            kafkaConsumer.subscribe(topics);
+        }
+        return kafkaConsumer;
+    }
 
-        logger.info("Start consumption loop");
-        boolean runFlag = true;
+    /**
+     * Assigns all partitions of the topics to the Kafka consumer and seeks to the first records whose timestamps are not before the start time.
+     * Partitions without such records are consumed from their end. Partitions which are added to the topics later on are not consumed.
+     *
+     * @param kafkaConsumer  Kafka consumer
+     * @param topics         Topics which have at least one measurement
+     * @param startTimestamp Start time (in ms since the epoch)
+     */
+    private static void assignAndSeek(KafkaConsumer<String, byte[]> kafkaConsumer, List<String> topics, long startTimestamp) {
+        Map<TopicPartition, Long> startTimestamps = new HashMap<>();
+        for (String topic : topics) {
+            List<PartitionInfo> partitionInfos = kafkaConsumer.partitionsFor(topic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                logger.error("Unable to assign the partitions of topic {} since it does not exist (the assign mode requires the topics to be created before the EvaluationConsumer is started)", topic);
+                System.exit(1);
+            }
+            for (PartitionInfo partitionInfo : partitionInfos) {
+                startTimestamps.put(new TopicPartition(topic, partitionInfo.partition()), startTimestamp);
+            }
+        }
+        kafkaConsumer.assign(startTimestamps.keySet());
+
+        // https://kafka.apache.org/20/javadoc/org/apache/kafka/clients/consumer/KafkaConsumer.html#offsetsForTimes-java.util.Map-
+        Map<TopicPartition, OffsetAndTimestamp> startOffsets = kafkaConsumer.offsetsForTimes(startTimestamps);
+        List<TopicPartition> partitionsWithoutNewerRecords = new ArrayList<>();
+        for (TopicPartition topicPartition : startTimestamps.keySet()) {
+            OffsetAndTimestamp startOffset = startOffsets.get(topicPartition);
+            if (startOffset != null) {
+                kafkaConsumer.seek(topicPartition, startOffset.offset());
+            } else {
+                partitionsWithoutNewerRecords.add(topicPartition);
+            }
+        }
+        if (!partitionsWithoutNewerRecords.isEmpty()) { // seekToEnd of an empty collection would seek all assigned partitions
+            kafkaConsumer.seekToEnd(partitionsWithoutNewerRecords);
+        }
+        logger.info("Assigned {} partitions and seeked to start time {} ({} partitions have no records since then and are consumed from their end)", startTimestamps.size(), startTimestamp, partitionsWithoutNewerRecords.size());
+    }
+
+    /**
+     * Polls records from Kafka and hands them over to the decode workers until the consumption loop is stopped or a decode worker has terminated.
+     *
+     * @param kafkaConsumer   Kafka consumer
+     * @param pollTimeout     Poll timeout (in ms)
+     * @param decodeWorkers   Decode workers
+     * @param consumerMetrics Self-instrumentation of the EvaluationConsumer
+     */
+    public static void runConsumptionLoop(KafkaConsumer<String, byte[]> kafkaConsumer, long pollTimeout, DecodeWorker[] decodeWorkers, ConsumerMetrics consumerMetrics) {
         while (runFlag) {
             try {
+                long pollStartNanos = System.nanoTime();
                 ConsumerRecords<String, byte[]> records = kafkaConsumer.poll(pollTimeout);
+                // Captured before decoding the records
+                long receiveSystemTime = System.currentTimeMillis();
+                long receiveNanos = System.nanoTime();
+                consumerMetrics.addPoll(receiveNanos - pollStartNanos);
+                for (TopicPartition topicPartition : records.partitions()) {
+                    consumerMetrics.addReceivedRecords(topicPartition.topic(), records.records(topicPartition).size());
+                }
                 for (ConsumerRecord<String, byte[]> record : records) {
-                    String key = record.key();
-                    Long sequenceNumber = record.offset();
-                    byte[] contentByteArray = record.value();
-
-                    try {
-                        AbstractImmutableDataStreamElement dataStreamElement = AbstractImmutableDataStreamElement.generateDataStreamElementFromByteArray(key, contentByteArray, sequenceNumber, null, null);
-
-                        if (!dataStreamElement.getStreamName().equals(record.topic())) {
-                            logger.error("Cannot handle element ({}) since the stream name the data model assigns to the input stream element does not match the name of the Kafka topic via which it was received ({}).", dataStreamElement, record.topic());
-                        } else {
-                            Marker marker = null;
-                            if (dataStreamElement.getStreamName().equals(FieldObjectStateStreamElement.STREAMNAME) && ((FieldObjectStateStreamElement) dataStreamElement).getObjectId().equals("BALL")) {
-                                marker = ballObjectStateReceiveSystemTimeMarker;
-                            } else if (dataStreamElement.getStreamName().equals(HeatmapStatisticsStreamElement.STREAMNAME) && !((HeatmapStatisticsStreamElement) dataStreamElement).isTeamStatistics() && ((HeatmapStatisticsStreamElement) dataStreamElement).getPlayerId().equals("A1") && ((HeatmapStatisticsStreamElement) dataStreamElement).getIntervalInS() == 0) {
-                                marker = A1FullGameHeatmapStatisticsReceiveSystemTimeMarker;
-                            } else if (dataStreamElement.getStreamName().equals(KickEventStreamElement.STREAMNAME)) {
-                                marker = kickEventReceiveSystemTimeMarker;
-                            } else if (dataStreamElement.getStreamName().equals(PassStatisticsStreamElement.STREAMNAME) && ((PassStatisticsStreamElement) dataStreamElement).isTeamStatistics() && ((PassStatisticsStreamElement) dataStreamElement).getTeamId().equals("B")) {
-                                marker = BPassStatisticsReceiveSystemTimeMarker;
-                            } else if (dataStreamElement.getStreamName().equals(PassSequenceEventStreamElement.STREAMNAME)) {
-                                marker = passSequenceEventReceiveSystemTimeMarker;
-                            }
-                            if (marker != null) {
-                                logger.info(marker, "{},{},{}", new Object[]{dataStreamElement.getKey(), dataStreamElement.getGenerationTimestamp(), System.currentTimeMillis()});
-                            }
-                        }
-                    } catch (ClassNotFoundException | InvalidProtocolBufferException | NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
-                        logger.info("Caught exception during generating data stream element from byte array: ", e);
-                    } catch (AbstractImmutableDataStreamElement.CannotRetrieveInformationException e) {
-                        logger.info("Caught exception during checking data stream element for receive system time logging: ", e);
+                    ReceivedRecord receivedRecord = new ReceivedRecord(record.topic(), record.partition(), record.offset(), record.key(), record.value(), receiveSystemTime, receiveNanos);
+                    // All records of a partition are handled by the same decode worker
+                    int workerIndex = Math.floorMod(31 * record.topic().hashCode() + record.partition(), decodeWorkers.length);
+                    if (!decodeWorkers[workerIndex].enqueue(receivedRecord)) {
+                        logger.error("Stops consumption loop since decode worker {} has terminated.", workerIndex);
+                        runFlag = false;
+                        break;
                     }
                 }
             } catch (WakeupException e) {
                 logger.info("Poll interrupted with wakeup call.");
+            } catch (InterruptedException e) {
+                logger.trace("InterruptedException in main loop.", e);
             } catch (IllegalStateException e) {
                 logger.error("Caught exception in main loop: ", e);
                 try {
@@ -177,8 +355,15 @@ public class EvaluationConsumer {
                 }
             }
         }
+    }
 
-        kafkaConsumer.close();
-        logger.info("Closed StreamConsumer");
+    /**
+     * Stops the consumption loop (can be called from any thread).
+     *
+     * @param kafkaConsumer Kafka consumer which is polled by the consumption loop
+     */
+    public static void stopConsumptionLoop(KafkaConsumer<?, ?> kafkaConsumer) {
+        runFlag = false;
+        kafkaConsumer.wakeup();
     }
 }
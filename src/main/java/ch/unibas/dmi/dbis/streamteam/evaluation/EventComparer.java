@@ -18,11 +18,20 @@
 
 package ch.unibas.dmi.dbis.streamteam.evaluation;
 
+import ch.unibas.dmi.dbis.streamteam.evaluation.comparison.EventComparisonConfiguration;
+import ch.unibas.dmi.dbis.streamteam.evaluation.comparison.EventMatcher;
+import ch.unibas.dmi.dbis.streamteam.evaluation.comparison.EventMatchingResult;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.util.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
 
 /**
  * Component which compares the events detected by StreamTeam-Football (extracted from a MongoDB instance with the MongoDBEventExtractor) with the events extracted from an OPTA dataset (with the OptaEventExtractor).
@@ -40,77 +49,68 @@ public class EventComparer {
      * @param args Parameters
      */
     public static void main(String[] args) {
-        List<String> eventTypes = new ArrayList<>();
-        eventTypes.add("interceptionEvent");
-        eventTypes.add("successfulPassEvent");
-        eventTypes.add("freekickEvent");
-        eventTypes.add("cornerkickEvent");
-        eventTypes.add("throwinEvent");
-        eventTypes.add("goalkickEvent");
-
-        List<Integer> timeThresholds = new ArrayList<>();
-        timeThresholds.add(1000);
-        timeThresholds.add(2000);
-        timeThresholds.add(3000);
-        timeThresholds.add(4000);
-        timeThresholds.add(5000);
-
-        List<Double> distThresholds = new ArrayList<>();
-        distThresholds.add(1.0);
-        distThresholds.add(3.0);
-        distThresholds.add(5.0);
-        distThresholds.add(7.0);
-        distThresholds.add(9.0);
-        distThresholds.add(Double.MAX_VALUE);
-
-        for (String eventType : eventTypes) {
+        String propertiesFilePath = "/eventComparer.properties";
+
+        Properties properties = new Properties();
+        try {
+            //http://stackoverflow.com/questions/29070109/how-to-read-properties-file-inside-jar
+            InputStream in = EventComparer.class.getResourceAsStream(propertiesFilePath);
+            properties.load(in);
+        } catch (IOException e) {
+            logger.error("Unable to load {}", propertiesFilePath, e);
+            System.exit(1);
+        }
+
+        logger.info("Read properties");
+        EventComparisonConfiguration configuration = new EventComparisonConfiguration(properties);
+        logger.info("Compare events with the {} assignment mode.", configuration.getAssignmentMode());
+
+        // The event types are compared concurrently (and each event type evaluates its thresholds concurrently)
+        Arrays.stream(EventType.values()).parallel().forEach(eventType -> {
             try {
-                List<String> streamTeamEventLines = readFileToList("streamteamEvents/" + eventType + "s.csv");
-                List<String> optaEventLines = readFileToList("optaEvents/" + eventType + "s.csv");
-
-                FileWriter fileWriter = createFileWriter("qualitativeEvalStats/" + eventType + "Stats.csv");
-                // Header
-                fileWriter.append("timeThreshold,distanceThreshold,correctDetections,wrongDetections,missedDetections,correctDetectionsPercentage,wrongDetectionsPercentage,missedDetectionsPercentage\n");
-
-                for (Integer timeThreshold : timeThresholds) {
-                    for (Double distThreshold : distThresholds) {
-                        int correctDetections = 0;
-
-                        Set<String> streamTeamEventLinesSet = new HashSet<>();
-                        streamTeamEventLinesSet.addAll(streamTeamEventLines);
-                        Set<String> optaEventLinesSet = new HashSet<>();
-                        optaEventLinesSet.addAll(optaEventLines);
-
-                        for (String streamTeamEventLine : streamTeamEventLines) {
-                            optaEventLoop:
-                            for (String optaEventLine : optaEventLines) {
-                                if (optaEventLinesSet.contains(optaEventLine)) { // prevent that the same OPTA event is the matching event for multiple StreamTeam events
-                                    if (compareEventLines(streamTeamEventLine, optaEventLine, eventType, timeThreshold, distThreshold)) {
-                                        correctDetections++;
-                                        streamTeamEventLinesSet.remove(streamTeamEventLine);
-                                        optaEventLinesSet.remove(optaEventLine);
-                                        break optaEventLoop;
-                                    }
-                                }
-                            }
-                        }
-
-                        int wrongDetections = streamTeamEventLinesSet.size();
-                        int missedDetections = optaEventLinesSet.size();
-
-                        double correctDetectionsPercentage = ((double) correctDetections) / streamTeamEventLines.size();
-                        double wrongDetectionsPercentage = ((double) wrongDetections) / streamTeamEventLines.size();
-                        double missedDetectionsPercentage = ((double) missedDetections) / optaEventLines.size();
-
-                        fileWriter.append(timeThreshold + "," + distThreshold + "," + correctDetections + "," + wrongDetections + "," + missedDetections + "," + correctDetectionsPercentage + "," + wrongDetectionsPercentage + "," + missedDetectionsPercentage + "\n");
-                    }
-                }
-
-                fileWriter.close();
+                EventSet streamTeamEvents = EventSet.readFile("streamteamEvents/" + eventType.getCsvFileName(), eventType.hasSecondPosition());
+                EventSet optaEvents = EventSet.readFile("optaEvents/" + eventType.getCsvFileName(), eventType.hasSecondPosition());
+                compareAndWriteStats(eventType, streamTeamEvents, optaEvents, configuration);
             } catch (IOException e) {
                 logger.error("Caught exception.", e);
             }
+        });
+    }
+
+    /**
+     * Compares the events of an event type detected by StreamTeam-Football with the events of the OPTA dataset for all combinations of thresholds and writes the qualitativeEvalStats file of this event type.
+     *
+     * @param eventType        Event type
+     * @param streamTeamEvents Events detected by StreamTeam-Football
+     * @param optaEvents       Events of the OPTA dataset
+     * @param configuration    Configuration of the event comparison (thresholds and assignment mode)
+     * @throws IOException Thrown if the qualitativeEvalStats file could not be written
+     */
+    public static void compareAndWriteStats(EventType eventType, EventSet streamTeamEvents, EventSet optaEvents, EventComparisonConfiguration configuration) throws IOException {
+        int[] timeThresholds = configuration.getTimeThresholds();
+        double[] distThresholds = configuration.getDistThresholds();
+
+        FileWriter fileWriter = createFileWriter("qualitativeEvalStats/" + eventType + "Stats.csv");
+        // Header
+        fileWriter.append("timeThreshold,distanceThreshold,correctDetections,wrongDetections,missedDetections,correctDetectionsPercentage,wrongDetectionsPercentage,missedDetectionsPercentage\n");
+
+        EventMatchingResult[][] results = EventMatcher.matchAll(streamTeamEvents, optaEvents, timeThresholds, distThresholds, configuration.getAssignmentMode());
+        for (int t = 0; t < timeThresholds.length; ++t) {
+            for (int d = 0; d < distThresholds.length; ++d) {
+                int correctDetections = results[t][d].getCorrectDetections();
+                int wrongDetections = results[t][d].getWrongDetections();
+                int missedDetections = results[t][d].getMissedDetections();
+
+                double correctDetectionsPercentage = ((double) correctDetections) / streamTeamEvents.size();
+                double wrongDetectionsPercentage = ((double) wrongDetections) / streamTeamEvents.size();
+                double missedDetectionsPercentage = ((double) missedDetections) / optaEvents.size();
+
+                fileWriter.append(timeThresholds[t] + "," + distThresholds[d] + "," + correctDetections + "," + wrongDetections + "," + missedDetections + "," + correctDetectionsPercentage + "," + wrongDetectionsPercentage + "," + missedDetectionsPercentage + "\n");
+            }
         }
+
+        fileWriter.close();
+        logger.info("Compared {} StreamTeam-Football {}s with {} OPTA {}s.", streamTeamEvents.size(), eventType, optaEvents.size(), eventType);
     }
 
     /**
@@ -125,82 +125,4 @@ public class EventComparer {
         successfulPassEventsFile.getParentFile().mkdirs();
         return new FileWriter(successfulPassEventsFile, false);
     }
-
-    /**
-     * Reads a file containing to a list containing all lines of the file except for the header.
-     *
-     * @param path Path to  file
-     * @return List containing all the lines of the file except for the header
-     * @throws IOException Thrown if the  file could not be read properly
-     */
-    public static List<String> readFileToList(String path) throws IOException {
-        List<String> list = new LinkedList<>();
-
-        FileReader fileReader = new FileReader(path);
-        BufferedReader bufferedReader = new BufferedReader(fileReader);
-        bufferedReader.readLine(); // skip header
-
-        String line = bufferedReader.readLine();
-        while (line != null) {
-            list.add(line);
-
-            line = bufferedReader.readLine();
-        }
-
-        bufferedReader.close();
-        fileReader.close();
-
-        return list;
-    }
-
-    /**
-     * Compare a StreamTeam event with an OPTA event.
-     *
-     * @param streamTeamEventLine Line describing the StreamTeam event
-     * @param optaEventLine       Line describing the OPTA event
-     * @param eventType           Event type
-     * @param timeThreshold       Time threshold (in ms)
-     * @param distThreshold       Distance threshold (in m)
-     * @return True if the StreamTeam event matches the OPTA event, otherwise false
-     */
-    private static boolean compareEventLines(String streamTeamEventLine, String optaEventLine, String eventType, int timeThreshold, double distThreshold) {
-        String[] splittedStreamTeamEventLine = streamTeamEventLine.split(",");
-        String[] splittedOptaEventLine = optaEventLine.split(",");
-
-        int streamTeamTs = Integer.parseInt(splittedStreamTeamEventLine[0]);
-        int optaTs = Integer.parseInt(splittedOptaEventLine[0]);
-        if (Math.abs(streamTeamTs - optaTs) < timeThreshold) {
-            double streamTeamX = Double.parseDouble(splittedStreamTeamEventLine[1]);
-            double streamTeamY = Double.parseDouble(splittedStreamTeamEventLine[2]);
-            double optaX = Double.parseDouble(splittedOptaEventLine[1]);
-            double optaY = Double.parseDouble(splittedOptaEventLine[2]);
-            if (euclideanDist(streamTeamX, streamTeamY, optaX, optaY) < distThreshold) {
-                if (eventType.equals("successfulPassEvent")) {
-                    double streamTeamX2 = Double.parseDouble(splittedStreamTeamEventLine[3]);
-                    double streamTeamY2 = Double.parseDouble(splittedStreamTeamEventLine[4]);
-                    double optaX2 = Double.parseDouble(splittedOptaEventLine[3]);
-                    double optaY2 = Double.parseDouble(splittedOptaEventLine[4]);
-                    if (euclideanDist(streamTeamX2, streamTeamY2, optaX2, optaY2) < distThreshold) {
-                        return true;
-                    }
-                } else {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Calculates the eucildean distance between two positions.
-     *
-     * @param x1 X-coordinate of the first position
-     * @param y1 Y-Coordinate of the first position
-     * @param x2 X-coordinate of the second position
-     * @param y2 Y-coordinate of the second position
-     * @return Euclidean distance
-     */
-    private static double euclideanDist(double x1, double y1, double x2, double y2) {
-        return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
-    }
 }
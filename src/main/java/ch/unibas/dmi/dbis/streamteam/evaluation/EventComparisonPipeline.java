@@ -0,0 +1,197 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.comparison.EventComparisonConfiguration;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventCache;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventType;
+import ch.unibas.dmi.dbis.streamteam.evaluation.opta.F24ParsingMode;
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Component which extracts the events from an OPTA dataset and from a MongoDB instance, caches them, and compares them in a single process.
+ * The OPTA dataset (with the streaming StAX parser) and the MongoDB instance (with one cursor per event type) are extracted concurrently unless their events are already in the EventCache, and all event types are compared concurrently.
+ * Since the fingerprint of the MongoDB instance assumes an append-only events collection (see MongoDBEventExtractor.fingerprint), the EventCache can be bypassed with --noCache (the extracted events still replace the cache entries).
+ * The event CSV files of the OptaEventExtractor and the MongoDBEventExtractor as well as the qualitativeEvalStats files of the EventComparer are written as before.
+ */
+public class EventComparisonPipeline {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EventComparisonPipeline.class);
+
+    /**
+     * Path to the directory of the event cache
+     */
+    private static final String EVENT_CACHE_DIRECTORY_PATH = "./eventCache";
+
+    /**
+     * Main method of the Event Comparison Pipeline.
+     *
+     * @param args f24FilePath, fieldLength, fieldWidth, mirrorX, and mirrorY (optional: --noCache to extract the events even if they are already in the EventCache)
+     */
+    public static void main(String[] args) {
+        boolean useEventCache = true;
+        for (int i = 5; i < args.length; ++i) {
+            if (args[i].equals("--noCache")) {
+                useEventCache = false;
+            } else {
+                logger.error("Unknown parameter {} (expected --noCache).", args[i]);
+                System.exit(1);
+            }
+        }
+        String f24FilePath = args[0];
+        logger.info("F24 file: {}", f24FilePath);
+        double fieldLength = Double.parseDouble(args[1]);
+        logger.info("Field length: {}", fieldLength);
+        double fieldWidth = Double.parseDouble(args[2]);
+        logger.info("Field width: {}", fieldWidth);
+        boolean mirrorX = Boolean.parseBoolean(args[3]);
+        logger.info("Mirror x-coordinates: {}", mirrorX);
+        boolean mirrorY = Boolean.parseBoolean(args[4]);
+        logger.info("Mirror y-coordinates: {}", mirrorY);
+        logger.info("Use event cache: {}", useEventCache);
+
+        logger.info("Read properties");
+        Properties mongoDBProperties = loadPropertiesOrDie("/mongoDBEventExtractor.properties");
+        String connectionString = PropertyReadHelper.readStringOrDie(mongoDBProperties, "mongodb.connectionString");
+        String databaseName = PropertyReadHelper.readStringOrDie(mongoDBProperties, "mongodb.database");
+        int batchSize = PropertyReadHelper.readIntOrDie(mongoDBProperties, "mongodb.batchSize");
+        boolean createIndex = PropertyReadHelper.readBooleanOrDie(mongoDBProperties, "mongodb.createIndex");
+        EventComparisonConfiguration configuration = new EventComparisonConfiguration(loadPropertiesOrDie("/eventComparer.properties"));
+
+        EventCache eventCache = new EventCache(EVENT_CACHE_DIRECTORY_PATH);
+        boolean loadFromEventCache = useEventCache; // Effectively final for the lambdas
+
+        logger.info("Initialize MongoDB");
+        MongoClient mongoClient = new MongoClient(new MongoClientURI(connectionString));
+        MongoCollection<Document> eventsCollection = mongoClient.getDatabase(databaseName).getCollection("events");
+
+        ExecutorService sourceExecutorService = Executors.newFixedThreadPool(2);
+        ExecutorService cursorExecutorService = Executors.newFixedThreadPool(EventType.values().length);
+        try {
+            Future<Map<EventType, EventSet>> optaEventsFuture = sourceExecutorService.submit(() -> {
+                String fingerprint = OptaEventExtractor.fingerprint(f24FilePath, fieldLength, fieldWidth, mirrorX, mirrorY);
+                Map<EventType, EventSet> eventSets = loadFromEventCache ? eventCache.load(fingerprint) : null;
+                if (eventSets != null) {
+                    logger.info("Loaded OPTA events from the event cache ({}).", fingerprint);
+                } else {
+                    eventSets = OptaEventExtractor.extractEvents(f24FilePath, fieldLength, fieldWidth, mirrorX, mirrorY, F24ParsingMode.STAX);
+                    eventCache.store(fingerprint, eventSets);
+                    logger.info("Extracted OPTA events and stored them in the event cache ({}).", fingerprint);
+                }
+                return eventSets;
+            });
+            Future<Map<EventType, EventSet>> streamTeamEventsFuture = sourceExecutorService.submit(() -> {
+                String fingerprint = MongoDBEventExtractor.fingerprint(connectionString, databaseName, eventsCollection);
+                Map<EventType, EventSet> eventSets = loadFromEventCache ? eventCache.load(fingerprint) : null;
+                if (eventSets != null) {
+                    logger.info("Loaded StreamTeam-Football events from the event cache ({}).", fingerprint);
+                } else {
+                    if (createIndex) {
+                        MongoDBEventExtractor.createEventsIndex(eventsCollection);
+                    }
+                    eventSets = MongoDBEventExtractor.extractEvents(eventsCollection, cursorExecutorService, batchSize);
+                    eventCache.store(fingerprint, eventSets);
+                    logger.info("Extracted StreamTeam-Football events and stored them in the event cache ({}).", fingerprint);
+                }
+                return eventSets;
+            });
+            Map<EventType, EventSet> optaEvents = getResult(optaEventsFuture);
+            Map<EventType, EventSet> streamTeamEvents = getResult(streamTeamEventsFuture);
+
+            // The event types are written and compared concurrently (and each event type evaluates its thresholds concurrently)
+            Arrays.stream(EventType.values()).parallel().forEach(eventType -> {
+                try {
+                    optaEvents.get(eventType).writeCsvFile("optaEvents/" + eventType.getCsvFileName(), eventType.getCsvHeader());
+                    streamTeamEvents.get(eventType).writeCsvFile("streamteamEvents/" + eventType.getCsvFileName(), eventType.getCsvHeader());
+                    EventComparer.compareAndWriteStats(eventType, streamTeamEvents.get(eventType), optaEvents.get(eventType), configuration);
+                } catch (IOException e) {
+                    logger.error("Caught exception.", e);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Caught exception.", e);
+        } finally {
+            sourceExecutorService.shutdown();
+            cursorExecutorService.shutdown();
+            mongoClient.close();
+        }
+    }
+
+    /**
+     * Loads a properties file from the classpath or dies in case of an exception.
+     *
+     * @param propertiesFilePath Path to the properties file (inside the jar)
+     * @return Properties
+     */
+    private static Properties loadPropertiesOrDie(String propertiesFilePath) {
+        Properties properties = new Properties();
+        try {
+            //http://stackoverflow.com/questions/29070109/how-to-read-properties-file-inside-jar
+            InputStream in = EventComparisonPipeline.class.getResourceAsStream(propertiesFilePath);
+            properties.load(in);
+        } catch (IOException e) {
+            logger.error("Unable to load {}", propertiesFilePath, e);
+            System.exit(1);
+        }
+        return properties;
+    }
+
+    /**
+     * Waits for an extraction and returns its result.
+     *
+     * @param future Future of the extraction
+     * @param <T>    Type of the result
+     * @return Result of the extraction
+     * @throws IOException Thrown if the extraction failed
+     */
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an extraction.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to extract events.", e.getCause());
+        }
+    }
+}
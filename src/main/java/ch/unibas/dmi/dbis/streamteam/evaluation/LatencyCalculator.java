@@ -18,12 +18,21 @@
 
 package ch.unibas.dmi.dbis.streamteam.evaluation;
 
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.MeasurementDispatchTable;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.LatencyFileFormat;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.LatencyFileWriter;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.MergeJoinLatencyCalculator;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.ParallelLatencyCalculator;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.SendSystemTimeIndex;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.SystemTimeCsvReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 
 /**
  * Component which consumes calculates the latencies for some selected data streams using the send system time and receive system time CSV files
@@ -35,24 +44,85 @@ public class LatencyCalculator {
      */
     private static final Logger logger = LoggerFactory.getLogger(LatencyCalculator.class);
 
+    /**
+     * Nominal size of the chunks (in bytes) into which the receive system time files are split in the parallel mode
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 8 << 20;
+
+    /**
+     * Number of lines in the reorder buffer of each file in the merge-join mode
+     */
+    private static final int MERGE_JOIN_REORDER_CAPACITY = 1 << 16;
+
+    /**
+     * Number of lines per run of the external sort in the merge-join mode
+     */
+    private static final int MERGE_JOIN_EXTERNAL_SORT_RUN_SIZE = 1 << 21;
+
+    /**
+     * Path to the send system time file
+     */
+    private static final String SEND_SYSTEM_TIME_FILE_PATH = "../streamteam-sensor-simulator/log/rawPositionSensorDataSendSystemTimes.csv";
+
     /**
      * Main method of the Latency Calculator.
      *
-     * @param args Parameters
+     * @param args Parameters (optional: --parallel to process the receive system time files in parallel or --mergeJoin to join the sorted files without an in-memory index, and --format csv|columnar)
      */
     public static void main(String[] args) {
-        Map<String, Long> minimumSendSystemTimeMap = null;
-        try {
-            minimumSendSystemTimeMap = constructMinimumSendSystemTimeMap("../streamteam-sensor-simulator/log/rawPositionSensorDataSendSystemTimes.csv");
+        String mode = "";
+        LatencyFileFormat latencyFileFormat = LatencyFileFormat.CSV;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("--parallel") || args[i].equals("--mergeJoin")) {
+                mode = args[i];
+            } else if (args[i].equals("--format") && i + 1 < args.length) {
+                try {
+                    latencyFileFormat = LatencyFileFormat.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    logger.error("Unknown latency file format {} (expected csv or columnar).", args[i]);
+                    System.exit(1);
+                }
+            } else {
+                logger.error("Unknown parameter {} (expected --parallel, --mergeJoin, or --format csv|columnar).", args[i]);
+                System.exit(1);
+            }
+        }
 
+        try {
             // https://stackoverflow.com/questions/3634853/how-to-create-a-directory-in-java
             new File("./latencies").mkdirs();
 
-            constructAndWriteLatencyFile(minimumSendSystemTimeMap, "./log/ballObjectStateReceiveSystemTimes.csv", "./latencies/ballObjectStateLatencies.csv");
-            constructAndWriteLatencyFile(minimumSendSystemTimeMap, "./log/A1FullGameHeatmapStatisticsReceiveSystemTimes.csv", "./latencies/A1FullGameHeatmapStatisticsLatencies.csv");
-            constructAndWriteLatencyFile(minimumSendSystemTimeMap, "./log/kickEventReceiveSystemTimes.csv", "./latencies/kickEventLatencies.csv");
-            constructAndWriteLatencyFile(minimumSendSystemTimeMap, "./log/BPassStatisticsReceiveSystemTimes.csv", "./latencies/BPassStatisticsLatencies.csv");
-            constructAndWriteLatencyFile(minimumSendSystemTimeMap, "./log/passSequenceEventReceiveSystemTimes.csv", "./latencies/passSequenceEventLatencies.csv");
+            List<String> receiveSystemTimeFilePaths = new ArrayList<>();
+            List<String> latencyFilePaths = new ArrayList<>();
+            for (String measurementName : readMeasurementNamesOrDie()) {
+                receiveSystemTimeFilePaths.add("./log/" + measurementName + "ReceiveSystemTimes.csv");
+                latencyFilePaths.add("./latencies/" + measurementName + "Latencies." + latencyFileFormat.getFileExtension());
+            }
+
+            if (mode.equals("--mergeJoin")) {
+                logger.info("Calculates latencies with a streaming merge-join.");
+                MergeJoinLatencyCalculator mergeJoinLatencyCalculator = new MergeJoinLatencyCalculator(MERGE_JOIN_REORDER_CAPACITY, MERGE_JOIN_EXTERNAL_SORT_RUN_SIZE, latencyFileFormat);
+                mergeJoinLatencyCalculator.constructAndWriteLatencyFiles(SEND_SYSTEM_TIME_FILE_PATH, receiveSystemTimeFilePaths, latencyFilePaths);
+                return;
+            }
+
+            SendSystemTimeIndex minimumSendSystemTimeIndex = constructMinimumSendSystemTimeMap(SEND_SYSTEM_TIME_FILE_PATH);
+            logger.info("Constructed index containing {} matchId-generationTs-combinations.", minimumSendSystemTimeIndex.size());
+
+            if (mode.equals("--parallel")) {
+                int parallelism = Runtime.getRuntime().availableProcessors();
+                logger.info("Calculates latencies in parallel on {} threads.", parallelism);
+                ParallelLatencyCalculator parallelLatencyCalculator = new ParallelLatencyCalculator(minimumSendSystemTimeIndex, parallelism, PARALLEL_CHUNK_SIZE, latencyFileFormat);
+                try {
+                    parallelLatencyCalculator.constructAndWriteLatencyFiles(receiveSystemTimeFilePaths, latencyFilePaths);
+                } finally {
+                    parallelLatencyCalculator.shutdown();
+                }
+            } else {
+                for (int i = 0; i < receiveSystemTimeFilePaths.size(); ++i) {
+                    constructAndWriteLatencyFile(minimumSendSystemTimeIndex, receiveSystemTimeFilePaths.get(i), latencyFilePaths.get(i), latencyFileFormat);
+                }
+            }
         } catch (IOException e) {
             logger.error("Unable to calculate latencies.", e);
             System.exit(1);
@@ -60,77 +130,79 @@ public class LatencyCalculator {
     }
 
     /**
-     * Constructs a map containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination.
+     * Reads the names of the measurements for which the latencies are calculated from the properties of the EvaluationConsumer (which writes the receive system time files of these measurements) or dies in case of an exception.
      *
-     * @param sendSystemTimeFilePath Path to send system time file
-     * @return Map containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination
-     * @throws IOException Thrown if the send system time file could not be read properly
+     * @return Names of the measurements
      */
-    public static Map<String, Long> constructMinimumSendSystemTimeMap(String sendSystemTimeFilePath) throws IOException {
-        Map<String, Long> minimumSendSystemTimeMap = new HashMap<>();
+    public static List<String> readMeasurementNamesOrDie() {
+        String propertiesFilePath = "/evaluationConsumer.properties";
 
-        FileReader fileReader = new FileReader(sendSystemTimeFilePath);
-        BufferedReader bufferedReader = new BufferedReader(fileReader);
-        bufferedReader.readLine(); // skip header
+        Properties properties = new Properties();
+        try {
+            //http://stackoverflow.com/questions/29070109/how-to-read-properties-file-inside-jar
+            InputStream in = LatencyCalculator.class.getResourceAsStream(propertiesFilePath);
+            properties.load(in);
+        } catch (IOException e) {
+            logger.error("Unable to load {}", propertiesFilePath, e);
+            System.exit(1);
+        }
 
-        String line = bufferedReader.readLine();
-        while (line != null) {
-            String[] lineParts = line.split(",");
-            String key = lineParts[0] + "-" + lineParts[1];
-            Long value = new Long(lineParts[2]);
+        return MeasurementDispatchTable.readMeasurementNamesOrDie(properties);
+    }
 
-            if (minimumSendSystemTimeMap.containsKey(key)) {
-                value = Math.min(value, minimumSendSystemTimeMap.get(key));
+    /**
+     * Constructs an index containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination.
+     * Lines whose generation timestamp cannot be stored in the index are skipped (as in the merge join of the ExternallySortedSystemTimeSources).
+     *
+     * @param sendSystemTimeFilePath Path to send system time file
+     * @return Index containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination
+     * @throws IOException Thrown if the send system time file could not be read properly
+     */
+    public static SendSystemTimeIndex constructMinimumSendSystemTimeMap(String sendSystemTimeFilePath) throws IOException {
+        SendSystemTimeIndex minimumSendSystemTimeIndex = new SendSystemTimeIndex();
+
+        SystemTimeCsvReader reader = new SystemTimeCsvReader(sendSystemTimeFilePath);
+        while (reader.next()) {
+            long generationTimestamp = reader.getGenerationTimestamp();
+            if (!SendSystemTimeIndex.canStore(generationTimestamp)) {
+                logger.error("Skipped line in {} with the generation timestamp {} which is out of range.", sendSystemTimeFilePath, generationTimestamp);
+                continue;
             }
-            minimumSendSystemTimeMap.put(key, value);
-
-            line = bufferedReader.readLine();
+            int matchIndex = minimumSendSystemTimeIndex.getOrAddMatchIndex(reader.getBuffer(), reader.getMatchIdStart(), reader.getMatchIdEnd());
+            minimumSendSystemTimeIndex.putMinimum(matchIndex, generationTimestamp, reader.getSystemTime());
         }
+        reader.close();
 
-        bufferedReader.close();
-        fileReader.close();
-
-        return minimumSendSystemTimeMap;
+        return minimumSendSystemTimeIndex;
     }
 
     /**
      * Constructs and writes a file containing all latencies for a certain data stream.
      *
-     * @param minimumSendSystemTimeMap  Map containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination
-     * @param receiveSystemTimeFilePath Path to receive system time file
-     * @param latencyFilePath           Path to latency file
+     * @param minimumSendSystemTimeIndex Index containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination
+     * @param receiveSystemTimeFilePath  Path to receive system time file
+     * @param latencyFilePath            Path to latency file
+     * @param latencyFileFormat          Format of the latency file
      * @throws IOException Thrown if the receive system time file could not be read properly or the latency file could not be written properly
      */
-    public static void constructAndWriteLatencyFile(Map<String, Long> minimumSendSystemTimeMap, String receiveSystemTimeFilePath, String latencyFilePath) throws IOException {
-        FileWriter fileWriter = new FileWriter(latencyFilePath, false);
-        BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
-        bufferedWriter.append("matchId,generationTimestamp,latencyInMs\n"); // Header
-
-        FileReader fileReader = new FileReader(receiveSystemTimeFilePath);
-        BufferedReader bufferedReader = new BufferedReader(fileReader);
-        bufferedReader.readLine(); // skip header
-
-        String line = bufferedReader.readLine();
-        while (line != null) {
-            String[] lineParts = line.split(",");
-            String key = lineParts[0] + "-" + lineParts[1];
-            Long receiveSystemTime = new Long(lineParts[2]);
-
-            if (minimumSendSystemTimeMap.containsKey(key)) {
-                Long minimumSendSystemTime = minimumSendSystemTimeMap.get(key);
-                Long latency = receiveSystemTime - minimumSendSystemTime;
-                bufferedWriter.append(lineParts[0] + "," + lineParts[1] + "," + latency + "\n");
+    public static void constructAndWriteLatencyFile(SendSystemTimeIndex minimumSendSystemTimeIndex, String receiveSystemTimeFilePath, String latencyFilePath, LatencyFileFormat latencyFileFormat) throws IOException {
+        LatencyFileWriter latencyFileWriter = latencyFileFormat.openWriter(latencyFilePath);
+
+        SystemTimeCsvReader reader = new SystemTimeCsvReader(receiveSystemTimeFilePath);
+        while (reader.next()) {
+            byte[] buffer = reader.getBuffer();
+            long generationTimestamp = reader.getGenerationTimestamp();
+
+            int matchIndex = minimumSendSystemTimeIndex.getMatchIndex(buffer, reader.getMatchIdStart(), reader.getMatchIdEnd());
+            long minimumSendSystemTime = minimumSendSystemTimeIndex.get(matchIndex, generationTimestamp);
+            if (minimumSendSystemTime != SendSystemTimeIndex.NO_VALUE) {
+                latencyFileWriter.appendLine(buffer, reader.getMatchIdStart(), reader.getMatchIdEnd(), generationTimestamp, reader.getSystemTime() - minimumSendSystemTime);
             } else {
-                logger.error("Skipped key {} since there was no value in the minimumSendSystemTimeMap.", key);
+                logger.error("Skipped key {}-{} since there was no value in the minimumSendSystemTimeMap.", new String(buffer, reader.getMatchIdStart(), reader.getMatchIdEnd() - reader.getMatchIdStart(), StandardCharsets.UTF_8), generationTimestamp);
             }
-
-            line = bufferedReader.readLine();
         }
+        reader.close();
 
-        bufferedReader.close();
-        fileReader.close();
-
-        bufferedWriter.close();
-        fileWriter.close();
+        latencyFileWriter.close();
     }
 }
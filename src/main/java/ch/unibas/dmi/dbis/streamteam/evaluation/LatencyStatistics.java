@@ -0,0 +1,110 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.ColumnarLatencyFileReader;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.LatencyFileFormat;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.LatencySummary;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.SystemTimeCsvReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Component which calculates the latency statistics (mean, std, var, median, 90th and 99th percentile) of the selected data streams in a single pass over the latency files and writes them to ./stats/latencyStats.csv
+ */
+public class LatencyStatistics {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(LatencyStatistics.class);
+
+    /**
+     * Main method of the Latency Statistics component.
+     *
+     * @param args Parameters (optional: --format csv|columnar, which has to match the format the LatencyCalculator has written)
+     */
+    public static void main(String[] args) {
+        LatencyFileFormat latencyFileFormat = LatencyFileFormat.CSV;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("--format") && i + 1 < args.length) {
+                try {
+                    latencyFileFormat = LatencyFileFormat.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    logger.error("Unknown latency file format {} (expected csv or columnar).", args[i]);
+                    System.exit(1);
+                }
+            } else {
+                logger.error("Unknown parameter {} (expected --format csv|columnar).", args[i]);
+                System.exit(1);
+            }
+        }
+
+        try {
+            new File("./stats").mkdirs();
+
+            FileWriter fileWriter = new FileWriter("./stats/latencyStats.csv", false);
+            fileWriter.append("streamName,mean,std,var,median,90thPercentile,99thPercentile\n"); // Header
+            for (String measurementName : LatencyCalculator.readMeasurementNamesOrDie()) {
+                LatencySummary latencySummary = summarizeLatencyFile("./latencies/" + measurementName + "Latencies." + latencyFileFormat.getFileExtension(), latencyFileFormat);
+                logger.info("Latencies of {}: count {}, mean {} ms, median {} ms, p90 {} ms, p99 {} ms", measurementName, latencySummary.getCount(), String.format("%.1f", latencySummary.getMean()), latencySummary.getPercentile(50), latencySummary.getPercentile(90), latencySummary.getPercentile(99));
+                fileWriter.append(measurementName + "," + latencySummary.getMean() + "," + latencySummary.getStandardDeviation() + "," + latencySummary.getVariance() + "," + latencySummary.getPercentile(50) + "," + latencySummary.getPercentile(90) + "," + latencySummary.getPercentile(99) + "\n");
+            }
+            fileWriter.close();
+        } catch (IOException e) {
+            logger.error("Unable to calculate latency statistics.", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Summarizes the latencies of a latency file.
+     *
+     * @param latencyFilePath   Path to the latency file
+     * @param latencyFileFormat Format of the latency file
+     * @return Latency summary
+     * @throws IOException Thrown if the latency file could not be read properly
+     */
+    public static LatencySummary summarizeLatencyFile(String latencyFilePath, LatencyFileFormat latencyFileFormat) throws IOException {
+        LatencySummary latencySummary = new LatencySummary();
+        logger.info("Read {}", latencyFilePath);
+
+        if (latencyFileFormat == LatencyFileFormat.COLUMNAR) {
+            try (ColumnarLatencyFileReader reader = new ColumnarLatencyFileReader(latencyFilePath)) {
+                while (reader.next()) {
+                    latencySummary.record(reader.getLatency());
+                }
+            }
+        } else {
+            // The latency CSV files (matchId,generationTimestamp,latencyInMs) have the same layout as the system time CSV files
+            try (SystemTimeCsvReader reader = new SystemTimeCsvReader(latencyFilePath)) {
+                while (reader.next()) {
+                    latencySummary.record(reader.getSystemTime());
+                }
+            }
+        }
+
+        return latencySummary;
+    }
+}
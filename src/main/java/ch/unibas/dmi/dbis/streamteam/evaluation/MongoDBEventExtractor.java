@@ -18,25 +18,47 @@
 
 package ch.unibas.dmi.dbis.streamteam.evaluation;
 
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventCache;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventType;
 import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Sorts;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Component which extracts some selected events from a MongoDB instance.
@@ -48,12 +70,49 @@ public class MongoDBEventExtractor {
      */
     private static final Logger logger = LoggerFactory.getLogger(MongoDBEventExtractor.class);
 
+    /**
+     * Name of the file in the output directory which contains the high-water mark of the incremental extraction
+     */
+    private static final String HIGH_WATER_MARK_FILE_NAME = ".highWaterMark";
+
+    /**
+     * Every DEBUG_LOG_SAMPLE_INTERVAL-th extracted event is logged at debug level
+     */
+    private static final int DEBUG_LOG_SAMPLE_INTERVAL = 1000;
+
     /**
      * Main method of the MongoDB Event Extractor.
+     * Without parameters, the events collection of the database in the properties is extracted to streamteamEvents/.
+     * With --matchIds, the events of each match are extracted to streamteamEvents/matchId/ and with --databases, the events collection of each database is extracted to streamteamEvents/database/ (both can be combined).
+     * With --incremental, only the events which have been inserted since the last run are merged into streamteamEvents/ (see extractEventsIncrementally) and with --follow, this is repeated in the given interval until the process is stopped.
      *
-     * @param args Parameters
+     * @param args Parameters (optional: --matchIds id1,id2,... and --databases db1,db2,... or --incremental and --follow pollIntervalInMs)
      */
     public static void main(String[] args) {
+        List<String> matchIds = null;
+        List<String> databaseNames = null;
+        boolean incremental = false;
+        long pollIntervalInMs = -1;
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("--matchIds") && i + 1 < args.length) {
+                matchIds = Arrays.asList(args[++i].split(","));
+            } else if (args[i].equals("--databases") && i + 1 < args.length) {
+                databaseNames = Arrays.asList(args[++i].split(","));
+            } else if (args[i].equals("--incremental")) {
+                incremental = true;
+            } else if (args[i].equals("--follow") && i + 1 < args.length) {
+                incremental = true;
+                pollIntervalInMs = Long.parseLong(args[++i]);
+            } else {
+                logger.error("Unknown parameter {} (expected --matchIds id1,id2,..., --databases db1,db2,..., --incremental, or --follow pollIntervalInMs).", args[i]);
+                System.exit(1);
+            }
+        }
+        if (incremental && (matchIds != null || databaseNames != null)) {
+            logger.error("The incremental extraction does not support --matchIds and --databases.");
+            System.exit(1);
+        }
+
         String propertiesFilePath = "/mongoDBEventExtractor.properties";
 
         Properties properties = new Properties();
@@ -69,74 +128,471 @@ public class MongoDBEventExtractor {
         logger.info("Read properties");
         String connectionString = PropertyReadHelper.readStringOrDie(properties, "mongodb.connectionString");
         String databaseName = PropertyReadHelper.readStringOrDie(properties, "mongodb.database");
+        int batchSize = PropertyReadHelper.readIntOrDie(properties, "mongodb.batchSize");
+        boolean createIndex = PropertyReadHelper.readBooleanOrDie(properties, "mongodb.createIndex");
+        String matchIdField = PropertyReadHelper.readStringOrDie(properties, "mongodb.matchIdField");
+        int parallelCursors = PropertyReadHelper.readIntOrDie(properties, "mongodb.parallelCursors");
 
         logger.info("Initialize MongoDB");
         MongoClientURI connectionURI = new MongoClientURI(connectionString);
         MongoClient mongoClient = new MongoClient(connectionURI);
-        MongoDatabase database = mongoClient.getDatabase(databaseName);
-        MongoCollection<Document> eventsCollection = database.getCollection("events");
-
-        List<String> eventTypes = new ArrayList<>();
-        eventTypes.add("interceptionEvent");
-        eventTypes.add("successfulPassEvent");
-        eventTypes.add("freekickEvent");
-        eventTypes.add("cornerkickEvent");
-        eventTypes.add("throwinEvent");
-        eventTypes.add("goalkickEvent");
-
-        for (String eventType : eventTypes) {
+
+        if (incremental) {
+            int safetyLagInS = PropertyReadHelper.readIntOrDie(properties, "incremental.safetyLagInS");
+            int overlapInS = PropertyReadHelper.readIntOrDie(properties, "incremental.overlapInS");
+            MongoCollection<Document> eventsCollection = mongoClient.getDatabase(databaseName).getCollection("events");
+            if (createIndex) {
+                createEventsIndex(eventsCollection);
+            }
+            ExecutorService executorService = Executors.newFixedThreadPool(EventType.values().length);
             try {
-                FileWriter fileWriter = createFileWriter("streamteamEvents/" + eventType + "s.csv");
-
-                // Header
-                if (eventType.equals("interceptionEvent")) {
-                    fileWriter.append("ts,endX,endY\n");
-                } else if (eventType.equals("successfulPassEvent")) {
-                    fileWriter.append("ts,startX,startY,endX,endY\n");
-                } else {
-                    fileWriter.append("ts,startX,startY\n");
+                do {
+                    extractEventsIncrementally(eventsCollection, "streamteamEvents", executorService, batchSize, safetyLagInS, overlapInS);
+                    if (pollIntervalInMs >= 0) {
+                        Thread.sleep(pollIntervalInMs);
+                    }
+                } while (pollIntervalInMs >= 0);
+            } catch (IOException e) {
+                logger.error("Caught exception.", e);
+                System.exit(1);
+            } catch (InterruptedException e) {
+                logger.info("Stopped following the events collection.");
+            } finally {
+                executorService.shutdown();
+                mongoClient.close();
+            }
+            return;
+        }
+
+        // Collection, match filter (null for all events of the collection), and output directory of each extraction
+        List<MongoCollection<Document>> eventsCollections = new ArrayList<>();
+        List<Bson> matchFilters = new ArrayList<>();
+        List<String> outputDirectoryPaths = new ArrayList<>();
+        for (String currentDatabaseName : databaseNames == null ? Collections.singletonList(databaseName) : databaseNames) {
+            MongoDatabase database = mongoClient.getDatabase(currentDatabaseName);
+            MongoCollection<Document> eventsCollection = database.getCollection("events");
+            if (createIndex) {
+                createEventsIndex(eventsCollection, matchIds == null ? null : matchIdField);
+            }
+
+            String outputDirectoryPath = databaseNames == null ? "streamteamEvents" : "streamteamEvents/" + currentDatabaseName;
+            if (matchIds == null) {
+                eventsCollections.add(eventsCollection);
+                matchFilters.add(null);
+                outputDirectoryPaths.add(outputDirectoryPath);
+            } else {
+                for (String matchId : matchIds) {
+                    eventsCollections.add(eventsCollection);
+                    matchFilters.add(Filters.eq(matchIdField, matchId));
+                    outputDirectoryPaths.add(outputDirectoryPath + "/" + matchId);
                 }
+            }
+        }
+        logger.info("Extracts {} event collections or matches with up to {} parallel cursors.", eventsCollections.size(), parallelCursors);
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService cursorExecutorService = Executors.newFixedThreadPool(parallelCursors);
+        // The event CSV files are written asynchronously so that the cursors do not wait for the disk
+        ExecutorService writerExecutorService = Executors.newSingleThreadExecutor();
+        List<Future<Future<Integer>>> futures = new ArrayList<>();
+        List<String> csvFilePaths = new ArrayList<>();
+        for (int i = 0; i < eventsCollections.size(); ++i) {
+            MongoCollection<Document> eventsCollection = eventsCollections.get(i);
+            Bson matchFilter = matchFilters.get(i);
+            for (EventType eventType : EventType.values()) {
+                String csvFilePath = outputDirectoryPaths.get(i) + "/" + eventType.getCsvFileName();
+                csvFilePaths.add(csvFilePath);
+                futures.add(cursorExecutorService.submit(() -> {
+                    EventSet eventSet = extractEvents(eventsCollection, matchFilter, eventType, batchSize);
+                    return writerExecutorService.submit(() -> {
+                        eventSet.writeCsvFile(csvFilePath, eventType.getCsvHeader());
+                        return eventSet.size();
+                    });
+                }));
+            }
+        }
+
+        int numberOfEvents = 0;
+        int numberOfFailedFiles = 0;
+        for (int i = 0; i < futures.size(); ++i) {
+            try {
+                numberOfEvents += futures.get(i).get().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while extracting {}.", csvFilePaths.get(i), e);
+                numberOfFailedFiles++;
+            } catch (ExecutionException e) {
+                logger.error("Unable to extract {}.", csvFilePaths.get(i), e.getCause());
+                numberOfFailedFiles++;
+            }
+        }
+        cursorExecutorService.shutdown();
+        writerExecutorService.shutdown();
+        mongoClient.close();
 
-                // https://mongodb.github.io/mongo-java-driver/3.6/driver/tutorials/perform-read-operations/ & https://stackoverflow.com/questions/30424894/java-syntax-with-mongodb
-                MongoCursor<Document> cursor = eventsCollection.find(Filters.eq("type", eventType))
-                        .sort(Sorts.ascending("ts")).allowDiskUse(true).iterator();
+        logger.info("Extracted {} events to {} event CSV files in {} ms.", numberOfEvents, futures.size() - numberOfFailedFiles, System.currentTimeMillis() - startTime);
+        if (numberOfFailedFiles > 0) {
+            System.exit(1);
+        }
+    }
 
+    /**
+     * Calculates the fingerprint of the events collection (number of documents and largest _id) which identifies its events in the EventCache.
+     * The fingerprint does not depend on the content of the documents and the _ids are not monotonic in insertion order (see extractEventsIncrementally). Hence, it assumes an append-only events collection:
+     * Inserting events changes the number of documents, but updating events in place or removing events and inserting others (as many and none with a larger _id) leaves the fingerprint unchanged and stale events are loaded from the EventCache.
+     * The EventComparisonPipeline bypasses the EventCache with --noCache.
+     *
+     * @param connectionString MongoDB connection string
+     * @param databaseName     Name of the database
+     * @param eventsCollection Events collection
+     * @return Fingerprint
+     */
+    public static String fingerprint(String connectionString, String databaseName, MongoCollection<Document> eventsCollection) {
+        long count = eventsCollection.countDocuments();
+        Document lastDocument = eventsCollection.find().projection(Projections.include("_id")).sort(Sorts.descending("_id")).first();
+        String lastId = lastDocument == null ? "" : String.valueOf(lastDocument.get("_id"));
+        return EventCache.fingerprint("mongodb", connectionString, databaseName, eventsCollection.getNamespace().getCollectionName(), Long.toString(count), lastId);
+    }
+
+    /**
+     * Creates the compound index on (type, ts) of the events collection which serves the query and the sort of each event type (no-op if the index already exists).
+     *
+     * @param eventsCollection Events collection
+     */
+    public static void createEventsIndex(MongoCollection<Document> eventsCollection) {
+        createEventsIndex(eventsCollection, null);
+    }
+
+    /**
+     * Creates the compound index on (matchIdField, type, ts) or (type, ts) of the events collection which serves the query and the sort of each match and event type (no-op if the index already exists).
+     *
+     * @param eventsCollection Events collection
+     * @param matchIdField     Name of the field which contains the matchId (null if the events are not filtered by match)
+     */
+    public static void createEventsIndex(MongoCollection<Document> eventsCollection, String matchIdField) {
+        Bson keys = matchIdField == null ? Indexes.ascending("type", "ts") : Indexes.ascending(matchIdField, "type", "ts");
+        try {
+            // https://mongodb.github.io/mongo-java-driver/4.1/driver/tutorials/indexes/
+            String indexName = eventsCollection.createIndex(keys);
+            logger.info("Ensured index {} on {}.", indexName, eventsCollection.getNamespace());
+        } catch (MongoException e) {
+            logger.warn("Unable to create the index {} on {}. Extracts the events without it.", keys, eventsCollection.getNamespace(), e);
+        }
+    }
+
+    /**
+     * Extracts the events of all event types concurrently (one cursor per event type).
+     *
+     * @param eventsCollection Events collection
+     * @param executorService  Executor service on which the event types are extracted
+     * @param batchSize        Number of documents per batch which the cursors fetch from MongoDB
+     * @return Event set of each event type
+     * @throws IOException Thrown if the events of an event type could not be extracted
+     */
+    public static Map<EventType, EventSet> extractEvents(MongoCollection<Document> eventsCollection, ExecutorService executorService, int batchSize) throws IOException {
+        return extractEvents(eventsCollection, null, executorService, batchSize);
+    }
+
+    /**
+     * Extracts the events of all event types which match an additional filter concurrently (one cursor per event type).
+     *
+     * @param eventsCollection Events collection
+     * @param additionalFilter Additional filter, e.g., which selects the events of a match (null for all events of the collection)
+     * @param executorService  Executor service on which the event types are extracted
+     * @param batchSize        Number of documents per batch which the cursors fetch from MongoDB
+     * @return Event set of each event type
+     * @throws IOException Thrown if the events of an event type could not be extracted
+     */
+    public static Map<EventType, EventSet> extractEvents(MongoCollection<Document> eventsCollection, Bson additionalFilter, ExecutorService executorService, int batchSize) throws IOException {
+        return extractEvents(eventsCollection, additionalFilter, executorService, batchSize, null, null);
+    }
+
+    /**
+     * Extracts the events of all event types which match an additional filter concurrently (one cursor per event type) and collects the _ids of the extracted events which are at least a minimum _id.
+     *
+     * @param eventsCollection   Events collection
+     * @param additionalFilter   Additional filter, e.g., which selects the events of a match (null for all events of the collection)
+     * @param executorService    Executor service on which the event types are extracted
+     * @param batchSize          Number of documents per batch which the cursors fetch from MongoDB
+     * @param minimumCollectedId Smallest _id which is collected (null if no _ids are collected)
+     * @param collectedIds       Thread-safe set to which the collected _ids are added (null if no _ids are collected)
+     * @return Event set of each event type
+     * @throws IOException Thrown if the events of an event type could not be extracted
+     */
+    private static Map<EventType, EventSet> extractEvents(MongoCollection<Document> eventsCollection, Bson additionalFilter, ExecutorService executorService, int batchSize, ObjectId minimumCollectedId, Set<ObjectId> collectedIds) throws IOException {
+        Map<EventType, Future<EventSet>> futures = new EnumMap<>(EventType.class);
+        for (EventType eventType : EventType.values()) {
+            futures.put(eventType, executorService.submit(() -> extractEvents(eventsCollection, additionalFilter, eventType, batchSize, minimumCollectedId, collectedIds)));
+        }
+
+        Map<EventType, EventSet> eventSets = new EnumMap<>(EventType.class);
+        for (Map.Entry<EventType, Future<EventSet>> entry : futures.entrySet()) {
+            try {
+                eventSets.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while extracting " + entry.getKey() + "s.", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Unable to extract " + entry.getKey() + "s.", e.getCause());
+            }
+        }
+        return eventSets;
+    }
+
+    /**
+     * Extracts the events of an event type ordered by their timestamp.
+     * Only ts and the required xyCoords entries are fetched from MongoDB (see createProjection).
+     *
+     * @param eventsCollection Events collection
+     * @param additionalFilter Additional filter, e.g., which selects the events of a match (null for all events of the collection)
+     * @param eventType        Event type
+     * @param batchSize        Number of documents per batch which the cursor fetches from MongoDB
+     * @return Event set
+     */
+    public static EventSet extractEvents(MongoCollection<Document> eventsCollection, Bson additionalFilter, EventType eventType, int batchSize) {
+        return extractEvents(eventsCollection, additionalFilter, eventType, batchSize, null, null);
+    }
+
+    /**
+     * Extracts the events of an event type ordered by their timestamp and collects the _ids of the extracted events which are at least a minimum _id.
+     * Only ts, the required xyCoords entries, and (if _ids are collected) _id are fetched from MongoDB (see createProjection).
+     *
+     * @param eventsCollection   Events collection
+     * @param additionalFilter   Additional filter, e.g., which selects the events of a match (null for all events of the collection)
+     * @param eventType          Event type
+     * @param batchSize          Number of documents per batch which the cursor fetches from MongoDB
+     * @param minimumCollectedId Smallest _id which is collected (null if no _ids are collected)
+     * @param collectedIds       Thread-safe set to which the collected _ids are added (null if no _ids are collected)
+     * @return Event set
+     */
+    private static EventSet extractEvents(MongoCollection<Document> eventsCollection, Bson additionalFilter, EventType eventType, int batchSize, ObjectId minimumCollectedId, Set<ObjectId> collectedIds) {
+        EventSet.Builder builder = new EventSet.Builder(eventType.hasSecondPosition());
+        Bson filter = additionalFilter == null ? Filters.eq("type", eventType.getName()) : Filters.and(additionalFilter, Filters.eq("type", eventType.getName()));
+
+        // https://mongodb.github.io/mongo-java-driver/3.6/driver/tutorials/perform-read-operations/ & https://stackoverflow.com/questions/30424894/java-syntax-with-mongodb
+        MongoCursor<Document> cursor = eventsCollection.find(filter)
+                .projection(createProjection(eventType, collectedIds != null)).sort(Sorts.ascending("ts")).batchSize(batchSize).allowDiskUse(true).iterator();
+
+        try {
+            while (cursor.hasNext()) {
+                Document eventDocument = cursor.next();
+                if (collectedIds != null) {
+                    ObjectId id = eventDocument.getObjectId("_id");
+                    if (id.compareTo(minimumCollectedId) >= 0) {
+                        collectedIds.add(id);
+                    }
+                }
+                Integer ts = eventDocument.getInteger("ts");
+                List<List<Double>> xyCoordsDocumentList = (List<List<Double>>) eventDocument.get("xyCoords");
+
+                if (eventType.hasSecondPosition()) { // Successful pass (xyCoords[0] and xyCoords[1])
+                    builder.add(ts, xyCoordsDocumentList.get(0).get(0), xyCoordsDocumentList.get(0).get(1), xyCoordsDocumentList.get(1).get(0), xyCoordsDocumentList.get(1).get(1));
+                } else { // Interception or position of the ball (xyCoords[1], alternative would be position of the player)
+                    builder.add(ts, xyCoordsDocumentList.get(0).get(0), xyCoordsDocumentList.get(0).get(1));
+                }
+                if (logger.isDebugEnabled() && builder.size() % DEBUG_LOG_SAMPLE_INTERVAL == 1) {
+                    logger.debug("{} #{}: {}", eventType, builder.size(), builder.getLastCsvLine());
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        logger.info("Extracted {} {}s from {}{}.", builder.size(), eventType, eventsCollection.getNamespace(), additionalFilter == null ? "" : " with filter " + additionalFilter);
+        return builder.build();
+    }
+
+    /**
+     * Extracts the events incrementally to an output directory.
+     * The _ids of the events are ObjectIds which are generated by the writers (timestamp in seconds, random value, and counter), i.e., they are not monotonic in insertion order across writers and an event can be inserted after events with larger _ids.
+     * Therefore, the high-water mark is a time (in seconds) up to which the events have been extracted and it only advances to the current time minus safetyLagInS. Each run re-reads the events whose _id timestamps are within overlapInS before the high-water mark and skips the _ids which have already been extracted (persisted with the high-water mark).
+     * Hence, an event is only missed if it is inserted more than safetyLagInS + overlapInS seconds after the generation of its _id (or if the clocks of the writers are off by more than that).
+     * If there is no high-water mark (or an event CSV file is missing), all events up to the high-water mark are extracted and the event CSV files are rewritten.
+     * Otherwise, the new events are merged into the event CSV files ordered by ts (as in a full extraction, since the greedy matching of the EventComparer depends on the order of the events).
+     * If the process is killed between rewriting the event CSV files and persisting the high-water mark, the next run extracts these events again.
+     *
+     * @param eventsCollection    Events collection
+     * @param outputDirectoryPath Path to the directory of the event CSV files and the high-water mark
+     * @param executorService     Executor service on which the event types are extracted in case of a full extraction
+     * @param batchSize           Number of documents per batch which the cursors fetch from MongoDB
+     * @param safetyLagInS        Only events whose _id timestamps are at least safetyLagInS seconds old are extracted
+     * @param overlapInS          Time span (in s) before the high-water mark which is re-read to extract late inserted events
+     * @return Number of extracted events
+     * @throws IOException Thrown if the events could not be extracted or the event CSV files or the high-water mark could not be written
+     */
+    public static int extractEventsIncrementally(MongoCollection<Document> eventsCollection, String outputDirectoryPath, ExecutorService executorService, int batchSize, int safetyLagInS, int overlapInS) throws IOException {
+        File highWaterMarkFile = new File(outputDirectoryPath, HIGH_WATER_MARK_FILE_NAME);
+        HighWaterMark highWaterMark = readHighWaterMark(highWaterMarkFile);
+        for (EventType eventType : EventType.values()) {
+            if (!new File(outputDirectoryPath, eventType.getCsvFileName()).exists()) {
+                highWaterMark = null;
+            }
+        }
+        Map<String, EventType> eventTypesByName = new HashMap<>();
+        for (EventType eventType : EventType.values()) {
+            eventTypesByName.put(eventType.getName(), eventType);
+        }
+
+        long timeInS = System.currentTimeMillis() / 1000 - safetyLagInS;
+        int numberOfEvents = 0;
+        if (highWaterMark == null) {
+            // The _ids within the overlap are collected by the same cursors which extract the events (a separate query could see events which are inserted in between)
+            Set<ObjectId> recentIds = ConcurrentHashMap.newKeySet();
+            Map<EventType, EventSet> eventSets = extractEvents(eventsCollection, Filters.lt("_id", getMinimumObjectId(timeInS)), executorService, batchSize, getMinimumObjectId(timeInS - overlapInS), recentIds);
+            for (EventType eventType : EventType.values()) {
+                eventSets.get(eventType).writeCsvFile(outputDirectoryPath + "/" + eventType.getCsvFileName(), eventType.getCsvHeader());
+                numberOfEvents += eventSets.get(eventType).size();
+            }
+            writeHighWaterMark(highWaterMarkFile, new HighWaterMark(timeInS, recentIds));
+            logger.info("Extracted all {} events up to the high-water mark {}.", numberOfEvents, timeInS);
+        } else {
+            timeInS = Math.max(timeInS, highWaterMark.timeInS);
+            Map<EventType, EventSet.Builder> builders = new EnumMap<>(EventType.class);
+            for (EventType eventType : EventType.values()) {
+                builders.put(eventType, new EventSet.Builder(eventType.hasSecondPosition()));
+            }
+
+            Set<ObjectId> extractedIds = new HashSet<>(highWaterMark.extractedIds);
+            MongoCursor<Document> cursor = eventsCollection.find(Filters.and(Filters.gte("_id", getMinimumObjectId(highWaterMark.timeInS - overlapInS)), Filters.lt("_id", getMinimumObjectId(timeInS)), Filters.in("type", eventTypesByName.keySet())))
+                    .projection(Projections.fields(Projections.include("_id", "type", "ts"), Projections.slice("xyCoords", 2))).batchSize(batchSize).iterator();
+            try {
                 while (cursor.hasNext()) {
                     Document eventDocument = cursor.next();
+                    if (!extractedIds.add(eventDocument.getObjectId("_id"))) {
+                        continue; // Already extracted in a previous run
+                    }
+                    EventType eventType = eventTypesByName.get(eventDocument.getString("type"));
                     Integer ts = eventDocument.getInteger("ts");
                     List<List<Double>> xyCoordsDocumentList = (List<List<Double>>) eventDocument.get("xyCoords");
 
-                    String line;
-                    if (eventType.equals("interceptionEvent")) {
-                        line = ts + "," + xyCoordsDocumentList.get(1).get(0) + "," + xyCoordsDocumentList.get(1).get(1);
-                    } else if (eventType.equals("successfulPassEvent")) {
-                        line = ts + "," + xyCoordsDocumentList.get(0).get(0) + "," + xyCoordsDocumentList.get(0).get(1) + "," + xyCoordsDocumentList.get(1).get(0) + "," + xyCoordsDocumentList.get(1).get(1);
-                    } else {
-                        // Position of the ball (alternative would be position of the player)
-                        line = ts + "," + xyCoordsDocumentList.get(1).get(0) + "," + xyCoordsDocumentList.get(1).get(1);
+                    if (eventType.hasSecondPosition()) { // Successful pass (xyCoords[0] and xyCoords[1])
+                        builders.get(eventType).add(ts, xyCoordsDocumentList.get(0).get(0), xyCoordsDocumentList.get(0).get(1), xyCoordsDocumentList.get(1).get(0), xyCoordsDocumentList.get(1).get(1));
+                    } else { // Interception or position of the ball (xyCoords[1], alternative would be position of the player)
+                        builders.get(eventType).add(ts, xyCoordsDocumentList.get(1).get(0), xyCoordsDocumentList.get(1).get(1));
                     }
-                    logger.info("{}: {}", eventType, line);
-                    fileWriter.append(line + "\n");
+                    numberOfEvents++;
                 }
-
+            } finally {
                 cursor.close();
-                fileWriter.close();
-            } catch (IOException e) {
-                logger.error("Caught exception.", e);
             }
+
+            for (EventType eventType : EventType.values()) {
+                EventSet eventSet = builders.get(eventType).build();
+                if (eventSet.size() > 0) {
+                    String csvFilePath = outputDirectoryPath + "/" + eventType.getCsvFileName();
+                    EventSet mergedEventSet = EventSet.readFile(csvFilePath, eventType.hasSecondPosition()).mergeOrderedByTimestamp(eventSet);
+                    File temporaryFile = new File(csvFilePath + ".tmp");
+                    mergedEventSet.writeCsvFile(temporaryFile.getPath(), eventType.getCsvHeader());
+                    Files.move(temporaryFile.toPath(), new File(csvFilePath).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            // Only the _ids within the overlap of the next run have to be kept
+            long minimumTimeInS = timeInS - overlapInS;
+            extractedIds.removeIf(id -> id.getTimestamp() < minimumTimeInS);
+            writeHighWaterMark(highWaterMarkFile, new HighWaterMark(timeInS, extractedIds));
+            logger.info("Merged {} new events up to the high-water mark {}.", numberOfEvents, timeInS);
         }
+        return numberOfEvents;
+    }
+
+    /**
+     * Returns the smallest ObjectId with a certain timestamp.
+     *
+     * @param timeInS Timestamp (in s since the epoch)
+     * @return Smallest ObjectId with this timestamp
+     */
+    private static ObjectId getMinimumObjectId(long timeInS) {
+        // https://docs.mongodb.com/manual/reference/method/ObjectId/
+        return new ObjectId(String.format("%08x", Math.max(0, timeInS)) + "0000000000000000");
     }
 
     /**
-     * Creates a non-appending file writer and the directory.
+     * Reads the high-water mark of the incremental extraction (first line: time in s, further lines: _ids which have already been extracted within the overlap).
      *
-     * @param path File path
-     * @return Non-appending file writer
-     * @throws IOException Thrown if an IOException is thrown while creating the file write or the directory.
-     */
-    private static FileWriter createFileWriter(String path) throws IOException {
-        File successfulPassEventsFile = new File(path);
-        successfulPassEventsFile.getParentFile().mkdirs();
-        return new FileWriter(successfulPassEventsFile, false);
+     * @param highWaterMarkFile High-water mark file
+     * @return High-water mark or null if there is no (valid) high-water mark
+     * @throws IOException Thrown if the high-water mark file could not be read
+     */
+    private static HighWaterMark readHighWaterMark(File highWaterMarkFile) throws IOException {
+        if (!highWaterMarkFile.exists()) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(highWaterMarkFile.toPath(), StandardCharsets.UTF_8);
+        try {
+            long timeInS = Long.parseLong(lines.get(0).trim());
+            Set<ObjectId> extractedIds = new HashSet<>();
+            for (String line : lines.subList(1, lines.size())) {
+                if (!line.trim().isEmpty()) {
+                    extractedIds.add(new ObjectId(line.trim()));
+                }
+            }
+            return new HighWaterMark(timeInS, extractedIds);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            logger.warn("Ignore the invalid high-water mark in {}.", highWaterMarkFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the high-water mark of the incremental extraction (to a temporary file which is then moved into place).
+     *
+     * @param highWaterMarkFile High-water mark file
+     * @param highWaterMark     High-water mark
+     * @throws IOException Thrown if the high-water mark file could not be written
+     */
+    private static void writeHighWaterMark(File highWaterMarkFile, HighWaterMark highWaterMark) throws IOException {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(highWaterMark.timeInS).append("\n");
+        for (ObjectId extractedId : highWaterMark.extractedIds) {
+            stringBuilder.append(extractedId.toHexString()).append("\n");
+        }
+        File temporaryFile = new File(highWaterMarkFile.getPath() + ".tmp");
+        Files.write(temporaryFile.toPath(), stringBuilder.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile.toPath(), highWaterMarkFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Creates the projection of the events of an event type which contains only ts, the required xyCoords entries, and optionally _id.
+     * Successful passes need xyCoords[0] and xyCoords[1] (start and end), all other event types need only xyCoords[1] (which is the first entry of the sliced list).
+     *
+     * @param eventType Event type
+     * @param includeId True if the projection should contain _id
+     * @return Projection
+     */
+    private static Bson createProjection(EventType eventType, boolean includeId) {
+        Bson xyCoordsProjection = eventType.hasSecondPosition() ? Projections.slice("xyCoords", 2) : Projections.slice("xyCoords", 1, 1);
+        if (includeId) {
+            return Projections.fields(Projections.include("_id", "ts"), xyCoordsProjection);
+        } else {
+            return Projections.fields(Projections.include("ts"), xyCoordsProjection, Projections.excludeId());
+        }
+    }
+
+    /**
+     * High-water mark of the incremental extraction.
+     */
+    private static final class HighWaterMark {
+
+        /**
+         * Time (in s since the epoch) up to which the events have been extracted (based on the timestamps of their _ids)
+         */
+        private final long timeInS;
+
+        /**
+         * _ids of the extracted events whose timestamps are within the overlap before the time
+         */
+        private final Set<ObjectId> extractedIds;
+
+        /**
+         * HighWaterMark constructor.
+         *
+         * @param timeInS      Time (in s since the epoch) up to which the events have been extracted
+         * @param extractedIds _ids of the extracted events whose timestamps are within the overlap before the time
+         */
+        private HighWaterMark(long timeInS, Set<ObjectId> extractedIds) {
+            this.timeInS = timeInS;
+            this.extractedIds = extractedIds;
+        }
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventType;
+import ch.unibas.dmi.dbis.streamteam.evaluation.opta.F24ParsingMode;
+import ch.unibas.dmi.dbis.streamteam.evaluation.opta.OptaExtractionJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Component which extracts the events of many matches from their F24 files (as the OptaEventExtractor) concurrently on a thread pool in a single JVM.
+ * The matches are listed either in a manifest file with per-match field dimensions and mirroring (see OptaExtractionJob.readManifest) or as all F24 files in a directory with common settings.
+ */
+public class OptaBatchEventExtractor {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(OptaBatchEventExtractor.class);
+
+    /**
+     * Main method of the Opta Batch Event Extractor.
+     *
+     * @param args manifestFilePath or directoryPath fieldLength fieldWidth mirrorX mirrorY, and optional: --parser dom|stax (default: stax) and --threads n (default: number of processors)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            logger.error("Missing manifest file or directory.");
+            System.exit(1);
+        }
+        String inputPath = args[0];
+        boolean isDirectory = new File(inputPath).isDirectory();
+
+        int i = 1;
+        double fieldLength = 0;
+        double fieldWidth = 0;
+        boolean mirrorX = false;
+        boolean mirrorY = false;
+        if (isDirectory) {
+            if (args.length < 5) {
+                logger.error("A directory requires fieldLength, fieldWidth, mirrorX, and mirrorY.");
+                System.exit(1);
+            }
+            fieldLength = Double.parseDouble(args[1]);
+            fieldWidth = Double.parseDouble(args[2]);
+            mirrorX = Boolean.parseBoolean(args[3]);
+            mirrorY = Boolean.parseBoolean(args[4]);
+            i = 5;
+        }
+
+        F24ParsingMode f24ParsingMode = F24ParsingMode.STAX;
+        int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        for (; i < args.length; ++i) {
+            if (args[i].equals("--parser") && i + 1 < args.length) {
+                try {
+                    f24ParsingMode = F24ParsingMode.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    logger.error("Unknown parser {} (expected dom or stax).", args[i]);
+                    System.exit(1);
+                }
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                numberOfThreads = Integer.parseInt(args[++i]);
+            } else {
+                logger.error("Unknown parameter {} (expected --parser dom|stax or --threads n).", args[i]);
+                System.exit(1);
+            }
+        }
+
+        List<OptaExtractionJob> jobs = null;
+        try {
+            if (isDirectory) {
+                jobs = OptaExtractionJob.listDirectory(inputPath, fieldLength, fieldWidth, mirrorX, mirrorY);
+            } else {
+                jobs = OptaExtractionJob.readManifest(inputPath);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to read the matches from {}.", inputPath, e);
+            System.exit(1);
+        }
+        logger.info("Extracts the events of {} matches on {} threads ({} mode).", jobs.size(), numberOfThreads, f24ParsingMode);
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (OptaExtractionJob job : jobs) {
+            final F24ParsingMode finalF24ParsingMode = f24ParsingMode;
+            futures.add(executorService.submit(() -> runJob(job, finalF24ParsingMode)));
+        }
+
+        int numberOfFailedJobs = 0;
+        long totalNumberOfBytes = 0;
+        for (int j = 0; j < futures.size(); ++j) {
+            try {
+                totalNumberOfBytes += futures.get(j).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while waiting for {}.", jobs.get(j).getF24FilePath(), e);
+                numberOfFailedJobs++;
+            } catch (ExecutionException e) {
+                logger.error("Unable to extract the events of {}.", jobs.get(j).getF24FilePath(), e.getCause());
+                numberOfFailedJobs++;
+            }
+        }
+        executorService.shutdown();
+
+        long duration = Math.max(System.currentTimeMillis() - startTime, 1);
+        logger.info("Extracted the events of {} of {} matches ({} MB) in {} ms ({} MB/s).", jobs.size() - numberOfFailedJobs, jobs.size(), totalNumberOfBytes / (1 << 20), duration, String.format("%.2f", (totalNumberOfBytes / (double) (1 << 20)) / (duration / 1000.0)));
+        if (numberOfFailedJobs > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Extracts the events of a match, writes the event CSV files to the output directory of the match, and logs the throughput.
+     *
+     * @param job            Job of the match
+     * @param f24ParsingMode Mode of parsing the F24 file
+     * @return Size of the F24 file in bytes
+     * @throws Exception Thrown if the events could not be extracted or the event CSV files could not be written
+     */
+    private static long runJob(OptaExtractionJob job, F24ParsingMode f24ParsingMode) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long numberOfBytes = new File(job.getF24FilePath()).length();
+
+        Map<EventType, EventSet> eventSets = OptaEventExtractor.extractEvents(job.getF24FilePath(), job.getFieldLength(), job.getFieldWidth(), job.isMirrorX(), job.isMirrorY(), f24ParsingMode);
+        OptaEventExtractor.writeCsvFiles(eventSets, job.getOutputDirectoryPath());
+
+        int numberOfEvents = 0;
+        for (EventSet eventSet : eventSets.values()) {
+            numberOfEvents += eventSet.size();
+        }
+        long duration = Math.max(System.currentTimeMillis() - startTime, 1);
+        logger.info("Extracted {} events from {} ({} KB) to {} in {} ms ({} MB/s).", numberOfEvents, job.getF24FilePath(), numberOfBytes / 1024, job.getOutputDirectoryPath(), duration, String.format("%.2f", (numberOfBytes / (double) (1 << 20)) / (duration / 1000.0)));
+
+        return numberOfBytes;
+    }
+}
@@ -18,6 +18,11 @@
 
 package ch.unibas.dmi.dbis.streamteam.evaluation;
 
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventCache;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventType;
+import ch.unibas.dmi.dbis.streamteam.evaluation.opta.F24ParsingMode;
+import ch.unibas.dmi.dbis.streamteam.evaluation.opta.OptaEventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -28,14 +33,17 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.text.DateFormat;
+import java.io.InputStream;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
+import java.util.Map;
 
 /**
  * Component which extracts some selected events from an Opta dataset.
@@ -47,15 +55,10 @@ public class OptaEventExtractor {
      */
     private static final Logger logger = LoggerFactory.getLogger(OptaEventExtractor.class);
 
-    /**
-     * OPTA event timestamp date format
-     */
-    private static DateFormat df;
-
     /**
      * Main method of the Opta Event Extractor.
      *
-     * @param args f24FilePath, fieldLength, fieldWidth, mirrorX, and mirrorY
+     * @param args f24FilePath, fieldLength, fieldWidth, mirrorX, mirrorY, and optional: --parser dom|stax (default: dom)
      */
     public static void main(String[] args) {
         String f24FilePath = args[0];
@@ -68,189 +71,175 @@ public class OptaEventExtractor {
         logger.info("Mirror x-coordinates: {}", mirrorX);
         boolean mirrorY = Boolean.parseBoolean(args[4]);
         logger.info("Mirror y-coordinates: {}", mirrorY);
-
-        // https://stackoverflow.com/questions/3914404/how-to-get-current-moment-in-iso-8601-format-with-date-hour-and-minute/3914973
-        TimeZone tz = TimeZone.getTimeZone("UTC");
-        df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
-        df.setTimeZone(tz);
-
-        try {
-            logger.info("Starts reading F24 file.");
-            // https://www.tutorialspoint.com/java_xml/java_dom_parse_document.htm
-            File f24File = new File(f24FilePath);
-            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-            Document document = documentBuilder.parse(f24File);
-            NodeList gameNodes = document.getElementsByTagName("Game");
-            Element gameElement = (Element) gameNodes.item(0);
-            NodeList eventNodes = gameElement.getElementsByTagName("Event");
-
-            FileWriter successfulPassEventsFileWriter = createFileWriter("optaEvents/successfulPassEvents.csv");
-            successfulPassEventsFileWriter.append("ts,startX,startY,endX,endY\n"); // Header
-            FileWriter interceptionEventsFileWriter = createFileWriter("optaEvents/interceptionEvents.csv");
-            interceptionEventsFileWriter.append("ts,endX,endY\n"); // Header
-            FileWriter freekickEventsFileWriter = createFileWriter("optaEvents/freekickEvents.csv");
-            freekickEventsFileWriter.append("ts,startX,startY\n"); // Header
-            FileWriter cornerkickEventsFileWriter = createFileWriter("optaEvents/cornerkickEvents.csv");
-            cornerkickEventsFileWriter.append("ts,startX,startY\n"); // Header
-            FileWriter throwinEventsFileWriter = createFileWriter("optaEvents/throwinEvents.csv");
-            throwinEventsFileWriter.append("ts,startX,startY\n"); // Header
-            FileWriter goalkickEventsFileWriter = createFileWriter("optaEvents/goalkickEvents.csv");
-            goalkickEventsFileWriter.append("ts,startX,startY\n"); // Header
-
-            Long matchStartUnixTsInMs = null;
-
-            for (int i = 0; i < eventNodes.getLength(); ++i) {
-                Element eventElement = (Element) eventNodes.item(i);
-
-                if (eventElement.getAttribute("period_id").equals("1")) { // Event was in the first halftime
-                    String typeId = eventElement.getAttribute("type_id");
-
-                    if (typeId.equals("32") && matchStartUnixTsInMs == null) { // First halftime start event
-                        // https://stackoverflow.com/questions/7784421/getting-unix-timestamp-from-date
-                        matchStartUnixTsInMs = df.parse(eventElement.getAttribute("timestamp")).getTime();
-                        logger.info("First half start: {} -> {}", eventElement.getAttribute("timestamp"), matchStartUnixTsInMs);
-                    } else if (typeId.equals("8")) { // Interception
-                        long ts = transformOptaEventTimestampToMsSinceMatchStart(eventElement.getAttribute("timestamp"), matchStartUnixTsInMs);
-                        double endX = getX(eventElement.getAttribute("x"), fieldLength, mirrorX);
-                        double endY = getY(eventElement.getAttribute("y"), fieldWidth, mirrorY);
-                        logger.info("Interception: {},{},{}", new Object[]{ts, endX, endY});
-                        interceptionEventsFileWriter.write(ts + "," + endX + "," + endY + "\n");
-                    } else if (typeId.equals("1") || typeId.equals("2")) { // Successful pass, blocked pass (->interception), free kick, corner kick, throwin, or goal kick
-                        long ts = transformOptaEventTimestampToMsSinceMatchStart(eventElement.getAttribute("timestamp"), matchStartUnixTsInMs);
-                        double startX = getX(eventElement.getAttribute("x"), fieldLength, mirrorX);
-                        double startY = getY(eventElement.getAttribute("y"), fieldWidth, mirrorY);
-
-                        String outcome = eventElement.getAttribute("outcome");
-
-                        NodeList qNodes = eventElement.getElementsByTagName("Q");
-                        boolean hasQualifierId5 = false;
-                        boolean hasQualifierId6 = false;
-                        boolean hasQualifierId107 = false;
-                        boolean hasQualifierId124 = false;
-                        boolean hasQualifierId236 = false;
-                        Double endX = null;
-                        Double endY = null;
-                        for (int j = 0; j < qNodes.getLength(); ++j) {
-                            Element qElement = (Element) qNodes.item(j);
-                            switch (qElement.getAttribute("qualifier_id")) {
-                                case "5":
-                                    hasQualifierId5 = true;
-                                    break;
-                                case "6":
-                                    hasQualifierId6 = true;
-                                    break;
-                                case "107":
-                                    hasQualifierId107 = true;
-                                    break;
-                                case "124":
-                                    hasQualifierId124 = true;
-                                    break;
-                                case "140":
-                                    endX = getX(qElement.getAttribute("value"), fieldLength, mirrorX);
-                                    break;
-                                case "141":
-                                    endY = getY(qElement.getAttribute("value"), fieldWidth, mirrorY);
-                                    break;
-                                case "236":
-                                    hasQualifierId236 = true;
-                                    break;
-                            }
-                        }
-
-                        if (!hasQualifierId5 && !hasQualifierId6 && !hasQualifierId107 && !hasQualifierId124 && !hasQualifierId236 && endX != null && endY != null && outcome.equals("1")) { // Successful pass
-                            logger.info("SuccessfulPass: {},{},{},{},{}", new Object[]{ts, startX, startY, endX, endY});
-                            successfulPassEventsFileWriter.write(ts + "," + startX + "," + startY + "," + endX + "," + endY + "\n");
-                        } else if (hasQualifierId5 && !hasQualifierId6 && !hasQualifierId107 && !hasQualifierId124 && !hasQualifierId236) { // Freekick
-                            logger.info("Freekick: {},{},{}", new Object[]{ts, startX, startY});
-                            freekickEventsFileWriter.write(ts + "," + startX + "," + startY + "\n");
-                        } else if (!hasQualifierId5 && hasQualifierId6 && !hasQualifierId107 && !hasQualifierId124 && !hasQualifierId236) { // Cornerkick
-                            logger.info("Cornerkick: {},{},{}", new Object[]{ts, startX, startY});
-                            cornerkickEventsFileWriter.write(ts + "," + startX + "," + startY + "\n");
-                        } else if (!hasQualifierId5 && !hasQualifierId6 && hasQualifierId107 && !hasQualifierId124 && !hasQualifierId236) { // Throwin
-                            logger.info("Throwin: {},{},{}", new Object[]{ts, startX, startY});
-                            throwinEventsFileWriter.write(ts + "," + startX + "," + startY + "\n");
-                        } else if (!hasQualifierId5 && !hasQualifierId6 && !hasQualifierId107 && hasQualifierId124 && !hasQualifierId236) { // Goalkick
-                            logger.info("Goalkick: {},{},{}", new Object[]{ts, startX, startY});
-                            goalkickEventsFileWriter.write(ts + "," + startX + "," + startY + "\n");
-                        } else if (!hasQualifierId5 && !hasQualifierId6 && !hasQualifierId107 && !hasQualifierId124 && hasQualifierId236 && endX != null && endY != null) { // Blocked pass -> interception
-                            logger.info("Interception: {},{},{}", new Object[]{ts, endX, endY});
-                            interceptionEventsFileWriter.write(ts + "," + endX + "," + endY + "\n");
-                        } else {
-                            logger.info("Ignored event with type_id 1 or 2 but unknown qualifier_id and outcome combination.");
-                        }
-                    }
+        F24ParsingMode f24ParsingMode = F24ParsingMode.DOM;
+        for (int i = 5; i < args.length; ++i) {
+            if (args[i].equals("--parser") && i + 1 < args.length) {
+                try {
+                    f24ParsingMode = F24ParsingMode.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    logger.error("Unknown parser {} (expected dom or stax).", args[i]);
+                    System.exit(1);
                 }
+            } else {
+                logger.error("Unknown parameter {} (expected --parser dom|stax).", args[i]);
+                System.exit(1);
             }
+        }
 
-            interceptionEventsFileWriter.close();
-            successfulPassEventsFileWriter.close();
-            freekickEventsFileWriter.close();
-            cornerkickEventsFileWriter.close();
-            throwinEventsFileWriter.close();
-            goalkickEventsFileWriter.close();
-        } catch (SAXException | ParserConfigurationException | IOException | ParseException e) {
+        try {
+            Map<EventType, EventSet> eventSets = extractEvents(f24FilePath, fieldLength, fieldWidth, mirrorX, mirrorY, f24ParsingMode);
+            writeCsvFiles(eventSets, "optaEvents");
+        } catch (SAXException | ParserConfigurationException | XMLStreamException | IOException | ParseException e) {
             logger.error("Caught exception.", e);
         }
     }
 
     /**
-     * Transforms the OPTA event timestamp into a timestamp specifying the time in ms since the start of the match.
+     * Writes an event CSV file for each event type.
      *
-     * @param optaTs               OPTA event timestamp String
-     * @param matchStartUnixTsInMs Match start UNIX timestamp in ms
-     * @return Time in ms since the start of the match
+     * @param eventSets           Event set of each event type
+     * @param outputDirectoryPath Path to the directory of the event CSV files (created if it does not exist)
+     * @throws IOException Thrown if an event CSV file could not be written
      */
-    private static long transformOptaEventTimestampToMsSinceMatchStart(String optaTs, long matchStartUnixTsInMs) throws ParseException {
-        Date optaTsDate = df.parse(optaTs);
-        long unixTsInMs = optaTsDate.getTime();
-        return unixTsInMs - matchStartUnixTsInMs;
+    public static void writeCsvFiles(Map<EventType, EventSet> eventSets, String outputDirectoryPath) throws IOException {
+        for (EventType eventType : EventType.values()) {
+            eventSets.get(eventType).writeCsvFile(outputDirectoryPath + "/" + eventType.getCsvFileName(), eventType.getCsvHeader());
+        }
     }
 
     /**
-     * Transforms an OPTA x-coordinate String into the StreamTeam-Football coordinate system.
+     * Calculates the fingerprint of an extraction (content of the F24 file and the extraction parameters) which identifies its events in the EventCache.
      *
-     * @param optaXString OPTA x-coordinate String
+     * @param f24FilePath Path to the F24 file
      * @param fieldLength Length of the field in m
-     * @param mirrorX     Flag which indicates if the x-coordinate has to be mirrored
-     * @return X-coordinate according the StreamTeam-Football coordinate system.
+     * @param fieldWidth  Width of the field in m
+     * @param mirrorX     Flag which indicates if the x-coordinates have to be mirrored
+     * @param mirrorY     Flag which indicates if the y-coordinates have to be mirrored
+     * @return Fingerprint
+     * @throws IOException Thrown if the F24 file could not be read
      */
-    private static double getX(String optaXString, double fieldLength, boolean mirrorX) {
-        double x = ((Double.parseDouble(optaXString) - 50) / 100) * fieldLength;
-        if (mirrorX) {
-            return -x;
+    public static String fingerprint(String f24FilePath, double fieldLength, double fieldWidth, boolean mirrorX, boolean mirrorY) throws IOException {
+        return EventCache.fingerprint("opta", EventCache.hashFileContent(f24FilePath), Double.toString(fieldLength), Double.toString(fieldWidth), Boolean.toString(mirrorX), Boolean.toString(mirrorY));
+    }
+
+    /**
+     * Extracts the events of all event types from an F24 file.
+     *
+     * @param f24FilePath    Path to the F24 file
+     * @param fieldLength    Length of the field in m
+     * @param fieldWidth     Width of the field in m
+     * @param mirrorX        Flag which indicates if the x-coordinates have to be mirrored
+     * @param mirrorY        Flag which indicates if the y-coordinates have to be mirrored
+     * @param f24ParsingMode Mode of parsing the F24 file (the extracted events are identical in both modes)
+     * @return Event set of each event type (in the order of the F24 file)
+     * @throws SAXException                 Thrown if the F24 file could not be parsed in the DOM mode
+     * @throws ParserConfigurationException Thrown if the DOM parser could not be created
+     * @throws XMLStreamException           Thrown if the F24 file could not be parsed in the StAX mode
+     * @throws IOException                  Thrown if the F24 file could not be read
+     * @throws ParseException               Thrown if an event timestamp could not be parsed
+     */
+    public static Map<EventType, EventSet> extractEvents(String f24FilePath, double fieldLength, double fieldWidth, boolean mirrorX, boolean mirrorY, F24ParsingMode f24ParsingMode) throws SAXException, ParserConfigurationException, XMLStreamException, IOException, ParseException {
+        OptaEventHandler optaEventHandler = new OptaEventHandler(fieldLength, fieldWidth, mirrorX, mirrorY);
+
+        logger.info("Starts reading F24 file ({} mode).", f24ParsingMode);
+        if (f24ParsingMode == F24ParsingMode.STAX) {
+            parseWithStax(f24FilePath, optaEventHandler);
         } else {
-            return x;
+            parseWithDom(f24FilePath, optaEventHandler);
         }
+
+        return optaEventHandler.getEventSets();
     }
 
     /**
-     * Transforms an OPTA x-coordinate String into the StreamTeam-Football coordinate system.
+     * Loads the F24 file into a DOM and passes its events to the handler.
      *
-     * @param optaYString OPTA y-coordinate String
-     * @param fieldWidth  Width of the field in m
-     * @param mirrorY     Flag which indicates if the y-coordinate has to be mirrored
-     * @return Y-coordinate according the StreamTeam-Football coordinate system.
+     * @param f24FilePath      Path to the F24 file
+     * @param optaEventHandler Handler of the events
+     * @throws SAXException                 Thrown if the F24 file could not be parsed
+     * @throws ParserConfigurationException Thrown if the DOM parser could not be created
+     * @throws IOException                  Thrown if the F24 file could not be read
+     * @throws ParseException               Thrown if an event timestamp could not be parsed
      */
-    private static double getY(String optaYString, double fieldWidth, boolean mirrorY) {
-        double y = ((Double.parseDouble(optaYString) - 50) / 100) * fieldWidth;
-        if (mirrorY) {
-            return -y;
-        } else {
-            return y;
+    private static void parseWithDom(String f24FilePath, OptaEventHandler optaEventHandler) throws SAXException, ParserConfigurationException, IOException, ParseException {
+        // https://www.tutorialspoint.com/java_xml/java_dom_parse_document.htm
+        File f24File = new File(f24FilePath);
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+        Document document = documentBuilder.parse(f24File);
+        NodeList gameNodes = document.getElementsByTagName("Game");
+        Element gameElement = (Element) gameNodes.item(0);
+        NodeList eventNodes = gameElement.getElementsByTagName("Event");
+
+        for (int i = 0; i < eventNodes.getLength(); ++i) {
+            Element eventElement = (Element) eventNodes.item(i);
+            optaEventHandler.startEvent(eventElement.getAttribute("period_id"), eventElement.getAttribute("type_id"), eventElement.getAttribute("timestamp"), eventElement.getAttribute("x"), eventElement.getAttribute("y"), eventElement.getAttribute("outcome"));
+
+            NodeList qNodes = eventElement.getElementsByTagName("Q");
+            for (int j = 0; j < qNodes.getLength(); ++j) {
+                Element qElement = (Element) qNodes.item(j);
+                optaEventHandler.qualifier(qElement.getAttribute("qualifier_id"), qElement.getAttribute("value"));
+            }
+
+            optaEventHandler.endEvent();
+        }
+    }
+
+    /**
+     * Streams the F24 file through a StAX parser and passes its events to the handler as they stream past (without building a DOM).
+     * As in the DOM mode, only the events of the first Game element are extracted (the rest of the file is not read). Event elements are not nested in F24 files.
+     *
+     * @param f24FilePath      Path to the F24 file
+     * @param optaEventHandler Handler of the events
+     * @throws XMLStreamException Thrown if the F24 file could not be parsed
+     * @throws IOException        Thrown if the F24 file could not be read
+     * @throws ParseException     Thrown if an event timestamp could not be parsed
+     */
+    private static void parseWithStax(String f24FilePath, OptaEventHandler optaEventHandler) throws XMLStreamException, IOException, ParseException {
+        // https://docs.oracle.com/javase/tutorial/jaxp/stax/example.html
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(f24FilePath), 1 << 16)) {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+            try {
+                int gameDepth = 0; // Depth of nested Game elements inside the first Game element
+                boolean inEvent = false;
+                while (reader.hasNext()) {
+                    int eventType = reader.next();
+                    if (eventType == XMLStreamConstants.START_ELEMENT) {
+                        String localName = reader.getLocalName();
+                        if (localName.equals("Game")) {
+                            gameDepth++;
+                        } else if (gameDepth > 0 && localName.equals("Event")) {
+                            optaEventHandler.startEvent(getAttribute(reader, "period_id"), getAttribute(reader, "type_id"), getAttribute(reader, "timestamp"), getAttribute(reader, "x"), getAttribute(reader, "y"), getAttribute(reader, "outcome"));
+                            inEvent = true;
+                        } else if (inEvent && localName.equals("Q")) {
+                            optaEventHandler.qualifier(getAttribute(reader, "qualifier_id"), getAttribute(reader, "value"));
+                        }
+                    } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                        String localName = reader.getLocalName();
+                        if (localName.equals("Event") && inEvent) {
+                            optaEventHandler.endEvent();
+                            inEvent = false;
+                        } else if (localName.equals("Game") && gameDepth > 0 && --gameDepth == 0) {
+                            return; // End of the first Game element
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
         }
     }
 
     /**
-     * Creates a non-appending file writer and the directory.
+     * Returns an attribute of the current element of a StAX parser.
      *
-     * @param path File path
-     * @return Non-appending file writer
-     * @throws IOException Thrown if an IOException is thrown while creating the file write or the directory.
+     * @param reader StAX parser
+     * @param name   Name of the attribute
+     * @return Value of the attribute (empty string if the element does not have this attribute as in the DOM)
      */
-    private static FileWriter createFileWriter(String path) throws IOException {
-        File successfulPassEventsFile = new File(path);
-        successfulPassEventsFile.getParentFile().mkdirs();
-        return new FileWriter(successfulPassEventsFile, false);
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
     }
 }
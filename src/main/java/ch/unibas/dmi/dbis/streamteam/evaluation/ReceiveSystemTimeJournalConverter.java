@@ -0,0 +1,146 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.consumer.ReceiveSystemTimeJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Component which converts the binary receive system time journals written by the EvaluationConsumer into the receive system time CSV files which are read by the LatencyCalculator.
+ */
+public class ReceiveSystemTimeJournalConverter {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReceiveSystemTimeJournalConverter.class);
+
+    /**
+     * Main method of the Receive System Time Journal Converter.
+     *
+     * @param args Parameters (optional: directory containing the journals and in which the CSV files are written)
+     */
+    public static void main(String[] args) {
+        String directoryPath = "./log";
+        if (args.length > 0) {
+            directoryPath = args[0];
+        }
+
+        File[] journalFiles = new File(directoryPath).listFiles((dir, name) -> name.endsWith(ReceiveSystemTimeJournal.FILE_EXTENSION));
+        if (journalFiles == null || journalFiles.length == 0) {
+            logger.error("There is no journal in {}.", directoryPath);
+            System.exit(1);
+        }
+        Arrays.sort(journalFiles); // The journal file names contain the creation time
+
+        Map<String, Writer> csvWriters = new HashMap<>();
+        try {
+            for (File journalFile : journalFiles) {
+                logger.info("Converts {}", journalFile);
+                long numberOfRecords = convertJournal(journalFile, directoryPath, csvWriters);
+                logger.info("Converted {} receive system times", numberOfRecords);
+            }
+            for (Writer csvWriter : csvWriters.values()) {
+                csvWriter.close();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to convert journals.", e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts a journal and appends its receive system times to the CSV files (one per measurement).
+     *
+     * @param journalFile   Journal file
+     * @param directoryPath Directory in which the CSV files are written
+     * @param csvWriters    Map containing the writer of the CSV file of each measurement which has already been created
+     * @return Number of converted receive system times
+     * @throws IOException Thrown if the journal could not be read properly or a CSV file could not be written properly
+     */
+    public static long convertJournal(File journalFile, String directoryPath, Map<String, Writer> csvWriters) throws IOException {
+        FileChannel fileChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+        MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+
+        if (buffer.getInt() != ReceiveSystemTimeJournal.MAGIC_NUMBER) {
+            fileChannel.close();
+            throw new IOException(journalFile + " is not a receive system time journal.");
+        }
+        int version = buffer.getInt();
+        if (version != ReceiveSystemTimeJournal.VERSION) {
+            fileChannel.close();
+            throw new IOException(journalFile + " has the unsupported version " + version + ".");
+        }
+
+        int numberOfMeasurements = buffer.getInt();
+        Writer[] measurementWriters = new Writer[numberOfMeasurements];
+        for (int i = 0; i < numberOfMeasurements; ++i) {
+            byte[] nameBytes = new byte[buffer.getShort()];
+            buffer.get(nameBytes);
+            String measurementName = new String(nameBytes, StandardCharsets.UTF_8);
+            Writer csvWriter = csvWriters.get(measurementName);
+            if (csvWriter == null) {
+                csvWriter = new BufferedWriter(new FileWriter(directoryPath + "/" + measurementName + "ReceiveSystemTimes.csv", false));
+                csvWriter.append("matchId,generationTimestamp,receiveSystemTimestamp\n"); // Header
+                csvWriters.put(measurementName, csvWriter);
+            }
+            measurementWriters[i] = csvWriter;
+        }
+
+        List<String> keys = new ArrayList<>();
+        long numberOfRecords = 0;
+        while (buffer.remaining() >= ReceiveSystemTimeJournal.RECORD_SIZE) {
+            byte recordType = buffer.get();
+            int measurementId = buffer.get();
+            int keyLength = buffer.getShort();
+            int keyId = buffer.getInt();
+            long generationTimestamp = buffer.getLong();
+            long receiveSystemTime = buffer.getLong();
+
+            if (recordType == ReceiveSystemTimeJournal.RECORD_TYPE_KEY_DEFINITION) {
+                int paddedKeyLength = ((keyLength + ReceiveSystemTimeJournal.RECORD_SIZE - 1) / ReceiveSystemTimeJournal.RECORD_SIZE) * ReceiveSystemTimeJournal.RECORD_SIZE;
+                if (buffer.remaining() < paddedKeyLength) {
+                    logger.error("{} ends with a truncated key definition.", journalFile);
+                    break;
+                }
+                byte[] keyBytes = new byte[keyLength];
+                buffer.get(keyBytes);
+                buffer.position(buffer.position() + paddedKeyLength - keyLength);
+                keys.add(keyId, new String(keyBytes, StandardCharsets.UTF_8));
+            } else if (recordType == ReceiveSystemTimeJournal.RECORD_TYPE_RECEIVE_SYSTEM_TIME) {
+                measurementWriters[measurementId].append(keys.get(keyId)).append(',').append(Long.toString(generationTimestamp)).append(',').append(Long.toString(receiveSystemTime)).append('\n');
+                numberOfRecords++;
+            } else {
+                fileChannel.close();
+                throw new IOException(journalFile + " contains a record with the unknown type " + recordType + ".");
+            }
+        }
+
+        fileChannel.close();
+        return numberOfRecords;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+/**
+ * Modes of assigning StreamTeam events to OPTA events.
+ */
+public enum AssignmentMode {
+
+    /**
+     * Each StreamTeam event (in the order of the file) is matched with the first OPTA event (in the order of the file) which has not been matched yet and lies within the thresholds (depends on the order of the files and can under-count the correct detections)
+     */
+    GREEDY,
+
+    /**
+     * The StreamTeam events are matched with the OPTA events such that the number of correct detections is maximal (maximum bipartite matching)
+     */
+    MAXIMUM
+}
@@ -0,0 +1,383 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * All pairs of a StreamTeam event and an OPTA event which lie within a maximum time and distance threshold together with their time difference and distance.
+ * The pairs are computed once with a SpatioTemporalEventIndex and grouped by the StreamTeam event (ordered by the position of the OPTA event in the file), which allows to match the events for any smaller thresholds without comparing the events again.
+ * Immutable after construction, i.e., the matching can be performed for several thresholds in parallel.
+ */
+public class CandidatePairs {
+
+    /**
+     * StreamTeam events
+     */
+    private final EventSet streamTeamEvents;
+
+    /**
+     * OPTA events
+     */
+    private final EventSet optaEvents;
+
+    /**
+     * Maximum time threshold (in ms)
+     */
+    private final int maxTimeThreshold;
+
+    /**
+     * Maximum distance threshold (in m)
+     */
+    private final double maxDistThreshold;
+
+    /**
+     * Start of the pairs of each StreamTeam event (the pairs of the StreamTeam event i end at the start of the pairs of the StreamTeam event i + 1)
+     */
+    private final int[] pairStarts;
+
+    /**
+     * Position of the OPTA event of each pair in its file
+     */
+    private final int[] optaEventsOfPairs;
+
+    /**
+     * Absolute time difference of each pair (in ms)
+     */
+    private final int[] timeDeltas;
+
+    /**
+     * Distance of each pair (in m, the larger distance if the events have two positions)
+     */
+    private final double[] distances;
+
+    /**
+     * CandidatePairs constructor. Computes all pairs within the maximum thresholds.
+     *
+     * @param streamTeamEvents StreamTeam events
+     * @param optaEvents       OPTA events
+     * @param maxTimeThreshold Maximum time threshold (in ms)
+     * @param maxDistThreshold Maximum distance threshold (in m)
+     */
+    public CandidatePairs(EventSet streamTeamEvents, EventSet optaEvents, int maxTimeThreshold, double maxDistThreshold) {
+        this.streamTeamEvents = streamTeamEvents;
+        this.optaEvents = optaEvents;
+        this.maxTimeThreshold = maxTimeThreshold;
+        this.maxDistThreshold = maxDistThreshold;
+
+        SpatioTemporalEventIndex optaEventIndex = new SpatioTemporalEventIndex(optaEvents, maxDistThreshold);
+        PairCollector collector = new PairCollector(Math.max(streamTeamEvents.size(), 16));
+        this.pairStarts = new int[streamTeamEvents.size() + 1];
+        for (int streamTeamEvent = 0; streamTeamEvent < streamTeamEvents.size(); ++streamTeamEvent) {
+            this.pairStarts[streamTeamEvent] = collector.size;
+            optaEventIndex.forEachCandidate(streamTeamEvents, streamTeamEvent, maxTimeThreshold, collector);
+            collector.sortByOptaEvent(this.pairStarts[streamTeamEvent]);
+        }
+        this.pairStarts[streamTeamEvents.size()] = collector.size;
+
+        this.optaEventsOfPairs = Arrays.copyOf(collector.optaEventsOfPairs, collector.size);
+        this.timeDeltas = Arrays.copyOf(collector.timeDeltas, collector.size);
+        this.distances = Arrays.copyOf(collector.distances, collector.size);
+    }
+
+    /**
+     * Returns the number of pairs.
+     *
+     * @return Number of pairs
+     */
+    public int size() {
+        return this.optaEventsOfPairs.length;
+    }
+
+    /**
+     * Matches the StreamTeam events with the OPTA events greedily for a time and a distance threshold (see AssignmentMode.GREEDY).
+     *
+     * @param timeThreshold Time threshold (in ms, not larger than the maximum time threshold)
+     * @param distThreshold Distance threshold (in m, not larger than the maximum distance threshold)
+     * @return Matching result
+     */
+    public EventMatchingResult matchGreedily(int timeThreshold, double distThreshold) {
+        checkThresholds(timeThreshold, distThreshold);
+
+        // Identical lines are matched together (as in the former set-based implementation), i.e., an OPTA line can only be matched once and a StreamTeam line counts as wrong detection only once
+        boolean[] matchedStreamTeamLineIds = new boolean[this.streamTeamEvents.getNumberOfDistinctLines()];
+        boolean[] matchedOptaLineIds = new boolean[this.optaEvents.getNumberOfDistinctLines()];
+        int correctDetections = 0;
+        int matchedStreamTeamLines = 0;
+        int matchedOptaLines = 0;
+
+        for (int streamTeamEvent = 0; streamTeamEvent < this.streamTeamEvents.size(); ++streamTeamEvent) {
+            for (int pair = this.pairStarts[streamTeamEvent]; pair < this.pairStarts[streamTeamEvent + 1]; ++pair) {
+                int optaLineId = this.optaEvents.getLineId(this.optaEventsOfPairs[pair]);
+                if (isWithinThresholds(pair, timeThreshold, distThreshold) && !matchedOptaLineIds[optaLineId]) {
+                    correctDetections++;
+                    matchedOptaLineIds[optaLineId] = true;
+                    matchedOptaLines++;
+                    int streamTeamLineId = this.streamTeamEvents.getLineId(streamTeamEvent);
+                    if (!matchedStreamTeamLineIds[streamTeamLineId]) {
+                        matchedStreamTeamLineIds[streamTeamLineId] = true;
+                        matchedStreamTeamLines++;
+                    }
+                    break;
+                }
+            }
+        }
+
+        return new EventMatchingResult(correctDetections, this.streamTeamEvents.getNumberOfDistinctLines() - matchedStreamTeamLines, this.optaEvents.getNumberOfDistinctLines() - matchedOptaLines);
+    }
+
+    /**
+     * Matches the StreamTeam events with the OPTA events for a time and a distance threshold such that the number of correct detections is maximal (see AssignmentMode.MAXIMUM).
+     * The bipartite graph of the StreamTeam events and the OPTA lines (identical OPTA lines are a single vertex) is split into its connected components, which are matched independently with the Hopcroft-Karp algorithm on the common fork-join pool.
+     *
+     * @param timeThreshold Time threshold (in ms, not larger than the maximum time threshold)
+     * @param distThreshold Distance threshold (in m, not larger than the maximum distance threshold)
+     * @return Matching result
+     */
+    public EventMatchingResult matchMaximum(int timeThreshold, double distThreshold) {
+        checkThresholds(timeThreshold, distThreshold);
+
+        int numberOfStreamTeamEvents = this.streamTeamEvents.size();
+        int numberOfOptaLines = this.optaEvents.getNumberOfDistinctLines();
+
+        // Connected components (vertices 0 to numberOfStreamTeamEvents - 1 are the StreamTeam events, the remaining vertices are the OPTA lines)
+        int[] parents = new int[numberOfStreamTeamEvents + numberOfOptaLines];
+        for (int i = 0; i < parents.length; ++i) {
+            parents[i] = i;
+        }
+        boolean[] hasEdge = new boolean[parents.length];
+        for (int streamTeamEvent = 0; streamTeamEvent < numberOfStreamTeamEvents; ++streamTeamEvent) {
+            for (int pair = this.pairStarts[streamTeamEvent]; pair < this.pairStarts[streamTeamEvent + 1]; ++pair) {
+                if (isWithinThresholds(pair, timeThreshold, distThreshold)) {
+                    int optaVertex = numberOfStreamTeamEvents + this.optaEvents.getLineId(this.optaEventsOfPairs[pair]);
+                    hasEdge[streamTeamEvent] = true;
+                    hasEdge[optaVertex] = true;
+                    union(parents, streamTeamEvent, optaVertex);
+                }
+            }
+        }
+
+        // Local vertex numbers within the components
+        int[] componentOfRoot = new int[parents.length];
+        Arrays.fill(componentOfRoot, -1);
+        int[] localVertices = new int[parents.length];
+        int[] numberOfLeftVertices = new int[parents.length];
+        int[] numberOfRightVertices = new int[parents.length];
+        int numberOfComponents = 0;
+        for (int vertex = 0; vertex < parents.length; ++vertex) {
+            if (hasEdge[vertex]) {
+                int root = find(parents, vertex);
+                if (componentOfRoot[root] < 0) {
+                    componentOfRoot[root] = numberOfComponents++;
+                }
+                int component = componentOfRoot[root];
+                localVertices[vertex] = vertex < numberOfStreamTeamEvents ? numberOfLeftVertices[component]++ : numberOfRightVertices[component]++;
+            }
+        }
+
+        // StreamTeam events of each component (in the order of the local vertex numbers)
+        int[] componentStarts = new int[numberOfComponents + 1];
+        for (int component = 0; component < numberOfComponents; ++component) {
+            componentStarts[component + 1] = componentStarts[component] + numberOfLeftVertices[component];
+        }
+        int[] componentStreamTeamEvents = new int[componentStarts[numberOfComponents]];
+        for (int streamTeamEvent = 0; streamTeamEvent < numberOfStreamTeamEvents; ++streamTeamEvent) {
+            if (hasEdge[streamTeamEvent]) {
+                int component = componentOfRoot[find(parents, streamTeamEvent)];
+                componentStreamTeamEvents[componentStarts[component] + localVertices[streamTeamEvent]] = streamTeamEvent;
+            }
+        }
+
+        // Each component writes only the flags of its own StreamTeam events
+        boolean[] matchedStreamTeamEvents = new boolean[numberOfStreamTeamEvents];
+        int[] matchingSizes = new int[numberOfComponents];
+        IntStream.range(0, numberOfComponents).parallel().forEach(component -> {
+            int start = componentStarts[component];
+            int end = componentStarts[component + 1];
+            int[] adjacencyStarts = new int[end - start + 1];
+            int[] adjacency = new int[16];
+            int numberOfEdges = 0;
+            for (int i = start; i < end; ++i) {
+                int streamTeamEvent = componentStreamTeamEvents[i];
+                for (int pair = this.pairStarts[streamTeamEvent]; pair < this.pairStarts[streamTeamEvent + 1]; ++pair) {
+                    if (isWithinThresholds(pair, timeThreshold, distThreshold)) {
+                        if (numberOfEdges == adjacency.length) {
+                            adjacency = Arrays.copyOf(adjacency, numberOfEdges * 2);
+                        }
+                        adjacency[numberOfEdges++] = localVertices[numberOfStreamTeamEvents + this.optaEvents.getLineId(this.optaEventsOfPairs[pair])];
+                    }
+                }
+                adjacencyStarts[i - start + 1] = numberOfEdges;
+            }
+
+            HopcroftKarpMatching matching = new HopcroftKarpMatching(end - start, numberOfRightVertices[component], adjacencyStarts, adjacency);
+            for (int i = start; i < end; ++i) {
+                matchedStreamTeamEvents[componentStreamTeamEvents[i]] = matching.getMatch(i - start) >= 0;
+            }
+            matchingSizes[component] = matching.size();
+        });
+
+        int correctDetections = IntStream.of(matchingSizes).sum();
+        boolean[] matchedStreamTeamLineIds = new boolean[this.streamTeamEvents.getNumberOfDistinctLines()];
+        int matchedStreamTeamLines = 0;
+        for (int streamTeamEvent = 0; streamTeamEvent < numberOfStreamTeamEvents; ++streamTeamEvent) {
+            int streamTeamLineId = this.streamTeamEvents.getLineId(streamTeamEvent);
+            if (matchedStreamTeamEvents[streamTeamEvent] && !matchedStreamTeamLineIds[streamTeamLineId]) {
+                matchedStreamTeamLineIds[streamTeamLineId] = true;
+                matchedStreamTeamLines++;
+            }
+        }
+
+        return new EventMatchingResult(correctDetections, this.streamTeamEvents.getNumberOfDistinctLines() - matchedStreamTeamLines, numberOfOptaLines - correctDetections);
+    }
+
+    /**
+     * Checks that the thresholds do not exceed the thresholds of the candidate pairs.
+     *
+     * @param timeThreshold Time threshold (in ms)
+     * @param distThreshold Distance threshold (in m)
+     */
+    private void checkThresholds(int timeThreshold, double distThreshold) {
+        if (timeThreshold > this.maxTimeThreshold || distThreshold > this.maxDistThreshold) {
+            throw new IllegalArgumentException("The thresholds " + timeThreshold + " ms and " + distThreshold + " m exceed the thresholds of the candidate pairs (" + this.maxTimeThreshold + " ms and " + this.maxDistThreshold + " m).");
+        }
+    }
+
+    /**
+     * Checks if a pair lies within a time and a distance threshold.
+     *
+     * @param pair          Pair
+     * @param timeThreshold Time threshold (in ms)
+     * @param distThreshold Distance threshold (in m)
+     * @return True if the pair lies within the thresholds, otherwise false
+     */
+    private boolean isWithinThresholds(int pair, int timeThreshold, double distThreshold) {
+        return this.timeDeltas[pair] < timeThreshold && this.distances[pair] < distThreshold;
+    }
+
+    /**
+     * Returns the root of the set of a vertex in a union-find forest (with path halving).
+     *
+     * @param parents Parent of each vertex
+     * @param vertex  Vertex
+     * @return Root
+     */
+    private static int find(int[] parents, int vertex) {
+        while (parents[vertex] != vertex) {
+            parents[vertex] = parents[parents[vertex]];
+            vertex = parents[vertex];
+        }
+        return vertex;
+    }
+
+    /**
+     * Merges the sets of two vertices in a union-find forest.
+     *
+     * @param parents Parent of each vertex
+     * @param vertex1 First vertex
+     * @param vertex2 Second vertex
+     */
+    private static void union(int[] parents, int vertex1, int vertex2) {
+        int root1 = find(parents, vertex1);
+        int root2 = find(parents, vertex2);
+        if (root1 != root2) {
+            parents[root2] = root1;
+        }
+    }
+
+    /**
+     * Growable arrays to which the pairs are appended during the construction.
+     */
+    private static final class PairCollector implements SpatioTemporalEventIndex.CandidateConsumer {
+
+        /**
+         * Position of the OPTA event of each pair in its file
+         */
+        private int[] optaEventsOfPairs;
+
+        /**
+         * Absolute time difference of each pair (in ms)
+         */
+        private int[] timeDeltas;
+
+        /**
+         * Distance of each pair (in m)
+         */
+        private double[] distances;
+
+        /**
+         * Number of pairs
+         */
+        private int size;
+
+        /**
+         * PairCollector constructor.
+         *
+         * @param initialCapacity Initial number of pairs
+         */
+        private PairCollector(int initialCapacity) {
+            this.optaEventsOfPairs = new int[initialCapacity];
+            this.timeDeltas = new int[initialCapacity];
+            this.distances = new double[initialCapacity];
+            this.size = 0;
+        }
+
+        @Override
+        public void accept(int event, int timeDelta, double distance) {
+            if (this.size == this.optaEventsOfPairs.length) {
+                this.optaEventsOfPairs = Arrays.copyOf(this.optaEventsOfPairs, this.size * 2);
+                this.timeDeltas = Arrays.copyOf(this.timeDeltas, this.size * 2);
+                this.distances = Arrays.copyOf(this.distances, this.size * 2);
+            }
+            this.optaEventsOfPairs[this.size] = event;
+            this.timeDeltas[this.size] = timeDelta;
+            this.distances[this.size] = distance;
+            this.size++;
+        }
+
+        /**
+         * Sorts the pairs from a start position to the end by the position of the OPTA event in the file.
+         *
+         * @param start Start position
+         */
+        private void sortByOptaEvent(int start) {
+            int length = this.size - start;
+            if (length < 2) {
+                return;
+            }
+            long[] sortKeys = new long[length];
+            for (int i = 0; i < length; ++i) {
+                sortKeys[i] = ((long) this.optaEventsOfPairs[start + i] << 32) | i;
+            }
+            Arrays.sort(sortKeys);
+            int[] timeDeltas = Arrays.copyOfRange(this.timeDeltas, start, this.size);
+            double[] distances = Arrays.copyOfRange(this.distances, start, this.size);
+            for (int i = 0; i < length; ++i) {
+                int source = (int) sortKeys[i];
+                this.optaEventsOfPairs[start + i] = (int) (sortKeys[i] >>> 32);
+                this.timeDeltas[start + i] = timeDeltas[source];
+                this.distances[start + i] = distances[source];
+            }
+        }
+    }
+}
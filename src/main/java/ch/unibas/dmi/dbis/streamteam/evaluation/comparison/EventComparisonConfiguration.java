@@ -0,0 +1,109 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyHasWrongFormatException;
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Configuration of the event comparison (thresholds and assignment mode) which is shared by the EventComparer and the EventComparisonPipeline.
+ */
+public class EventComparisonConfiguration {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EventComparisonConfiguration.class);
+
+    /**
+     * Time thresholds (in ms)
+     */
+    private final int[] timeThresholds;
+
+    /**
+     * Distance thresholds (in m, ascending)
+     */
+    private final double[] distThresholds;
+
+    /**
+     * Mode of the assignment of the events
+     */
+    private final AssignmentMode assignmentMode;
+
+    /**
+     * EventComparisonConfiguration constructor.
+     *
+     * @param properties Properties of the EventComparer
+     */
+    public EventComparisonConfiguration(Properties properties) {
+        this.timeThresholds = PropertyReadHelper.readListOfIntegersOrDie(properties, "eventComparer.timeThresholds").stream().mapToInt(Integer::intValue).toArray();
+        this.distThresholds = PropertyReadHelper.readListOfDoublesOrDie(properties, "eventComparer.distanceThresholds").stream().mapToDouble(Double::doubleValue).toArray();
+        this.assignmentMode = readAssignmentModeOrDie(properties, "eventComparer.assignmentMode");
+    }
+
+    /**
+     * Reads an assignment mode (greedy or maximum) from the properties object or dies in case of an exception.
+     *
+     * @param properties Properties object
+     * @param key        Key
+     * @return Assignment mode
+     */
+    public static AssignmentMode readAssignmentModeOrDie(Properties properties, String key) {
+        String value = PropertyReadHelper.readStringOrDie(properties, key).trim();
+        try {
+            return AssignmentMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.error("Unable to read assignment mode for key {} from properties", key, new PropertyHasWrongFormatException(key, "assignment mode (greedy or maximum)", value));
+            System.exit(1);
+            return null; // never reached
+        }
+    }
+
+    /**
+     * Returns the time thresholds.
+     *
+     * @return Time thresholds (in ms)
+     */
+    public int[] getTimeThresholds() {
+        return this.timeThresholds;
+    }
+
+    /**
+     * Returns the distance thresholds.
+     *
+     * @return Distance thresholds (in m, ascending)
+     */
+    public double[] getDistThresholds() {
+        return this.distThresholds;
+    }
+
+    /**
+     * Returns the mode of the assignment of the events.
+     *
+     * @return Assignment mode
+     */
+    public AssignmentMode getAssignmentMode() {
+        return this.assignmentMode;
+    }
+}
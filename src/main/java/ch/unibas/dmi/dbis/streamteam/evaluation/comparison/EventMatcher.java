@@ -0,0 +1,89 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+
+import java.util.stream.IntStream;
+
+/**
+ * Component which matches StreamTeam events with OPTA events within a time and a distance threshold (see AssignmentMode).
+ */
+public class EventMatcher {
+
+    /**
+     * Matches the StreamTeam events with the OPTA events.
+     *
+     * @param streamTeamEvents StreamTeam events
+     * @param optaEvents       OPTA events
+     * @param timeThreshold    Time threshold (in ms)
+     * @param distThreshold    Distance threshold (in m)
+     * @param assignmentMode   Assignment mode
+     * @return Matching result
+     */
+    public static EventMatchingResult match(EventSet streamTeamEvents, EventSet optaEvents, int timeThreshold, double distThreshold, AssignmentMode assignmentMode) {
+        return match(new CandidatePairs(streamTeamEvents, optaEvents, timeThreshold, distThreshold), timeThreshold, distThreshold, assignmentMode);
+    }
+
+    /**
+     * Matches the StreamTeam events with the OPTA events for every combination of a time and a distance threshold.
+     * The candidate pairs are computed only once for the largest thresholds and the combinations are matched in parallel.
+     *
+     * @param streamTeamEvents StreamTeam events
+     * @param optaEvents       OPTA events
+     * @param timeThresholds   Time thresholds (in ms)
+     * @param distThresholds   Distance thresholds (in m)
+     * @param assignmentMode   Assignment mode
+     * @return Matching result for each combination (first index: time threshold, second index: distance threshold)
+     */
+    public static EventMatchingResult[][] matchAll(EventSet streamTeamEvents, EventSet optaEvents, int[] timeThresholds, double[] distThresholds, AssignmentMode assignmentMode) {
+        int maxTimeThreshold = IntStream.of(timeThresholds).max().orElse(0);
+        double maxDistThreshold = Double.NEGATIVE_INFINITY;
+        for (double distThreshold : distThresholds) {
+            maxDistThreshold = Math.max(maxDistThreshold, distThreshold);
+        }
+        CandidatePairs candidatePairs = new CandidatePairs(streamTeamEvents, optaEvents, maxTimeThreshold, maxDistThreshold);
+
+        EventMatchingResult[][] results = new EventMatchingResult[timeThresholds.length][distThresholds.length];
+        IntStream.range(0, timeThresholds.length * distThresholds.length).parallel().forEach(combination -> {
+            int t = combination / distThresholds.length;
+            int d = combination % distThresholds.length;
+            results[t][d] = match(candidatePairs, timeThresholds[t], distThresholds[d], assignmentMode);
+        });
+        return results;
+    }
+
+    /**
+     * Matches the StreamTeam events with the OPTA events using precomputed candidate pairs.
+     *
+     * @param candidatePairs Candidate pairs
+     * @param timeThreshold  Time threshold (in ms)
+     * @param distThreshold  Distance threshold (in m)
+     * @param assignmentMode Assignment mode
+     * @return Matching result
+     */
+    private static EventMatchingResult match(CandidatePairs candidatePairs, int timeThreshold, double distThreshold, AssignmentMode assignmentMode) {
+        if (assignmentMode == AssignmentMode.MAXIMUM) {
+            return candidatePairs.matchMaximum(timeThreshold, distThreshold);
+        } else {
+            return candidatePairs.matchGreedily(timeThreshold, distThreshold);
+        }
+    }
+}
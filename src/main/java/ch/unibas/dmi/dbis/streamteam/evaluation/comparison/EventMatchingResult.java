@@ -0,0 +1,81 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+/**
+ * Result of matching the StreamTeam events with the OPTA events for a time and a distance threshold.
+ */
+public class EventMatchingResult {
+
+    /**
+     * Number of StreamTeam events which match an OPTA event
+     */
+    private final int correctDetections;
+
+    /**
+     * Number of StreamTeam events (distinct lines) which do not match any OPTA event
+     */
+    private final int wrongDetections;
+
+    /**
+     * Number of OPTA events (distinct lines) which are not matched by any StreamTeam event
+     */
+    private final int missedDetections;
+
+    /**
+     * EventMatchingResult constructor.
+     *
+     * @param correctDetections Number of StreamTeam events which match an OPTA event
+     * @param wrongDetections   Number of StreamTeam events (distinct lines) which do not match any OPTA event
+     * @param missedDetections  Number of OPTA events (distinct lines) which are not matched by any StreamTeam event
+     */
+    public EventMatchingResult(int correctDetections, int wrongDetections, int missedDetections) {
+        this.correctDetections = correctDetections;
+        this.wrongDetections = wrongDetections;
+        this.missedDetections = missedDetections;
+    }
+
+    /**
+     * Returns the number of StreamTeam events which match an OPTA event.
+     *
+     * @return Number of correct detections
+     */
+    public int getCorrectDetections() {
+        return this.correctDetections;
+    }
+
+    /**
+     * Returns the number of StreamTeam events (distinct lines) which do not match any OPTA event.
+     *
+     * @return Number of wrong detections
+     */
+    public int getWrongDetections() {
+        return this.wrongDetections;
+    }
+
+    /**
+     * Returns the number of OPTA events (distinct lines) which are not matched by any StreamTeam event.
+     *
+     * @return Number of missed detections
+     */
+    public int getMissedDetections() {
+        return this.missedDetections;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import java.util.Arrays;
+
+/**
+ * Maximum matching of a bipartite graph with the Hopcroft-Karp algorithm (https://en.wikipedia.org/wiki/Hopcroft%E2%80%93Karp_algorithm).
+ * The graph is given as adjacency lists of the left vertices in primitive arrays. The augmenting paths are searched iteratively (i.e., long paths cannot overflow the stack).
+ */
+public class HopcroftKarpMatching {
+
+    /**
+     * Distance of a left vertex which is not in the current layered graph
+     */
+    private static final int INFINITE_DISTANCE = Integer.MAX_VALUE;
+
+    /**
+     * Number of left vertices
+     */
+    private final int numberOfLeftVertices;
+
+    /**
+     * Start of the adjacency list of each left vertex (the list of the left vertex i ends at the start of the list of the left vertex i + 1)
+     */
+    private final int[] adjacencyStarts;
+
+    /**
+     * Right vertices of the adjacency lists
+     */
+    private final int[] adjacency;
+
+    /**
+     * Right vertex matched with each left vertex (-1 if the left vertex is not matched)
+     */
+    private final int[] leftMatches;
+
+    /**
+     * Left vertex matched with each right vertex (-1 if the right vertex is not matched)
+     */
+    private final int[] rightMatches;
+
+    /**
+     * Layer of each left vertex in the current phase
+     */
+    private final int[] distances;
+
+    /**
+     * Position of the next edge to be explored for each left vertex in the current phase
+     */
+    private final int[] nextEdges;
+
+    /**
+     * Stack of left vertices of the current augmenting path search
+     */
+    private final int[] stack;
+
+    /**
+     * Queue of left vertices of the breadth-first search
+     */
+    private final int[] queue;
+
+    /**
+     * Number of matched left vertices
+     */
+    private int size;
+
+    /**
+     * HopcroftKarpMatching constructor. Computes the maximum matching.
+     *
+     * @param numberOfLeftVertices  Number of left vertices
+     * @param numberOfRightVertices Number of right vertices
+     * @param adjacencyStarts       Start of the adjacency list of each left vertex and the end of the last list (numberOfLeftVertices + 1 values)
+     * @param adjacency             Right vertices of the adjacency lists
+     */
+    public HopcroftKarpMatching(int numberOfLeftVertices, int numberOfRightVertices, int[] adjacencyStarts, int[] adjacency) {
+        this.numberOfLeftVertices = numberOfLeftVertices;
+        this.adjacencyStarts = adjacencyStarts;
+        this.adjacency = adjacency;
+        this.leftMatches = new int[numberOfLeftVertices];
+        this.rightMatches = new int[numberOfRightVertices];
+        this.distances = new int[numberOfLeftVertices];
+        this.nextEdges = new int[numberOfLeftVertices];
+        this.stack = new int[numberOfLeftVertices];
+        this.queue = new int[numberOfLeftVertices];
+        Arrays.fill(this.leftMatches, -1);
+        Arrays.fill(this.rightMatches, -1);
+        this.size = 0;
+
+        while (buildLayers()) {
+            System.arraycopy(this.adjacencyStarts, 0, this.nextEdges, 0, numberOfLeftVertices);
+            for (int leftVertex = 0; leftVertex < numberOfLeftVertices; ++leftVertex) {
+                if (this.leftMatches[leftVertex] < 0 && augment(leftVertex)) {
+                    this.size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of matched pairs.
+     *
+     * @return Size of the maximum matching
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the right vertex which is matched with a left vertex.
+     *
+     * @param leftVertex Left vertex
+     * @return Right vertex or -1 if the left vertex is not matched
+     */
+    public int getMatch(int leftVertex) {
+        return this.leftMatches[leftVertex];
+    }
+
+    /**
+     * Builds the layered graph with a breadth-first search from the free left vertices.
+     *
+     * @return True if there is an augmenting path, otherwise false
+     */
+    private boolean buildLayers() {
+        int queueStart = 0;
+        int queueEnd = 0;
+        for (int leftVertex = 0; leftVertex < this.numberOfLeftVertices; ++leftVertex) {
+            if (this.leftMatches[leftVertex] < 0) {
+                this.distances[leftVertex] = 0;
+                this.queue[queueEnd++] = leftVertex;
+            } else {
+                this.distances[leftVertex] = INFINITE_DISTANCE;
+            }
+        }
+
+        boolean foundFreeRightVertex = false;
+        while (queueStart < queueEnd) {
+            int leftVertex = this.queue[queueStart++];
+            for (int edge = this.adjacencyStarts[leftVertex]; edge < this.adjacencyStarts[leftVertex + 1]; ++edge) {
+                int matchedLeftVertex = this.rightMatches[this.adjacency[edge]];
+                if (matchedLeftVertex < 0) {
+                    foundFreeRightVertex = true;
+                } else if (this.distances[matchedLeftVertex] == INFINITE_DISTANCE) {
+                    this.distances[matchedLeftVertex] = this.distances[leftVertex] + 1;
+                    this.queue[queueEnd++] = matchedLeftVertex;
+                }
+            }
+        }
+        return foundFreeRightVertex;
+    }
+
+    /**
+     * Searches an augmenting path along the layered graph from a free left vertex with an iterative depth-first search and flips the matching along the path.
+     *
+     * @param freeLeftVertex Free left vertex
+     * @return True if an augmenting path has been found, otherwise false
+     */
+    private boolean augment(int freeLeftVertex) {
+        int stackSize = 0;
+        this.stack[stackSize++] = freeLeftVertex;
+        while (stackSize > 0) {
+            int leftVertex = this.stack[stackSize - 1];
+            int edge = this.nextEdges[leftVertex];
+            if (edge == this.adjacencyStarts[leftVertex + 1]) {
+                // Dead end: remove the vertex from the layered graph (the parent then skips the edge since the distance does not fit anymore)
+                this.distances[leftVertex] = INFINITE_DISTANCE;
+                stackSize--;
+                continue;
+            }
+
+            int matchedLeftVertex = this.rightMatches[this.adjacency[edge]];
+            if (matchedLeftVertex < 0) {
+                // Flip the matching along the path on the stack
+                for (int i = stackSize - 1; i >= 0; --i) {
+                    int pathLeftVertex = this.stack[i];
+                    int pathRightVertex = this.adjacency[this.nextEdges[pathLeftVertex]];
+                    this.leftMatches[pathLeftVertex] = pathRightVertex;
+                    this.rightMatches[pathRightVertex] = pathLeftVertex;
+                }
+                return true;
+            } else if (this.distances[matchedLeftVertex] != INFINITE_DISTANCE && this.distances[matchedLeftVertex] == this.distances[leftVertex] + 1) {
+                this.stack[stackSize++] = matchedLeftVertex;
+            } else {
+                this.nextEdges[leftVertex]++;
+            }
+        }
+        return false;
+    }
+}
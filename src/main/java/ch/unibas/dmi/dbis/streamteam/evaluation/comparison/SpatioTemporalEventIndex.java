@@ -0,0 +1,231 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+
+import java.util.Arrays;
+
+/**
+ * Index over the events of an event set which finds the events within a time window and a distance threshold without comparing all events.
+ * The first positions of the events are assigned to the cells of a grid whose cell size is the distance threshold (i.e., two positions which are closer than the threshold are in the same or in neighbouring cells) and the events of each cell are sorted by their timestamp.
+ * A lookup checks the 3x3 neighbouring cells and finds the time window in each of them with a binary search. Immutable after construction.
+ */
+public class SpatioTemporalEventIndex {
+
+    /**
+     * Maximum absolute value of a cell coordinate (cell coordinates are clamped to 16 bits, which merges far away cells but does not change the result since the distances are checked exactly)
+     */
+    private static final int MAX_CELL_COORDINATE = Short.MAX_VALUE;
+
+    /**
+     * Indexed events
+     */
+    private final EventSet events;
+
+    /**
+     * Distance threshold (in m) and size of the grid cells
+     */
+    private final double distThreshold;
+
+    /**
+     * Keys of the non-empty cells (sorted)
+     */
+    private final int[] cellKeys;
+
+    /**
+     * Start of each cell in the sorted arrays (the end of the last cell is at the end of the array)
+     */
+    private final int[] cellStarts;
+
+    /**
+     * Timestamps of the events sorted by the cell and the timestamp
+     */
+    private final int[] sortedTimestamps;
+
+    /**
+     * Positions in the file of the events sorted by the cell and the timestamp
+     */
+    private final int[] sortedEvents;
+
+    /**
+     * SpatioTemporalEventIndex constructor.
+     *
+     * @param events        Events
+     * @param distThreshold Distance threshold (in m)
+     */
+    public SpatioTemporalEventIndex(EventSet events, double distThreshold) {
+        this.events = events;
+        this.distThreshold = distThreshold;
+
+        int size = events.size();
+
+        // Rank of each event when sorting by timestamp (and by the position in the file for equal timestamps)
+        long[] timeSortKeys = new long[size];
+        for (int i = 0; i < size; ++i) {
+            timeSortKeys[i] = ((long) events.getTimestamp(i) << 32) | i;
+        }
+        Arrays.sort(timeSortKeys);
+
+        // Sort by cell and rank
+        long[] cellSortKeys = new long[size];
+        for (int rank = 0; rank < size; ++rank) {
+            int event = (int) timeSortKeys[rank];
+            cellSortKeys[rank] = ((long) getCellKey(getCellCoordinate(events.getX(event)), getCellCoordinate(events.getY(event))) << 32) | rank;
+        }
+        Arrays.sort(cellSortKeys);
+
+        this.sortedTimestamps = new int[size];
+        this.sortedEvents = new int[size];
+        int[] cellKeys = new int[size];
+        int[] cellStarts = new int[size];
+        int numberOfCells = 0;
+        for (int i = 0; i < size; ++i) {
+            int cellKey = (int) (cellSortKeys[i] >> 32);
+            int event = (int) timeSortKeys[(int) cellSortKeys[i]];
+            this.sortedTimestamps[i] = events.getTimestamp(event);
+            this.sortedEvents[i] = event;
+            if (numberOfCells == 0 || cellKeys[numberOfCells - 1] != cellKey) {
+                cellKeys[numberOfCells] = cellKey;
+                cellStarts[numberOfCells] = i;
+                numberOfCells++;
+            }
+        }
+        this.cellKeys = Arrays.copyOf(cellKeys, numberOfCells);
+        this.cellStarts = Arrays.copyOf(cellStarts, numberOfCells);
+    }
+
+    /**
+     * Passes each indexed event whose timestamp differs by less than the time threshold and whose positions are closer than the distance threshold to the positions of the given event to a consumer.
+     * The events are passed in the order of the cells and their timestamps.
+     *
+     * @param queryEvents   Event set of the given event
+     * @param queryEvent    Position of the given event in its file
+     * @param timeThreshold Time threshold (in ms)
+     * @param consumer      Consumer of the events
+     */
+    public void forEachCandidate(EventSet queryEvents, int queryEvent, int timeThreshold, CandidateConsumer consumer) {
+        if (!(this.distThreshold > 0)) {
+            return;
+        }
+
+        long timestamp = queryEvents.getTimestamp(queryEvent);
+        long minTimestamp = timestamp - timeThreshold + 1;
+        long maxTimestamp = timestamp + timeThreshold - 1;
+        double x = queryEvents.getX(queryEvent);
+        double y = queryEvents.getY(queryEvent);
+        boolean checkSecondPosition = queryEvents.hasSecondPosition() && this.events.hasSecondPosition();
+
+        int cellX = getCellCoordinate(x);
+        int cellY = getCellCoordinate(y);
+        for (int neighbourX = Math.max(cellX - 1, -MAX_CELL_COORDINATE); neighbourX <= Math.min(cellX + 1, MAX_CELL_COORDINATE); ++neighbourX) {
+            for (int neighbourY = Math.max(cellY - 1, -MAX_CELL_COORDINATE); neighbourY <= Math.min(cellY + 1, MAX_CELL_COORDINATE); ++neighbourY) {
+                int cell = Arrays.binarySearch(this.cellKeys, getCellKey(neighbourX, neighbourY));
+                if (cell < 0) {
+                    continue;
+                }
+                int cellEnd = cell + 1 < this.cellStarts.length ? this.cellStarts[cell + 1] : this.sortedTimestamps.length;
+                for (int i = lowerBound(this.cellStarts[cell], cellEnd, minTimestamp); i < cellEnd && this.sortedTimestamps[i] <= maxTimestamp; ++i) {
+                    int event = this.sortedEvents[i];
+                    double distance = euclideanDist(x, y, this.events.getX(event), this.events.getY(event));
+                    if (checkSecondPosition) {
+                        distance = Math.max(distance, euclideanDist(queryEvents.getX2(queryEvent), queryEvents.getY2(queryEvent), this.events.getX2(event), this.events.getY2(event)));
+                    }
+                    if (distance < this.distThreshold) {
+                        consumer.accept(event, (int) Math.abs(timestamp - this.sortedTimestamps[i]), distance);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the first position in a range of the sorted arrays whose timestamp is not smaller than a given timestamp.
+     *
+     * @param start     Start of the range
+     * @param end       End of the range (exclusive)
+     * @param timestamp Timestamp
+     * @return First position whose timestamp is not smaller than the given timestamp (end if there is none)
+     */
+    private int lowerBound(int start, int end, long timestamp) {
+        while (start < end) {
+            int middle = (start + end) >>> 1;
+            if (this.sortedTimestamps[middle] < timestamp) {
+                start = middle + 1;
+            } else {
+                end = middle;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Returns the (clamped) grid cell coordinate of a coordinate.
+     *
+     * @param coordinate Coordinate
+     * @return Cell coordinate
+     */
+    private int getCellCoordinate(double coordinate) {
+        double cellCoordinate = Math.floor(coordinate / this.distThreshold);
+        if (Double.isNaN(cellCoordinate)) {
+            return 0;
+        }
+        return (int) Math.max(-MAX_CELL_COORDINATE, Math.min(MAX_CELL_COORDINATE, cellCoordinate));
+    }
+
+    /**
+     * Packs two cell coordinates into a cell key (the order of the keys is the order of the x and then the y coordinates).
+     *
+     * @param cellX Cell x-coordinate
+     * @param cellY Cell y-coordinate
+     * @return Cell key
+     */
+    private static int getCellKey(int cellX, int cellY) {
+        return (cellX << 16) | (cellY & 0xFFFF);
+    }
+
+    /**
+     * Calculates the eucildean distance between two positions.
+     *
+     * @param x1 X-coordinate of the first position
+     * @param y1 Y-Coordinate of the first position
+     * @param x2 X-coordinate of the second position
+     * @param y2 Y-coordinate of the second position
+     * @return Euclidean distance
+     */
+    private static double euclideanDist(double x1, double y1, double x2, double y2) {
+        return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    }
+
+    /**
+     * Consumer of the events found by forEachCandidate.
+     */
+    public interface CandidateConsumer {
+
+        /**
+         * Accepts an event.
+         *
+         * @param event     Position of the event in the file
+         * @param timeDelta Absolute difference of the timestamps (in ms)
+         * @param distance  Distance between the positions (in m, the larger distance if the events have two positions)
+         */
+        void accept(int event, int timeDelta, double distance);
+    }
+}
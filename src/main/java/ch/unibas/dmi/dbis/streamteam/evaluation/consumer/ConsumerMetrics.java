@@ -0,0 +1,505 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Self-instrumentation of the EvaluationConsumer (poll timing, per-topic throughput and decode times, time the records wait in the decode queues, filter hit ratio per measurement, consumer lag per partition, and backlogs of the decode queues and the receive system time sink).
+ * Since the receive system time is captured before decoding, the decode cost does not contaminate the measured latencies but is reported here.
+ * The metrics are exposed via JMX (see ConsumerMetricsMXBean) and periodically logged as a compact stats line. Recording is thread-safe; run() must not be called concurrently.
+ */
+public class ConsumerMetrics implements ConsumerMetricsMXBean, Runnable {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerMetrics.class);
+
+    /**
+     * Name under which the metrics are registered at the platform MBean server
+     */
+    public static final String OBJECT_NAME = "ch.unibas.dmi.dbis.streamteam.evaluation:type=EvaluationConsumer";
+
+    /**
+     * Name of the per-partition lag metric of the Kafka consumer
+     */
+    private static final String RECORDS_LAG_METRIC_NAME = "records-lag";
+
+    /**
+     * Group of the per-partition lag metric of the Kafka consumer
+     */
+    private static final String FETCH_MANAGER_METRIC_GROUP = "consumer-fetch-manager-metrics";
+
+    /**
+     * Metrics of each topic (not modified after the construction)
+     */
+    private final Map<String, TopicMetrics> topicMetrics;
+
+    /**
+     * Measurements (the identifier of each measurement is its index)
+     */
+    private final List<Measurement> measurements;
+
+    /**
+     * Number of selected data stream elements per measurement
+     */
+    private final LongAdder[] selectedRecords;
+
+    /**
+     * Topic of the data stream elements of each measurement (set when the first element is selected)
+     */
+    private final AtomicReferenceArray<String> measurementTopics;
+
+    /**
+     * Number of polls
+     */
+    private final LongAdder polls;
+
+    /**
+     * Recorder of the poll durations (in ns)
+     */
+    private final Recorder pollNanos;
+
+    /**
+     * Recorder of the durations (in ns) the records waited in the decode queues
+     */
+    private final Recorder queueWaitNanos;
+
+    /**
+     * Kafka consumer whose lag metrics are read (null if not attached)
+     */
+    private volatile KafkaConsumer<?, ?> kafkaConsumer;
+
+    /**
+     * Decode workers whose queues are monitored (null if not attached)
+     */
+    private volatile DecodeWorker[] decodeWorkers;
+
+    /**
+     * Receive system time sink whose backlog is monitored (null if not attached)
+     */
+    private volatile ReceiveSystemTimeSink receiveSystemTimeSink;
+
+    /**
+     * 99th percentile of the poll durations (in us) in the last interval
+     */
+    private volatile long pollDurationP99InUs;
+
+    /**
+     * Mean number of records per poll in the last interval
+     */
+    private volatile double recordsPerPoll;
+
+    /**
+     * Mean duration (in us) the records waited in the decode queues in the last interval
+     */
+    private volatile long queueWaitMeanInUs;
+
+    /**
+     * Number of polls at the last report
+     */
+    private long lastPolls;
+
+    /**
+     * Value of System.nanoTime() at the last report
+     */
+    private long lastReportNanos;
+
+    /**
+     * ConsumerMetrics constructor.
+     *
+     * @param topics       Topics
+     * @param measurements Measurements (the identifier of each measurement has to be its index)
+     */
+    public ConsumerMetrics(List<String> topics, List<Measurement> measurements) {
+        this.topicMetrics = new LinkedHashMap<>();
+        for (String topic : topics) {
+            this.topicMetrics.put(topic, new TopicMetrics());
+        }
+        this.measurements = measurements;
+        this.selectedRecords = new LongAdder[measurements.size()];
+        for (int i = 0; i < measurements.size(); ++i) {
+            this.selectedRecords[i] = new LongAdder();
+        }
+        this.measurementTopics = new AtomicReferenceArray<>(measurements.size());
+        this.polls = new LongAdder();
+        this.pollNanos = new Recorder(3);
+        this.queueWaitNanos = new Recorder(3);
+        this.lastPolls = 0;
+        this.lastReportNanos = System.nanoTime();
+    }
+
+    /**
+     * Attaches the components whose lag and backlogs are monitored.
+     *
+     * @param kafkaConsumer         Kafka consumer
+     * @param decodeWorkers         Decode workers
+     * @param receiveSystemTimeSink Receive system time sink
+     */
+    public void attach(KafkaConsumer<?, ?> kafkaConsumer, DecodeWorker[] decodeWorkers, ReceiveSystemTimeSink receiveSystemTimeSink) {
+        this.kafkaConsumer = kafkaConsumer;
+        this.decodeWorkers = decodeWorkers;
+        this.receiveSystemTimeSink = receiveSystemTimeSink;
+    }
+
+    /**
+     * Registers the metrics at the platform MBean server.
+     *
+     * @throws JMException Thrown if the metrics could not be registered
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Adds a poll.
+     *
+     * @param pollNanos Duration of the poll (in ns)
+     */
+    public void addPoll(long pollNanos) {
+        this.polls.increment();
+        this.pollNanos.recordValue(Math.max(0, pollNanos));
+    }
+
+    /**
+     * Adds received records of a topic.
+     *
+     * @param topic           Topic
+     * @param numberOfRecords Number of records
+     */
+    public void addReceivedRecords(String topic, int numberOfRecords) {
+        TopicMetrics metrics = this.topicMetrics.get(topic);
+        if (metrics != null) {
+            metrics.receivedRecords.add(numberOfRecords);
+        }
+    }
+
+    /**
+     * Adds a decoded record.
+     *
+     * @param receivedRecord   Decoded record
+     * @param decodeStartNanos Value of System.nanoTime() before decoding the record
+     * @param decodeEndNanos   Value of System.nanoTime() after decoding the record
+     * @param successful       Flag which indicates if the record could be decoded
+     */
+    public void addDecodedRecord(ReceivedRecord receivedRecord, long decodeStartNanos, long decodeEndNanos, boolean successful) {
+        this.queueWaitNanos.recordValue(Math.max(0, decodeStartNanos - receivedRecord.getReceiveNanos()));
+        TopicMetrics metrics = this.topicMetrics.get(receivedRecord.getTopic());
+        if (metrics != null) {
+            metrics.decodedRecords.increment();
+            if (!successful) {
+                metrics.decodeFailures.increment();
+            }
+            metrics.decodeNanos.recordValue(Math.max(0, decodeEndNanos - decodeStartNanos));
+        }
+    }
+
+    /**
+     * Adds a data stream element which is selected for a measurement.
+     *
+     * @param measurement Measurement
+     * @param topic       Topic of the data stream element
+     */
+    public void addSelectedRecord(Measurement measurement, String topic) {
+        this.selectedRecords[measurement.getId()].increment();
+        if (this.measurementTopics.get(measurement.getId()) == null) {
+            this.measurementTopics.compareAndSet(measurement.getId(), null, topic);
+        }
+    }
+
+    /**
+     * Takes the interval snapshot of the rates and percentiles and logs the compact stats line.
+     */
+    @Override
+    public void run() {
+        long nowNanos = System.nanoTime();
+        double intervalInS = (nowNanos - this.lastReportNanos) / 1e9;
+        this.lastReportNanos = nowNanos;
+
+        Histogram pollHistogram = this.pollNanos.getIntervalHistogram();
+        long polls = this.polls.sum();
+        long intervalPolls = polls - this.lastPolls;
+        this.lastPolls = polls;
+        this.pollDurationP99InUs = pollHistogram.getValueAtPercentile(99) / 1000;
+        this.queueWaitMeanInUs = (long) (this.queueWaitNanos.getIntervalHistogram().getMean() / 1000);
+
+        StringBuilder throughput = new StringBuilder();
+        StringBuilder decodeTimes = new StringBuilder();
+        long intervalRecords = 0;
+        long intervalDecodeFailures = 0;
+        for (Map.Entry<String, TopicMetrics> entry : this.topicMetrics.entrySet()) {
+            TopicMetrics metrics = entry.getValue();
+            long receivedRecords = metrics.receivedRecords.sum();
+            intervalRecords += receivedRecords - metrics.lastReceivedRecords;
+            metrics.receivedRecordsPerSecond = (receivedRecords - metrics.lastReceivedRecords) / intervalInS;
+            metrics.lastReceivedRecords = receivedRecords;
+            Histogram decodeHistogram = metrics.decodeNanos.getIntervalHistogram();
+            metrics.decodeTimeMeanInNs = (long) decodeHistogram.getMean();
+            metrics.decodeTimeP50InNs = decodeHistogram.getValueAtPercentile(50);
+            metrics.decodeTimeP99InNs = decodeHistogram.getValueAtPercentile(99);
+            metrics.decodeTimeMaxInNs = decodeHistogram.getMaxValue();
+            long decodeFailures = metrics.decodeFailures.sum();
+            intervalDecodeFailures += decodeFailures - metrics.lastDecodeFailures;
+            metrics.lastDecodeFailures = decodeFailures;
+
+            throughput.append(' ').append(entry.getKey()).append(' ').append(String.format("%.0f", metrics.receivedRecordsPerSecond));
+            decodeTimes.append(' ').append(entry.getKey()).append(' ').append(metrics.decodeTimeMeanInNs / 1000).append('/').append(metrics.decodeTimeP99InNs / 1000);
+        }
+        this.recordsPerPoll = intervalPolls == 0 ? 0 : (double) intervalRecords / intervalPolls;
+
+        StringBuilder hitRatios = new StringBuilder();
+        for (Map.Entry<String, Double> entry : getFilterHitRatio().entrySet()) {
+            hitRatios.append(' ').append(entry.getKey()).append(' ').append(String.format("%.1f%%", entry.getValue() * 100));
+        }
+
+        StringBuilder queueSizes = new StringBuilder();
+        for (int queueSize : getDecodeQueueSizes()) {
+            queueSizes.append(queueSize).append('/');
+        }
+        if (queueSizes.length() > 0) {
+            queueSizes.setLength(queueSizes.length() - 1);
+        }
+
+        logger.info("polls {} (p99 {} us, {} records/poll) | records/s{} | decode mean/p99 us{} | failures {} | queue wait mean {} us | hits{} | lag {} | decode queues {} | sink backlog {}",
+                intervalPolls, this.pollDurationP99InUs, String.format("%.1f", this.recordsPerPoll), throughput, decodeTimes, intervalDecodeFailures, this.queueWaitMeanInUs, hitRatios, getTotalConsumerLag(), queueSizes, getReceiveSystemTimeSinkBacklog());
+    }
+
+    @Override
+    public long getPolls() {
+        return this.polls.sum();
+    }
+
+    @Override
+    public long getPollDurationP99InUs() {
+        return this.pollDurationP99InUs;
+    }
+
+    @Override
+    public double getRecordsPerPoll() {
+        return this.recordsPerPoll;
+    }
+
+    @Override
+    public Map<String, Long> getReceivedRecords() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.receivedRecords.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getReceivedRecordsPerSecond() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.receivedRecordsPerSecond));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDecodedRecords() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.decodedRecords.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDecodeFailures() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.decodeFailures.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDecodeTimeMeanInNs() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.decodeTimeMeanInNs));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDecodeTimeP50InNs() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.decodeTimeP50InNs));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDecodeTimeP99InNs() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.decodeTimeP99InNs));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getDecodeTimeMaxInNs() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        this.topicMetrics.forEach((topic, metrics) -> result.put(topic, metrics.decodeTimeMaxInNs));
+        return result;
+    }
+
+    @Override
+    public long getQueueWaitMeanInUs() {
+        return this.queueWaitMeanInUs;
+    }
+
+    @Override
+    public Map<String, Long> getSelectedRecords() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Measurement measurement : this.measurements) {
+            result.put(measurement.getName(), this.selectedRecords[measurement.getId()].sum());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getFilterHitRatio() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Measurement measurement : this.measurements) {
+            String topic = this.measurementTopics.get(measurement.getId());
+            TopicMetrics metrics = topic == null ? null : this.topicMetrics.get(topic);
+            long decodedRecords = metrics == null ? 0 : metrics.decodedRecords.sum();
+            result.put(measurement.getName(), decodedRecords == 0 ? 0.0 : (double) this.selectedRecords[measurement.getId()].sum() / decodedRecords);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getConsumerLag() {
+        Map<String, Long> result = new TreeMap<>();
+        KafkaConsumer<?, ?> consumer = this.kafkaConsumer;
+        if (consumer != null) {
+            // The metrics of the Kafka consumer can be read from any thread (unlike the other methods of the consumer)
+            for (Map.Entry<MetricName, ? extends Metric> entry : consumer.metrics().entrySet()) {
+                MetricName metricName = entry.getKey();
+                if (metricName.name().equals(RECORDS_LAG_METRIC_NAME) && metricName.group().equals(FETCH_MANAGER_METRIC_GROUP) && metricName.tags().containsKey("partition")) {
+                    Object value = entry.getValue().metricValue();
+                    if (value instanceof Double && !((Double) value).isNaN()) {
+                        result.put(metricName.tags().get("topic") + "-" + metricName.tags().get("partition"), ((Double) value).longValue());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getTotalConsumerLag() {
+        long totalLag = 0;
+        for (long lag : getConsumerLag().values()) {
+            totalLag += lag;
+        }
+        return totalLag;
+    }
+
+    @Override
+    public int[] getDecodeQueueSizes() {
+        DecodeWorker[] workers = this.decodeWorkers;
+        if (workers == null) {
+            return new int[0];
+        }
+        int[] queueSizes = new int[workers.length];
+        for (int i = 0; i < workers.length; ++i) {
+            queueSizes[i] = workers[i].getQueueSize();
+        }
+        return queueSizes;
+    }
+
+    @Override
+    public int getReceiveSystemTimeSinkBacklog() {
+        ReceiveSystemTimeSink sink = this.receiveSystemTimeSink;
+        return sink == null ? 0 : sink.getBacklog();
+    }
+
+    /**
+     * Metrics of a topic.
+     */
+    private static class TopicMetrics {
+
+        /**
+         * Number of received records
+         */
+        private final LongAdder receivedRecords = new LongAdder();
+
+        /**
+         * Number of decoded records
+         */
+        private final LongAdder decodedRecords = new LongAdder();
+
+        /**
+         * Number of records which could not be decoded
+         */
+        private final LongAdder decodeFailures = new LongAdder();
+
+        /**
+         * Recorder of the decode durations (in ns)
+         */
+        private final Recorder decodeNanos = new Recorder(3);
+
+        /**
+         * Number of received records at the last report
+         */
+        private long lastReceivedRecords = 0;
+
+        /**
+         * Number of records which could not be decoded at the last report
+         */
+        private long lastDecodeFailures = 0;
+
+        /**
+         * Number of received records per second in the last interval
+         */
+        private volatile double receivedRecordsPerSecond = 0;
+
+        /**
+         * Mean decode duration (in ns) in the last interval
+         */
+        private volatile long decodeTimeMeanInNs = 0;
+
+        /**
+         * Median decode duration (in ns) in the last interval
+         */
+        private volatile long decodeTimeP50InNs = 0;
+
+        /**
+         * 99th percentile of the decode durations (in ns) in the last interval
+         */
+        private volatile long decodeTimeP99InNs = 0;
+
+        /**
+         * Maximum decode duration (in ns) in the last interval
+         */
+        private volatile long decodeTimeMaxInNs = 0;
+    }
+}
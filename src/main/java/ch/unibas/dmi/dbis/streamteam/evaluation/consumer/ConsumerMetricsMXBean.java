@@ -0,0 +1,156 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import java.util.Map;
+
+/**
+ * JMX interface of the ConsumerMetrics (registered as ch.unibas.dmi.dbis.streamteam.evaluation:type=EvaluationConsumer).
+ * Counters are cumulative since the start, rates and percentiles refer to the last statistics interval.
+ * https://docs.oracle.com/javase/8/docs/api/javax/management/MXBean.html
+ */
+public interface ConsumerMetricsMXBean {
+
+    /**
+     * Returns the number of polls.
+     *
+     * @return Number of polls
+     */
+    long getPolls();
+
+    /**
+     * Returns the 99th percentile of the poll durations in the last interval.
+     *
+     * @return 99th percentile of the poll durations (in us)
+     */
+    long getPollDurationP99InUs();
+
+    /**
+     * Returns the mean number of records per poll in the last interval.
+     *
+     * @return Mean number of records per poll
+     */
+    double getRecordsPerPoll();
+
+    /**
+     * Returns the number of received records per topic.
+     *
+     * @return Number of received records per topic
+     */
+    Map<String, Long> getReceivedRecords();
+
+    /**
+     * Returns the number of received records per second per topic in the last interval.
+     *
+     * @return Number of received records per second per topic
+     */
+    Map<String, Double> getReceivedRecordsPerSecond();
+
+    /**
+     * Returns the number of decoded records per topic.
+     *
+     * @return Number of decoded records per topic
+     */
+    Map<String, Long> getDecodedRecords();
+
+    /**
+     * Returns the number of records which could not be decoded (and are thus dropped) per topic.
+     *
+     * @return Number of decode failures per topic
+     */
+    Map<String, Long> getDecodeFailures();
+
+    /**
+     * Returns the mean decode time per topic in the last interval.
+     *
+     * @return Mean decode time per topic (in ns)
+     */
+    Map<String, Long> getDecodeTimeMeanInNs();
+
+    /**
+     * Returns the median decode time per topic in the last interval.
+     *
+     * @return Median decode time per topic (in ns)
+     */
+    Map<String, Long> getDecodeTimeP50InNs();
+
+    /**
+     * Returns the 99th percentile of the decode times per topic in the last interval.
+     *
+     * @return 99th percentile of the decode times per topic (in ns)
+     */
+    Map<String, Long> getDecodeTimeP99InNs();
+
+    /**
+     * Returns the maximum decode time per topic in the last interval.
+     *
+     * @return Maximum decode time per topic (in ns)
+     */
+    Map<String, Long> getDecodeTimeMaxInNs();
+
+    /**
+     * Returns the mean time the records waited in the decode queues in the last interval.
+     *
+     * @return Mean queue wait time (in us)
+     */
+    long getQueueWaitMeanInUs();
+
+    /**
+     * Returns the number of selected data stream elements per measurement.
+     *
+     * @return Number of selected data stream elements per measurement
+     */
+    Map<String, Long> getSelectedRecords();
+
+    /**
+     * Returns the share of the decoded records of the topic of a measurement which are selected for the measurement.
+     *
+     * @return Filter hit ratio per measurement
+     */
+    Map<String, Double> getFilterHitRatio();
+
+    /**
+     * Returns the consumer lag (number of records between the position of the consumer and the end of the partition at the last fetch) per partition.
+     *
+     * @return Consumer lag per partition (topic-partition)
+     */
+    Map<String, Long> getConsumerLag();
+
+    /**
+     * Returns the sum of the consumer lags of all partitions.
+     *
+     * @return Total consumer lag
+     */
+    long getTotalConsumerLag();
+
+    /**
+     * Returns the number of received but not yet decoded records per decode worker.
+     *
+     * @return Decode queue size per decode worker
+     */
+    int[] getDecodeQueueSizes();
+
+    /**
+     * Returns the number of receive system times which are not yet written by the receive system time sink (journal queue).
+     *
+     * @return Backlog of the receive system time sink
+     */
+    int getReceiveSystemTimeSinkBacklog();
+}
@@ -0,0 +1,304 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.AbstractImmutableDataStreamElement;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker which decodes the records of the partitions assigned to it and writes the receive system time of the selected data stream elements to the receive system time sink.
+ * If lazy decoding is enabled, the worker only extracts the fields required for selecting the data stream elements instead of generating the data stream elements.
+ */
+public class DecodeWorker implements Runnable {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DecodeWorker.class);
+
+    /**
+     * Timeout (in ms) for waiting for the next record (required to notice that the worker should stop)
+     */
+    private static final long queuePollTimeoutInMs = 100;
+
+    /**
+     * Timeout (in ms) for waiting for free space in the queue (required to notice that the worker has terminated)
+     */
+    private static final long queueOfferTimeoutInMs = 100;
+
+    /**
+     * Queue containing the received but not yet decoded records
+     */
+    private final BlockingQueue<ReceivedRecord> queue;
+
+    /**
+     * Self-instrumentation of the EvaluationConsumer (shared by all decode workers)
+     */
+    private final ConsumerMetrics consumerMetrics;
+
+    /**
+     * Sink to which the receive system times are written
+     */
+    private final ReceiveSystemTimeSink receiveSystemTimeSink;
+
+    /**
+     * Configuration of the lazy decoding path (shared by all decode workers)
+     */
+    private final LazyDecodingConfiguration lazyDecodingConfiguration;
+
+    /**
+     * Dispatch table which determines the measurements of the records (shared by all decode workers)
+     */
+    private final MeasurementDispatchTable measurementDispatchTable;
+
+    /**
+     * Reader for extracting single fields from serialized data stream elements
+     */
+    private final ProtobufFieldReader fieldReader;
+
+    /**
+     * Verification state of the lazy decoding path per topic (only accessed by the thread of the worker)
+     */
+    private final Map<String, LazyVerificationState> lazyVerificationStates;
+
+    /**
+     * Flag which indicates if the worker should keep waiting for new records
+     */
+    private volatile boolean runFlag;
+
+    /**
+     * Flag which indicates if the thread of the worker has terminated
+     */
+    private volatile boolean terminated;
+
+    /**
+     * DecodeWorker constructor.
+     *
+     * @param queueCapacity             Maximum number of received but not yet decoded records
+     * @param consumerMetrics           Self-instrumentation of the EvaluationConsumer (shared by all decode workers)
+     * @param receiveSystemTimeSink     Sink to which the receive system times are written
+     * @param lazyDecodingConfiguration Configuration of the lazy decoding path (shared by all decode workers)
+     * @param measurementDispatchTable  Dispatch table which determines the measurements of the records (shared by all decode workers)
+     */
+    public DecodeWorker(int queueCapacity, ConsumerMetrics consumerMetrics, ReceiveSystemTimeSink receiveSystemTimeSink, LazyDecodingConfiguration lazyDecodingConfiguration, MeasurementDispatchTable measurementDispatchTable) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.consumerMetrics = consumerMetrics;
+        this.receiveSystemTimeSink = receiveSystemTimeSink;
+        this.lazyDecodingConfiguration = lazyDecodingConfiguration;
+        this.measurementDispatchTable = measurementDispatchTable;
+        this.fieldReader = new ProtobufFieldReader();
+        this.lazyVerificationStates = new HashMap<>();
+        this.runFlag = true;
+        this.terminated = false;
+    }
+
+    /**
+     * Hands a received record over to the worker. Blocks if the queue of the worker is full until there is free space or the thread of the worker has terminated.
+     *
+     * @param receivedRecord Received record
+     * @return True if the record has been handed over, false if the thread of the worker has terminated
+     * @throws InterruptedException Thrown if the calling thread is interrupted while waiting for free space in the queue
+     */
+    public boolean enqueue(ReceivedRecord receivedRecord) throws InterruptedException {
+        while (!this.queue.offer(receivedRecord, queueOfferTimeoutInMs, TimeUnit.MILLISECONDS)) {
+            if (this.terminated) {
+                return false;
+            }
+        }
+        return !this.terminated;
+    }
+
+    /**
+     * Returns the number of received but not yet decoded records.
+     *
+     * @return Number of records in the queue
+     */
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    /**
+     * Signals the worker to stop after all records in its queue are decoded.
+     */
+    public void stop() {
+        this.runFlag = false;
+    }
+
+    /**
+     * Decodes the received records until the worker is stopped and its queue is empty.
+     */
+    @Override
+    public void run() {
+        try {
+            while (this.runFlag || !this.queue.isEmpty()) {
+                try {
+                    ReceivedRecord receivedRecord = this.queue.poll(queuePollTimeoutInMs, TimeUnit.MILLISECONDS);
+                    if (receivedRecord != null) {
+                        long decodeStartNanos = System.nanoTime();
+                        boolean successful;
+                        try {
+                            successful = decodeAndWrite(receivedRecord);
+                        } catch (RuntimeException e) {
+                            // E.g., thrown by a getter of the data model, a field predicate or the receive system time sink --> skip the record but keep decoding
+                            logger.error("Caught exception during decoding record (topic {}, partition {}, offset {}): ", receivedRecord.getTopic(), receivedRecord.getPartition(), receivedRecord.getOffset(), e);
+                            successful = false;
+                        }
+                        long decodeEndNanos = System.nanoTime();
+                        this.consumerMetrics.addDecodedRecord(receivedRecord, decodeStartNanos, decodeEndNanos, successful);
+                    }
+                } catch (InterruptedException e) {
+                    logger.trace("InterruptedException in decode loop.", e);
+                }
+            }
+        } finally {
+            this.terminated = true;
+            if (this.runFlag || !this.queue.isEmpty()) {
+                logger.error("Decode worker {} terminated unexpectedly with {} records in its queue.", Thread.currentThread().getName(), this.queue.size());
+            }
+        }
+    }
+
+    /**
+     * Decodes a received record and writes its receive system time (joined with the generation timestamp of the decoded element) if it is one of the selected data stream elements.
+     * Package-private for the DecodeWorkerBenchmark.
+     *
+     * @param receivedRecord Received record
+     * @return True if the record could be decoded, otherwise false
+     */
+    boolean decodeAndWrite(ReceivedRecord receivedRecord) {
+        if (this.lazyDecodingConfiguration.isEnabled()) {
+            try {
+                byte[] value = receivedRecord.getValue();
+                Measurement measurement = this.measurementDispatchTable.dispatchLazily(receivedRecord.getTopic(), value, this.fieldReader);
+                long generationTimestamp = 0;
+                if (measurement != null) {
+                    generationTimestamp = this.fieldReader.readLong(value, this.lazyDecodingConfiguration.getGenerationTimestampPath(), 0);
+                }
+
+                // The first records of each topic and afterwards every n-th record are verified
+                LazyVerificationState state = this.lazyVerificationStates.computeIfAbsent(receivedRecord.getTopic(), topic -> new LazyVerificationState());
+                int verificationInterval = this.lazyDecodingConfiguration.getVerificationInterval();
+                ++state.lazilyDecodedRecords;
+                if (state.lazilyDecodedRecords <= this.lazyDecodingConfiguration.getInitialVerifications() || (verificationInterval > 0 && state.lazilyDecodedRecords % verificationInterval == 0)) {
+                    if (!verifyLazyDecoding(receivedRecord, measurement, generationTimestamp, state.unverifiedWrittenRecords)) {
+                        return decodeCompletelyAndWrite(receivedRecord);
+                    }
+                    state.unverifiedWrittenRecords = 0;
+                } else if (measurement != null) {
+                    ++state.unverifiedWrittenRecords;
+                }
+
+                if (measurement != null) {
+                    this.receiveSystemTimeSink.write(measurement, receivedRecord.getKey(), generationTimestamp, receivedRecord.getReceiveSystemTime());
+                    this.consumerMetrics.addSelectedRecord(measurement, receivedRecord.getTopic());
+                }
+                return true;
+            } catch (LazyDecodingException e) {
+                logger.info("Caught exception during lazily extracting fields from byte array (falls back to generating the data stream element): ", e);
+            }
+        }
+        return decodeCompletelyAndWrite(receivedRecord);
+    }
+
+    /**
+     * Verifies the result of the lazy decoding path by generating the data stream element. Disables the lazy decoding path if the results do not match.
+     * Since the lazy decoding path cannot determine the stream name the data model assigns to the element, the verification also checks that it matches the topic.
+     *
+     * @param receivedRecord           Received record
+     * @param lazyMeasurement          Measurement determined by the lazy decoding path
+     * @param generationTimestamp      Generation timestamp extracted by the lazy decoding path
+     * @param unverifiedWrittenRecords Number of receive system times of the topic which have been written by the lazy decoding path of this worker since the last successful verification
+     * @return True if the results match (or the data stream element could not be generated), otherwise false
+     */
+    private boolean verifyLazyDecoding(ReceivedRecord receivedRecord, Measurement lazyMeasurement, long generationTimestamp, long unverifiedWrittenRecords) {
+        try {
+            AbstractImmutableDataStreamElement dataStreamElement = AbstractImmutableDataStreamElement.generateDataStreamElementFromByteArray(receivedRecord.getKey(), receivedRecord.getValue(), receivedRecord.getOffset(), null, null);
+            if (!dataStreamElement.getStreamName().equals(receivedRecord.getTopic())) {
+                logger.error("Disables lazy decoding since the stream name the data model assigns to the input stream element ({}) does not match the name of the Kafka topic via which it was received ({}). {} receive system times of this topic have been written by this decode worker since the last successful verification.", dataStreamElement, receivedRecord.getTopic(), unverifiedWrittenRecords);
+                this.lazyDecodingConfiguration.disable();
+                return false;
+            }
+            Measurement measurement = this.measurementDispatchTable.dispatch(dataStreamElement);
+            if (measurement != lazyMeasurement || (measurement != null && dataStreamElement.getGenerationTimestamp() != generationTimestamp)) {
+                logger.error("Disables lazy decoding since its result (measurement {}, generation timestamp {}) does not match the generated data stream element ({}). {} receive system times of topic {} have been written by this decode worker since the last successful verification. Check the decoding.lazy.fieldPath properties.", lazyMeasurement, generationTimestamp, dataStreamElement, unverifiedWrittenRecords, receivedRecord.getTopic());
+                this.lazyDecodingConfiguration.disable();
+                return false;
+            }
+        } catch (ClassNotFoundException | InvalidProtocolBufferException | NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
+            logger.info("Caught exception during generating data stream element from byte array for verifying lazy decoding: ", e);
+        } catch (AbstractImmutableDataStreamElement.CannotRetrieveInformationException e) {
+            logger.info("Caught exception during checking data stream element for verifying lazy decoding: ", e);
+        }
+        return true;
+    }
+
+    /**
+     * Generates the data stream element of a received record and writes its receive system time (joined with the generation timestamp of the element) if it is one of the selected data stream elements.
+     *
+     * @param receivedRecord Received record
+     * @return True if the record could be decoded, otherwise false
+     */
+    private boolean decodeCompletelyAndWrite(ReceivedRecord receivedRecord) {
+        try {
+            AbstractImmutableDataStreamElement dataStreamElement = AbstractImmutableDataStreamElement.generateDataStreamElementFromByteArray(receivedRecord.getKey(), receivedRecord.getValue(), receivedRecord.getOffset(), null, null);
+
+            if (!dataStreamElement.getStreamName().equals(receivedRecord.getTopic())) {
+                logger.error("Cannot handle element ({}) since the stream name the data model assigns to the input stream element does not match the name of the Kafka topic via which it was received ({}).", dataStreamElement, receivedRecord.getTopic());
+            } else {
+                Measurement measurement = this.measurementDispatchTable.dispatch(dataStreamElement);
+                if (measurement != null) {
+                    this.receiveSystemTimeSink.write(measurement, dataStreamElement.getKey(), dataStreamElement.getGenerationTimestamp(), receivedRecord.getReceiveSystemTime());
+                    this.consumerMetrics.addSelectedRecord(measurement, receivedRecord.getTopic());
+                }
+            }
+            return true;
+        } catch (ClassNotFoundException | InvalidProtocolBufferException | NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
+            logger.info("Caught exception during generating data stream element from byte array: ", e);
+            return false;
+        } catch (AbstractImmutableDataStreamElement.CannotRetrieveInformationException e) {
+            logger.info("Caught exception during checking data stream element for receive system time measurement: ", e);
+            return false;
+        }
+    }
+
+    /**
+     * Verification state of the lazy decoding path of a topic.
+     */
+    private static class LazyVerificationState {
+
+        /**
+         * Number of records of the topic which have been decoded lazily by the worker
+         */
+        private long lazilyDecodedRecords = 0;
+
+        /**
+         * Number of receive system times of the topic which have been written by the lazy decoding path since the last successful verification
+         */
+        private long unverifiedWrittenRecords = 0;
+    }
+}
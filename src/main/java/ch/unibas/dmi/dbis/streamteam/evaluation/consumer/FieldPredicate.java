@@ -0,0 +1,196 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.AbstractImmutableDataStreamElement;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Predicate of a measurement rule which checks if a field of a data stream element is equal to an expected value (e.g., objectId==BALL).
+ * The getter of the field is resolved at startup on the class of the data stream elements of the topic and the literal of the expected value is parsed according to its return type (true/false for booleans, an integer for integral types, and the literal itself, optionally in single quotes, for strings).
+ * Thus, a literal which does not match the type of the field is rejected at startup instead of never matching.
+ * The predicate can be evaluated on the serialized data stream element (via the field path) or on the generated data stream element (via the getter of the field).
+ */
+public class FieldPredicate {
+
+    /**
+     * Name of the field (e.g., objectId, which is accessed via getObjectId() or isObjectId())
+     */
+    private final String fieldName;
+
+    /**
+     * Expected value (Boolean, Long, or String)
+     */
+    private final Object expectedValue;
+
+    /**
+     * Expected value encoded in UTF-8 (only for string values)
+     */
+    private final byte[] expectedUtf8;
+
+    /**
+     * Path of the field in the serialized data stream element (null if the lazy decoding path is disabled)
+     */
+    private final int[] fieldPath;
+
+    /**
+     * Class of the data stream elements of the topic
+     */
+    private final Class<? extends AbstractImmutableDataStreamElement> elementClass;
+
+    /**
+     * Getter of the field
+     */
+    private final Method getter;
+
+    /**
+     * FieldPredicate constructor.
+     *
+     * @param fieldName     Name of the field
+     * @param expectedValue Literal of the expected value
+     * @param elementClass  Class of the data stream elements of the topic
+     * @param fieldPath     Path of the field in the serialized data stream element (null if the lazy decoding path is disabled)
+     * @throws NoSuchMethodException    Thrown if the class has no getter for the field
+     * @throws IllegalArgumentException Thrown if the literal does not match the type of the field
+     */
+    public FieldPredicate(String fieldName, String expectedValue, Class<? extends AbstractImmutableDataStreamElement> elementClass, int[] fieldPath) throws NoSuchMethodException {
+        this.fieldName = fieldName;
+        this.elementClass = elementClass;
+        this.getter = resolveGetter(elementClass);
+        this.expectedValue = parseLiteral(expectedValue, this.getter.getReturnType());
+        this.expectedUtf8 = this.expectedValue instanceof String ? ((String) this.expectedValue).getBytes(StandardCharsets.UTF_8) : null;
+        this.fieldPath = fieldPath;
+    }
+
+    /**
+     * Parses the literal of an expected value according to the type of the field.
+     *
+     * @param literal   Literal
+     * @param fieldType Return type of the getter of the field
+     * @return Boolean, Long, or String
+     * @throws IllegalArgumentException Thrown if the literal does not match the type of the field
+     */
+    private Object parseLiteral(String literal, Class<?> fieldType) {
+        boolean quoted = literal.length() >= 2 && literal.startsWith("'") && literal.endsWith("'");
+        if (fieldType == String.class) {
+            return quoted ? literal.substring(1, literal.length() - 1) : literal;
+        } else if (fieldType == boolean.class || fieldType == Boolean.class) {
+            if (literal.equals("true") || literal.equals("false")) {
+                return Boolean.valueOf(literal);
+            }
+        } else if (fieldType == long.class || fieldType == int.class || fieldType == short.class || fieldType == byte.class
+                || fieldType == Long.class || fieldType == Integer.class || fieldType == Short.class || fieldType == Byte.class) {
+            try {
+                return Long.valueOf(literal);
+            } catch (NumberFormatException e) {
+                // Handled below
+            }
+        } else {
+            throw new IllegalArgumentException("Field " + this.fieldName + " of " + this.elementClass.getName() + " has the unsupported type " + fieldType.getName() + " (expected a boolean, an integral type, or String).");
+        }
+        throw new IllegalArgumentException("Value " + literal + " does not match the type " + fieldType.getName() + " of field " + this.fieldName + " of " + this.elementClass.getName() + ".");
+    }
+
+    /**
+     * Returns the name of the field.
+     *
+     * @return Name of the field
+     */
+    public String getFieldName() {
+        return this.fieldName;
+    }
+
+    /**
+     * Checks the predicate by only extracting the field from the serialized data stream element.
+     *
+     * @param fieldReader Reader for extracting single fields from serialized data stream elements
+     * @param value       Serialized data stream element
+     * @return True if the field is equal to the expected value, otherwise false
+     * @throws LazyDecodingException Thrown if the field could not be extracted
+     */
+    public boolean testLazily(ProtobufFieldReader fieldReader, byte[] value) throws LazyDecodingException {
+        if (this.expectedUtf8 != null) {
+            return fieldReader.stringEquals(value, this.fieldPath, this.expectedUtf8);
+        } else if (this.expectedValue instanceof Boolean) {
+            return fieldReader.readBoolean(value, this.fieldPath) == (Boolean) this.expectedValue;
+        } else {
+            return fieldReader.readLong(value, this.fieldPath, 0) == (Long) this.expectedValue;
+        }
+    }
+
+    /**
+     * Checks the predicate on a generated data stream element.
+     *
+     * @param dataStreamElement Data stream element
+     * @return True if the data stream element is an instance of the class of the topic and the field is equal to the expected value, otherwise false
+     * @throws IllegalAccessException                                                Thrown if the getter of the field is not accessible
+     * @throws AbstractImmutableDataStreamElement.CannotRetrieveInformationException Thrown if the field of the data stream element could not be retrieved
+     */
+    public boolean test(AbstractImmutableDataStreamElement dataStreamElement) throws IllegalAccessException, AbstractImmutableDataStreamElement.CannotRetrieveInformationException {
+        if (!this.elementClass.isInstance(dataStreamElement)) {
+            return false;
+        }
+
+        Object actualValue;
+        try {
+            actualValue = this.getter.invoke(dataStreamElement);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof AbstractImmutableDataStreamElement.CannotRetrieveInformationException) {
+                throw (AbstractImmutableDataStreamElement.CannotRetrieveInformationException) e.getCause();
+            }
+            throw new IllegalStateException("Getter " + this.getter.getName() + " failed.", e.getCause());
+        }
+
+        if (this.expectedValue instanceof Long && actualValue instanceof Number) {
+            return ((Number) actualValue).longValue() == (Long) this.expectedValue;
+        }
+        return this.expectedValue.equals(actualValue);
+    }
+
+    /**
+     * Resolves the getter of the field (get... or is...) of the data stream element class.
+     *
+     * @param dataStreamElementClass Data stream element class
+     * @return Getter
+     * @throws NoSuchMethodException Thrown if the class has no getter for the field
+     */
+    private Method resolveGetter(Class<?> dataStreamElementClass) throws NoSuchMethodException {
+        String capitalizedFieldName = Character.toUpperCase(this.fieldName.charAt(0)) + this.fieldName.substring(1);
+        Method getter;
+        try {
+            getter = dataStreamElementClass.getMethod("get" + capitalizedFieldName);
+        } catch (NoSuchMethodException e) {
+            getter = dataStreamElementClass.getMethod("is" + capitalizedFieldName);
+        }
+        getter.setAccessible(true); // Skips the access check of each invocation (and allows getters declared in non-public subclasses)
+        return getter;
+    }
+
+    @Override
+    public String toString() {
+        if (this.expectedUtf8 != null) {
+            return this.fieldName + "=='" + this.expectedValue + "'";
+        }
+        return this.fieldName + "==" + this.expectedValue;
+    }
+}
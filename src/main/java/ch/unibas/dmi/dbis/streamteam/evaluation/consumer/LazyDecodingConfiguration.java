@@ -0,0 +1,146 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyHasWrongFormatException;
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * Configuration of the lazy decoding path of the decode workers.
+ * The field paths are dot-separated protobuf field numbers which have to be taken from the .proto definitions of the StreamTeam data model.
+ * The paths of the fields of the measurement predicates are read by the MeasurementDispatchTable.
+ */
+public class LazyDecodingConfiguration {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(LazyDecodingConfiguration.class);
+
+    /**
+     * Flag which indicates if the decode workers should extract the required fields lazily instead of generating the data stream elements
+     */
+    private volatile boolean enabled;
+
+    /**
+     * Every verificationInterval-th lazily decoded record is additionally decoded completely to verify the field paths (0 disables the verification)
+     */
+    private final int verificationInterval;
+
+    /**
+     * Number of lazily decoded records of each topic which are additionally decoded completely before the lazy decoding path is trusted (per decode worker)
+     */
+    private final int initialVerifications;
+
+    /**
+     * Path of the generation timestamp field
+     */
+    private final int[] generationTimestampPath;
+
+    /**
+     * LazyDecodingConfiguration constructor.
+     *
+     * @param properties Properties of the EvaluationConsumer
+     */
+    public LazyDecodingConfiguration(Properties properties) {
+        this.enabled = PropertyReadHelper.readBooleanOrDie(properties, "decoding.lazy");
+        if (this.enabled) {
+            this.verificationInterval = PropertyReadHelper.readIntOrDie(properties, "decoding.lazy.verificationInterval");
+            this.initialVerifications = PropertyReadHelper.readIntOrDie(properties, "decoding.lazy.initialVerifications");
+            this.generationTimestampPath = readFieldPathOrDie(properties, "decoding.lazy.fieldPath.generationTimestamp");
+        } else {
+            this.verificationInterval = 0;
+            this.initialVerifications = 0;
+            this.generationTimestampPath = null;
+        }
+    }
+
+    /**
+     * Reads a dot-separated field path (e.g., 2.1) from the properties object or dies in case of an exception.
+     *
+     * @param properties Properties object
+     * @param key        Key
+     * @return Field path
+     */
+    public static int[] readFieldPathOrDie(Properties properties, String key) {
+        String value = PropertyReadHelper.readStringOrDie(properties, key).trim();
+        try {
+            String[] parts = value.split("\\.");
+            int[] path = new int[parts.length];
+            for (int i = 0; i < parts.length; ++i) {
+                path[i] = Integer.parseInt(parts[i]);
+                if (path[i] <= 0) {
+                    throw new NumberFormatException("Field numbers have to be positive.");
+                }
+            }
+            return path;
+        } catch (NumberFormatException e) {
+            logger.error("Unable to read field path for key {} from properties", key, new PropertyHasWrongFormatException(key, "field path", value));
+            System.exit(1);
+            return null; // never reached
+        }
+    }
+
+    /**
+     * Returns the flag which indicates if the lazy decoding path is enabled.
+     *
+     * @return True if the lazy decoding path is enabled, otherwise false
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Disables the lazy decoding path for all decode workers (e.g., since a field path turned out to be wrong).
+     */
+    public void disable() {
+        this.enabled = false;
+    }
+
+    /**
+     * Returns the interval in which lazily decoded records are additionally decoded completely.
+     *
+     * @return Verification interval
+     */
+    public int getVerificationInterval() {
+        return this.verificationInterval;
+    }
+
+    /**
+     * Returns the number of lazily decoded records of each topic which are additionally decoded completely before the lazy decoding path is trusted.
+     *
+     * @return Number of initial verifications per topic
+     */
+    public int getInitialVerifications() {
+        return this.initialVerifications;
+    }
+
+    /**
+     * Returns the path of the generation timestamp field.
+     *
+     * @return Field path
+     */
+    public int[] getGenerationTimestampPath() {
+        return this.generationTimestampPath;
+    }
+}
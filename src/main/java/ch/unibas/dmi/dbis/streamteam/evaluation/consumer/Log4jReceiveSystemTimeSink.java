@@ -0,0 +1,49 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sink which logs the receive system times with the marker of the measurement. The markers are routed to dedicated CSV files by the MarkerFilters in log4j2.xml.
+ */
+public class Log4jReceiveSystemTimeSink implements ReceiveSystemTimeSink {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(Log4jReceiveSystemTimeSink.class);
+
+    @Override
+    public void write(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+        logger.info(measurement.getMarker(), "{},{},{}", new Object[]{key, generationTimestamp, receiveSystemTime});
+    }
+
+    @Override
+    public int getBacklog() {
+        return 0; // The Log4j2 file appenders write synchronously
+    }
+
+    @Override
+    public void close() {
+        // Nothing to do (the Log4j2 file appenders flush immediately)
+    }
+}
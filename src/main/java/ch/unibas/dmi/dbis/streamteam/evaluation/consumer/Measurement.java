@@ -0,0 +1,94 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Selection of data stream elements whose receive system times are measured (e.g., the ball object states).
+ */
+public class Measurement {
+
+    /**
+     * Parent receive system time marker
+     */
+    private static final Marker parentReceiveSystemTimeMarker = MarkerFactory.getMarker("PARENT_RECEIVESYSTEMTIME");
+
+    /**
+     * Identifier of the measurement (used in the binary receive system time journal)
+     */
+    private final int id;
+
+    /**
+     * Name of the measurement (prefix of the receive system time CSV file)
+     */
+    private final String name;
+
+    /**
+     * Receive system time marker (used for routing the receive system times to the dedicated CSV file via Log4j)
+     */
+    private final Marker marker;
+
+    /**
+     * Measurement constructor.
+     *
+     * @param id   Identifier of the measurement
+     * @param name Name of the measurement
+     */
+    public Measurement(int id, String name) {
+        this.id = id;
+        this.name = name;
+        this.marker = MarkerFactory.getMarker(name.toUpperCase() + "_RECEIVESYSTEMTIME");
+        this.marker.add(parentReceiveSystemTimeMarker); // Marker Hierarchy
+    }
+
+    /**
+     * Returns the identifier of the measurement.
+     *
+     * @return Identifier
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the name of the measurement.
+     *
+     * @return Name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the receive system time marker.
+     *
+     * @return Receive system time marker
+     */
+    public Marker getMarker() {
+        return this.marker;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
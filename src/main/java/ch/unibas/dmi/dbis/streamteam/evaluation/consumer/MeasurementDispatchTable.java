@@ -0,0 +1,233 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.AbstractImmutableDataStreamElement;
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyHasWrongFormatException;
+import ch.unibas.dmi.dbis.streamteam.evaluation.propertiesHelper.PropertyReadHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Dispatch table which is compiled at startup from the declarative measurement specification in the properties (measurements, measurement.NAME.topic, measurement.NAME.elementClass, and measurement.NAME.predicates).
+ * The rules are indexed by topic, i.e., a record is only checked against the rules of its own topic, and a record is selected for the first measurement whose rule matches (in the order of the measurements property).
+ */
+public class MeasurementDispatchTable {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MeasurementDispatchTable.class);
+
+    /**
+     * All measurements (the identifier of each measurement is its index)
+     */
+    private final List<Measurement> measurements;
+
+    /**
+     * Topics which have at least one rule (in the order of their first measurement)
+     */
+    private final List<String> topics;
+
+    /**
+     * Rules of each topic (in the order of the measurements)
+     */
+    private final Map<String, MeasurementRule[]> rulesByTopic;
+
+    /**
+     * MeasurementDispatchTable constructor.
+     *
+     * @param properties          Properties of the EvaluationConsumer
+     * @param lazyDecodingEnabled Flag which indicates if the field paths for the lazy decoding path have to be read (decoding.lazy.fieldPath.TOPIC.FIELD)
+     */
+    public MeasurementDispatchTable(Properties properties, boolean lazyDecodingEnabled) {
+        List<Measurement> measurements = new ArrayList<>();
+        Map<String, List<MeasurementRule>> rulesByTopic = new LinkedHashMap<>();
+        for (String measurementName : readMeasurementNamesOrDie(properties)) {
+            Measurement measurement = new Measurement(measurements.size(), measurementName);
+            measurements.add(measurement);
+
+            String topic = PropertyReadHelper.readStringOrDie(properties, "measurement." + measurementName + ".topic").trim();
+            String predicatesKey = "measurement." + measurementName + ".predicates";
+            List<FieldPredicate> predicates = new ArrayList<>();
+            Class<? extends AbstractImmutableDataStreamElement> elementClass = null;
+            for (String predicate : PropertyReadHelper.readListOfStringsOrDie(properties, predicatesKey)) {
+                predicate = predicate.trim();
+                if (!predicate.isEmpty()) {
+                    if (elementClass == null) {
+                        elementClass = readElementClassOrDie(properties, "measurement." + measurementName + ".elementClass");
+                    }
+                    predicates.add(parsePredicateOrDie(properties, predicatesKey, topic, elementClass, predicate, lazyDecodingEnabled));
+                }
+            }
+
+            MeasurementRule rule = new MeasurementRule(measurement, predicates.toArray(new FieldPredicate[0]));
+            rulesByTopic.computeIfAbsent(topic, k -> new ArrayList<>()).add(rule);
+            logger.info("Measurement {} selects the elements of topic {} with {}", measurementName, topic, predicates);
+        }
+
+        this.measurements = Collections.unmodifiableList(measurements);
+        this.topics = Collections.unmodifiableList(new ArrayList<>(rulesByTopic.keySet()));
+        this.rulesByTopic = new HashMap<>();
+        for (Map.Entry<String, List<MeasurementRule>> entry : rulesByTopic.entrySet()) {
+            this.rulesByTopic.put(entry.getKey(), entry.getValue().toArray(new MeasurementRule[0]));
+        }
+    }
+
+    /**
+     * Reads the names of the measurements (measurements property) or dies in case of an exception.
+     * The names determine the receive system time files (./log/NAMEReceiveSystemTimes.csv) and are thus also used by the LatencyCalculator and the LatencyStatistics.
+     *
+     * @param properties Properties of the EvaluationConsumer
+     * @return Names of the measurements (in the order of the measurements property)
+     */
+    public static List<String> readMeasurementNamesOrDie(Properties properties) {
+        List<String> measurementNames = new ArrayList<>();
+        Set<String> distinctMeasurementNames = new HashSet<>();
+        for (String measurementName : PropertyReadHelper.readListOfStringsOrDie(properties, "measurements")) {
+            measurementName = measurementName.trim();
+            if (measurementName.isEmpty() || !distinctMeasurementNames.add(measurementName)) {
+                logger.error("Unable to read measurements from properties", new PropertyHasWrongFormatException("measurements", "list of distinct measurement names", properties.getProperty("measurements")));
+                System.exit(1);
+            }
+            measurementNames.add(measurementName);
+        }
+        return measurementNames;
+    }
+
+    /**
+     * Reads the class of the data stream elements of a measurement or dies in case of an exception.
+     *
+     * @param properties Properties of the EvaluationConsumer
+     * @param key        Key of the element class property
+     * @return Class of the data stream elements
+     */
+    private static Class<? extends AbstractImmutableDataStreamElement> readElementClassOrDie(Properties properties, String key) {
+        String className = PropertyReadHelper.readStringOrDie(properties, key).trim();
+        try {
+            return Class.forName(className).asSubclass(AbstractImmutableDataStreamElement.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            logger.error("Unable to read element class for key {} from properties", key, new PropertyHasWrongFormatException(key, "data stream element class", className));
+            System.exit(1);
+            return null; // never reached
+        }
+    }
+
+    /**
+     * Parses a field predicate (FIELD==VALUE) or dies in case of an exception (including a value which does not match the type of the field).
+     *
+     * @param properties          Properties of the EvaluationConsumer
+     * @param key                 Key of the predicates property
+     * @param topic               Topic of the measurement
+     * @param elementClass        Class of the data stream elements of the topic
+     * @param predicate           Field predicate
+     * @param lazyDecodingEnabled Flag which indicates if the field path for the lazy decoding path has to be read
+     * @return Field predicate
+     */
+    private static FieldPredicate parsePredicateOrDie(Properties properties, String key, String topic, Class<? extends AbstractImmutableDataStreamElement> elementClass, String predicate, boolean lazyDecodingEnabled) {
+        int operatorIndex = predicate.indexOf("==");
+        if (operatorIndex <= 0 || operatorIndex + 2 == predicate.length()) {
+            logger.error("Unable to read field predicate for key {} from properties", key, new PropertyHasWrongFormatException(key, "field predicate (FIELD==VALUE)", predicate));
+            System.exit(1);
+        }
+        String fieldName = predicate.substring(0, operatorIndex).trim();
+        String expectedValue = predicate.substring(operatorIndex + 2).trim();
+        int[] fieldPath = null;
+        if (lazyDecodingEnabled) {
+            fieldPath = LazyDecodingConfiguration.readFieldPathOrDie(properties, "decoding.lazy.fieldPath." + topic + "." + fieldName);
+        }
+        try {
+            return new FieldPredicate(fieldName, expectedValue, elementClass, fieldPath);
+        } catch (NoSuchMethodException | IllegalArgumentException e) {
+            logger.error("Unable to read field predicate for key {} from properties", key, new PropertyHasWrongFormatException(key, "field predicate (FIELD==VALUE) on a field of " + elementClass.getName() + " (" + e.getMessage() + ")", predicate));
+            System.exit(1);
+            return null; // never reached
+        }
+    }
+
+    /**
+     * Returns all measurements.
+     *
+     * @return Measurements (the identifier of each measurement is its index)
+     */
+    public List<Measurement> getMeasurements() {
+        return this.measurements;
+    }
+
+    /**
+     * Returns the topics which have at least one rule (i.e., the topics which have to be subscribed).
+     *
+     * @return Topics
+     */
+    public List<String> getTopics() {
+        return this.topics;
+    }
+
+    /**
+     * Determines the measurement of a record by only extracting the required fields from the serialized data stream element.
+     *
+     * @param topic       Name of the Kafka topic via which the record was received
+     * @param value       Serialized data stream element
+     * @param fieldReader Reader for extracting single fields from serialized data stream elements
+     * @return Measurement or null if the data stream element is not selected
+     * @throws LazyDecodingException Thrown if a field could not be extracted
+     */
+    public Measurement dispatchLazily(String topic, byte[] value, ProtobufFieldReader fieldReader) throws LazyDecodingException {
+        MeasurementRule[] rules = this.rulesByTopic.get(topic);
+        if (rules != null) {
+            for (MeasurementRule rule : rules) {
+                if (rule.matchesLazily(fieldReader, value)) {
+                    return rule.getMeasurement();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines the measurement of a data stream element.
+     *
+     * @param dataStreamElement Data stream element
+     * @return Measurement or null if the data stream element is not selected
+     * @throws IllegalAccessException                                                Thrown if the getter of a field is not accessible
+     * @throws AbstractImmutableDataStreamElement.CannotRetrieveInformationException Thrown if a field of the data stream element could not be retrieved
+     */
+    public Measurement dispatch(AbstractImmutableDataStreamElement dataStreamElement) throws IllegalAccessException, AbstractImmutableDataStreamElement.CannotRetrieveInformationException {
+        MeasurementRule[] rules = this.rulesByTopic.get(dataStreamElement.getStreamName());
+        if (rules != null) {
+            for (MeasurementRule rule : rules) {
+                if (rule.matches(dataStreamElement)) {
+                    return rule.getMeasurement();
+                }
+            }
+        }
+        return null;
+    }
+}
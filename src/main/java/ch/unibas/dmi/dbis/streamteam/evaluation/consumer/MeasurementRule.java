@@ -0,0 +1,99 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamTeam.dataStreamElements.AbstractImmutableDataStreamElement;
+
+import java.util.Arrays;
+
+/**
+ * Rule which selects the data stream elements of a topic for a measurement if all its field predicates hold (a rule without predicates selects all elements of the topic).
+ */
+public class MeasurementRule {
+
+    /**
+     * Measurement for which the data stream elements are selected
+     */
+    private final Measurement measurement;
+
+    /**
+     * Field predicates which all have to hold
+     */
+    private final FieldPredicate[] predicates;
+
+    /**
+     * MeasurementRule constructor.
+     *
+     * @param measurement Measurement for which the data stream elements are selected
+     * @param predicates  Field predicates which all have to hold
+     */
+    public MeasurementRule(Measurement measurement, FieldPredicate[] predicates) {
+        this.measurement = measurement;
+        this.predicates = predicates;
+    }
+
+    /**
+     * Returns the measurement for which the data stream elements are selected.
+     *
+     * @return Measurement
+     */
+    public Measurement getMeasurement() {
+        return this.measurement;
+    }
+
+    /**
+     * Checks the rule by only extracting the required fields from the serialized data stream element.
+     *
+     * @param fieldReader Reader for extracting single fields from serialized data stream elements
+     * @param value       Serialized data stream element
+     * @return True if all field predicates hold, otherwise false
+     * @throws LazyDecodingException Thrown if a field could not be extracted
+     */
+    public boolean matchesLazily(ProtobufFieldReader fieldReader, byte[] value) throws LazyDecodingException {
+        for (FieldPredicate predicate : this.predicates) {
+            if (!predicate.testLazily(fieldReader, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the rule on a generated data stream element.
+     *
+     * @param dataStreamElement Data stream element
+     * @return True if all field predicates hold, otherwise false
+     * @throws IllegalAccessException                                                Thrown if the getter of a field is not accessible
+     * @throws AbstractImmutableDataStreamElement.CannotRetrieveInformationException Thrown if a field of the data stream element could not be retrieved
+     */
+    public boolean matches(AbstractImmutableDataStreamElement dataStreamElement) throws IllegalAccessException, AbstractImmutableDataStreamElement.CannotRetrieveInformationException {
+        for (FieldPredicate predicate : this.predicates) {
+            if (!predicate.test(dataStreamElement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return this.measurement + Arrays.toString(this.predicates);
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.SendSystemTimeIndex;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sink which calculates the latencies of the selected data stream elements online and records them in a high dynamic range histogram per measurement before passing the receive system times on to another sink.
+ * The latency of a data stream element is calculated as in the LatencyCalculator (receive system time minus the minimum send system time of the raw position sensor data stream elements with the same matchId and generation timestamp).
+ * The send system times are added by the SendSystemTimeTailer. Receive system times whose send system time is not yet known are kept pending for a limited time.
+ */
+public class OnlineLatencyTracker implements ReceiveSystemTimeSink {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(OnlineLatencyTracker.class);
+
+    /**
+     * Highest latency (in ms) which can be recorded (higher latencies are recorded as this value)
+     */
+    private static final long HIGHEST_TRACKABLE_LATENCY = 3600000;
+
+    /**
+     * Number of significant value digits of the histograms
+     */
+    private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+
+    /**
+     * Sink to which the receive system times are passed on
+     */
+    private final ReceiveSystemTimeSink delegate;
+
+    /**
+     * Measurements (the identifier of each measurement has to be its index in the list)
+     */
+    private final List<Measurement> measurements;
+
+    /**
+     * Index containing the minimum send system time for each matchId-generationTs-combination (guarded by its own monitor)
+     */
+    private final SendSystemTimeIndex minimumSendSystemTimeIndex;
+
+    /**
+     * Receive system times whose send system time is not yet known
+     */
+    private final Queue<PendingReceiveSystemTime> pendingReceiveSystemTimes;
+
+    /**
+     * Maximum time (in ms) a receive system time is kept pending
+     */
+    private final long maxPendingTime;
+
+    /**
+     * Recorder of the latencies of each measurement since the last snapshot (thread-safe)
+     */
+    private final Recorder[] recorders;
+
+    /**
+     * Histogram of all latencies of each measurement (only accessed when taking a snapshot)
+     */
+    private final Histogram[] histograms;
+
+    /**
+     * Number of receive system times of each measurement for which no send system time could be found
+     */
+    private final LongAdder[] unmatched;
+
+    /**
+     * Number of negative latencies of each measurement (e.g., due to unsynchronized clocks) which are not recorded
+     */
+    private final LongAdder[] negative;
+
+    /**
+     * Path to the CSV file to which the snapshots are appended
+     */
+    private final String statsFilePath;
+
+    /**
+     * OnlineLatencyTracker constructor.
+     *
+     * @param delegate       Sink to which the receive system times are passed on
+     * @param measurements   Measurements (the identifier of each measurement has to be its index in the list)
+     * @param maxPendingTime Maximum time (in ms) a receive system time is kept pending
+     * @param statsFilePath  Path to the CSV file to which the snapshots are appended
+     * @throws IOException Thrown if the CSV file could not be created
+     */
+    public OnlineLatencyTracker(ReceiveSystemTimeSink delegate, List<Measurement> measurements, long maxPendingTime, String statsFilePath) throws IOException {
+        this.delegate = delegate;
+        this.measurements = measurements;
+        this.minimumSendSystemTimeIndex = new SendSystemTimeIndex();
+        this.pendingReceiveSystemTimes = new ConcurrentLinkedQueue<>();
+        this.maxPendingTime = maxPendingTime;
+        this.statsFilePath = statsFilePath;
+
+        this.recorders = new Recorder[measurements.size()];
+        this.histograms = new Histogram[measurements.size()];
+        this.unmatched = new LongAdder[measurements.size()];
+        this.negative = new LongAdder[measurements.size()];
+        for (int i = 0; i < measurements.size(); ++i) {
+            this.recorders[i] = new Recorder(HIGHEST_TRACKABLE_LATENCY, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+            this.histograms[i] = new Histogram(HIGHEST_TRACKABLE_LATENCY, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+            this.unmatched[i] = new LongAdder();
+            this.negative[i] = new LongAdder();
+        }
+
+        File statsFile = new File(statsFilePath);
+        statsFile.getAbsoluteFile().getParentFile().mkdirs();
+        if (!statsFile.exists()) {
+            FileWriter fileWriter = new FileWriter(statsFile, false);
+            fileWriter.append("snapshotSystemTime,streamName,count,mean,median,90thPercentile,99thPercentile,99.9thPercentile,max,unmatched,negative\n"); // Header
+            fileWriter.close();
+        }
+    }
+
+    /**
+     * Adds the send system time of a raw position sensor data stream element.
+     *
+     * @param buffer              Buffer containing the UTF-8 bytes of the matchId
+     * @param matchIdStart        Start of the matchId
+     * @param matchIdEnd          End of the matchId (exclusive)
+     * @param generationTimestamp Generation timestamp
+     * @param sendSystemTime      System time (in ms) at which the raw position sensor data stream element was sent
+     */
+    public void addSendSystemTime(byte[] buffer, int matchIdStart, int matchIdEnd, long generationTimestamp, long sendSystemTime) {
+        synchronized (this.minimumSendSystemTimeIndex) {
+            int matchIndex = this.minimumSendSystemTimeIndex.getOrAddMatchIndex(buffer, matchIdStart, matchIdEnd);
+            this.minimumSendSystemTimeIndex.putMinimum(matchIndex, generationTimestamp, sendSystemTime);
+        }
+    }
+
+    @Override
+    public void write(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+        this.delegate.write(measurement, key, generationTimestamp, receiveSystemTime);
+        if (!recordLatency(measurement, key, generationTimestamp, receiveSystemTime)) {
+            this.pendingReceiveSystemTimes.add(new PendingReceiveSystemTime(measurement, key, generationTimestamp, receiveSystemTime));
+        }
+    }
+
+    @Override
+    public int getBacklog() {
+        return this.delegate.getBacklog(); // Pending receive system times are already written to the delegate
+    }
+
+    @Override
+    public void close() {
+        resolvePendingReceiveSystemTimes(-1); // All remaining pending receive system times are unmatched
+        writeSnapshot();
+        this.delegate.close();
+    }
+
+    /**
+     * Records the latency of a data stream element if the send system time is known.
+     *
+     * @param measurement         Measurement to which the data stream element belongs
+     * @param key                 Key of the data stream element (matchId)
+     * @param generationTimestamp Generation timestamp of the data stream element
+     * @param receiveSystemTime   System time (in ms) at which the data stream element was received
+     * @return True if the send system time is known, otherwise false
+     */
+    private boolean recordLatency(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+        long minimumSendSystemTime;
+        synchronized (this.minimumSendSystemTimeIndex) {
+            minimumSendSystemTime = this.minimumSendSystemTimeIndex.get(this.minimumSendSystemTimeIndex.getMatchIndex(key), generationTimestamp);
+        }
+        if (minimumSendSystemTime == SendSystemTimeIndex.NO_VALUE) {
+            return false;
+        }
+        long latency = receiveSystemTime - minimumSendSystemTime;
+        if (latency < 0) {
+            this.negative[measurement.getId()].increment();
+        } else {
+            this.recorders[measurement.getId()].recordValue(Math.min(latency, HIGHEST_TRACKABLE_LATENCY));
+        }
+        return true;
+    }
+
+    /**
+     * Records the latencies of the pending receive system times whose send system time is known now and drops the ones which are pending for too long.
+     * Has to be called by a single thread (the SendSystemTimeTailer after reading new send system times).
+     *
+     * @param maxPendingTime Maximum time (in ms) a receive system time is kept pending
+     */
+    public void resolvePendingReceiveSystemTimes(long maxPendingTime) {
+        long now = System.currentTimeMillis();
+        Iterator<PendingReceiveSystemTime> iterator = this.pendingReceiveSystemTimes.iterator();
+        while (iterator.hasNext()) {
+            PendingReceiveSystemTime pending = iterator.next();
+            if (recordLatency(pending.measurement, pending.key, pending.generationTimestamp, pending.receiveSystemTime)) {
+                iterator.remove();
+            } else if (now - pending.receiveSystemTime > maxPendingTime) {
+                this.unmatched[pending.measurement.getId()].increment();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Records the latencies of the pending receive system times whose send system time is known now and drops the ones which are pending for longer than the configured maximum pending time.
+     */
+    public void resolvePendingReceiveSystemTimes() {
+        resolvePendingReceiveSystemTimes(this.maxPendingTime);
+    }
+
+    /**
+     * Adds the latencies recorded since the last snapshot to the overall histograms, logs the latency statistics of each measurement, and appends them to the CSV file.
+     */
+    public synchronized void writeSnapshot() {
+        long snapshotSystemTime = System.currentTimeMillis();
+        try {
+            FileWriter fileWriter = new FileWriter(this.statsFilePath, true);
+            for (Measurement measurement : this.measurements) {
+                int id = measurement.getId();
+                this.histograms[id].add(this.recorders[id].getIntervalHistogram());
+                Histogram histogram = this.histograms[id];
+                long count = histogram.getTotalCount();
+                long unmatchedCount = this.unmatched[id].sum();
+                long negativeCount = this.negative[id].sum();
+
+                logger.info("Online latencies of {}: count {}, mean {} ms, median {} ms, p90 {} ms, p99 {} ms, p99.9 {} ms, max {} ms, unmatched {}, negative {}", measurement, count, String.format("%.1f", histogram.getMean()), histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMaxValue(), unmatchedCount, negativeCount);
+                fileWriter.append(snapshotSystemTime + "," + measurement.getName() + "," + count + "," + histogram.getMean() + "," + histogram.getValueAtPercentile(50) + "," + histogram.getValueAtPercentile(90) + "," + histogram.getValueAtPercentile(99) + "," + histogram.getValueAtPercentile(99.9) + "," + histogram.getMaxValue() + "," + unmatchedCount + "," + negativeCount + "\n");
+            }
+            fileWriter.close();
+        } catch (IOException e) {
+            logger.error("Unable to write online latency snapshot to {}.", this.statsFilePath, e);
+        }
+    }
+
+    /**
+     * Receive system time whose send system time is not yet known.
+     */
+    private static final class PendingReceiveSystemTime {
+
+        /**
+         * Measurement to which the data stream element belongs
+         */
+        private final Measurement measurement;
+
+        /**
+         * Key of the data stream element (matchId)
+         */
+        private final String key;
+
+        /**
+         * Generation timestamp of the data stream element
+         */
+        private final long generationTimestamp;
+
+        /**
+         * System time (in ms) at which the data stream element was received
+         */
+        private final long receiveSystemTime;
+
+        /**
+         * PendingReceiveSystemTime constructor.
+         *
+         * @param measurement         Measurement to which the data stream element belongs
+         * @param key                 Key of the data stream element (matchId)
+         * @param generationTimestamp Generation timestamp of the data stream element
+         * @param receiveSystemTime   System time (in ms) at which the data stream element was received
+         */
+        private PendingReceiveSystemTime(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+            this.measurement = measurement;
+            this.key = key;
+            this.generationTimestamp = generationTimestamp;
+            this.receiveSystemTime = receiveSystemTime;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+/**
+ * Reader which extracts single fields from a serialized protobuf message without deserializing the whole message.
+ * Fields are addressed by a path of field numbers (e.g., [2, 1] for field 1 of the message stored in field 2).
+ * The reader only walks over the wire format and does not allocate any objects. It is not thread-safe since it stores the location of the last located field.
+ * https://developers.google.com/protocol-buffers/docs/encoding
+ */
+public class ProtobufFieldReader {
+
+    /**
+     * Wire type of varint fields
+     */
+    private static final int WIRETYPE_VARINT = 0;
+
+    /**
+     * Wire type of 64-bit fields
+     */
+    private static final int WIRETYPE_FIXED64 = 1;
+
+    /**
+     * Wire type of length-delimited fields
+     */
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    /**
+     * Wire type of 32-bit fields
+     */
+    private static final int WIRETYPE_FIXED32 = 5;
+
+    /**
+     * Position in the byte array at which the value of the last located field starts
+     */
+    private int valueStart;
+
+    /**
+     * Position in the byte array at which the value of the last located field ends (exclusive)
+     */
+    private int valueEnd;
+
+    /**
+     * Wire type of the last located field
+     */
+    private int valueWireType;
+
+    /**
+     * Position up to which the last varint has been read
+     */
+    private int varintEnd;
+
+    /**
+     * Reads an integer field (varint, fixed64, or fixed32 encoded).
+     *
+     * @param bytes        Serialized protobuf message
+     * @param path         Path of field numbers
+     * @param defaultValue Value which is returned if the field is not present (protobuf does not serialize default values)
+     * @return Value of the field
+     * @throws LazyDecodingException Thrown if the message is malformed or the field has an unexpected wire type
+     */
+    public long readLong(byte[] bytes, int[] path, long defaultValue) throws LazyDecodingException {
+        if (!locate(bytes, path)) {
+            return defaultValue;
+        }
+        switch (this.valueWireType) {
+            case WIRETYPE_VARINT:
+                return readVarint(bytes, this.valueStart, this.valueEnd);
+            case WIRETYPE_FIXED64:
+                return readLittleEndian(bytes, this.valueStart, 8);
+            case WIRETYPE_FIXED32:
+                return readLittleEndian(bytes, this.valueStart, 4);
+            default:
+                throw new LazyDecodingException("Field " + path[path.length - 1] + " has wire type " + this.valueWireType + " instead of an integer wire type.");
+        }
+    }
+
+    /**
+     * Reads a boolean field.
+     *
+     * @param bytes Serialized protobuf message
+     * @param path  Path of field numbers
+     * @return Value of the field (false if the field is not present)
+     * @throws LazyDecodingException Thrown if the message is malformed or the field has an unexpected wire type
+     */
+    public boolean readBoolean(byte[] bytes, int[] path) throws LazyDecodingException {
+        return readLong(bytes, path, 0) != 0;
+    }
+
+    /**
+     * Checks if a string field is equal to an expected value without creating a string.
+     *
+     * @param bytes        Serialized protobuf message
+     * @param path         Path of field numbers
+     * @param expectedUtf8 Expected value encoded in UTF-8
+     * @return True if the field is equal to the expected value, otherwise false (a field which is not present is equal to the empty string)
+     * @throws LazyDecodingException Thrown if the message is malformed or the field has an unexpected wire type
+     */
+    public boolean stringEquals(byte[] bytes, int[] path, byte[] expectedUtf8) throws LazyDecodingException {
+        if (!locate(bytes, path)) {
+            return expectedUtf8.length == 0;
+        }
+        if (this.valueWireType != WIRETYPE_LENGTH_DELIMITED) {
+            throw new LazyDecodingException("Field " + path[path.length - 1] + " has wire type " + this.valueWireType + " instead of the length-delimited wire type.");
+        }
+        if (this.valueEnd - this.valueStart != expectedUtf8.length) {
+            return false;
+        }
+        for (int i = 0; i < expectedUtf8.length; ++i) {
+            if (bytes[this.valueStart + i] != expectedUtf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Locates a field. If a field occurs multiple times, the last occurrence is located (as the protobuf parser does for non-repeated fields).
+     *
+     * @param bytes Serialized protobuf message
+     * @param path  Path of field numbers
+     * @return True if the field is present, otherwise false
+     * @throws LazyDecodingException Thrown if the message is malformed or an intermediate field of the path is not length-delimited
+     */
+    private boolean locate(byte[] bytes, int[] path) throws LazyDecodingException {
+        int start = 0;
+        int end = bytes.length;
+        for (int depth = 0; depth < path.length; ++depth) {
+            if (!locateInRange(bytes, start, end, path[depth])) {
+                return false;
+            }
+            if (depth < path.length - 1) {
+                if (this.valueWireType != WIRETYPE_LENGTH_DELIMITED) {
+                    throw new LazyDecodingException("Field " + path[depth] + " has wire type " + this.valueWireType + " and therefore cannot contain a nested message.");
+                }
+                start = this.valueStart;
+                end = this.valueEnd;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Locates the last occurrence of a field inside a range of the byte array.
+     *
+     * @param bytes       Serialized protobuf message
+     * @param start       Start of the range
+     * @param end         End of the range (exclusive)
+     * @param fieldNumber Field number
+     * @return True if the field is present in the range, otherwise false
+     * @throws LazyDecodingException Thrown if the range does not contain a well-formed message
+     */
+    private boolean locateInRange(byte[] bytes, int start, int end, int fieldNumber) throws LazyDecodingException {
+        boolean found = false;
+        int foundStart = 0;
+        int foundEnd = 0;
+        int foundWireType = 0;
+
+        int pos = start;
+        while (pos < end) {
+            long tag = readVarint(bytes, pos, end);
+            pos = this.varintEnd;
+            int wireType = (int) (tag & 0x7);
+            int currentFieldNumber = (int) (tag >>> 3);
+
+            int currentValueStart;
+            int currentValueEnd;
+            switch (wireType) {
+                case WIRETYPE_VARINT:
+                    currentValueStart = pos;
+                    readVarint(bytes, pos, end);
+                    currentValueEnd = this.varintEnd;
+                    break;
+                case WIRETYPE_FIXED64:
+                    currentValueStart = pos;
+                    currentValueEnd = pos + 8;
+                    break;
+                case WIRETYPE_LENGTH_DELIMITED:
+                    long length = readVarint(bytes, pos, end);
+                    currentValueStart = this.varintEnd;
+                    if (length < 0 || length > end - currentValueStart) {
+                        throw new LazyDecodingException("Length-delimited field " + currentFieldNumber + " exceeds the message.");
+                    }
+                    currentValueEnd = currentValueStart + (int) length;
+                    break;
+                case WIRETYPE_FIXED32:
+                    currentValueStart = pos;
+                    currentValueEnd = pos + 4;
+                    break;
+                default: // Groups are deprecated and not used by the data model
+                    throw new LazyDecodingException("Unsupported wire type " + wireType + " of field " + currentFieldNumber + ".");
+            }
+            if (currentValueEnd > end) {
+                throw new LazyDecodingException("Field " + currentFieldNumber + " exceeds the message.");
+            }
+
+            if (currentFieldNumber == fieldNumber) {
+                found = true;
+                foundStart = currentValueStart;
+                foundEnd = currentValueEnd;
+                foundWireType = wireType;
+            }
+            pos = currentValueEnd;
+        }
+
+        if (found) {
+            this.valueStart = foundStart;
+            this.valueEnd = foundEnd;
+            this.valueWireType = foundWireType;
+        }
+        return found;
+    }
+
+    /**
+     * Reads a varint and stores the position after the varint in varintEnd.
+     *
+     * @param bytes Serialized protobuf message
+     * @param pos   Start position of the varint
+     * @param end   End of the range in which the varint has to be (exclusive)
+     * @return Value of the varint
+     * @throws LazyDecodingException Thrown if the varint is malformed
+     */
+    private long readVarint(byte[] bytes, int pos, int end) throws LazyDecodingException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= end) {
+                throw new LazyDecodingException("Truncated varint.");
+            }
+            byte b = bytes[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                this.varintEnd = pos;
+                return result;
+            }
+        }
+        throw new LazyDecodingException("Malformed varint.");
+    }
+
+    /**
+     * Reads a little-endian encoded integer.
+     *
+     * @param bytes         Serialized protobuf message
+     * @param pos           Start position of the integer
+     * @param numberOfBytes Number of bytes (4 or 8)
+     * @return Value of the integer
+     */
+    private static long readLittleEndian(byte[] bytes, int pos, int numberOfBytes) {
+        long result = 0;
+        for (int i = numberOfBytes - 1; i >= 0; --i) {
+            result = (result << 8) | (bytes[pos + i] & 0xFF);
+        }
+        if (numberOfBytes == 4) {
+            return (int) result; // sign extension for fixed32/sfixed32
+        }
+        return result;
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sink which appends the receive system times as fixed-width binary records to a journal file. All records are written by a single writer thread via a direct ByteBuffer.
+ * <p>
+ * Format (big-endian): The header consists of the magic number, the format version, the number of measurements, and the name of each measurement (short length followed by the UTF-8 bytes).
+ * It is followed by RECORD_SIZE byte records: record type (byte), measurement id (byte), key length (short, only for key definitions), key id (int), generation timestamp (long), and receive system time (long).
+ * A key definition record is written before the first record with a new key and is followed by the UTF-8 bytes of the key padded to a multiple of RECORD_SIZE.
+ * If the writer thread fails (e.g., since the disk is full), all further receive system times are dropped and counted instead of blocking the decode workers.
+ * The ReceiveSystemTimeJournalConverter converts journals into the receive system time CSV files which are read by the LatencyCalculator.
+ */
+public class ReceiveSystemTimeJournal implements ReceiveSystemTimeSink, Runnable {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReceiveSystemTimeJournal.class);
+
+    /**
+     * Magic number at the start of each journal file ("STRJ")
+     */
+    public static final int MAGIC_NUMBER = 0x5354524A;
+
+    /**
+     * Version of the journal format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of a record in bytes
+     */
+    public static final int RECORD_SIZE = 24;
+
+    /**
+     * Type of a receive system time record
+     */
+    public static final byte RECORD_TYPE_RECEIVE_SYSTEM_TIME = 0;
+
+    /**
+     * Type of a key definition record
+     */
+    public static final byte RECORD_TYPE_KEY_DEFINITION = 1;
+
+    /**
+     * File name extension of journal files
+     */
+    public static final String FILE_EXTENSION = ".journal";
+
+    /**
+     * Size of the direct buffer in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Maximum number of entries which are taken from the queue at once
+     */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * Timeout (in ms) for waiting for the next entry (required to notice that the journal should be closed)
+     */
+    private static final long queuePollTimeoutInMs = 100;
+
+    /**
+     * Timeout (in ms) for waiting for free space in the queue before checking again if the writer thread is still alive
+     */
+    private static final long queueOfferTimeoutInMs = 100;
+
+    /**
+     * Queue containing the entries which are not yet written
+     */
+    private final BlockingQueue<Entry> queue;
+
+    /**
+     * Channel of the journal file
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * Direct buffer in which the records are collected before they are written
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Map containing the identifier of each key for which a key definition has already been written (only accessed by the writer thread)
+     */
+    private final Map<String, Integer> keyIds;
+
+    /**
+     * Number of entries which have been appended to the buffer but not yet written to the journal file (only accessed by the writer thread)
+     */
+    private int unflushedEntries;
+
+    /**
+     * Writer thread
+     */
+    private final Thread writerThread;
+
+    /**
+     * Flag which indicates if the writer thread should keep waiting for new entries
+     */
+    private volatile boolean runFlag;
+
+    /**
+     * Exception which terminated the writer thread (null as long as the writer thread works)
+     */
+    private volatile Throwable writerFailure;
+
+    /**
+     * Number of receive system times which have been dropped (null keys or failed writer thread)
+     */
+    private final LongAdder droppedRecords;
+
+    /**
+     * ReceiveSystemTimeJournal constructor. Creates a new journal file and starts the writer thread.
+     *
+     * @param journalFilePath Path to the journal file
+     * @param measurements    Measurements (the identifier of each measurement has to be its index in the list)
+     * @param queueCapacity   Maximum number of entries which are not yet written
+     * @throws IOException Thrown if the journal file could not be created
+     */
+    public ReceiveSystemTimeJournal(String journalFilePath, List<Measurement> measurements, int queueCapacity) throws IOException {
+        File journalFile = new File(journalFilePath);
+        journalFile.getAbsoluteFile().getParentFile().mkdirs();
+        this.fileChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.keyIds = new HashMap<>();
+        this.unflushedEntries = 0;
+        this.writerFailure = null;
+        this.droppedRecords = new LongAdder();
+
+        this.buffer.putInt(MAGIC_NUMBER);
+        this.buffer.putInt(VERSION);
+        this.buffer.putInt(measurements.size());
+        for (Measurement measurement : measurements) {
+            byte[] nameBytes = measurement.getName().getBytes(StandardCharsets.UTF_8);
+            this.buffer.putShort((short) nameBytes.length);
+            this.buffer.put(nameBytes);
+        }
+        flush();
+
+        this.runFlag = true;
+        this.writerThread = new Thread(this, "receiveSystemTimeJournalWriter");
+        this.writerThread.start();
+    }
+
+    @Override
+    public void write(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime) {
+        if (key == null) {
+            drop("Dropped receive system time {},{} for {} since the element has no key.", generationTimestamp, receiveSystemTime, measurement);
+            return;
+        }
+        Entry entry = new Entry(measurement.getId(), key, generationTimestamp, receiveSystemTime);
+        try {
+            while (!this.queue.offer(entry, queueOfferTimeoutInMs, TimeUnit.MILLISECONDS)) {
+                if (this.writerFailure != null) {
+                    drop("Dropped receive system time {},{},{} for {} since the journal writer has failed.", key, generationTimestamp, receiveSystemTime, measurement);
+                    return;
+                }
+            }
+            if (this.writerFailure != null && this.queue.remove(entry)) { // The writer has failed in the meantime and will not take the entry anymore
+                drop("Dropped receive system time {},{},{} for {} since the journal writer has failed.", key, generationTimestamp, receiveSystemTime, measurement);
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while waiting for free space in the journal queue. Lost receive system time {},{},{} for {}.", key, generationTimestamp, receiveSystemTime, measurement);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.runFlag = false;
+        try {
+            this.writerThread.join();
+        } catch (InterruptedException e) {
+            logger.trace("InterruptedException while waiting for the journal writer.", e);
+        }
+        if (this.writerFailure != null) {
+            this.droppedRecords.add(this.queue.size());
+            this.queue.clear();
+        }
+        if (this.droppedRecords.sum() > 0) {
+            logger.error("Dropped {} receive system times in total (journal writer failure: {}).", this.droppedRecords.sum(), this.writerFailure);
+        }
+    }
+
+    /**
+     * Returns the number of receive system times which have been dropped (null keys or failed writer thread).
+     *
+     * @return Number of dropped receive system times
+     */
+    public long getDroppedRecords() {
+        return this.droppedRecords.sum();
+    }
+
+    /**
+     * Counts a dropped receive system time. Only the first drop is logged to avoid flooding the log (the total is logged when the journal is closed).
+     *
+     * @param message   Log message
+     * @param arguments Arguments of the log message
+     */
+    private void drop(String message, Object... arguments) {
+        this.droppedRecords.increment();
+        if (this.droppedRecords.sum() == 1) {
+            logger.error(message, arguments);
+        }
+    }
+
+    @Override
+    public int getBacklog() {
+        return this.queue.size();
+    }
+
+    /**
+     * Writes the entries until the journal is closed and the queue is empty.
+     */
+    @Override
+    public void run() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        int appendedBatchEntries = 0;
+        try {
+            while (this.runFlag || !this.queue.isEmpty()) {
+                try {
+                    Entry entry = this.queue.poll(queuePollTimeoutInMs, TimeUnit.MILLISECONDS);
+                    if (entry == null) {
+                        flush(); // Nothing to do -> write the buffered records
+                    } else {
+                        batch.add(entry);
+                        this.queue.drainTo(batch, MAX_BATCH_SIZE);
+                        for (appendedBatchEntries = 0; appendedBatchEntries < batch.size(); ++appendedBatchEntries) {
+                            append(batch.get(appendedBatchEntries));
+                        }
+                        batch.clear();
+                        appendedBatchEntries = 0;
+                    }
+                } catch (InterruptedException e) {
+                    logger.trace("InterruptedException in journal writer loop.", e);
+                }
+            }
+            flush();
+            this.fileChannel.close();
+        } catch (IOException | RuntimeException e) {
+            // Set before draining the queue -> write() does not wait for free space anymore
+            this.writerFailure = e;
+            logger.error("Unable to write the receive system time journal. All further receive system times are dropped.", e);
+            this.droppedRecords.add(this.unflushedEntries + batch.size() - appendedBatchEntries);
+            List<Entry> remainingEntries = new ArrayList<>();
+            this.queue.drainTo(remainingEntries);
+            this.droppedRecords.add(remainingEntries.size());
+            try {
+                this.fileChannel.close();
+            } catch (IOException e2) {
+                logger.trace("Unable to close the receive system time journal.", e2);
+            }
+        }
+    }
+
+    /**
+     * Appends an entry to the buffer (preceded by a key definition if the key is new).
+     *
+     * @param entry Entry
+     * @throws IOException Thrown if the buffer could not be written to the journal file
+     */
+    private void append(Entry entry) throws IOException {
+        Integer keyId = this.keyIds.get(entry.key);
+        if (keyId == null) {
+            keyId = this.keyIds.size();
+            this.keyIds.put(entry.key, keyId);
+
+            byte[] keyBytes = entry.key.getBytes(StandardCharsets.UTF_8);
+            int paddedKeyLength = ((keyBytes.length + RECORD_SIZE - 1) / RECORD_SIZE) * RECORD_SIZE;
+            ensureCapacity(RECORD_SIZE + paddedKeyLength);
+            this.buffer.put(RECORD_TYPE_KEY_DEFINITION);
+            this.buffer.put((byte) 0);
+            this.buffer.putShort((short) keyBytes.length);
+            this.buffer.putInt(keyId);
+            this.buffer.putLong(0);
+            this.buffer.putLong(0);
+            this.buffer.put(keyBytes);
+            for (int i = keyBytes.length; i < paddedKeyLength; ++i) {
+                this.buffer.put((byte) 0);
+            }
+        }
+
+        ensureCapacity(RECORD_SIZE);
+        this.buffer.put(RECORD_TYPE_RECEIVE_SYSTEM_TIME);
+        this.buffer.put((byte) entry.measurementId);
+        this.buffer.putShort((short) 0);
+        this.buffer.putInt(keyId);
+        this.buffer.putLong(entry.generationTimestamp);
+        this.buffer.putLong(entry.receiveSystemTime);
+        this.unflushedEntries++;
+    }
+
+    /**
+     * Writes the buffer to the journal file if it does not have enough remaining space.
+     *
+     * @param numberOfBytes Number of bytes which will be put into the buffer
+     * @throws IOException Thrown if the buffer could not be written to the journal file
+     */
+    private void ensureCapacity(int numberOfBytes) throws IOException {
+        if (this.buffer.remaining() < numberOfBytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffer to the journal file.
+     *
+     * @throws IOException Thrown if the buffer could not be written to the journal file
+     */
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.fileChannel.write(this.buffer);
+        }
+        this.buffer.clear();
+        this.unflushedEntries = 0;
+    }
+
+    /**
+     * Receive system time which is not yet written.
+     */
+    private static final class Entry {
+
+        /**
+         * Identifier of the measurement
+         */
+        private final int measurementId;
+
+        /**
+         * Key of the data stream element (matchId)
+         */
+        private final String key;
+
+        /**
+         * Generation timestamp of the data stream element
+         */
+        private final long generationTimestamp;
+
+        /**
+         * System time (in ms) at which the data stream element was received
+         */
+        private final long receiveSystemTime;
+
+        /**
+         * Entry constructor.
+         *
+         * @param measurementId       Identifier of the measurement
+         * @param key                 Key of the data stream element (matchId)
+         * @param generationTimestamp Generation timestamp of the data stream element
+         * @param receiveSystemTime   System time (in ms) at which the data stream element was received
+         */
+        private Entry(int measurementId, String key, long generationTimestamp, long receiveSystemTime) {
+            this.measurementId = measurementId;
+            this.key = key;
+            this.generationTimestamp = generationTimestamp;
+            this.receiveSystemTime = receiveSystemTime;
+        }
+    }
+}
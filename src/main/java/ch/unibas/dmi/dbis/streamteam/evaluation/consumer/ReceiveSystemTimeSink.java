@@ -0,0 +1,49 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+/**
+ * Sink to which the decode workers write the receive system times of the selected data stream elements.
+ * Implementations have to be thread-safe since all decode workers write to the same sink.
+ */
+public interface ReceiveSystemTimeSink {
+
+    /**
+     * Writes the receive system time of a selected data stream element.
+     *
+     * @param measurement         Measurement to which the data stream element belongs
+     * @param key                 Key of the data stream element (matchId)
+     * @param generationTimestamp Generation timestamp of the data stream element
+     * @param receiveSystemTime   System time (in ms) at which the data stream element was received
+     */
+    void write(Measurement measurement, String key, long generationTimestamp, long receiveSystemTime);
+
+    /**
+     * Returns the number of receive system times which have been handed over to the sink but are not yet written.
+     *
+     * @return Backlog of the sink
+     */
+    int getBacklog();
+
+    /**
+     * Writes all pending receive system times and closes the sink.
+     */
+    void close();
+}
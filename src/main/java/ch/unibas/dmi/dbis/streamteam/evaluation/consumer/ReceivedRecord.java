@@ -0,0 +1,144 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+/**
+ * Raw Kafka record which has been received by the EvaluationConsumer but not yet decoded.
+ */
+public class ReceivedRecord {
+
+    /**
+     * Name of the Kafka topic via which the record was received
+     */
+    private final String topic;
+
+    /**
+     * Kafka partition via which the record was received
+     */
+    private final int partition;
+
+    /**
+     * Offset of the record in its partition
+     */
+    private final long offset;
+
+    /**
+     * Key of the record
+     */
+    private final String key;
+
+    /**
+     * Serialized data stream element
+     */
+    private final byte[] value;
+
+    /**
+     * System time (in ms) at which the record was returned by the poll call
+     */
+    private final long receiveSystemTime;
+
+    /**
+     * Value of System.nanoTime() at which the record was returned by the poll call (only meaningful for measuring durations inside the EvaluationConsumer)
+     */
+    private final long receiveNanos;
+
+    /**
+     * ReceivedRecord constructor.
+     *
+     * @param topic             Name of the Kafka topic via which the record was received
+     * @param partition         Kafka partition via which the record was received
+     * @param offset            Offset of the record in its partition
+     * @param key               Key of the record
+     * @param value             Serialized data stream element
+     * @param receiveSystemTime System time (in ms) at which the record was returned by the poll call
+     * @param receiveNanos      Value of System.nanoTime() at which the record was returned by the poll call
+     */
+    public ReceivedRecord(String topic, int partition, long offset, String key, byte[] value, long receiveSystemTime, long receiveNanos) {
+        this.topic = topic;
+        this.partition = partition;
+        this.offset = offset;
+        this.key = key;
+        this.value = value;
+        this.receiveSystemTime = receiveSystemTime;
+        this.receiveNanos = receiveNanos;
+    }
+
+    /**
+     * Returns the name of the Kafka topic via which the record was received.
+     *
+     * @return Name of the Kafka topic
+     */
+    public String getTopic() {
+        return this.topic;
+    }
+
+    /**
+     * Returns the Kafka partition via which the record was received.
+     *
+     * @return Kafka partition
+     */
+    public int getPartition() {
+        return this.partition;
+    }
+
+    /**
+     * Returns the offset of the record in its partition.
+     *
+     * @return Offset
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Returns the key of the record.
+     *
+     * @return Key
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns the serialized data stream element.
+     *
+     * @return Serialized data stream element
+     */
+    public byte[] getValue() {
+        return this.value;
+    }
+
+    /**
+     * Returns the system time (in ms) at which the record was returned by the poll call.
+     *
+     * @return Receive system time in ms
+     */
+    public long getReceiveSystemTime() {
+        return this.receiveSystemTime;
+    }
+
+    /**
+     * Returns the value of System.nanoTime() at which the record was returned by the poll call.
+     *
+     * @return Receive nano time
+     */
+    public long getReceiveNanos() {
+        return this.receiveNanos;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.consumer;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.SendSystemTimeIndex;
+import ch.unibas.dmi.dbis.streamteam.evaluation.latency.SystemTimeLineParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Component which follows the send system time CSV file written by the sensor simulator (matchId,generationTimestamp,sendSystemTimestamp) and adds the new send system times to the OnlineLatencyTracker.
+ */
+public class SendSystemTimeTailer implements Runnable {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SendSystemTimeTailer.class);
+
+    /**
+     * Size of the read buffer in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Path to the send system time file
+     */
+    private final String sendSystemTimeFilePath;
+
+    /**
+     * Online latency tracker to which the send system times are added
+     */
+    private final OnlineLatencyTracker onlineLatencyTracker;
+
+    /**
+     * Interval (in ms) in which the file is checked for new lines
+     */
+    private final long tailInterval;
+
+    /**
+     * Parser of the lines (only accessed by the tailer thread)
+     */
+    private final SystemTimeLineParser parser;
+
+    /**
+     * Flag which indicates if the tailer should keep following the file
+     */
+    private volatile boolean runFlag;
+
+    /**
+     * SendSystemTimeTailer constructor.
+     *
+     * @param sendSystemTimeFilePath Path to the send system time file
+     * @param onlineLatencyTracker   Online latency tracker to which the send system times are added
+     * @param tailInterval           Interval (in ms) in which the file is checked for new lines
+     */
+    public SendSystemTimeTailer(String sendSystemTimeFilePath, OnlineLatencyTracker onlineLatencyTracker, long tailInterval) {
+        this.sendSystemTimeFilePath = sendSystemTimeFilePath;
+        this.onlineLatencyTracker = onlineLatencyTracker;
+        this.tailInterval = tailInterval;
+        this.parser = new SystemTimeLineParser();
+        this.runFlag = true;
+    }
+
+    /**
+     * Signals the tailer to stop after the next check for new lines.
+     */
+    public void stop() {
+        this.runFlag = false;
+    }
+
+    /**
+     * Follows the send system time file until the tailer is stopped.
+     */
+    @Override
+    public void run() {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bufferedBytes = 0; // Bytes of an incomplete line at the start of the buffer
+        long position = 0;
+
+        while (this.runFlag) {
+            try (RandomAccessFile file = new RandomAccessFile(this.sendSystemTimeFilePath, "r")) {
+                if (file.length() < position) { // File has been recreated (e.g., by a restarted sensor simulator)
+                    logger.info("{} has been truncated. Start reading from the beginning.", this.sendSystemTimeFilePath);
+                    position = 0;
+                    bufferedBytes = 0;
+                }
+                file.seek(position);
+
+                int readBytes = file.read(buffer, bufferedBytes, buffer.length - bufferedBytes);
+                while (readBytes > 0) {
+                    position += readBytes;
+                    int end = bufferedBytes + readBytes;
+                    int lineStart = 0;
+                    for (int i = 0; i < end; ++i) {
+                        if (buffer[i] == '\n') {
+                            parseLine(buffer, lineStart, i);
+                            lineStart = i + 1;
+                        }
+                    }
+                    bufferedBytes = end - lineStart;
+                    if (bufferedBytes == buffer.length) {
+                        logger.error("Skipped line which is longer than {} bytes.", buffer.length);
+                        bufferedBytes = 0;
+                    }
+                    System.arraycopy(buffer, lineStart, buffer, 0, bufferedBytes);
+                    readBytes = file.read(buffer, bufferedBytes, buffer.length - bufferedBytes);
+                }
+            } catch (IOException e) {
+                logger.debug("Unable to read {} (sensor simulator not yet started?).", this.sendSystemTimeFilePath, e);
+            } catch (RuntimeException e) {
+                logger.error("Caught exception while tailing {} (continues with the next line): ", this.sendSystemTimeFilePath, e);
+                bufferedBytes = 0; // The incomplete line is skipped
+            }
+
+            try {
+                this.onlineLatencyTracker.resolvePendingReceiveSystemTimes();
+            } catch (RuntimeException e) {
+                logger.error("Caught exception while resolving the pending receive system times: ", e);
+            }
+
+            try {
+                Thread.sleep(this.tailInterval);
+            } catch (InterruptedException e) {
+                logger.trace("InterruptedException in tail loop.", e);
+            }
+        }
+    }
+
+    /**
+     * Parses a line of the send system time file and adds the send system time to the online latency tracker.
+     * Lines which cannot be parsed (e.g., the header) are skipped silently, lines whose send system time cannot be stored are skipped with an error log.
+     *
+     * @param buffer Buffer containing the line
+     * @param start  Start of the line
+     * @param end    End of the line (exclusive, without line break)
+     */
+    private void parseLine(byte[] buffer, int start, int end) {
+        if (this.parser.parse(buffer, start, end)) {
+            long generationTimestamp = this.parser.getGenerationTimestamp();
+            if (!SendSystemTimeIndex.canStore(generationTimestamp)) {
+                logger.error("Skipped line in {} with the generation timestamp {} which is out of range.", this.sendSystemTimeFilePath, generationTimestamp);
+                return;
+            }
+            try {
+                this.onlineLatencyTracker.addSendSystemTime(buffer, this.parser.getMatchIdStart(), this.parser.getMatchIdEnd(), generationTimestamp, this.parser.getSystemTime());
+            } catch (IllegalStateException e) { // E.g., too many matchIds
+                logger.error("Skipped line in {}: ", this.sendSystemTimeFilePath, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Persistent binary cache of extracted events. Each entry contains the event sets of all event types extracted from one source (e.g., an F24 file or an events collection) and is identified by a fingerprint of this source.
+ * Entries are written to a temporary file and then moved into place so that concurrent readers never see a partially written entry.
+ */
+public class EventCache {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(EventCache.class);
+
+    /**
+     * Magic number at the start of each cache file ("STEC")
+     */
+    private static final int MAGIC_NUMBER = 0x53544543;
+
+    /**
+     * Version of the cache file format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Directory of the cache files
+     */
+    private final File cacheDirectory;
+
+    /**
+     * EventCache constructor.
+     *
+     * @param cacheDirectoryPath Path to the directory of the cache files (created if it does not exist)
+     */
+    public EventCache(String cacheDirectoryPath) {
+        this.cacheDirectory = new File(cacheDirectoryPath);
+        this.cacheDirectory.mkdirs();
+    }
+
+    /**
+     * Calculates the fingerprint of a source from several components (e.g., the content hash of a file and the extraction parameters).
+     *
+     * @param components Components of the fingerprint
+     * @return Fingerprint (SHA-256 as hex string)
+     */
+    public static String fingerprint(String... components) {
+        MessageDigest messageDigest = createSha256MessageDigest();
+        for (String component : components) {
+            byte[] bytes = component.getBytes(StandardCharsets.UTF_8);
+            // Length prefix to keep the components apart (e.g., "ab","c" vs. "a","bc")
+            messageDigest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+            messageDigest.update(bytes);
+        }
+        return toHexString(messageDigest.digest());
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the content of a file.
+     *
+     * @param path Path to the file
+     * @return SHA-256 hash as hex string
+     * @throws IOException Thrown if the file could not be read
+     */
+    public static String hashFileContent(String path) throws IOException {
+        MessageDigest messageDigest = createSha256MessageDigest();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(path)) {
+            int numberOfBytes;
+            while ((numberOfBytes = in.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, numberOfBytes);
+            }
+        }
+        return toHexString(messageDigest.digest());
+    }
+
+    /**
+     * Loads the event sets of a source.
+     *
+     * @param fingerprint Fingerprint of the source
+     * @return Event set of each event type or null if there is no (complete) cache entry for this fingerprint
+     */
+    public Map<EventType, EventSet> load(String fingerprint) {
+        File cacheFile = getCacheFile(fingerprint);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 1 << 16))) {
+            if (in.readInt() != MAGIC_NUMBER || in.readInt() != VERSION) {
+                logger.warn("Ignore cache file {} since it has an unknown format.", cacheFile);
+                return null;
+            }
+            Map<EventType, EventSet> eventSets = new EnumMap<>(EventType.class);
+            int numberOfEventTypes = in.readInt();
+            for (int i = 0; i < numberOfEventTypes; ++i) {
+                EventType eventType = EventType.valueOf(in.readUTF());
+                EventSet eventSet = EventSet.readFrom(in);
+                if (eventSet.hasSecondPosition() != eventType.hasSecondPosition()) {
+                    throw new IOException("Event set of " + eventType + " has the wrong number of positions.");
+                }
+                eventSets.put(eventType, eventSet);
+            }
+            if (eventSets.size() != EventType.values().length) {
+                logger.warn("Ignore cache file {} since it does not contain all event types.", cacheFile);
+                return null;
+            }
+            return eventSets;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Ignore corrupt cache file {}.", cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the event sets of a source.
+     *
+     * @param fingerprint Fingerprint of the source
+     * @param eventSets   Event set of each event type
+     * @throws IOException Thrown if the cache file could not be written
+     */
+    public void store(String fingerprint, Map<EventType, EventSet> eventSets) throws IOException {
+        File cacheFile = getCacheFile(fingerprint);
+        File temporaryFile = File.createTempFile(fingerprint, ".tmp", this.cacheDirectory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 1 << 16))) {
+                out.writeInt(MAGIC_NUMBER);
+                out.writeInt(VERSION);
+                out.writeInt(eventSets.size());
+                for (Map.Entry<EventType, EventSet> entry : eventSets.entrySet()) {
+                    out.writeUTF(entry.getKey().name());
+                    entry.getValue().writeTo(out);
+                }
+            }
+            Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * Returns the cache file of a source.
+     *
+     * @param fingerprint Fingerprint of the source
+     * @return Cache file
+     */
+    private File getCacheFile(String fingerprint) {
+        return new File(this.cacheDirectory, fingerprint + ".events");
+    }
+
+    /**
+     * Creates a SHA-256 message digest.
+     *
+     * @return SHA-256 message digest
+     */
+    private static MessageDigest createSha256MessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Transforms bytes into a hex string.
+     *
+     * @param bytes Bytes
+     * @return Hex string
+     */
+    private static String toHexString(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,517 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.event;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set of events of one event type which are parsed once and stored in primitive arrays in the order of their extraction (i.e., in the order of the event CSV file).
+ * Events with identical CSV lines are mapped to the same line identifier. Immutable after construction.
+ */
+public class EventSet {
+
+    /**
+     * Number of events
+     */
+    private final int size;
+
+    /**
+     * Timestamp of each event (in ms)
+     */
+    private final int[] timestamps;
+
+    /**
+     * X-coordinate of the first position of each event
+     */
+    private final double[] x;
+
+    /**
+     * Y-coordinate of the first position of each event
+     */
+    private final double[] y;
+
+    /**
+     * X-coordinate of the second position of each event (null if the events have only one position)
+     */
+    private final double[] x2;
+
+    /**
+     * Y-coordinate of the second position of each event (null if the events have only one position)
+     */
+    private final double[] y2;
+
+    /**
+     * Identifier of the line of each event (identical lines have the same identifier)
+     */
+    private final int[] lineIds;
+
+    /**
+     * Number of distinct lines
+     */
+    private final int numberOfDistinctLines;
+
+    /**
+     * EventSet constructor.
+     *
+     * @param size                  Number of events
+     * @param timestamps            Timestamp of each event (in ms)
+     * @param x                     X-coordinate of the first position of each event
+     * @param y                     Y-coordinate of the first position of each event
+     * @param x2                    X-coordinate of the second position of each event (null if the events have only one position)
+     * @param y2                    Y-coordinate of the second position of each event (null if the events have only one position)
+     * @param lineIds               Identifier of the line of each event (identical lines have the same identifier)
+     * @param numberOfDistinctLines Number of distinct lines
+     */
+    private EventSet(int size, int[] timestamps, double[] x, double[] y, double[] x2, double[] y2, int[] lineIds, int numberOfDistinctLines) {
+        this.size = size;
+        this.timestamps = timestamps;
+        this.x = x;
+        this.y = y;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.lineIds = lineIds;
+        this.numberOfDistinctLines = numberOfDistinctLines;
+    }
+
+    /**
+     * Reads an event CSV file (ts,x,y or ts,x,y,x2,y2) and skips the header.
+     *
+     * @param path               Path to the event CSV file
+     * @param withSecondPosition True if the events have a second position (e.g., start and end of a pass), otherwise false
+     * @return Event set
+     * @throws IOException Thrown if the event CSV file could not be read properly
+     */
+    public static EventSet readFile(String path, boolean withSecondPosition) throws IOException {
+        Builder builder = new Builder(withSecondPosition);
+
+        BufferedReader bufferedReader = new BufferedReader(new FileReader(path));
+        bufferedReader.readLine(); // skip header
+
+        String line = bufferedReader.readLine();
+        while (line != null) {
+            String[] splittedLine = line.split(",");
+            if (withSecondPosition) {
+                builder.add(line, Integer.parseInt(splittedLine[0]), Double.parseDouble(splittedLine[1]), Double.parseDouble(splittedLine[2]), Double.parseDouble(splittedLine[3]), Double.parseDouble(splittedLine[4]));
+            } else {
+                builder.add(line, Integer.parseInt(splittedLine[0]), Double.parseDouble(splittedLine[1]), Double.parseDouble(splittedLine[2]), 0, 0);
+            }
+
+            line = bufferedReader.readLine();
+        }
+
+        bufferedReader.close();
+
+        return builder.build();
+    }
+
+    /**
+     * Reads an event set which has been written with writeTo.
+     *
+     * @param in Data input stream
+     * @return Event set
+     * @throws IOException Thrown if the event set could not be read
+     */
+    public static EventSet readFrom(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        boolean withSecondPosition = in.readBoolean();
+        int numberOfDistinctLines = in.readInt();
+        if (size < 0 || numberOfDistinctLines < 0 || numberOfDistinctLines > size) {
+            throw new IOException("Corrupt event set with " + size + " events and " + numberOfDistinctLines + " distinct lines.");
+        }
+
+        int[] timestamps = new int[size];
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] x2 = withSecondPosition ? new double[size] : null;
+        double[] y2 = withSecondPosition ? new double[size] : null;
+        int[] lineIds = new int[size];
+        for (int i = 0; i < size; ++i) {
+            timestamps[i] = in.readInt();
+            x[i] = in.readDouble();
+            y[i] = in.readDouble();
+            if (withSecondPosition) {
+                x2[i] = in.readDouble();
+                y2[i] = in.readDouble();
+            }
+            lineIds[i] = in.readInt();
+            if (lineIds[i] < 0 || lineIds[i] >= numberOfDistinctLines) {
+                throw new IOException("Corrupt event set with line identifier " + lineIds[i] + ".");
+            }
+        }
+        return new EventSet(size, timestamps, x, y, x2, y2, lineIds, numberOfDistinctLines);
+    }
+
+    /**
+     * Writes the event set in a binary format (which can be read with readFrom).
+     *
+     * @param out Data output stream
+     * @throws IOException Thrown if the event set could not be written
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(this.size);
+        out.writeBoolean(hasSecondPosition());
+        out.writeInt(this.numberOfDistinctLines);
+        for (int i = 0; i < this.size; ++i) {
+            out.writeInt(this.timestamps[i]);
+            out.writeDouble(this.x[i]);
+            out.writeDouble(this.y[i]);
+            if (hasSecondPosition()) {
+                out.writeDouble(this.x2[i]);
+                out.writeDouble(this.y2[i]);
+            }
+            out.writeInt(this.lineIds[i]);
+        }
+    }
+
+    /**
+     * Writes the event set to an event CSV file (the directory is created if it does not exist).
+     *
+     * @param path      Path to the event CSV file
+     * @param csvHeader Header (without line break)
+     * @throws IOException Thrown if the event CSV file could not be written
+     */
+    public void writeCsvFile(String path, String csvHeader) throws IOException {
+        File file = new File(path);
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        FileWriter fileWriter = new FileWriter(file, false);
+        fileWriter.append(csvHeader).append("\n");
+        for (int i = 0; i < this.size; ++i) {
+            fileWriter.append(getCsvLine(i)).append("\n");
+        }
+        fileWriter.close();
+    }
+
+    /**
+     * Merges the events of this event set (which have to be ordered by timestamp) with the events of another event set into a new event set which is ordered by timestamp.
+     * The merge is stable, i.e., the events of this event set come first for equal timestamps and the order of the events within each event set is kept.
+     *
+     * @param other Other event set (not necessarily ordered by timestamp)
+     * @return Merged event set
+     */
+    public EventSet mergeOrderedByTimestamp(EventSet other) {
+        Integer[] otherOrder = new Integer[other.size];
+        for (int i = 0; i < other.size; ++i) {
+            otherOrder[i] = i;
+        }
+        Arrays.sort(otherOrder, (a, b) -> Integer.compare(other.timestamps[a], other.timestamps[b])); // Stable (merge sort for objects)
+
+        Builder builder = new Builder(hasSecondPosition());
+        int i = 0;
+        int j = 0;
+        while (i < this.size || j < other.size) {
+            if (j == other.size || (i < this.size && this.timestamps[i] <= other.timestamps[otherOrder[j]])) {
+                builder.add(this.timestamps[i], this.x[i], this.y[i], hasSecondPosition() ? this.x2[i] : 0, hasSecondPosition() ? this.y2[i] : 0);
+                i++;
+            } else {
+                int event = otherOrder[j];
+                builder.add(other.timestamps[event], other.x[event], other.y[event], hasSecondPosition() ? other.x2[event] : 0, hasSecondPosition() ? other.y2[event] : 0);
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the CSV line of an event (in the format of the event extractors).
+     *
+     * @param event Position of the event
+     * @return CSV line (without line break)
+     */
+    public String getCsvLine(int event) {
+        return toCsvLine(hasSecondPosition(), this.timestamps[event], this.x[event], this.y[event], hasSecondPosition() ? this.x2[event] : 0, hasSecondPosition() ? this.y2[event] : 0);
+    }
+
+    /**
+     * Returns the number of events.
+     *
+     * @return Number of events
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of distinct lines.
+     *
+     * @return Number of distinct lines
+     */
+    public int getNumberOfDistinctLines() {
+        return this.numberOfDistinctLines;
+    }
+
+    /**
+     * Checks if the events have a second position.
+     *
+     * @return True if the events have a second position, otherwise false
+     */
+    public boolean hasSecondPosition() {
+        return this.x2 != null;
+    }
+
+    /**
+     * Returns the timestamp of an event.
+     *
+     * @param event Position of the event in the file
+     * @return Timestamp (in ms)
+     */
+    public int getTimestamp(int event) {
+        return this.timestamps[event];
+    }
+
+    /**
+     * Returns the x-coordinate of the first position of an event.
+     *
+     * @param event Position of the event in the file
+     * @return X-coordinate
+     */
+    public double getX(int event) {
+        return this.x[event];
+    }
+
+    /**
+     * Returns the y-coordinate of the first position of an event.
+     *
+     * @param event Position of the event in the file
+     * @return Y-coordinate
+     */
+    public double getY(int event) {
+        return this.y[event];
+    }
+
+    /**
+     * Returns the x-coordinate of the second position of an event.
+     *
+     * @param event Position of the event in the file
+     * @return X-coordinate
+     */
+    public double getX2(int event) {
+        return this.x2[event];
+    }
+
+    /**
+     * Returns the y-coordinate of the second position of an event.
+     *
+     * @param event Position of the event in the file
+     * @return Y-coordinate
+     */
+    public double getY2(int event) {
+        return this.y2[event];
+    }
+
+    /**
+     * Returns the identifier of the line of an event.
+     *
+     * @param event Position of the event in the file
+     * @return Line identifier (identical lines have the same identifier)
+     */
+    public int getLineId(int event) {
+        return this.lineIds[event];
+    }
+
+    /**
+     * Creates the CSV line of an event (in the format of the event extractors).
+     *
+     * @param withSecondPosition True if the event has a second position, otherwise false
+     * @param timestamp          Timestamp (in ms)
+     * @param x                  X-coordinate of the first position
+     * @param y                  Y-coordinate of the first position
+     * @param x2                 X-coordinate of the second position (ignored if the event has only one position)
+     * @param y2                 Y-coordinate of the second position (ignored if the event has only one position)
+     * @return CSV line (without line break)
+     */
+    private static String toCsvLine(boolean withSecondPosition, int timestamp, double x, double y, double x2, double y2) {
+        if (withSecondPosition) {
+            return timestamp + "," + x + "," + y + "," + x2 + "," + y2;
+        } else {
+            return timestamp + "," + x + "," + y;
+        }
+    }
+
+    /**
+     * Builder of an event set to which the events are appended in the order of their extraction. Not thread-safe.
+     */
+    public static class Builder {
+
+        /**
+         * Flag which indicates if the events have a second position
+         */
+        private final boolean withSecondPosition;
+
+        /**
+         * Identifier of each distinct line
+         */
+        private final Map<String, Integer> lineIdMap;
+
+        /**
+         * Number of events
+         */
+        private int size;
+
+        /**
+         * Timestamp of each event (in ms)
+         */
+        private int[] timestamps;
+
+        /**
+         * X-coordinate of the first position of each event
+         */
+        private double[] x;
+
+        /**
+         * Y-coordinate of the first position of each event
+         */
+        private double[] y;
+
+        /**
+         * X-coordinate of the second position of each event (null if the events have only one position)
+         */
+        private double[] x2;
+
+        /**
+         * Y-coordinate of the second position of each event (null if the events have only one position)
+         */
+        private double[] y2;
+
+        /**
+         * Identifier of the line of each event
+         */
+        private int[] lineIds;
+
+        /**
+         * Builder constructor.
+         *
+         * @param withSecondPosition True if the events have a second position (e.g., start and end of a pass), otherwise false
+         */
+        public Builder(boolean withSecondPosition) {
+            int initialCapacity = 1024;
+            this.withSecondPosition = withSecondPosition;
+            this.lineIdMap = new HashMap<>();
+            this.size = 0;
+            this.timestamps = new int[initialCapacity];
+            this.x = new double[initialCapacity];
+            this.y = new double[initialCapacity];
+            this.x2 = withSecondPosition ? new double[initialCapacity] : null;
+            this.y2 = withSecondPosition ? new double[initialCapacity] : null;
+            this.lineIds = new int[initialCapacity];
+        }
+
+        /**
+         * Appends an event with one position.
+         *
+         * @param timestamp Timestamp (in ms)
+         * @param x         X-coordinate
+         * @param y         Y-coordinate
+         */
+        public void add(int timestamp, double x, double y) {
+            add(toCsvLine(this.withSecondPosition, timestamp, x, y, 0, 0), timestamp, x, y, 0, 0);
+        }
+
+        /**
+         * Appends an event with two positions.
+         *
+         * @param timestamp Timestamp (in ms)
+         * @param x         X-coordinate of the first position
+         * @param y         Y-coordinate of the first position
+         * @param x2        X-coordinate of the second position
+         * @param y2        Y-coordinate of the second position
+         */
+        public void add(int timestamp, double x, double y, double x2, double y2) {
+            add(toCsvLine(this.withSecondPosition, timestamp, x, y, x2, y2), timestamp, x, y, x2, y2);
+        }
+
+        /**
+         * Returns the number of events.
+         *
+         * @return Number of events
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * Returns the CSV line of the last event which has been appended.
+         *
+         * @return CSV line (without line break)
+         */
+        public String getLastCsvLine() {
+            int last = this.size - 1;
+            return toCsvLine(this.withSecondPosition, this.timestamps[last], this.x[last], this.y[last], this.withSecondPosition ? this.x2[last] : 0, this.withSecondPosition ? this.y2[last] : 0);
+        }
+
+        /**
+         * Builds the event set.
+         *
+         * @return Event set
+         */
+        public EventSet build() {
+            return new EventSet(this.size, Arrays.copyOf(this.timestamps, this.size), Arrays.copyOf(this.x, this.size), Arrays.copyOf(this.y, this.size),
+                    this.withSecondPosition ? Arrays.copyOf(this.x2, this.size) : null, this.withSecondPosition ? Arrays.copyOf(this.y2, this.size) : null,
+                    Arrays.copyOf(this.lineIds, this.size), this.lineIdMap.size());
+        }
+
+        /**
+         * Appends an event.
+         *
+         * @param line      CSV line of the event (identical lines get the same line identifier)
+         * @param timestamp Timestamp (in ms)
+         * @param x         X-coordinate of the first position
+         * @param y         Y-coordinate of the first position
+         * @param x2        X-coordinate of the second position (ignored if the events have only one position)
+         * @param y2        Y-coordinate of the second position (ignored if the events have only one position)
+         */
+        private void add(String line, int timestamp, double x, double y, double x2, double y2) {
+            if (this.size == this.timestamps.length) {
+                int capacity = this.size * 2;
+                this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+                this.x = Arrays.copyOf(this.x, capacity);
+                this.y = Arrays.copyOf(this.y, capacity);
+                if (this.withSecondPosition) {
+                    this.x2 = Arrays.copyOf(this.x2, capacity);
+                    this.y2 = Arrays.copyOf(this.y2, capacity);
+                }
+                this.lineIds = Arrays.copyOf(this.lineIds, capacity);
+            }
+
+            this.timestamps[this.size] = timestamp;
+            this.x[this.size] = x;
+            this.y[this.size] = y;
+            if (this.withSecondPosition) {
+                this.x2[this.size] = x2;
+                this.y2[this.size] = y2;
+            }
+            Integer lineId = this.lineIdMap.get(line);
+            if (lineId == null) {
+                lineId = this.lineIdMap.size();
+                this.lineIdMap.put(line, lineId);
+            }
+            this.lineIds[this.size] = lineId;
+            this.size++;
+        }
+    }
+}
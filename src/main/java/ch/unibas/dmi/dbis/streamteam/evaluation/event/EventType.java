@@ -0,0 +1,125 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.event;
+
+/**
+ * Types of the events which are extracted from StreamTeam-Football and the OPTA dataset and compared by the EventComparer.
+ */
+public enum EventType {
+
+    /**
+     * Interception (position where the ball was intercepted)
+     */
+    INTERCEPTION("interceptionEvent", "ts,endX,endY", false),
+
+    /**
+     * Successful pass (start and end position)
+     */
+    SUCCESSFUL_PASS("successfulPassEvent", "ts,startX,startY,endX,endY", true),
+
+    /**
+     * Free kick (position of the ball)
+     */
+    FREEKICK("freekickEvent", "ts,startX,startY", false),
+
+    /**
+     * Corner kick (position of the ball)
+     */
+    CORNERKICK("cornerkickEvent", "ts,startX,startY", false),
+
+    /**
+     * Throw-in (position of the ball)
+     */
+    THROWIN("throwinEvent", "ts,startX,startY", false),
+
+    /**
+     * Goal kick (position of the ball)
+     */
+    GOALKICK("goalkickEvent", "ts,startX,startY", false);
+
+    /**
+     * Name of the event type (as in the events collection of StreamTeam-Football)
+     */
+    private final String name;
+
+    /**
+     * Header of the event CSV files
+     */
+    private final String csvHeader;
+
+    /**
+     * Flag which indicates if the events have a second position
+     */
+    private final boolean secondPosition;
+
+    /**
+     * EventType constructor.
+     *
+     * @param name           Name of the event type (as in the events collection of StreamTeam-Football)
+     * @param csvHeader      Header of the event CSV files
+     * @param secondPosition Flag which indicates if the events have a second position
+     */
+    EventType(String name, String csvHeader, boolean secondPosition) {
+        this.name = name;
+        this.csvHeader = csvHeader;
+        this.secondPosition = secondPosition;
+    }
+
+    /**
+     * Returns the name of the event type (as in the events collection of StreamTeam-Football).
+     *
+     * @return Name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the header of the event CSV files.
+     *
+     * @return Header (without line break)
+     */
+    public String getCsvHeader() {
+        return this.csvHeader;
+    }
+
+    /**
+     * Returns the name of the event CSV files.
+     *
+     * @return File name
+     */
+    public String getCsvFileName() {
+        return this.name + "s.csv";
+    }
+
+    /**
+     * Checks if the events have a second position.
+     *
+     * @return True if the events have a second position (e.g., start and end of a pass), otherwise false
+     */
+    public boolean hasSecondPosition() {
+        return this.secondPosition;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of a columnar binary latency file (see ColumnarLatencyFileWriter) which maps the file into memory and decodes one block at a time.
+ * The statistics of the footer are available as soon as the reader has been created. Not thread-safe.
+ */
+public class ColumnarLatencyFileReader implements Closeable {
+
+    /**
+     * Path to the latency file
+     */
+    private final String latencyFilePath;
+
+    /**
+     * Channel of the latency file
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * Memory-mapped content of the latency file
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * MatchIds (the position in the array is the matchIndex)
+     */
+    private final String[] matchIds;
+
+    /**
+     * UTF-8 bytes of the matchIds (the position in the array is the matchIndex)
+     */
+    private final byte[][] matchIdBytes;
+
+    /**
+     * Offset of each block
+     */
+    private final long[] blockOffsets;
+
+    /**
+     * Number of lines
+     */
+    private final long lineCount;
+
+    /**
+     * Minimum latency
+     */
+    private final long minLatency;
+
+    /**
+     * Maximum latency
+     */
+    private final long maxLatency;
+
+    /**
+     * Minimum generation timestamp
+     */
+    private final long minGenerationTimestamp;
+
+    /**
+     * Maximum generation timestamp
+     */
+    private final long maxGenerationTimestamp;
+
+    /**
+     * MatchIndex of each line of the current block
+     */
+    private final int[] matchIndexes;
+
+    /**
+     * Generation timestamp of each line of the current block
+     */
+    private final long[] generationTimestamps;
+
+    /**
+     * Latency of each line of the current block
+     */
+    private final long[] latencies;
+
+    /**
+     * Index of the next block
+     */
+    private int nextBlock;
+
+    /**
+     * Number of lines in the current block
+     */
+    private int blockLines;
+
+    /**
+     * Position of the current line in the current block
+     */
+    private int position;
+
+    /**
+     * ColumnarLatencyFileReader constructor. Maps the latency file and reads the footer.
+     *
+     * @param latencyFilePath Path to the latency file
+     * @throws IOException Thrown if the latency file could not be read or is not a columnar latency file
+     */
+    public ColumnarLatencyFileReader(String latencyFilePath) throws IOException {
+        this.latencyFilePath = latencyFilePath;
+        this.fileChannel = FileChannel.open(Paths.get(latencyFilePath), StandardOpenOption.READ);
+        try {
+            long fileSize = this.fileChannel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException(latencyFilePath + " is too large to be mapped.");
+            }
+            this.buffer = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+            if (fileSize < 8 + ColumnarLatencyFileWriter.TRAILER_SIZE || this.buffer.getInt(0) != ColumnarLatencyFileWriter.MAGIC_NUMBER || this.buffer.getInt((int) fileSize - 4) != ColumnarLatencyFileWriter.MAGIC_NUMBER) {
+                throw new IOException(latencyFilePath + " is not a complete columnar latency file.");
+            }
+            int version = this.buffer.getInt(4);
+            if (version != ColumnarLatencyFileWriter.VERSION) {
+                throw new IOException(latencyFilePath + " has the unsupported version " + version + ".");
+            }
+
+            this.buffer.position((int) this.buffer.getLong((int) fileSize - ColumnarLatencyFileWriter.TRAILER_SIZE));
+            int numberOfMatches = (int) getVarint();
+            this.matchIds = new String[numberOfMatches];
+            this.matchIdBytes = new byte[numberOfMatches][];
+            for (int i = 0; i < numberOfMatches; ++i) {
+                this.matchIdBytes[i] = new byte[(int) getVarint()];
+                this.buffer.get(this.matchIdBytes[i]);
+                this.matchIds[i] = new String(this.matchIdBytes[i], StandardCharsets.UTF_8);
+            }
+            int numberOfBlocks = (int) getVarint();
+            this.blockOffsets = new long[numberOfBlocks];
+            for (int i = 0; i < numberOfBlocks; ++i) {
+                this.blockOffsets[i] = getVarint();
+                getVarint(); // Number of lines of the block (also at the start of the block)
+            }
+            this.lineCount = getVarint();
+            this.minLatency = getVarint();
+            this.maxLatency = getVarint();
+            this.minGenerationTimestamp = getVarint();
+            this.maxGenerationTimestamp = getVarint();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            this.fileChannel.close();
+            throw new IOException(latencyFilePath + " has a corrupt footer.", e);
+        } catch (IOException e) {
+            this.fileChannel.close();
+            throw e;
+        }
+
+        this.matchIndexes = new int[ColumnarLatencyFileWriter.BLOCK_SIZE];
+        this.generationTimestamps = new long[ColumnarLatencyFileWriter.BLOCK_SIZE];
+        this.latencies = new long[ColumnarLatencyFileWriter.BLOCK_SIZE];
+        this.nextBlock = 0;
+        this.blockLines = 0;
+        this.position = -1;
+    }
+
+    /**
+     * Moves to the next line.
+     *
+     * @return True if there is a next line, false if the end of the file has been reached
+     * @throws IOException Thrown if a block is corrupt
+     */
+    public boolean next() throws IOException {
+        this.position++;
+        while (this.position >= this.blockLines) {
+            if (this.nextBlock == this.blockOffsets.length) {
+                return false;
+            }
+            readBlock(this.nextBlock++);
+            this.position = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the matchId of the current line.
+     *
+     * @return MatchId
+     */
+    public String getMatchId() {
+        return this.matchIds[this.matchIndexes[this.position]];
+    }
+
+    /**
+     * Returns the UTF-8 bytes of the matchId of the current line (must not be modified).
+     *
+     * @return UTF-8 bytes of the matchId
+     */
+    public byte[] getMatchIdBytes() {
+        return this.matchIdBytes[this.matchIndexes[this.position]];
+    }
+
+    /**
+     * Returns the generation timestamp of the current line.
+     *
+     * @return Generation timestamp
+     */
+    public long getGenerationTimestamp() {
+        return this.generationTimestamps[this.position];
+    }
+
+    /**
+     * Returns the latency of the current line.
+     *
+     * @return Latency in ms
+     */
+    public long getLatency() {
+        return this.latencies[this.position];
+    }
+
+    /**
+     * Returns the number of lines of the file.
+     *
+     * @return Number of lines
+     */
+    public long getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * Returns the minimum latency of the file.
+     *
+     * @return Minimum latency in ms (Long.MAX_VALUE if the file is empty)
+     */
+    public long getMinLatency() {
+        return this.minLatency;
+    }
+
+    /**
+     * Returns the maximum latency of the file.
+     *
+     * @return Maximum latency in ms (Long.MIN_VALUE if the file is empty)
+     */
+    public long getMaxLatency() {
+        return this.maxLatency;
+    }
+
+    /**
+     * Returns the minimum generation timestamp of the file.
+     *
+     * @return Minimum generation timestamp (Long.MAX_VALUE if the file is empty)
+     */
+    public long getMinGenerationTimestamp() {
+        return this.minGenerationTimestamp;
+    }
+
+    /**
+     * Returns the maximum generation timestamp of the file.
+     *
+     * @return Maximum generation timestamp (Long.MIN_VALUE if the file is empty)
+     */
+    public long getMaxGenerationTimestamp() {
+        return this.maxGenerationTimestamp;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.fileChannel.close();
+    }
+
+    /**
+     * Decodes a block.
+     *
+     * @param blockIndex Index of the block
+     * @throws IOException Thrown if the block is corrupt
+     */
+    private void readBlock(int blockIndex) throws IOException {
+        try {
+            this.buffer.position((int) this.blockOffsets[blockIndex]);
+            this.blockLines = (int) getVarint();
+            if (this.blockLines < 0 || this.blockLines > ColumnarLatencyFileWriter.BLOCK_SIZE) {
+                throw new IOException(this.latencyFilePath + " contains a block with " + this.blockLines + " lines.");
+            }
+
+            int line = 0;
+            while (line < this.blockLines) {
+                int matchIndex = (int) getVarint();
+                int runLength = (int) getVarint();
+                if (matchIndex < 0 || matchIndex >= this.matchIds.length || runLength <= 0 || line + runLength > this.blockLines) {
+                    throw new IOException(this.latencyFilePath + " contains a corrupt matchIndex column in block " + blockIndex + ".");
+                }
+                for (int i = 0; i < runLength; ++i) {
+                    this.matchIndexes[line++] = matchIndex;
+                }
+            }
+
+            long generationTimestamp = 0;
+            for (int i = 0; i < this.blockLines; ++i) {
+                generationTimestamp += getVarint();
+                this.generationTimestamps[i] = generationTimestamp;
+            }
+
+            for (int i = 0; i < this.blockLines; ++i) {
+                this.latencies[i] = getVarint();
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(this.latencyFilePath + " contains a truncated block " + blockIndex + ".", e);
+        }
+    }
+
+    /**
+     * Reads a zigzag-encoded varint at the current position of the buffer.
+     *
+     * @return Value
+     * @throws IOException Thrown if the varint is longer than 10 bytes
+     */
+    private long getVarint() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = this.buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException(this.latencyFilePath + " contains a malformed varint.");
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writer of a columnar binary latency file.
+ * <p>
+ * Format: The file starts with the magic number and the format version (big-endian ints) and is followed by blocks of up to BLOCK_SIZE lines.
+ * Each block contains the number of lines and three columns: the matchIndex column (runs of matchIndex and run length), the generation timestamp column (first value and then the differences to the previous value), and the latency column.
+ * All numbers in the blocks are zigzag-encoded varints. The footer contains the matchIds (the position is the matchIndex), the offset and number of lines of each block, and the number of lines as well as the minimum and maximum latency and generation timestamp of the file.
+ * The file ends with the offset of the footer (big-endian long) and the magic number. The ColumnarLatencyFileReader reads these files via a memory-mapped buffer.
+ */
+public class ColumnarLatencyFileWriter implements LatencyFileWriter {
+
+    /**
+     * Magic number at the start and the end of each columnar latency file ("STLC")
+     */
+    public static final int MAGIC_NUMBER = 0x53544C43;
+
+    /**
+     * Version of the columnar latency file format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Maximum number of lines per block
+     */
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Size of the trailer (footer offset and magic number) in bytes
+     */
+    public static final int TRAILER_SIZE = 12;
+
+    /**
+     * Output stream of the latency file
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * Dictionary of the matchIds
+     */
+    private final MatchIdDictionary matchIdDictionary;
+
+    /**
+     * MatchIndex of each line of the current block
+     */
+    private final int[] matchIndexes;
+
+    /**
+     * Generation timestamp of each line of the current block
+     */
+    private final long[] generationTimestamps;
+
+    /**
+     * Latency of each line of the current block
+     */
+    private final long[] latencies;
+
+    /**
+     * Number of lines in the current block
+     */
+    private int blockLines;
+
+    /**
+     * Buffer in which a block is encoded
+     */
+    private byte[] encodeBuffer;
+
+    /**
+     * Number of bytes in the encode buffer
+     */
+    private int encodeBufferSize;
+
+    /**
+     * Offset of each block which has been written
+     */
+    private long[] blockOffsets;
+
+    /**
+     * Number of lines of each block which has been written
+     */
+    private int[] blockLineCounts;
+
+    /**
+     * Number of blocks which have been written
+     */
+    private int numberOfBlocks;
+
+    /**
+     * Number of bytes which have been written
+     */
+    private long fileOffset;
+
+    /**
+     * Number of lines
+     */
+    private long lineCount;
+
+    /**
+     * Minimum latency
+     */
+    private long minLatency;
+
+    /**
+     * Maximum latency
+     */
+    private long maxLatency;
+
+    /**
+     * Minimum generation timestamp
+     */
+    private long minGenerationTimestamp;
+
+    /**
+     * Maximum generation timestamp
+     */
+    private long maxGenerationTimestamp;
+
+    /**
+     * ColumnarLatencyFileWriter constructor. Creates the latency file and writes the header.
+     *
+     * @param latencyFilePath Path to the latency file
+     * @throws IOException Thrown if the latency file could not be created
+     */
+    public ColumnarLatencyFileWriter(String latencyFilePath) throws IOException {
+        this.outputStream = new BufferedOutputStream(new FileOutputStream(latencyFilePath, false), 1 << 16);
+        this.matchIdDictionary = new MatchIdDictionary();
+        this.matchIndexes = new int[BLOCK_SIZE];
+        this.generationTimestamps = new long[BLOCK_SIZE];
+        this.latencies = new long[BLOCK_SIZE];
+        this.blockLines = 0;
+        this.encodeBuffer = new byte[BLOCK_SIZE * 4];
+        this.encodeBufferSize = 0;
+        this.blockOffsets = new long[16];
+        this.blockLineCounts = new int[16];
+        this.numberOfBlocks = 0;
+        this.fileOffset = 0;
+        this.lineCount = 0;
+        this.minLatency = Long.MAX_VALUE;
+        this.maxLatency = Long.MIN_VALUE;
+        this.minGenerationTimestamp = Long.MAX_VALUE;
+        this.maxGenerationTimestamp = Long.MIN_VALUE;
+
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC_NUMBER);
+        header.putInt(VERSION);
+        write(header.array(), 8);
+    }
+
+    @Override
+    public void appendLine(byte[] buffer, int matchIdStart, int matchIdEnd, long generationTimestamp, long latency) throws IOException {
+        this.matchIndexes[this.blockLines] = this.matchIdDictionary.getOrAddMatchIndex(buffer, matchIdStart, matchIdEnd);
+        this.generationTimestamps[this.blockLines] = generationTimestamp;
+        this.latencies[this.blockLines] = latency;
+        this.blockLines++;
+
+        this.lineCount++;
+        this.minLatency = Math.min(this.minLatency, latency);
+        this.maxLatency = Math.max(this.maxLatency, latency);
+        this.minGenerationTimestamp = Math.min(this.minGenerationTimestamp, generationTimestamp);
+        this.maxGenerationTimestamp = Math.max(this.maxGenerationTimestamp, generationTimestamp);
+
+        if (this.blockLines == BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.blockLines > 0) {
+            writeBlock();
+        }
+
+        long footerOffset = this.fileOffset;
+        this.encodeBufferSize = 0;
+        putVarint(this.matchIdDictionary.size());
+        for (int i = 0; i < this.matchIdDictionary.size(); ++i) {
+            byte[] matchIdBytes = this.matchIdDictionary.getMatchIdBytes(i);
+            putVarint(matchIdBytes.length);
+            ensureCapacity(matchIdBytes.length);
+            System.arraycopy(matchIdBytes, 0, this.encodeBuffer, this.encodeBufferSize, matchIdBytes.length);
+            this.encodeBufferSize += matchIdBytes.length;
+        }
+        putVarint(this.numberOfBlocks);
+        for (int i = 0; i < this.numberOfBlocks; ++i) {
+            putVarint(this.blockOffsets[i]);
+            putVarint(this.blockLineCounts[i]);
+        }
+        putVarint(this.lineCount);
+        putVarint(this.minLatency);
+        putVarint(this.maxLatency);
+        putVarint(this.minGenerationTimestamp);
+        putVarint(this.maxGenerationTimestamp);
+        write(this.encodeBuffer, this.encodeBufferSize);
+
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        trailer.putLong(footerOffset);
+        trailer.putInt(MAGIC_NUMBER);
+        write(trailer.array(), TRAILER_SIZE);
+
+        this.outputStream.close();
+    }
+
+    /**
+     * Encodes and writes the current block.
+     *
+     * @throws IOException Thrown if the block could not be written
+     */
+    private void writeBlock() throws IOException {
+        if (this.numberOfBlocks == this.blockOffsets.length) {
+            this.blockOffsets = Arrays.copyOf(this.blockOffsets, this.numberOfBlocks * 2);
+            this.blockLineCounts = Arrays.copyOf(this.blockLineCounts, this.numberOfBlocks * 2);
+        }
+        this.blockOffsets[this.numberOfBlocks] = this.fileOffset;
+        this.blockLineCounts[this.numberOfBlocks] = this.blockLines;
+        this.numberOfBlocks++;
+
+        this.encodeBufferSize = 0;
+        putVarint(this.blockLines);
+
+        // matchIndex column (run-length encoded since most consecutive lines belong to the same match)
+        int runStart = 0;
+        for (int i = 1; i <= this.blockLines; ++i) {
+            if (i == this.blockLines || this.matchIndexes[i] != this.matchIndexes[runStart]) {
+                putVarint(this.matchIndexes[runStart]);
+                putVarint(i - runStart);
+                runStart = i;
+            }
+        }
+
+        // generation timestamp column (delta-encoded)
+        long previousGenerationTimestamp = 0;
+        for (int i = 0; i < this.blockLines; ++i) {
+            putVarint(this.generationTimestamps[i] - previousGenerationTimestamp);
+            previousGenerationTimestamp = this.generationTimestamps[i];
+        }
+
+        // latency column
+        for (int i = 0; i < this.blockLines; ++i) {
+            putVarint(this.latencies[i]);
+        }
+
+        write(this.encodeBuffer, this.encodeBufferSize);
+        this.blockLines = 0;
+    }
+
+    /**
+     * Appends a zigzag-encoded varint to the encode buffer.
+     *
+     * @param value Value
+     */
+    private void putVarint(long value) {
+        ensureCapacity(10);
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            this.encodeBuffer[this.encodeBufferSize++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        this.encodeBuffer[this.encodeBufferSize++] = (byte) zigzag;
+    }
+
+    /**
+     * Grows the encode buffer if it does not have enough remaining space.
+     *
+     * @param numberOfBytes Number of bytes which will be appended
+     */
+    private void ensureCapacity(int numberOfBytes) {
+        if (this.encodeBufferSize + numberOfBytes > this.encodeBuffer.length) {
+            this.encodeBuffer = Arrays.copyOf(this.encodeBuffer, Math.max(this.encodeBuffer.length * 2, this.encodeBufferSize + numberOfBytes));
+        }
+    }
+
+    /**
+     * Writes bytes to the latency file.
+     *
+     * @param bytes         Bytes
+     * @param numberOfBytes Number of bytes
+     * @throws IOException Thrown if the bytes could not be written
+     */
+    private void write(byte[] bytes, int numberOfBytes) throws IOException {
+        this.outputStream.write(bytes, 0, numberOfBytes);
+        this.fileOffset += numberOfBytes;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writer of a latency CSV file (matchId,generationTimestamp,latencyInMs).
+ */
+public class CsvLatencyFileWriter implements LatencyFileWriter {
+
+    /**
+     * Number of bytes which are collected before they are written to the latency file
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Output stream of the latency file
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * Buffer in which the lines are collected
+     */
+    private final LatencyOutputBuffer outputBuffer;
+
+    /**
+     * CsvLatencyFileWriter constructor. Creates the latency file and writes the header.
+     *
+     * @param latencyFilePath Path to the latency file
+     * @throws IOException Thrown if the latency file could not be created
+     */
+    public CsvLatencyFileWriter(String latencyFilePath) throws IOException {
+        this.outputStream = new FileOutputStream(latencyFilePath, false);
+        this.outputStream.write(LatencyOutputBuffer.HEADER);
+        this.outputBuffer = new LatencyOutputBuffer(OUTPUT_BUFFER_SIZE);
+    }
+
+    @Override
+    public void appendLine(byte[] buffer, int matchIdStart, int matchIdEnd, long generationTimestamp, long latency) throws IOException {
+        this.outputBuffer.appendLine(buffer, matchIdStart, matchIdEnd, generationTimestamp, latency);
+        if (this.outputBuffer.size() >= OUTPUT_BUFFER_SIZE) {
+            this.outputBuffer.writeTo(this.outputStream);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.outputBuffer.writeTo(this.outputStream);
+        this.outputStream.close();
+    }
+}
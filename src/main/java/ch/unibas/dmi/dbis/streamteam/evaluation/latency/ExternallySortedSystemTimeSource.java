@@ -0,0 +1,195 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source which sorts a system time file of arbitrary order with an external merge sort.
+ * The file is split into sorted runs (sort key and system time as two longs per line) which are written to temporary files and merged when the lines are read.
+ */
+public class ExternallySortedSystemTimeSource implements SystemTimeSource {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ExternallySortedSystemTimeSource.class);
+
+    /**
+     * Size of the buffer of each run file in bytes
+     */
+    private static final int RUN_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Run files
+     */
+    private final List<File> runFiles;
+
+    /**
+     * Input streams of the run files
+     */
+    private final DataInputStream[] runInputStreams;
+
+    /**
+     * System time of the next line of each run
+     */
+    private final long[] runSystemTimes;
+
+    /**
+     * Heap containing the sort key and the run index of the next line of each run which is not exhausted
+     */
+    private final LongPairHeap mergeHeap;
+
+    /**
+     * Sort key of the current line
+     */
+    private long sortKey;
+
+    /**
+     * System time of the current line
+     */
+    private long systemTime;
+
+    /**
+     * ExternallySortedSystemTimeSource constructor. Reads the complete system time file and writes the sorted runs.
+     *
+     * @param filePath          Path to the system time file
+     * @param matchIdDictionary Dictionary of the matchIds (shared by all sources which are joined)
+     * @param runSize           Number of lines per run
+     * @throws IOException Thrown if the system time file could not be read properly or a run file could not be written
+     */
+    public ExternallySortedSystemTimeSource(String filePath, MatchIdDictionary matchIdDictionary, int runSize) throws IOException {
+        this.runFiles = new ArrayList<>();
+        LongPairHeap runHeap = new LongPairHeap(runSize);
+        SystemTimeCsvReader reader = new SystemTimeCsvReader(filePath);
+        try {
+            while (reader.next()) {
+                long lineSortKey = reader.getSortKey(matchIdDictionary);
+                if (lineSortKey < 0) {
+                    logger.error("Skipped line in {} with the generation timestamp {} which is out of range.", filePath, reader.getGenerationTimestamp());
+                    continue;
+                }
+                runHeap.push(lineSortKey, reader.getSystemTime());
+                if (runHeap.size() == runHeap.capacity()) {
+                    writeRun(runHeap);
+                }
+            }
+            if (runHeap.size() > 0) {
+                writeRun(runHeap);
+            }
+        } catch (IOException e) {
+            deleteRunFiles();
+            throw e;
+        } finally {
+            reader.close();
+        }
+        logger.info("Sorted {} into {} runs.", filePath, this.runFiles.size());
+
+        this.runInputStreams = new DataInputStream[this.runFiles.size()];
+        this.runSystemTimes = new long[this.runFiles.size()];
+        this.mergeHeap = new LongPairHeap(Math.max(1, this.runFiles.size()));
+        for (int i = 0; i < this.runFiles.size(); ++i) {
+            this.runInputStreams[i] = new DataInputStream(new BufferedInputStream(new FileInputStream(this.runFiles.get(i)), RUN_BUFFER_SIZE));
+            readNextLineOfRun(i);
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (this.mergeHeap.size() == 0) {
+            return false;
+        }
+        this.sortKey = this.mergeHeap.peekKey();
+        int runIndex = (int) this.mergeHeap.peekValue();
+        this.systemTime = this.runSystemTimes[runIndex];
+        this.mergeHeap.pop();
+        readNextLineOfRun(runIndex);
+        return true;
+    }
+
+    @Override
+    public long getSortKey() {
+        return this.sortKey;
+    }
+
+    @Override
+    public long getSystemTime() {
+        return this.systemTime;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataInputStream runInputStream : this.runInputStreams) {
+            runInputStream.close();
+        }
+        deleteRunFiles();
+    }
+
+    /**
+     * Writes the content of the heap as a sorted run to a temporary file and empties the heap.
+     *
+     * @param runHeap Heap containing the lines of the run
+     * @throws IOException Thrown if the run file could not be written
+     */
+    private void writeRun(LongPairHeap runHeap) throws IOException {
+        File runFile = File.createTempFile("latencyCalculatorRun", ".bin");
+        runFile.deleteOnExit();
+        this.runFiles.add(runFile);
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), RUN_BUFFER_SIZE));
+        while (runHeap.size() > 0) {
+            outputStream.writeLong(runHeap.peekKey());
+            outputStream.writeLong(runHeap.peekValue());
+            runHeap.pop();
+        }
+        outputStream.close();
+    }
+
+    /**
+     * Reads the next line of a run and adds it to the merge heap (if the run is not exhausted).
+     *
+     * @param runIndex Index of the run
+     * @throws IOException Thrown if the run file could not be read
+     */
+    private void readNextLineOfRun(int runIndex) throws IOException {
+        long lineSortKey;
+        try {
+            lineSortKey = this.runInputStreams[runIndex].readLong();
+        } catch (EOFException e) {
+            return;
+        }
+        this.runSystemTimes[runIndex] = this.runInputStreams[runIndex].readLong();
+        this.mergeHeap.push(lineSortKey, runIndex);
+    }
+
+    /**
+     * Deletes the run files.
+     */
+    private void deleteRunFiles() {
+        for (File runFile : this.runFiles) {
+            if (!runFile.delete()) {
+                logger.debug("Unable to delete {}.", runFile);
+            }
+        }
+    }
+}
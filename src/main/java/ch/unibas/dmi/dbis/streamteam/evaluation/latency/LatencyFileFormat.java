@@ -0,0 +1,76 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.IOException;
+
+/**
+ * Format of the latency files.
+ */
+public enum LatencyFileFormat {
+
+    /**
+     * Text format with one matchId,generationTimestamp,latencyInMs line per latency
+     */
+    CSV("csv"),
+
+    /**
+     * Compact columnar binary format (see ColumnarLatencyFileWriter)
+     */
+    COLUMNAR("lat");
+
+    /**
+     * File name extension of the latency files
+     */
+    private final String fileExtension;
+
+    /**
+     * LatencyFileFormat constructor.
+     *
+     * @param fileExtension File name extension of the latency files
+     */
+    LatencyFileFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Returns the file name extension of the latency files (without dot).
+     *
+     * @return File name extension
+     */
+    public String getFileExtension() {
+        return this.fileExtension;
+    }
+
+    /**
+     * Creates a latency file and returns its writer.
+     *
+     * @param latencyFilePath Path to the latency file
+     * @return Writer of the latency file
+     * @throws IOException Thrown if the latency file could not be created
+     */
+    public LatencyFileWriter openWriter(String latencyFilePath) throws IOException {
+        if (this == COLUMNAR) {
+            return new ColumnarLatencyFileWriter(latencyFilePath);
+        } else {
+            return new CsvLatencyFileWriter(latencyFilePath);
+        }
+    }
+}
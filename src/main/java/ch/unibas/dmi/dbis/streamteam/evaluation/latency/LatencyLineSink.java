@@ -0,0 +1,40 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.IOException;
+
+/**
+ * Sink to which the lines of a latency file (matchId, generation timestamp, and latency) are appended.
+ */
+public interface LatencyLineSink {
+
+    /**
+     * Appends a line of a latency file.
+     *
+     * @param buffer              Buffer containing the UTF-8 bytes of the matchId
+     * @param matchIdStart        Start of the matchId
+     * @param matchIdEnd          End of the matchId (exclusive)
+     * @param generationTimestamp Generation timestamp
+     * @param latency             Latency in ms
+     * @throws IOException Thrown if the line could not be written
+     */
+    void appendLine(byte[] buffer, int matchIdStart, int matchIdEnd, long generationTimestamp, long latency) throws IOException;
+}
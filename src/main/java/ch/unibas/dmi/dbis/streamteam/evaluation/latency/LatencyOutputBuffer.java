@@ -0,0 +1,150 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer to which the lines of a latency file (matchId,generationTimestamp,latencyInMs) are appended without creating any String objects. Not thread-safe.
+ */
+public class LatencyOutputBuffer implements LatencyLineSink {
+
+    /**
+     * Header of the latency files
+     */
+    public static final byte[] HEADER = "matchId,generationTimestamp,latencyInMs\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Maximum number of characters of a long (including the sign)
+     */
+    private static final int MAX_LONG_LENGTH = 20;
+
+    /**
+     * Buffer
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of bytes in the buffer
+     */
+    private int size;
+
+    /**
+     * LatencyOutputBuffer constructor.
+     *
+     * @param initialCapacity Initial capacity in bytes
+     */
+    public LatencyOutputBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(initialCapacity, 64)];
+        this.size = 0;
+    }
+
+    /**
+     * Appends a line of a latency file.
+     *
+     * @param buffer              Buffer containing the UTF-8 bytes of the matchId
+     * @param matchIdStart        Start of the matchId
+     * @param matchIdEnd          End of the matchId (exclusive)
+     * @param generationTimestamp Generation timestamp
+     * @param latency             Latency in ms
+     */
+    @Override
+    public void appendLine(byte[] buffer, int matchIdStart, int matchIdEnd, long generationTimestamp, long latency) {
+        int matchIdLength = matchIdEnd - matchIdStart;
+        ensureCapacity(matchIdLength + 2 * MAX_LONG_LENGTH + 3); // 2 commas and the line break
+        System.arraycopy(buffer, matchIdStart, this.bytes, this.size, matchIdLength);
+        this.size += matchIdLength;
+        this.bytes[this.size++] = ',';
+        appendLong(generationTimestamp);
+        this.bytes[this.size++] = ',';
+        appendLong(latency);
+        this.bytes[this.size++] = '\n';
+    }
+
+    /**
+     * Returns the number of bytes in the buffer.
+     *
+     * @return Number of bytes
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Writes the content of the buffer to an output stream and clears the buffer.
+     *
+     * @param outputStream Output stream
+     * @throws IOException Thrown if the content could not be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(this.bytes, 0, this.size);
+        this.size = 0;
+    }
+
+    /**
+     * Returns a ByteBuffer which wraps the content of the buffer (without copying it).
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(this.bytes, 0, this.size);
+    }
+
+    /**
+     * Appends the decimal representation of a number.
+     *
+     * @param value Number
+     */
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) { // Cannot be negated
+            byte[] valueBytes = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(valueBytes, 0, this.bytes, this.size, valueBytes.length);
+            this.size += valueBytes.length;
+            return;
+        }
+        if (value < 0) {
+            this.bytes[this.size++] = '-';
+            value = -value;
+        }
+        int numberOfDigits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            numberOfDigits++;
+        }
+        for (int i = this.size + numberOfDigits - 1; i >= this.size; --i) {
+            this.bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.size += numberOfDigits;
+    }
+
+    /**
+     * Grows the buffer if it does not have enough remaining space.
+     *
+     * @param numberOfBytes Number of bytes which will be appended
+     */
+    private void ensureCapacity(int numberOfBytes) {
+        if (this.size + numberOfBytes > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + numberOfBytes));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Growable batch of latency file lines stored in primitive arrays whose matchIds refer to a shared, read-only MatchIdDictionary. Not thread-safe.
+ */
+public class LatencyRows implements LatencyLineSink {
+
+    /**
+     * Dictionary of the matchIds (must contain all matchIds which are appended)
+     */
+    private final MatchIdDictionary matchIdDictionary;
+
+    /**
+     * MatchIndex of each line
+     */
+    private int[] matchIndexes;
+
+    /**
+     * Generation timestamp of each line
+     */
+    private long[] generationTimestamps;
+
+    /**
+     * Latency of each line
+     */
+    private long[] latencies;
+
+    /**
+     * Number of lines
+     */
+    private int size;
+
+    /**
+     * LatencyRows constructor.
+     *
+     * @param matchIdDictionary Dictionary of the matchIds (must contain all matchIds which are appended)
+     * @param initialCapacity   Initial number of lines
+     */
+    public LatencyRows(MatchIdDictionary matchIdDictionary, int initialCapacity) {
+        this.matchIdDictionary = matchIdDictionary;
+        this.matchIndexes = new int[Math.max(initialCapacity, 16)];
+        this.generationTimestamps = new long[this.matchIndexes.length];
+        this.latencies = new long[this.matchIndexes.length];
+        this.size = 0;
+    }
+
+    @Override
+    public void appendLine(byte[] buffer, int matchIdStart, int matchIdEnd, long generationTimestamp, long latency) {
+        int matchIndex = this.matchIdDictionary.getMatchIndex(buffer, matchIdStart, matchIdEnd, this.size > 0 ? this.matchIndexes[this.size - 1] : -1);
+        if (matchIndex < 0) {
+            throw new IllegalArgumentException("The matchId is not in the dictionary.");
+        }
+        if (this.size == this.matchIndexes.length) {
+            this.matchIndexes = Arrays.copyOf(this.matchIndexes, this.size * 2);
+            this.generationTimestamps = Arrays.copyOf(this.generationTimestamps, this.size * 2);
+            this.latencies = Arrays.copyOf(this.latencies, this.size * 2);
+        }
+        this.matchIndexes[this.size] = matchIndex;
+        this.generationTimestamps[this.size] = generationTimestamp;
+        this.latencies[this.size] = latency;
+        this.size++;
+    }
+
+    /**
+     * Appends all lines to another sink.
+     *
+     * @param sink Sink
+     * @throws IOException Thrown if a line could not be written
+     */
+    public void writeTo(LatencyLineSink sink) throws IOException {
+        for (int i = 0; i < this.size; ++i) {
+            byte[] matchIdBytes = this.matchIdDictionary.getMatchIdBytes(this.matchIndexes[i]);
+            sink.appendLine(matchIdBytes, 0, matchIdBytes.length, this.generationTimestamps[i], this.latencies[i]);
+        }
+    }
+
+    /**
+     * Returns the number of lines.
+     *
+     * @return Number of lines
+     */
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+/**
+ * Accumulator which calculates the latency statistics of a data stream in a single pass: the mean and the (population) variance with Welford's algorithm and the quantiles with high dynamic range histograms.
+ * Negative latencies (e.g., due to unsynchronized clocks) are recorded in a separate histogram of their absolute values. Latencies up to 2047 ms are exact, larger ones have a relative error of at most 0.1%.
+ * The percentiles are interpolated linearly between the two closest ranks like numpy.percentile. Not thread-safe.
+ */
+public class LatencySummary {
+
+    /**
+     * Number of significant value digits of the histograms
+     */
+    private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+
+    /**
+     * Histogram of the non-negative latencies (auto-resizing)
+     */
+    private final Histogram nonNegativeHistogram;
+
+    /**
+     * Histogram of the absolute values of the negative latencies (auto-resizing)
+     */
+    private final Histogram negativeHistogram;
+
+    /**
+     * Number of latencies
+     */
+    private long count;
+
+    /**
+     * Mean of the latencies
+     */
+    private double mean;
+
+    /**
+     * Sum of the squared differences from the mean (Welford)
+     */
+    private double m2;
+
+    /**
+     * LatencySummary constructor.
+     */
+    public LatencySummary() {
+        this.nonNegativeHistogram = new Histogram(NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+        this.negativeHistogram = new Histogram(NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+        this.count = 0;
+        this.mean = 0.0;
+        this.m2 = 0.0;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param latency Latency in ms
+     */
+    public void record(long latency) {
+        // https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Welford's_online_algorithm
+        this.count++;
+        double delta = latency - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (latency - this.mean);
+
+        if (latency >= 0) {
+            this.nonNegativeHistogram.recordValue(latency);
+        } else {
+            this.negativeHistogram.recordValue(latency == Long.MIN_VALUE ? Long.MAX_VALUE : -latency);
+        }
+    }
+
+    /**
+     * Returns the number of latencies.
+     *
+     * @return Number of latencies
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the mean of the latencies.
+     *
+     * @return Mean in ms (NaN if there is no latency)
+     */
+    public double getMean() {
+        return this.count == 0 ? Double.NaN : this.mean;
+    }
+
+    /**
+     * Returns the population variance of the latencies (as numpy.var).
+     *
+     * @return Variance (NaN if there is no latency)
+     */
+    public double getVariance() {
+        return this.count == 0 ? Double.NaN : this.m2 / this.count;
+    }
+
+    /**
+     * Returns the population standard deviation of the latencies (as numpy.std).
+     *
+     * @return Standard deviation in ms (NaN if there is no latency)
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns a percentile of the latencies (linear interpolation as numpy.percentile).
+     *
+     * @param percentile Percentile (between 0 and 100)
+     * @return Percentile in ms (NaN if there is no latency)
+     */
+    public double getPercentile(double percentile) {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        double rank = (this.count - 1) * percentile / 100.0;
+        long lowerRank = (long) Math.floor(rank);
+        long upperRank = (long) Math.ceil(rank);
+        double lowerValue = getValueAtRank(lowerRank);
+        if (upperRank == lowerRank) {
+            return lowerValue;
+        }
+        return lowerValue + (getValueAtRank(upperRank) - lowerValue) * (rank - lowerRank);
+    }
+
+    /**
+     * Returns the latency at a rank in the sorted latencies.
+     *
+     * @param rank Rank (starting with 0)
+     * @return Latency in ms
+     */
+    private long getValueAtRank(long rank) {
+        long negativeCount = this.negativeHistogram.getTotalCount();
+        if (rank < negativeCount) {
+            return -getValueAtRank(this.negativeHistogram, negativeCount - 1 - rank);
+        } else {
+            return getValueAtRank(this.nonNegativeHistogram, rank - negativeCount);
+        }
+    }
+
+    /**
+     * Returns the value at a rank in the sorted values of a histogram.
+     *
+     * @param histogram Histogram
+     * @param rank      Rank (starting with 0)
+     * @return Median equivalent value of the bucket containing the rank
+     */
+    private static long getValueAtRank(Histogram histogram, long rank) {
+        long cumulativeCount = 0;
+        long value = 0;
+        for (HistogramIterationValue iterationValue : histogram.recordedValues()) {
+            cumulativeCount += iterationValue.getCountAddedInThisIterationStep();
+            value = iterationValue.getValueIteratedTo();
+            if (cumulativeCount > rank) {
+                break;
+            }
+        }
+        return histogram.medianEquivalentValue(value);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+/**
+ * Binary min-heap with a fixed capacity which contains pairs of a key and a value (ordered by the key and then by the value) stored in primitive arrays. Not thread-safe.
+ */
+public class LongPairHeap {
+
+    /**
+     * Keys
+     */
+    private final long[] keys;
+
+    /**
+     * Values
+     */
+    private final long[] values;
+
+    /**
+     * Number of pairs in the heap
+     */
+    private int size;
+
+    /**
+     * LongPairHeap constructor.
+     *
+     * @param capacity Maximum number of pairs
+     */
+    public LongPairHeap(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a pair.
+     *
+     * @param key   Key
+     * @param value Value
+     */
+    public void push(long key, long value) {
+        if (this.size == this.keys.length) {
+            throw new IllegalStateException("The heap is full.");
+        }
+        int position = this.size++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isLess(key, value, this.keys[parent], this.values[parent])) {
+                break;
+            }
+            this.keys[position] = this.keys[parent];
+            this.values[position] = this.values[parent];
+            position = parent;
+        }
+        this.keys[position] = key;
+        this.values[position] = value;
+    }
+
+    /**
+     * Removes the smallest pair (which can be read with peekKey and peekValue before).
+     */
+    public void pop() {
+        if (this.size == 0) {
+            throw new IllegalStateException("The heap is empty.");
+        }
+        long key = this.keys[--this.size];
+        long value = this.values[this.size];
+        int position = 0;
+        int half = this.size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < this.size && isLess(this.keys[child + 1], this.values[child + 1], this.keys[child], this.values[child])) {
+                child++;
+            }
+            if (!isLess(this.keys[child], this.values[child], key, value)) {
+                break;
+            }
+            this.keys[position] = this.keys[child];
+            this.values[position] = this.values[child];
+            position = child;
+        }
+        if (this.size > 0) {
+            this.keys[position] = key;
+            this.values[position] = value;
+        }
+    }
+
+    /**
+     * Returns the key of the smallest pair.
+     *
+     * @return Key
+     */
+    public long peekKey() {
+        return this.keys[0];
+    }
+
+    /**
+     * Returns the value of the smallest pair.
+     *
+     * @return Value
+     */
+    public long peekValue() {
+        return this.values[0];
+    }
+
+    /**
+     * Returns the number of pairs in the heap.
+     *
+     * @return Number of pairs
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the maximum number of pairs.
+     *
+     * @return Capacity
+     */
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * Checks if a pair is smaller than another pair.
+     *
+     * @param key1   Key of the first pair
+     * @param value1 Value of the first pair
+     * @param key2   Key of the second pair
+     * @param value2 Value of the second pair
+     * @return True if the first pair is smaller, otherwise false
+     */
+    private static boolean isLess(long key1, long value1, long key2, long value2) {
+        return key1 < key2 || (key1 == key2 && value1 < value2);
+    }
+}
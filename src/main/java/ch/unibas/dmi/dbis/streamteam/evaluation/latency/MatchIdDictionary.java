@@ -0,0 +1,197 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary which assigns a small integer (matchIndex) to each matchId in the order in which the matchIds are added.
+ * The number of matches is small, hence the lookup is a linear scan which first checks the matchIndex of the last lookup (most consecutive lines belong to the same match).
+ * Not thread-safe, but getMatchIndex with a hint only reads the dictionary and can therefore be called concurrently once all matchIds have been added.
+ */
+public class MatchIdDictionary {
+
+    /**
+     * Maximum number of matchIds
+     */
+    public static final int MAX_NUMBER_OF_MATCHES = 1 << 15;
+
+    /**
+     * UTF-8 bytes of the matchIds (the position in the array is the matchIndex)
+     */
+    private byte[][] matchIdBytes;
+
+    /**
+     * MatchIds (the position in the array is the matchIndex)
+     */
+    private String[] matchIds;
+
+    /**
+     * Number of matchIds in the dictionary
+     */
+    private int numberOfMatches;
+
+    /**
+     * MatchIndex of the last matchId which has been looked up
+     */
+    private int lastMatchIndex;
+
+    /**
+     * MatchIdDictionary constructor.
+     */
+    public MatchIdDictionary() {
+        this.matchIdBytes = new byte[4][];
+        this.matchIds = new String[4];
+        this.numberOfMatches = 0;
+        this.lastMatchIndex = -1;
+    }
+
+    /**
+     * Returns the matchIndex of a matchId and adds the matchId to the dictionary if it is new.
+     *
+     * @param buffer Buffer containing the UTF-8 bytes of the matchId
+     * @param start  Start of the matchId
+     * @param end    End of the matchId (exclusive)
+     * @return MatchIndex
+     */
+    public int getOrAddMatchIndex(byte[] buffer, int start, int end) {
+        int matchIndex = getMatchIndex(buffer, start, end);
+        if (matchIndex < 0) {
+            if (this.numberOfMatches == MAX_NUMBER_OF_MATCHES) {
+                throw new IllegalStateException("The dictionary cannot contain more than " + MAX_NUMBER_OF_MATCHES + " matchIds.");
+            }
+            if (this.numberOfMatches == this.matchIds.length) {
+                this.matchIdBytes = Arrays.copyOf(this.matchIdBytes, this.numberOfMatches * 2);
+                this.matchIds = Arrays.copyOf(this.matchIds, this.numberOfMatches * 2);
+            }
+            matchIndex = this.numberOfMatches++;
+            this.matchIdBytes[matchIndex] = Arrays.copyOfRange(buffer, start, end);
+            this.matchIds[matchIndex] = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+            this.lastMatchIndex = matchIndex;
+        }
+        return matchIndex;
+    }
+
+    /**
+     * Returns the matchIndex of a matchId.
+     *
+     * @param buffer Buffer containing the UTF-8 bytes of the matchId
+     * @param start  Start of the matchId
+     * @param end    End of the matchId (exclusive)
+     * @return MatchIndex or -1 if the matchId is not in the dictionary
+     */
+    public int getMatchIndex(byte[] buffer, int start, int end) {
+        int matchIndex = getMatchIndex(buffer, start, end, this.lastMatchIndex);
+        if (matchIndex >= 0) {
+            this.lastMatchIndex = matchIndex;
+        }
+        return matchIndex;
+    }
+
+    /**
+     * Returns the matchIndex of a matchId without modifying the dictionary.
+     *
+     * @param buffer Buffer containing the UTF-8 bytes of the matchId
+     * @param start  Start of the matchId
+     * @param end    End of the matchId (exclusive)
+     * @param hint   MatchIndex which is checked first (e.g., the matchIndex of the previous line of the caller) or -1
+     * @return MatchIndex or -1 if the matchId is not in the dictionary
+     */
+    public int getMatchIndex(byte[] buffer, int start, int end, int hint) {
+        if (hint >= 0 && hint < this.numberOfMatches && bytesEqual(this.matchIdBytes[hint], buffer, start, end)) {
+            return hint;
+        }
+        for (int i = 0; i < this.numberOfMatches; ++i) {
+            if (bytesEqual(this.matchIdBytes[i], buffer, start, end)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the matchIndex of a matchId.
+     *
+     * @param matchId MatchId
+     * @return MatchIndex or -1 if the matchId is not in the dictionary
+     */
+    public int getMatchIndex(String matchId) {
+        if (this.lastMatchIndex >= 0 && this.matchIds[this.lastMatchIndex].equals(matchId)) {
+            return this.lastMatchIndex;
+        }
+        for (int i = 0; i < this.numberOfMatches; ++i) {
+            if (this.matchIds[i].equals(matchId)) {
+                this.lastMatchIndex = i;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the matchId of a matchIndex.
+     *
+     * @param matchIndex MatchIndex
+     * @return MatchId
+     */
+    public String getMatchId(int matchIndex) {
+        return this.matchIds[matchIndex];
+    }
+
+    /**
+     * Returns the UTF-8 bytes of the matchId of a matchIndex (must not be modified).
+     *
+     * @param matchIndex MatchIndex
+     * @return UTF-8 bytes of the matchId
+     */
+    public byte[] getMatchIdBytes(int matchIndex) {
+        return this.matchIdBytes[matchIndex];
+    }
+
+    /**
+     * Returns the number of matchIds in the dictionary.
+     *
+     * @return Number of matchIds
+     */
+    public int size() {
+        return this.numberOfMatches;
+    }
+
+    /**
+     * Checks if a byte array is equal to a range of a buffer.
+     *
+     * @param bytes  Byte array
+     * @param buffer Buffer
+     * @param start  Start of the range
+     * @param end    End of the range (exclusive)
+     * @return True if the bytes are equal, otherwise false
+     */
+    private static boolean bytesEqual(byte[] bytes, byte[] buffer, int start, int end) {
+        if (bytes.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; ++i) {
+            if (bytes[i] != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Component which calculates the latencies with a streaming merge-join of the send system time file and the receive system time files instead of an in-memory index.
+ * All files are walked once in the order of their generation timestamps (ties are ordered by the matchIndex), which is the order in which the sensor simulator and the EvaluationConsumer write them (apart from small local disorder which is restored by a bounded reorder buffer).
+ * If a file is not ordered closely enough, the join is restarted with an external sort of this file. The latency files contain the same lines as in the other modes but ordered by generation timestamp.
+ */
+public class MergeJoinLatencyCalculator {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MergeJoinLatencyCalculator.class);
+
+    /**
+     * Number of lines in the reorder buffer of each file
+     */
+    private final int reorderCapacity;
+
+    /**
+     * Number of lines per run of the external sort
+     */
+    private final int externalSortRunSize;
+
+    /**
+     * Format of the latency files
+     */
+    private final LatencyFileFormat latencyFileFormat;
+
+    /**
+     * MergeJoinLatencyCalculator constructor.
+     *
+     * @param reorderCapacity     Number of lines in the reorder buffer of each file
+     * @param externalSortRunSize Number of lines per run of the external sort
+     * @param latencyFileFormat   Format of the latency files
+     */
+    public MergeJoinLatencyCalculator(int reorderCapacity, int externalSortRunSize, LatencyFileFormat latencyFileFormat) {
+        this.reorderCapacity = reorderCapacity;
+        this.externalSortRunSize = externalSortRunSize;
+        this.latencyFileFormat = latencyFileFormat;
+    }
+
+    /**
+     * Constructs and writes the latency files for several data streams with a single pass over the send system time file.
+     *
+     * @param sendSystemTimeFilePath     Path to send system time file
+     * @param receiveSystemTimeFilePaths Paths to the receive system time files
+     * @param latencyFilePaths           Paths to the latency files (same order as the receive system time files)
+     * @throws IOException Thrown if a system time file could not be read properly or a latency file could not be written properly
+     */
+    public void constructAndWriteLatencyFiles(String sendSystemTimeFilePath, List<String> receiveSystemTimeFilePaths, List<String> latencyFilePaths) throws IOException {
+        boolean sortSendSystemTimes = false;
+        boolean[] sortReceiveSystemTimes = new boolean[receiveSystemTimeFilePaths.size()];
+        while (true) {
+            try {
+                join(sendSystemTimeFilePath, sortSendSystemTimes, receiveSystemTimeFilePaths, sortReceiveSystemTimes, latencyFilePaths);
+                return;
+            } catch (UnorderedInputException e) {
+                // Each restart sorts one more file externally (sorted files cannot be unordered), i.e., there are at most 1 + number of files attempts
+                logger.warn("{} Restart merge-join with an external sort of this file.", e.getMessage());
+                if (e.getFilePath().equals(sendSystemTimeFilePath)) {
+                    sortSendSystemTimes = true;
+                } else {
+                    sortReceiveSystemTimes[receiveSystemTimeFilePaths.indexOf(e.getFilePath())] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the merge-join.
+     *
+     * @param sendSystemTimeFilePath     Path to send system time file
+     * @param sortSendSystemTimes        Flag which indicates if the send system time file has to be sorted externally
+     * @param receiveSystemTimeFilePaths Paths to the receive system time files
+     * @param sortReceiveSystemTimes     Flags which indicate if the receive system time files have to be sorted externally
+     * @param latencyFilePaths           Paths to the latency files (same order as the receive system time files)
+     * @throws IOException Thrown if a system time file could not be read properly or a latency file could not be written properly
+     */
+    private void join(String sendSystemTimeFilePath, boolean sortSendSystemTimes, List<String> receiveSystemTimeFilePaths, boolean[] sortReceiveSystemTimes, List<String> latencyFilePaths) throws IOException {
+        int numberOfStreams = receiveSystemTimeFilePaths.size();
+        MatchIdDictionary matchIdDictionary = new MatchIdDictionary();
+        SystemTimeSource sendSource = null;
+        SystemTimeSource[] receiveSources = new SystemTimeSource[numberOfStreams];
+        LatencyFileWriter[] latencyFileWriters = new LatencyFileWriter[numberOfStreams];
+        try {
+            sendSource = openSource(sendSystemTimeFilePath, sortSendSystemTimes, matchIdDictionary);
+            boolean[] receiveSourceHasNext = new boolean[numberOfStreams];
+            for (int i = 0; i < numberOfStreams; ++i) {
+                receiveSources[i] = openSource(receiveSystemTimeFilePaths.get(i), sortReceiveSystemTimes[i], matchIdDictionary);
+                receiveSourceHasNext[i] = receiveSources[i].next();
+                latencyFileWriters[i] = this.latencyFileFormat.openWriter(latencyFilePaths.get(i));
+            }
+
+            boolean sendSourceHasNext = sendSource.next();
+            while (sendSourceHasNext) {
+                long sortKey = sendSource.getSortKey();
+                long minimumSendSystemTime = sendSource.getSystemTime();
+                while ((sendSourceHasNext = sendSource.next()) && sendSource.getSortKey() == sortKey) {
+                    minimumSendSystemTime = Math.min(minimumSendSystemTime, sendSource.getSystemTime());
+                }
+
+                for (int i = 0; i < numberOfStreams; ++i) {
+                    SystemTimeSource receiveSource = receiveSources[i];
+                    while (receiveSourceHasNext[i] && receiveSource.getSortKey() <= sortKey) {
+                        if (receiveSource.getSortKey() == sortKey) {
+                            appendLatency(matchIdDictionary, latencyFileWriters[i], sortKey, receiveSource.getSystemTime() - minimumSendSystemTime);
+                        } else {
+                            logSkippedKey(matchIdDictionary, receiveSource.getSortKey());
+                        }
+                        receiveSourceHasNext[i] = receiveSource.next();
+                    }
+                }
+            }
+
+            for (int i = 0; i < numberOfStreams; ++i) {
+                while (receiveSourceHasNext[i]) {
+                    logSkippedKey(matchIdDictionary, receiveSources[i].getSortKey());
+                    receiveSourceHasNext[i] = receiveSources[i].next();
+                }
+            }
+        } finally {
+            if (sendSource != null) {
+                sendSource.close();
+            }
+            for (int i = 0; i < numberOfStreams; ++i) {
+                if (receiveSources[i] != null) {
+                    receiveSources[i].close();
+                }
+                if (latencyFileWriters[i] != null) {
+                    latencyFileWriters[i].close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a source for a system time file.
+     *
+     * @param filePath          Path to the system time file
+     * @param sort              Flag which indicates if the file has to be sorted externally
+     * @param matchIdDictionary Dictionary of the matchIds
+     * @return Source
+     * @throws IOException Thrown if the system time file could not be opened
+     */
+    private SystemTimeSource openSource(String filePath, boolean sort, MatchIdDictionary matchIdDictionary) throws IOException {
+        if (sort) {
+            return new ExternallySortedSystemTimeSource(filePath, matchIdDictionary, this.externalSortRunSize);
+        } else {
+            return new ReorderingSystemTimeSource(filePath, matchIdDictionary, this.reorderCapacity);
+        }
+    }
+
+    /**
+     * Appends a line to a latency file.
+     *
+     * @param matchIdDictionary Dictionary of the matchIds
+     * @param latencyFileWriter Writer of the latency file
+     * @param sortKey           Sort key
+     * @param latency           Latency in ms
+     * @throws IOException Thrown if the line could not be written
+     */
+    private static void appendLatency(MatchIdDictionary matchIdDictionary, LatencyFileWriter latencyFileWriter, long sortKey, long latency) throws IOException {
+        byte[] matchIdBytes = matchIdDictionary.getMatchIdBytes(getMatchIndex(sortKey));
+        latencyFileWriter.appendLine(matchIdBytes, 0, matchIdBytes.length, getGenerationTimestamp(sortKey), latency);
+    }
+
+    /**
+     * Logs a receive system time for which there is no send system time.
+     *
+     * @param matchIdDictionary Dictionary of the matchIds
+     * @param sortKey           Sort key
+     */
+    private static void logSkippedKey(MatchIdDictionary matchIdDictionary, long sortKey) {
+        logger.error("Skipped key {}-{} since there was no send system time.", matchIdDictionary.getMatchId(getMatchIndex(sortKey)), getGenerationTimestamp(sortKey));
+    }
+
+    /**
+     * Returns the matchIndex of a sort key.
+     *
+     * @param sortKey Sort key
+     * @return MatchIndex
+     */
+    private static int getMatchIndex(long sortKey) {
+        return (int) (sortKey & ((1L << SystemTimeSource.MATCH_INDEX_BITS) - 1));
+    }
+
+    /**
+     * Returns the generation timestamp of a sort key.
+     *
+     * @param sortKey Sort key
+     * @return Generation timestamp
+     */
+    private static long getGenerationTimestamp(long sortKey) {
+        return sortKey >>> SystemTimeSource.MATCH_INDEX_BITS;
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * Component which calculates the latencies of several receive system time files in parallel.
+ * Each receive system time file is split into line-aligned chunks which are memory-mapped and parsed on a fork-join pool against the shared (read-only) send system time index.
+ * The latencies of each chunk are collected in memory. CSV latency files are afterwards written concurrently (each chunk at its position in the file), columnar latency files are encoded chunk by chunk.
+ * In both cases the latency files are identical to the ones of the sequential mode.
+ */
+public class ParallelLatencyCalculator {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ParallelLatencyCalculator.class);
+
+    /**
+     * Number of bytes which are read to find the end of the line at a chunk border
+     */
+    private static final int LINE_SEARCH_SIZE = 4096;
+
+    /**
+     * Index containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination
+     */
+    private final SendSystemTimeIndex minimumSendSystemTimeIndex;
+
+    /**
+     * Fork-join pool on which the chunks are processed
+     */
+    private final ForkJoinPool forkJoinPool;
+
+    /**
+     * Nominal size of a chunk in bytes
+     */
+    private final int chunkSize;
+
+    /**
+     * Format of the latency files
+     */
+    private final LatencyFileFormat latencyFileFormat;
+
+    /**
+     * ParallelLatencyCalculator constructor.
+     *
+     * @param minimumSendSystemTimeIndex Index containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination (must not be modified anymore)
+     * @param parallelism                Number of threads of the fork-join pool
+     * @param chunkSize                  Nominal size of a chunk in bytes
+     * @param latencyFileFormat          Format of the latency files
+     */
+    public ParallelLatencyCalculator(SendSystemTimeIndex minimumSendSystemTimeIndex, int parallelism, int chunkSize, LatencyFileFormat latencyFileFormat) {
+        this.minimumSendSystemTimeIndex = minimumSendSystemTimeIndex;
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+        this.chunkSize = chunkSize;
+        this.latencyFileFormat = latencyFileFormat;
+    }
+
+    /**
+     * Constructs and writes the latency files for several data streams. The chunks of all receive system time files are processed at the same time.
+     *
+     * @param receiveSystemTimeFilePaths Paths to the receive system time files
+     * @param latencyFilePaths           Paths to the latency files (same order as the receive system time files)
+     * @throws IOException Thrown if a receive system time file could not be read properly or a latency file could not be written properly
+     */
+    public void constructAndWriteLatencyFiles(List<String> receiveSystemTimeFilePaths, List<String> latencyFilePaths) throws IOException {
+        if (this.latencyFileFormat == LatencyFileFormat.CSV) {
+            List<List<ForkJoinTask<LatencyOutputBuffer>>> chunkTasksPerFile = new ArrayList<>();
+            for (String receiveSystemTimeFilePath : receiveSystemTimeFilePaths) {
+                chunkTasksPerFile.add(submitChunks(receiveSystemTimeFilePath, chunkLength -> new LatencyOutputBuffer(chunkLength)));
+            }
+            writeCsvLatencyFiles(receiveSystemTimeFilePaths, latencyFilePaths, chunkTasksPerFile);
+        } else {
+            List<List<ForkJoinTask<LatencyRows>>> chunkTasksPerFile = new ArrayList<>();
+            for (String receiveSystemTimeFilePath : receiveSystemTimeFilePaths) {
+                chunkTasksPerFile.add(submitChunks(receiveSystemTimeFilePath, chunkLength -> new LatencyRows(this.minimumSendSystemTimeIndex.getMatchIdDictionary(), chunkLength / 32)));
+            }
+            for (int i = 0; i < chunkTasksPerFile.size(); ++i) {
+                try (LatencyFileWriter latencyFileWriter = this.latencyFileFormat.openWriter(latencyFilePaths.get(i))) {
+                    for (ForkJoinTask<LatencyRows> chunkTask : chunkTasksPerFile.get(i)) {
+                        getResult(chunkTask).writeTo(latencyFileWriter);
+                    }
+                }
+                logger.info("Calculated latencies of {} in {} chunks.", receiveSystemTimeFilePaths.get(i), chunkTasksPerFile.get(i).size());
+            }
+        }
+    }
+
+    /**
+     * Shuts down the fork-join pool.
+     */
+    public void shutdown() {
+        this.forkJoinPool.shutdown();
+    }
+
+    /**
+     * Splits a receive system time file into chunks and submits a task for each chunk.
+     *
+     * @param receiveSystemTimeFilePath Path to the receive system time file
+     * @param sinkFactory               Function which creates the sink of a chunk (gets the length of the chunk in bytes)
+     * @param <S>                       Type of the sink
+     * @return Tasks which return the sink of their chunk (in the order of the chunks)
+     * @throws IOException Thrown if the receive system time file could not be read
+     */
+    private <S extends LatencyLineSink> List<ForkJoinTask<S>> submitChunks(String receiveSystemTimeFilePath, IntFunction<S> sinkFactory) throws IOException {
+        List<ForkJoinTask<S>> chunkTasks = new ArrayList<>();
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(receiveSystemTimeFilePath), StandardOpenOption.READ)) {
+            long fileSize = fileChannel.size();
+            long chunkStart = 0;
+            while (chunkStart < fileSize) {
+                long chunkEnd = findLineEnd(fileChannel, Math.min(chunkStart + this.chunkSize, fileSize), fileSize);
+                final long start = chunkStart;
+                final long end = chunkEnd;
+                chunkTasks.add(this.forkJoinPool.submit(() -> {
+                    S sink = sinkFactory.apply((int) (end - start));
+                    processChunk(receiveSystemTimeFilePath, start, end, sink);
+                    return sink;
+                }));
+                chunkStart = chunkEnd;
+            }
+        }
+        return chunkTasks;
+    }
+
+    /**
+     * Writes the CSV latency files. The chunks of each file are written concurrently at their position in the file.
+     *
+     * @param receiveSystemTimeFilePaths Paths to the receive system time files
+     * @param latencyFilePaths           Paths to the latency files (same order as the receive system time files)
+     * @param chunkTasksPerFile          Chunk tasks of each receive system time file
+     * @throws IOException Thrown if a chunk could not be processed or a latency file could not be written properly
+     */
+    private void writeCsvLatencyFiles(List<String> receiveSystemTimeFilePaths, List<String> latencyFilePaths, List<List<ForkJoinTask<LatencyOutputBuffer>>> chunkTasksPerFile) throws IOException {
+        List<ForkJoinTask<Void>> writeTasks = new ArrayList<>();
+        List<FileChannel> latencyFileChannels = new ArrayList<>();
+        try {
+            for (int i = 0; i < chunkTasksPerFile.size(); ++i) {
+                FileChannel latencyFileChannel = FileChannel.open(Paths.get(latencyFilePaths.get(i)), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                latencyFileChannels.add(latencyFileChannel);
+                writeFully(latencyFileChannel, ByteBuffer.wrap(LatencyOutputBuffer.HEADER), 0);
+
+                long position = LatencyOutputBuffer.HEADER.length;
+                for (ForkJoinTask<LatencyOutputBuffer> chunkTask : chunkTasksPerFile.get(i)) {
+                    LatencyOutputBuffer outputBuffer = getResult(chunkTask);
+                    final long chunkPosition = position;
+                    writeTasks.add(this.forkJoinPool.submit(() -> {
+                        writeFully(latencyFileChannel, outputBuffer.asByteBuffer(), chunkPosition);
+                        return null;
+                    }));
+                    position += outputBuffer.size();
+                }
+                logger.info("Calculated latencies of {} in {} chunks.", receiveSystemTimeFilePaths.get(i), chunkTasksPerFile.get(i).size());
+            }
+            for (ForkJoinTask<Void> writeTask : writeTasks) {
+                getResult(writeTask);
+            }
+        } finally {
+            for (FileChannel latencyFileChannel : latencyFileChannels) {
+                latencyFileChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Calculates the latencies of a chunk of a receive system time file.
+     *
+     * @param receiveSystemTimeFilePath Path to the receive system time file
+     * @param start                     Start of the chunk (start of a line)
+     * @param end                       End of the chunk (exclusive, after a line break or the end of the file)
+     * @param sink                      Sink to which the lines of the latency file for the chunk are appended
+     * @throws IOException Thrown if the chunk could not be read
+     */
+    private void processChunk(String receiveSystemTimeFilePath, long start, long end, LatencyLineSink sink) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(receiveSystemTimeFilePath), StandardOpenOption.READ)) {
+            MappedByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            mappedByteBuffer.get(bytes);
+        }
+
+        SystemTimeLineParser parser = new SystemTimeLineParser();
+        int matchIndex = -1;
+        int lineStart = 0;
+        if (start == 0) { // skip header
+            int headerEnd = SystemTimeLineParser.indexOf(bytes, 0, bytes.length, (byte) '\n');
+            lineStart = headerEnd < 0 ? bytes.length : headerEnd + 1;
+        }
+        while (lineStart < bytes.length) {
+            int lineEnd = SystemTimeLineParser.indexOf(bytes, lineStart, bytes.length, (byte) '\n');
+            if (lineEnd < 0) {
+                lineEnd = bytes.length; // Last line without line break
+            }
+            if (parser.parse(bytes, lineStart, lineEnd)) {
+                matchIndex = this.minimumSendSystemTimeIndex.getMatchIndex(bytes, parser.getMatchIdStart(), parser.getMatchIdEnd(), matchIndex);
+                long minimumSendSystemTime = this.minimumSendSystemTimeIndex.get(matchIndex, parser.getGenerationTimestamp());
+                if (minimumSendSystemTime != SendSystemTimeIndex.NO_VALUE) {
+                    sink.appendLine(bytes, parser.getMatchIdStart(), parser.getMatchIdEnd(), parser.getGenerationTimestamp(), parser.getSystemTime() - minimumSendSystemTime);
+                } else {
+                    logger.error("Skipped key {}-{} since there was no value in the minimumSendSystemTimeMap.", new String(bytes, parser.getMatchIdStart(), parser.getMatchIdEnd() - parser.getMatchIdStart(), StandardCharsets.UTF_8), parser.getGenerationTimestamp());
+                }
+            } else if (lineEnd > lineStart) {
+                logger.error("Skipped line in {} which cannot be parsed: {}", receiveSystemTimeFilePath, new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Returns the position after the next line break at or after a position.
+     *
+     * @param fileChannel Channel of the file
+     * @param position    Position at which the search starts
+     * @param fileSize    Size of the file
+     * @return Position after the line break or the size of the file if there is no further line break
+     * @throws IOException Thrown if the file could not be read
+     */
+    private static long findLineEnd(FileChannel fileChannel, long position, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(LINE_SEARCH_SIZE);
+        while (position < fileSize) {
+            buffer.clear();
+            int readBytes = fileChannel.read(buffer, position);
+            for (int i = 0; i < readBytes; ++i) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += Math.max(readBytes, 0);
+            if (readBytes <= 0) {
+                break;
+            }
+        }
+        return fileSize;
+    }
+
+    /**
+     * Writes a buffer at a position of a file.
+     *
+     * @param fileChannel Channel of the file
+     * @param buffer      Buffer
+     * @param position    Position in the file
+     * @throws IOException Thrown if the buffer could not be written
+     */
+    private static void writeFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += fileChannel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Waits for a task and returns its result.
+     *
+     * @param task Task
+     * @param <T>  Type of the result
+     * @return Result of the task
+     * @throws IOException Thrown if the task failed
+     */
+    private static <T> T getResult(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a chunk.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to process a chunk.", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Source which streams a system time file which is almost ordered by generation timestamp (e.g., due to concurrent senders) and restores the order with a bounded reorder buffer.
+ * Throws an UnorderedInputException as soon as a line would have had to be returned before a line which has already been returned.
+ */
+public class ReorderingSystemTimeSource implements SystemTimeSource {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ReorderingSystemTimeSource.class);
+
+    /**
+     * Path to the system time file
+     */
+    private final String filePath;
+
+    /**
+     * Reader of the system time file
+     */
+    private final SystemTimeCsvReader reader;
+
+    /**
+     * Dictionary of the matchIds
+     */
+    private final MatchIdDictionary matchIdDictionary;
+
+    /**
+     * Reorder buffer
+     */
+    private final LongPairHeap reorderBuffer;
+
+    /**
+     * Sort key of the current line
+     */
+    private long sortKey;
+
+    /**
+     * System time of the current line
+     */
+    private long systemTime;
+
+    /**
+     * Flag which indicates if the end of the system time file has been reached
+     */
+    private boolean endOfFile;
+
+    /**
+     * ReorderingSystemTimeSource constructor.
+     *
+     * @param filePath          Path to the system time file
+     * @param matchIdDictionary Dictionary of the matchIds (shared by all sources which are joined)
+     * @param capacity          Number of lines in the reorder buffer
+     * @throws IOException Thrown if the system time file could not be opened
+     */
+    public ReorderingSystemTimeSource(String filePath, MatchIdDictionary matchIdDictionary, int capacity) throws IOException {
+        this.filePath = filePath;
+        this.reader = new SystemTimeCsvReader(filePath);
+        this.matchIdDictionary = matchIdDictionary;
+        this.reorderBuffer = new LongPairHeap(capacity);
+        this.sortKey = -1;
+        this.endOfFile = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (!this.endOfFile && this.reorderBuffer.size() < this.reorderBuffer.capacity()) {
+            if (!this.reader.next()) {
+                this.endOfFile = true;
+                break;
+            }
+            long lineSortKey = this.reader.getSortKey(this.matchIdDictionary);
+            if (lineSortKey < 0) {
+                logger.error("Skipped line in {} with the generation timestamp {} which is out of range.", this.filePath, this.reader.getGenerationTimestamp());
+            } else if (lineSortKey < this.sortKey) {
+                throw new UnorderedInputException(this.filePath, this.reorderBuffer.capacity());
+            } else {
+                this.reorderBuffer.push(lineSortKey, this.reader.getSystemTime());
+            }
+        }
+        if (this.reorderBuffer.size() == 0) {
+            return false;
+        }
+        this.sortKey = this.reorderBuffer.peekKey();
+        this.systemTime = this.reorderBuffer.peekValue();
+        this.reorderBuffer.pop();
+        return true;
+    }
+
+    @Override
+    public long getSortKey() {
+        return this.sortKey;
+    }
+
+    @Override
+    public long getSystemTime() {
+        return this.systemTime;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+}
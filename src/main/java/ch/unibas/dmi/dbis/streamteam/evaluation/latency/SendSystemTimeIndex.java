@@ -0,0 +1,281 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.util.Arrays;
+
+/**
+ * Index containing the minimum system time at which a raw position sensor data stream element was sent for each matchId-generationTs-combination.
+ * The matchIds are stored in a MatchIdDictionary and the index of the matchId is packed together with the generation timestamp into a single long key (matchIndex << 48 | generationTs).
+ * The keys and values are stored in a primitive open-addressing hash table (linear probing), i.e., each slot requires 16 bytes and no objects are allocated per entry.
+ * Not thread-safe, but get and getMatchIndex with a hint only read the index and can therefore be called concurrently once the index has been constructed.
+ */
+public class SendSystemTimeIndex {
+
+    /**
+     * Value which is returned if there is no send system time for a matchId-generationTs-combination
+     */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    /**
+     * Number of bits of the packed key which are used for the generation timestamp
+     */
+    private static final int GENERATION_TIMESTAMP_BITS = 48;
+
+    /**
+     * Largest generation timestamp which can be packed into a key
+     */
+    private static final long MAX_GENERATION_TIMESTAMP = (1L << GENERATION_TIMESTAMP_BITS) - 1;
+
+    /**
+     * Marker of an empty slot (packed keys are never negative)
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * Maximum ratio of used slots before the table is doubled
+     */
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    /**
+     * Hash table containing the packed key at even and the minimum send system time at odd positions
+     */
+    private long[] table;
+
+    /**
+     * Number of slots minus one (the number of slots is a power of two)
+     */
+    private int mask;
+
+    /**
+     * Number of entries
+     */
+    private int size;
+
+    /**
+     * Number of entries at which the table is doubled
+     */
+    private int resizeThreshold;
+
+    /**
+     * Dictionary of the matchIds (MatchIdDictionary.MAX_NUMBER_OF_MATCHES fits into the remaining bits of the packed keys)
+     */
+    private final MatchIdDictionary matchIdDictionary;
+
+    /**
+     * SendSystemTimeIndex constructor.
+     *
+     * @param expectedSize Expected number of matchId-generationTs-combinations
+     */
+    public SendSystemTimeIndex(int expectedSize) {
+        int numberOfSlots = 16;
+        while (numberOfSlots * MAX_LOAD_FACTOR < expectedSize && numberOfSlots < (1 << 29)) {
+            numberOfSlots <<= 1;
+        }
+        allocate(numberOfSlots);
+        this.matchIdDictionary = new MatchIdDictionary();
+    }
+
+    /**
+     * SendSystemTimeIndex constructor.
+     */
+    public SendSystemTimeIndex() {
+        this(1 << 16);
+    }
+
+    /**
+     * Returns the matchIndex of a matchId and adds the matchId to the dictionary if it is new.
+     *
+     * @param buffer Buffer containing the UTF-8 bytes of the matchId
+     * @param start  Start of the matchId
+     * @param end    End of the matchId (exclusive)
+     * @return MatchIndex
+     */
+    public int getOrAddMatchIndex(byte[] buffer, int start, int end) {
+        return this.matchIdDictionary.getOrAddMatchIndex(buffer, start, end);
+    }
+
+    /**
+     * Returns the matchIndex of a matchId.
+     *
+     * @param buffer Buffer containing the UTF-8 bytes of the matchId
+     * @param start  Start of the matchId
+     * @param end    End of the matchId (exclusive)
+     * @return MatchIndex or -1 if the matchId is not in the dictionary
+     */
+    public int getMatchIndex(byte[] buffer, int start, int end) {
+        return this.matchIdDictionary.getMatchIndex(buffer, start, end);
+    }
+
+    /**
+     * Returns the matchIndex of a matchId without modifying the index.
+     *
+     * @param buffer Buffer containing the UTF-8 bytes of the matchId
+     * @param start  Start of the matchId
+     * @param end    End of the matchId (exclusive)
+     * @param hint   MatchIndex which is checked first (e.g., the matchIndex of the previous line of the caller) or -1
+     * @return MatchIndex or -1 if the matchId is not in the dictionary
+     */
+    public int getMatchIndex(byte[] buffer, int start, int end, int hint) {
+        return this.matchIdDictionary.getMatchIndex(buffer, start, end, hint);
+    }
+
+    /**
+     * Returns the matchIndex of a matchId.
+     *
+     * @param matchId MatchId
+     * @return MatchIndex or -1 if the matchId is not in the dictionary
+     */
+    public int getMatchIndex(String matchId) {
+        return this.matchIdDictionary.getMatchIndex(matchId);
+    }
+
+    /**
+     * Returns the matchId of a matchIndex.
+     *
+     * @param matchIndex MatchIndex
+     * @return MatchId
+     */
+    public String getMatchId(int matchIndex) {
+        return this.matchIdDictionary.getMatchId(matchIndex);
+    }
+
+    /**
+     * Returns the dictionary of the matchIds.
+     *
+     * @return Dictionary of the matchIds
+     */
+    public MatchIdDictionary getMatchIdDictionary() {
+        return this.matchIdDictionary;
+    }
+
+    /**
+     * Checks if a generation timestamp can be stored in the index (i.e., if it is neither negative nor too large to be packed into a key).
+     *
+     * @param generationTimestamp Generation timestamp
+     * @return True if the generation timestamp can be stored, otherwise false
+     */
+    public static boolean canStore(long generationTimestamp) {
+        return generationTimestamp >= 0 && generationTimestamp <= MAX_GENERATION_TIMESTAMP;
+    }
+
+    /**
+     * Stores the send system time for a matchId-generationTs-combination if there is no smaller one yet.
+     *
+     * @param matchIndex          MatchIndex
+     * @param generationTimestamp Generation timestamp
+     * @param sendSystemTime      Send system time
+     * @throws IllegalArgumentException Thrown if the generation timestamp cannot be stored in the index (see canStore)
+     */
+    public void putMinimum(int matchIndex, long generationTimestamp, long sendSystemTime) {
+        if (!canStore(generationTimestamp)) {
+            throw new IllegalArgumentException("The generation timestamp " + generationTimestamp + " cannot be stored in the index.");
+        }
+        long key = packKey(matchIndex, generationTimestamp);
+        int slot = findSlot(key);
+        if (this.table[slot] == EMPTY) {
+            this.table[slot] = key;
+            this.table[slot + 1] = sendSystemTime;
+            if (++this.size > this.resizeThreshold) {
+                allocate((this.mask + 1) * 2);
+            }
+        } else if (sendSystemTime < this.table[slot + 1]) {
+            this.table[slot + 1] = sendSystemTime;
+        }
+    }
+
+    /**
+     * Returns the minimum send system time for a matchId-generationTs-combination.
+     *
+     * @param matchIndex          MatchIndex (may be -1 for an unknown matchId)
+     * @param generationTimestamp Generation timestamp
+     * @return Minimum send system time or NO_VALUE if there is no send system time for the matchId-generationTs-combination
+     */
+    public long get(int matchIndex, long generationTimestamp) {
+        if (matchIndex < 0 || generationTimestamp < 0 || generationTimestamp > MAX_GENERATION_TIMESTAMP) {
+            return NO_VALUE;
+        }
+        int slot = findSlot(packKey(matchIndex, generationTimestamp));
+        return this.table[slot] == EMPTY ? NO_VALUE : this.table[slot + 1];
+    }
+
+    /**
+     * Returns the number of matchId-generationTs-combinations in the index.
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Packs a matchIndex and a generation timestamp into a single key.
+     *
+     * @param matchIndex          MatchIndex
+     * @param generationTimestamp Generation timestamp
+     * @return Packed key
+     */
+    private static long packKey(int matchIndex, long generationTimestamp) {
+        return ((long) matchIndex << GENERATION_TIMESTAMP_BITS) | generationTimestamp;
+    }
+
+    /**
+     * Returns the position of the slot which contains the key or of the empty slot at which the key has to be inserted.
+     *
+     * @param key Packed key
+     * @return Position of the key in the table
+     */
+    private int findSlot(long key) {
+        // Finalizer of MurmurHash3 (spreads the consecutive generation timestamps over the table)
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        int slot = (int) hash & this.mask;
+        while (this.table[slot << 1] != EMPTY && this.table[slot << 1] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot << 1;
+    }
+
+    /**
+     * Allocates a new table and reinserts all entries of the old table.
+     *
+     * @param numberOfSlots Number of slots of the new table (power of two)
+     */
+    private void allocate(int numberOfSlots) {
+        if (numberOfSlots > (1 << 29)) {
+            throw new IllegalStateException("The index cannot contain more than " + this.resizeThreshold + " entries.");
+        }
+        long[] oldTable = this.table;
+        this.table = new long[numberOfSlots * 2];
+        Arrays.fill(this.table, EMPTY);
+        this.mask = numberOfSlots - 1;
+        this.resizeThreshold = (int) (numberOfSlots * MAX_LOAD_FACTOR);
+        if (oldTable != null) {
+            for (int i = 0; i < oldTable.length; i += 2) {
+                if (oldTable[i] != EMPTY) {
+                    int slot = findSlot(oldTable[i]);
+                    this.table[slot] = oldTable[i];
+                    this.table[slot + 1] = oldTable[i + 1];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader for the send and receive system time CSV files (matchId,generationTimestamp,systemTimestamp) which reads the file into a byte buffer and parses the lines with a SystemTimeLineParser.
+ * The header (first line) is skipped. The matchId of the current line can be read from the buffer as long as next() is not called again.
+ */
+public class SystemTimeCsvReader implements Closeable {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SystemTimeCsvReader.class);
+
+    /**
+     * Size of the read buffer in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Path to the CSV file
+     */
+    private final String filePath;
+
+    /**
+     * Input stream of the CSV file
+     */
+    private final InputStream inputStream;
+
+    /**
+     * Read buffer
+     */
+    private final byte[] buffer;
+
+    /**
+     * Parser of the lines
+     */
+    private final SystemTimeLineParser parser;
+
+    /**
+     * Start of the next line in the buffer
+     */
+    private int position;
+
+    /**
+     * Number of valid bytes in the buffer
+     */
+    private int limit;
+
+    /**
+     * Flag which indicates if the end of the file has been reached
+     */
+    private boolean endOfFile;
+
+    /**
+     * Flag which indicates if the header has already been skipped
+     */
+    private boolean headerSkipped;
+
+    /**
+     * SystemTimeCsvReader constructor.
+     *
+     * @param filePath Path to the CSV file
+     * @throws IOException Thrown if the CSV file could not be opened
+     */
+    public SystemTimeCsvReader(String filePath) throws IOException {
+        this.filePath = filePath;
+        this.inputStream = new FileInputStream(filePath);
+        this.buffer = new byte[BUFFER_SIZE];
+        this.parser = new SystemTimeLineParser();
+        this.position = 0;
+        this.limit = 0;
+        this.endOfFile = false;
+        this.headerSkipped = false;
+    }
+
+    /**
+     * Reads the next line. Lines which cannot be parsed are skipped.
+     *
+     * @return True if a line has been read, false if the end of the file has been reached
+     * @throws IOException Thrown if the CSV file could not be read properly
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int lineEnd = SystemTimeLineParser.indexOf(this.buffer, this.position, this.limit, (byte) '\n');
+            if (lineEnd < 0) {
+                if (this.endOfFile) {
+                    if (this.position == this.limit) {
+                        return false;
+                    }
+                    lineEnd = this.limit; // Last line without line break
+                } else {
+                    fill();
+                    continue;
+                }
+            }
+
+            int lineStart = this.position;
+            this.position = Math.min(lineEnd + 1, this.limit);
+            if (!this.headerSkipped) {
+                this.headerSkipped = true;
+            } else if (this.parser.parse(this.buffer, lineStart, lineEnd)) {
+                return true;
+            } else if (lineEnd > lineStart) {
+                logger.error("Skipped line in {} which cannot be parsed: {}", this.filePath, new String(this.buffer, lineStart, lineEnd - lineStart));
+            }
+        }
+    }
+
+    /**
+     * Returns the buffer which contains the matchId of the current line.
+     *
+     * @return Buffer
+     */
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Returns the start of the matchId of the current line.
+     *
+     * @return Start of the matchId
+     */
+    public int getMatchIdStart() {
+        return this.parser.getMatchIdStart();
+    }
+
+    /**
+     * Returns the end of the matchId of the current line.
+     *
+     * @return End of the matchId (exclusive)
+     */
+    public int getMatchIdEnd() {
+        return this.parser.getMatchIdEnd();
+    }
+
+    /**
+     * Returns the generation timestamp of the current line.
+     *
+     * @return Generation timestamp
+     */
+    public long getGenerationTimestamp() {
+        return this.parser.getGenerationTimestamp();
+    }
+
+    /**
+     * Returns the system time of the current line.
+     *
+     * @return System time
+     */
+    public long getSystemTime() {
+        return this.parser.getSystemTime();
+    }
+
+    /**
+     * Returns the sort key (see SystemTimeSource) of the current line and adds the matchId to the dictionary if it is new.
+     *
+     * @param matchIdDictionary Dictionary of the matchIds
+     * @return Sort key or -1 if the generation timestamp cannot be packed into a sort key
+     */
+    public long getSortKey(MatchIdDictionary matchIdDictionary) {
+        long generationTimestamp = this.parser.getGenerationTimestamp();
+        if (generationTimestamp < 0 || generationTimestamp > SystemTimeSource.MAX_GENERATION_TIMESTAMP) {
+            return -1;
+        }
+        int matchIndex = matchIdDictionary.getOrAddMatchIndex(this.buffer, this.parser.getMatchIdStart(), this.parser.getMatchIdEnd());
+        return (generationTimestamp << SystemTimeSource.MATCH_INDEX_BITS) | matchIndex;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.inputStream.close();
+    }
+
+    /**
+     * Moves the incomplete line to the start of the buffer and reads the next bytes.
+     *
+     * @throws IOException Thrown if the CSV file could not be read properly or contains a line which is longer than the buffer
+     */
+    private void fill() throws IOException {
+        int remaining = this.limit - this.position;
+        if (remaining == this.buffer.length) {
+            throw new IOException(this.filePath + " contains a line which is longer than " + this.buffer.length + " bytes.");
+        }
+        System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+        this.position = 0;
+        this.limit = remaining;
+        int readBytes = this.inputStream.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (readBytes < 0) {
+            this.endOfFile = true;
+        } else {
+            this.limit += readBytes;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+/**
+ * Parser for the lines of the send and receive system time CSV files (matchId,generationTimestamp,systemTimestamp) which reads the numbers directly from the bytes without creating any objects.
+ * The parser keeps the fields of the last parsed line. Not thread-safe.
+ */
+public class SystemTimeLineParser {
+
+    /**
+     * Start of the matchId of the last parsed line
+     */
+    private int matchIdStart;
+
+    /**
+     * End of the matchId of the last parsed line (exclusive)
+     */
+    private int matchIdEnd;
+
+    /**
+     * Generation timestamp of the last parsed line
+     */
+    private long generationTimestamp;
+
+    /**
+     * System time of the last parsed line
+     */
+    private long systemTime;
+
+    /**
+     * Parses a line.
+     *
+     * @param buffer Buffer containing the line
+     * @param start  Start of the line
+     * @param end    End of the line (exclusive, without line break)
+     * @return True if the line could be parsed, otherwise false (e.g., for the header)
+     */
+    public boolean parse(byte[] buffer, int start, int end) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        int firstComma = indexOf(buffer, start, end, (byte) ',');
+        if (firstComma < 0) {
+            return false;
+        }
+        int secondComma = indexOf(buffer, firstComma + 1, end, (byte) ',');
+        if (secondComma < 0) {
+            return false;
+        }
+        if (!isNumber(buffer, firstComma + 1, secondComma) || !isNumber(buffer, secondComma + 1, end)) {
+            return false;
+        }
+        this.matchIdStart = start;
+        this.matchIdEnd = firstComma;
+        this.generationTimestamp = parseLong(buffer, firstComma + 1, secondComma);
+        this.systemTime = parseLong(buffer, secondComma + 1, end);
+        return true;
+    }
+
+    /**
+     * Returns the start of the matchId of the last parsed line.
+     *
+     * @return Start of the matchId
+     */
+    public int getMatchIdStart() {
+        return this.matchIdStart;
+    }
+
+    /**
+     * Returns the end of the matchId of the last parsed line.
+     *
+     * @return End of the matchId (exclusive)
+     */
+    public int getMatchIdEnd() {
+        return this.matchIdEnd;
+    }
+
+    /**
+     * Returns the generation timestamp of the last parsed line.
+     *
+     * @return Generation timestamp
+     */
+    public long getGenerationTimestamp() {
+        return this.generationTimestamp;
+    }
+
+    /**
+     * Returns the system time of the last parsed line.
+     *
+     * @return System time
+     */
+    public long getSystemTime() {
+        return this.systemTime;
+    }
+
+    /**
+     * Returns the position of the first occurrence of a byte in a range of a buffer.
+     *
+     * @param buffer Buffer
+     * @param start  Start of the range
+     * @param end    End of the range (exclusive)
+     * @param b      Byte
+     * @return Position of the byte or -1 if the range does not contain the byte
+     */
+    public static int indexOf(byte[] buffer, int start, int end, byte b) {
+        for (int i = start; i < end; ++i) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a range of a buffer contains a (possibly negative) decimal number with at most 18 digits.
+     *
+     * @param buffer Buffer
+     * @param start  Start of the range
+     * @param end    End of the range (exclusive)
+     * @return True if the range contains a number, otherwise false
+     */
+    private static boolean isNumber(byte[] buffer, int start, int end) {
+        if (start < end && buffer[start] == '-') {
+            start++;
+        }
+        if (start == end || end - start > 18) { // 18 digits cannot overflow a long
+            return false;
+        }
+        for (int i = start; i < end; ++i) {
+            if (buffer[i] < '0' || buffer[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number in a range of a buffer (which has been checked with isNumber).
+     *
+     * @param buffer Buffer
+     * @param start  Start of the range
+     * @param end    End of the range (exclusive)
+     * @return Number
+     */
+    private static long parseLong(byte[] buffer, int start, int end) {
+        boolean negative = buffer[start] == '-';
+        if (negative) {
+            start++;
+        }
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source which returns the lines of a send or receive system time file ordered by their sort key (generation timestamp and then matchIndex).
+ */
+public interface SystemTimeSource extends Closeable {
+
+    /**
+     * Number of bits of the sort key which are used for the matchIndex
+     */
+    int MATCH_INDEX_BITS = 15;
+
+    /**
+     * Largest generation timestamp which can be packed into a sort key
+     */
+    long MAX_GENERATION_TIMESTAMP = (1L << (Long.SIZE - 1 - MATCH_INDEX_BITS)) - 1;
+
+    /**
+     * Moves to the next line.
+     *
+     * @return True if there is a next line, false if the end of the source has been reached
+     * @throws IOException Thrown if the source could not be read properly (UnorderedInputException if the source is not ordered)
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Returns the sort key of the current line.
+     *
+     * @return Sort key (generationTs << MATCH_INDEX_BITS | matchIndex)
+     */
+    long getSortKey();
+
+    /**
+     * Returns the system time of the current line.
+     *
+     * @return System time
+     */
+    long getSystemTime();
+}
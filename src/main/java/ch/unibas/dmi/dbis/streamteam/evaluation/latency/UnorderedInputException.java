@@ -0,0 +1,52 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.latency;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that a system time file is not ordered closely enough to be reordered with the bounded reorder buffer.
+ */
+public class UnorderedInputException extends IOException {
+
+    /**
+     * Path to the file which is not ordered
+     */
+    private final String filePath;
+
+    /**
+     * UnorderedInputException constructor.
+     *
+     * @param filePath Path to the file which is not ordered
+     * @param capacity Capacity of the reorder buffer
+     */
+    public UnorderedInputException(String filePath, int capacity) {
+        super(filePath + " is not ordered by generation timestamp within " + capacity + " lines.");
+        this.filePath = filePath;
+    }
+
+    /**
+     * Returns the path to the file which is not ordered.
+     *
+     * @return Path to the file
+     */
+    public String getFilePath() {
+        return this.filePath;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.opta;
+
+/**
+ * Modes of parsing an F24 file.
+ */
+public enum F24ParsingMode {
+
+    /**
+     * Loads the whole F24 file into a DOM before the events are extracted
+     */
+    DOM,
+
+    /**
+     * Extracts the events while the F24 file streams past a StAX parser (constant memory)
+     */
+    STAX
+}
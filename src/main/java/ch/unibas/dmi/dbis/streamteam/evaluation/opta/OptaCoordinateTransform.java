@@ -0,0 +1,127 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.opta;
+
+/**
+ * Transformation of OPTA coordinates (0-100 along each axis) into the StreamTeam-Football coordinate system which is precomputed from the field dimensions and mirroring of a match.
+ * Coordinates whose digits fit into 53 bits are parsed directly from the characters (the result is identical to Double.parseDouble). Immutable and thread-safe.
+ */
+public class OptaCoordinateTransform {
+
+    /**
+     * Powers of ten which are exactly representable as double
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /**
+     * Maximum mantissa which is exactly representable as double (2^53)
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Length of the field in m (negative if the x-coordinates have to be mirrored)
+     */
+    private final double signedFieldLength;
+
+    /**
+     * Width of the field in m (negative if the y-coordinates have to be mirrored)
+     */
+    private final double signedFieldWidth;
+
+    /**
+     * OptaCoordinateTransform constructor.
+     *
+     * @param fieldLength Length of the field in m
+     * @param fieldWidth  Width of the field in m
+     * @param mirrorX     Flag which indicates if the x-coordinates have to be mirrored
+     * @param mirrorY     Flag which indicates if the y-coordinates have to be mirrored
+     */
+    public OptaCoordinateTransform(double fieldLength, double fieldWidth, boolean mirrorX, boolean mirrorY) {
+        // Negating the factor gives exactly the same result as negating the product
+        this.signedFieldLength = mirrorX ? -fieldLength : fieldLength;
+        this.signedFieldWidth = mirrorY ? -fieldWidth : fieldWidth;
+    }
+
+    /**
+     * Transforms an OPTA x-coordinate String into the StreamTeam-Football coordinate system.
+     *
+     * @param optaXString OPTA x-coordinate String
+     * @return X-coordinate according the StreamTeam-Football coordinate system.
+     */
+    public double getX(CharSequence optaXString) {
+        return ((parseCoordinate(optaXString) - 50) / 100) * this.signedFieldLength;
+    }
+
+    /**
+     * Transforms an OPTA y-coordinate String into the StreamTeam-Football coordinate system.
+     *
+     * @param optaYString OPTA y-coordinate String
+     * @return Y-coordinate according the StreamTeam-Football coordinate system.
+     */
+    public double getY(CharSequence optaYString) {
+        return ((parseCoordinate(optaYString) - 50) / 100) * this.signedFieldWidth;
+    }
+
+    /**
+     * Parses a decimal number ([-+]digits[.digits]). If both the mantissa and the power of ten are exactly representable as double, a single division yields the correctly rounded result.
+     * Otherwise (e.g., exponents, whitespace, or too many digits), the number is parsed with Double.parseDouble.
+     *
+     * @param s Character sequence
+     * @return Value
+     * @throws NumberFormatException Thrown if the character sequence is not a number
+     */
+    public static double parseCoordinate(CharSequence s) {
+        int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numberOfDigits = 0;
+        int numberOfFractionDigits = 0;
+        boolean dot = false;
+        for (; i < length; ++i) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                numberOfDigits++;
+                if (dot) {
+                    numberOfFractionDigits++;
+                }
+                if (numberOfDigits > 18) {
+                    return Double.parseDouble(s.toString());
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(s.toString());
+            }
+        }
+
+        if (numberOfDigits == 0 || mantissa > MAX_EXACT_MANTISSA || numberOfFractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(s.toString());
+        }
+        double value = mantissa / POWERS_OF_TEN[numberOfFractionDigits];
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.opta;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.ParseException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Handler which classifies the events of an F24 file into the event types and collects them in event sets.
+ * The events are passed one by one (event attributes, qualifiers, end of the event) so that the handler can be fed by the DOM parser as well as by the StAX parser. Not thread-safe.
+ */
+public class OptaEventHandler {
+
+    /**
+     * Slf4j logger
+     */
+    private static final Logger logger = LoggerFactory.getLogger(OptaEventHandler.class);
+
+    /**
+     * Transformation of the OPTA coordinates into the StreamTeam-Football coordinate system
+     */
+    private final OptaCoordinateTransform optaCoordinateTransform;
+
+    /**
+     * Builder of the event set of each event type
+     */
+    private final Map<EventType, EventSet.Builder> builders;
+
+    /**
+     * Match start UNIX timestamp in ms (null until the first halftime start event has been handled)
+     */
+    private Long matchStartUnixTsInMs;
+
+    /**
+     * period_id attribute of the current event
+     */
+    private String periodId;
+
+    /**
+     * type_id attribute of the current event
+     */
+    private String typeId;
+
+    /**
+     * timestamp attribute of the current event
+     */
+    private String timestamp;
+
+    /**
+     * x attribute of the current event
+     */
+    private String x;
+
+    /**
+     * y attribute of the current event
+     */
+    private String y;
+
+    /**
+     * outcome attribute of the current event
+     */
+    private String outcome;
+
+    /**
+     * Flag which indicates if the current event has a qualifier with qualifier_id 5 (free kick)
+     */
+    private boolean hasQualifierId5;
+
+    /**
+     * Flag which indicates if the current event has a qualifier with qualifier_id 6 (corner kick)
+     */
+    private boolean hasQualifierId6;
+
+    /**
+     * Flag which indicates if the current event has a qualifier with qualifier_id 107 (throw-in)
+     */
+    private boolean hasQualifierId107;
+
+    /**
+     * Flag which indicates if the current event has a qualifier with qualifier_id 124 (goal kick)
+     */
+    private boolean hasQualifierId124;
+
+    /**
+     * Flag which indicates if the current event has a qualifier with qualifier_id 236 (blocked pass)
+     */
+    private boolean hasQualifierId236;
+
+    /**
+     * Value of the last qualifier with qualifier_id 140 (end x-coordinate) of the current event (null if there is none)
+     */
+    private String endXValue;
+
+    /**
+     * Value of the last qualifier with qualifier_id 141 (end y-coordinate) of the current event (null if there is none)
+     */
+    private String endYValue;
+
+    /**
+     * OptaEventHandler constructor.
+     *
+     * @param fieldLength Length of the field in m
+     * @param fieldWidth  Width of the field in m
+     * @param mirrorX     Flag which indicates if the x-coordinates have to be mirrored
+     * @param mirrorY     Flag which indicates if the y-coordinates have to be mirrored
+     */
+    public OptaEventHandler(double fieldLength, double fieldWidth, boolean mirrorX, boolean mirrorY) {
+        this.optaCoordinateTransform = new OptaCoordinateTransform(fieldLength, fieldWidth, mirrorX, mirrorY);
+        this.builders = new EnumMap<>(EventType.class);
+        for (EventType eventType : EventType.values()) {
+            this.builders.put(eventType, new EventSet.Builder(eventType.hasSecondPosition()));
+        }
+        this.matchStartUnixTsInMs = null;
+    }
+
+    /**
+     * Starts a new event (missing attributes are passed as empty strings).
+     *
+     * @param periodId  period_id attribute
+     * @param typeId    type_id attribute
+     * @param timestamp timestamp attribute
+     * @param x         x attribute
+     * @param y         y attribute
+     * @param outcome   outcome attribute
+     */
+    public void startEvent(String periodId, String typeId, String timestamp, String x, String y, String outcome) {
+        this.periodId = periodId;
+        this.typeId = typeId;
+        this.timestamp = timestamp;
+        this.x = x;
+        this.y = y;
+        this.outcome = outcome;
+        this.hasQualifierId5 = false;
+        this.hasQualifierId6 = false;
+        this.hasQualifierId107 = false;
+        this.hasQualifierId124 = false;
+        this.hasQualifierId236 = false;
+        this.endXValue = null;
+        this.endYValue = null;
+    }
+
+    /**
+     * Adds a qualifier to the current event.
+     *
+     * @param qualifierId qualifier_id attribute
+     * @param value       value attribute
+     */
+    public void qualifier(String qualifierId, String value) {
+        switch (qualifierId) {
+            case "5":
+                this.hasQualifierId5 = true;
+                break;
+            case "6":
+                this.hasQualifierId6 = true;
+                break;
+            case "107":
+                this.hasQualifierId107 = true;
+                break;
+            case "124":
+                this.hasQualifierId124 = true;
+                break;
+            case "140":
+                this.endXValue = value;
+                break;
+            case "141":
+                this.endYValue = value;
+                break;
+            case "236":
+                this.hasQualifierId236 = true;
+                break;
+        }
+    }
+
+    /**
+     * Ends the current event and adds it to the event set of its event type (if it belongs to one).
+     *
+     * @throws ParseException Thrown if the timestamp of the event could not be parsed
+     */
+    public void endEvent() throws ParseException {
+        if (this.periodId.equals("1")) { // Event was in the first halftime
+            if (this.typeId.equals("32") && this.matchStartUnixTsInMs == null) { // First halftime start event
+                this.matchStartUnixTsInMs = OptaTimestampParser.parseUnixTsInMs(this.timestamp);
+                logger.info("First half start: {} -> {}", this.timestamp, this.matchStartUnixTsInMs);
+            } else if (this.typeId.equals("8")) { // Interception
+                long ts = transformOptaEventTimestampToMsSinceMatchStart(this.timestamp, this.matchStartUnixTsInMs);
+                double endX = this.optaCoordinateTransform.getX(this.x);
+                double endY = this.optaCoordinateTransform.getY(this.y);
+                logger.info("Interception: {},{},{}", new Object[]{ts, endX, endY});
+                this.builders.get(EventType.INTERCEPTION).add((int) ts, endX, endY);
+            } else if (this.typeId.equals("1") || this.typeId.equals("2")) { // Successful pass, blocked pass (->interception), free kick, corner kick, throwin, or goal kick
+                long ts = transformOptaEventTimestampToMsSinceMatchStart(this.timestamp, this.matchStartUnixTsInMs);
+                double startX = this.optaCoordinateTransform.getX(this.x);
+                double startY = this.optaCoordinateTransform.getY(this.y);
+                Double endX = this.endXValue == null ? null : this.optaCoordinateTransform.getX(this.endXValue);
+                Double endY = this.endYValue == null ? null : this.optaCoordinateTransform.getY(this.endYValue);
+
+                if (!this.hasQualifierId5 && !this.hasQualifierId6 && !this.hasQualifierId107 && !this.hasQualifierId124 && !this.hasQualifierId236 && endX != null && endY != null && this.outcome.equals("1")) { // Successful pass
+                    logger.info("SuccessfulPass: {},{},{},{},{}", new Object[]{ts, startX, startY, endX, endY});
+                    this.builders.get(EventType.SUCCESSFUL_PASS).add((int) ts, startX, startY, endX, endY);
+                } else if (this.hasQualifierId5 && !this.hasQualifierId6 && !this.hasQualifierId107 && !this.hasQualifierId124 && !this.hasQualifierId236) { // Freekick
+                    logger.info("Freekick: {},{},{}", new Object[]{ts, startX, startY});
+                    this.builders.get(EventType.FREEKICK).add((int) ts, startX, startY);
+                } else if (!this.hasQualifierId5 && this.hasQualifierId6 && !this.hasQualifierId107 && !this.hasQualifierId124 && !this.hasQualifierId236) { // Cornerkick
+                    logger.info("Cornerkick: {},{},{}", new Object[]{ts, startX, startY});
+                    this.builders.get(EventType.CORNERKICK).add((int) ts, startX, startY);
+                } else if (!this.hasQualifierId5 && !this.hasQualifierId6 && this.hasQualifierId107 && !this.hasQualifierId124 && !this.hasQualifierId236) { // Throwin
+                    logger.info("Throwin: {},{},{}", new Object[]{ts, startX, startY});
+                    this.builders.get(EventType.THROWIN).add((int) ts, startX, startY);
+                } else if (!this.hasQualifierId5 && !this.hasQualifierId6 && !this.hasQualifierId107 && this.hasQualifierId124 && !this.hasQualifierId236) { // Goalkick
+                    logger.info("Goalkick: {},{},{}", new Object[]{ts, startX, startY});
+                    this.builders.get(EventType.GOALKICK).add((int) ts, startX, startY);
+                } else if (!this.hasQualifierId5 && !this.hasQualifierId6 && !this.hasQualifierId107 && !this.hasQualifierId124 && this.hasQualifierId236 && endX != null && endY != null) { // Blocked pass -> interception
+                    logger.info("Interception: {},{},{}", new Object[]{ts, endX, endY});
+                    this.builders.get(EventType.INTERCEPTION).add((int) ts, endX, endY);
+                } else {
+                    logger.info("Ignored event with type_id 1 or 2 but unknown qualifier_id and outcome combination.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the event sets.
+     *
+     * @return Event set of each event type (in the order of the F24 file)
+     */
+    public Map<EventType, EventSet> getEventSets() {
+        Map<EventType, EventSet> eventSets = new EnumMap<>(EventType.class);
+        for (Map.Entry<EventType, EventSet.Builder> entry : this.builders.entrySet()) {
+            eventSets.put(entry.getKey(), entry.getValue().build());
+        }
+        return eventSets;
+    }
+
+    /**
+     * Transforms the OPTA event timestamp into a timestamp specifying the time in ms since the start of the match.
+     *
+     * @param optaTs               OPTA event timestamp String
+     * @param matchStartUnixTsInMs Match start UNIX timestamp in ms
+     * @return Time in ms since the start of the match
+     * @throws ParseException Thrown if the OPTA event timestamp could not be parsed
+     */
+    private static long transformOptaEventTimestampToMsSinceMatchStart(String optaTs, long matchStartUnixTsInMs) throws ParseException {
+        long unixTsInMs = OptaTimestampParser.parseUnixTsInMs(optaTs);
+        return unixTsInMs - matchStartUnixTsInMs;
+    }
+}
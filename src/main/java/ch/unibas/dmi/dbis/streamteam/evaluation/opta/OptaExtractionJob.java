@@ -0,0 +1,221 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.opta;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extraction of the events of one match (F24 file, field dimensions, mirroring, and output directory) in a batch of the OptaBatchEventExtractor.
+ */
+public class OptaExtractionJob {
+
+    /**
+     * Path to the F24 file
+     */
+    private final String f24FilePath;
+
+    /**
+     * Length of the field in m
+     */
+    private final double fieldLength;
+
+    /**
+     * Width of the field in m
+     */
+    private final double fieldWidth;
+
+    /**
+     * Flag which indicates if the x-coordinates have to be mirrored
+     */
+    private final boolean mirrorX;
+
+    /**
+     * Flag which indicates if the y-coordinates have to be mirrored
+     */
+    private final boolean mirrorY;
+
+    /**
+     * Path to the directory to which the event CSV files are written
+     */
+    private final String outputDirectoryPath;
+
+    /**
+     * OptaExtractionJob constructor.
+     *
+     * @param f24FilePath         Path to the F24 file
+     * @param fieldLength         Length of the field in m
+     * @param fieldWidth          Width of the field in m
+     * @param mirrorX             Flag which indicates if the x-coordinates have to be mirrored
+     * @param mirrorY             Flag which indicates if the y-coordinates have to be mirrored
+     * @param outputDirectoryPath Path to the directory to which the event CSV files are written
+     */
+    public OptaExtractionJob(String f24FilePath, double fieldLength, double fieldWidth, boolean mirrorX, boolean mirrorY, String outputDirectoryPath) {
+        this.f24FilePath = f24FilePath;
+        this.fieldLength = fieldLength;
+        this.fieldWidth = fieldWidth;
+        this.mirrorX = mirrorX;
+        this.mirrorY = mirrorY;
+        this.outputDirectoryPath = outputDirectoryPath;
+    }
+
+    /**
+     * Reads the jobs from a manifest file.
+     * The manifest is a CSV file with the header f24FilePath,fieldLength,fieldWidth,mirrorX,mirrorY[,outputDirectory] and one line per match (empty lines and lines starting with # are skipped).
+     * Relative F24 file paths are resolved against the directory of the manifest. Without an outputDirectory, the events are written to optaEvents/ followed by the name of the F24 file without extension.
+     *
+     * @param manifestFilePath Path to the manifest file
+     * @return Jobs (in the order of the manifest)
+     * @throws IOException Thrown if the manifest file could not be read or has a wrong format
+     */
+    public static List<OptaExtractionJob> readManifest(String manifestFilePath) throws IOException {
+        File manifestDirectory = new File(manifestFilePath).getAbsoluteFile().getParentFile();
+        List<OptaExtractionJob> jobs = new ArrayList<>();
+
+        BufferedReader bufferedReader = new BufferedReader(new FileReader(manifestFilePath));
+        try {
+            bufferedReader.readLine(); // skip header
+
+            int lineNumber = 1;
+            String line = bufferedReader.readLine();
+            while (line != null) {
+                lineNumber++;
+                if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                    String[] splittedLine = line.split(",");
+                    if (splittedLine.length != 5 && splittedLine.length != 6) {
+                        throw new IOException("Line " + lineNumber + " of " + manifestFilePath + " does not have 5 or 6 columns.");
+                    }
+                    File f24File = new File(splittedLine[0].trim());
+                    if (!f24File.isAbsolute()) {
+                        f24File = new File(manifestDirectory, splittedLine[0].trim());
+                    }
+                    try {
+                        String outputDirectoryPath = splittedLine.length == 6 ? splittedLine[5].trim() : getDefaultOutputDirectoryPath(f24File);
+                        jobs.add(new OptaExtractionJob(f24File.getPath(), Double.parseDouble(splittedLine[1]), Double.parseDouble(splittedLine[2]), Boolean.parseBoolean(splittedLine[3].trim()), Boolean.parseBoolean(splittedLine[4].trim()), outputDirectoryPath));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Line " + lineNumber + " of " + manifestFilePath + " contains an invalid field dimension.", e);
+                    }
+                }
+
+                line = bufferedReader.readLine();
+            }
+        } finally {
+            bufferedReader.close();
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Creates a job for each F24 file (*.xml) in a directory (all matches have the same field dimensions and mirroring).
+     *
+     * @param directoryPath Path to the directory
+     * @param fieldLength   Length of the field in m
+     * @param fieldWidth    Width of the field in m
+     * @param mirrorX       Flag which indicates if the x-coordinates have to be mirrored
+     * @param mirrorY       Flag which indicates if the y-coordinates have to be mirrored
+     * @return Jobs (ordered by file name)
+     * @throws IOException Thrown if the directory could not be listed
+     */
+    public static List<OptaExtractionJob> listDirectory(String directoryPath, double fieldLength, double fieldWidth, boolean mirrorX, boolean mirrorY) throws IOException {
+        File[] f24Files = new File(directoryPath).listFiles((dir, name) -> name.endsWith(".xml"));
+        if (f24Files == null) {
+            throw new IOException("Unable to list " + directoryPath + ".");
+        }
+        Arrays.sort(f24Files);
+
+        List<OptaExtractionJob> jobs = new ArrayList<>();
+        for (File f24File : f24Files) {
+            jobs.add(new OptaExtractionJob(f24File.getPath(), fieldLength, fieldWidth, mirrorX, mirrorY, getDefaultOutputDirectoryPath(f24File)));
+        }
+        return jobs;
+    }
+
+    /**
+     * Returns the default output directory of an F24 file.
+     *
+     * @param f24File F24 file
+     * @return optaEvents/ followed by the name of the F24 file without extension
+     */
+    private static String getDefaultOutputDirectoryPath(File f24File) {
+        String name = f24File.getName();
+        int extensionStart = name.lastIndexOf('.');
+        return "optaEvents/" + (extensionStart > 0 ? name.substring(0, extensionStart) : name);
+    }
+
+    /**
+     * Returns the path to the F24 file.
+     *
+     * @return Path to the F24 file
+     */
+    public String getF24FilePath() {
+        return this.f24FilePath;
+    }
+
+    /**
+     * Returns the length of the field.
+     *
+     * @return Length of the field in m
+     */
+    public double getFieldLength() {
+        return this.fieldLength;
+    }
+
+    /**
+     * Returns the width of the field.
+     *
+     * @return Width of the field in m
+     */
+    public double getFieldWidth() {
+        return this.fieldWidth;
+    }
+
+    /**
+     * Returns the flag which indicates if the x-coordinates have to be mirrored.
+     *
+     * @return True if the x-coordinates have to be mirrored, otherwise false
+     */
+    public boolean isMirrorX() {
+        return this.mirrorX;
+    }
+
+    /**
+     * Returns the flag which indicates if the y-coordinates have to be mirrored.
+     *
+     * @return True if the y-coordinates have to be mirrored, otherwise false
+     */
+    public boolean isMirrorY() {
+        return this.mirrorY;
+    }
+
+    /**
+     * Returns the path to the directory to which the event CSV files are written.
+     *
+     * @return Path to the output directory
+     */
+    public String getOutputDirectoryPath() {
+        return this.outputDirectoryPath;
+    }
+}
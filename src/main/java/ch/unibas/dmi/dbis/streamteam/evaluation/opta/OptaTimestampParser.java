@@ -0,0 +1,119 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.opta;
+
+import java.text.ParseException;
+
+/**
+ * Parser of OPTA event timestamps (yyyy-MM-dd'T'HH:mm:ss.SSS in UTC) which calculates the UNIX timestamp directly from the characters instead of using a SimpleDateFormat (which is not thread-safe and allocates a Date and calendar fields per call).
+ * Stateless and thread-safe.
+ */
+public class OptaTimestampParser {
+
+    /**
+     * Length of the date and time part (yyyy-MM-ddTHH:mm:ss)
+     */
+    private static final int DATE_TIME_LENGTH = 19;
+
+    /**
+     * Parses an OPTA event timestamp.
+     * As with the SimpleDateFormat, the digits after the dot are the number of milliseconds (e.g., .5 is 5 ms) and characters after the milliseconds are ignored.
+     *
+     * @param optaTs OPTA event timestamp
+     * @return UNIX timestamp in ms
+     * @throws ParseException Thrown if the OPTA event timestamp does not have the format yyyy-MM-dd'T'HH:mm:ss.SSS
+     */
+    public static long parseUnixTsInMs(CharSequence optaTs) throws ParseException {
+        if (optaTs.length() < DATE_TIME_LENGTH + 2 || optaTs.charAt(4) != '-' || optaTs.charAt(7) != '-' || optaTs.charAt(10) != 'T'
+                || optaTs.charAt(13) != ':' || optaTs.charAt(16) != ':' || optaTs.charAt(DATE_TIME_LENGTH) != '.') {
+            throw new ParseException("Unparseable OPTA timestamp: \"" + optaTs + "\"", 0);
+        }
+        int year = parseDigits(optaTs, 0, 4);
+        int month = parseDigits(optaTs, 5, 2);
+        int day = parseDigits(optaTs, 8, 2);
+        int hour = parseDigits(optaTs, 11, 2);
+        int minute = parseDigits(optaTs, 14, 2);
+        int second = parseDigits(optaTs, 17, 2);
+
+        int millisecondsEnd = DATE_TIME_LENGTH + 1;
+        while (millisecondsEnd < optaTs.length() && millisecondsEnd < DATE_TIME_LENGTH + 10 && isDigit(optaTs.charAt(millisecondsEnd))) {
+            millisecondsEnd++;
+        }
+        if (millisecondsEnd == DATE_TIME_LENGTH + 1) {
+            throw new ParseException("Unparseable OPTA timestamp: \"" + optaTs + "\"", DATE_TIME_LENGTH + 1);
+        }
+        int milliseconds = parseDigits(optaTs, DATE_TIME_LENGTH + 1, millisecondsEnd - DATE_TIME_LENGTH - 1);
+
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+            throw new ParseException("Invalid OPTA timestamp: \"" + optaTs + "\"", 0);
+        }
+
+        return (((daysSinceEpoch(year, month, day) * 24 + hour) * 60 + minute) * 60 + second) * 1000 + milliseconds;
+    }
+
+    /**
+     * Calculates the number of days between 1970-01-01 and a date of the proleptic Gregorian calendar.
+     * http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     *
+     * @param year  Year
+     * @param month Month (1-12)
+     * @param day   Day of the month (1-31)
+     * @return Number of days since 1970-01-01
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Parses a fixed number of decimal digits.
+     *
+     * @param s              Character sequence
+     * @param start          Position of the first digit
+     * @param numberOfDigits Number of digits
+     * @return Value
+     * @throws ParseException Thrown if one of the characters is not a digit
+     */
+    private static int parseDigits(CharSequence s, int start, int numberOfDigits) throws ParseException {
+        int value = 0;
+        for (int i = start; i < start + numberOfDigits; ++i) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                throw new ParseException("Unparseable OPTA timestamp: \"" + s + "\"", i);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Checks if a character is a decimal digit.
+     *
+     * @param c Character
+     * @return True if the character is between 0 and 9, otherwise false
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
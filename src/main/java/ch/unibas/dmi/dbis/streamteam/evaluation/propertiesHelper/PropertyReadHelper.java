@@ -269,4 +269,82 @@ public class PropertyReadHelper {
             return null; // never reached
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a comma-separated list of integers from the properties object
+     *
+     * @param properties Properties object
+     * @param key        Key
+     * @return List of integers
+     * @throws PropertyHasWrongFormatException Thrown if a value has the wrong format.
+     * @throws PropertyDoesNotExistException   Thrown if the key does not exist.
+     */
+    public static List<Integer> readListOfIntegers(Properties properties, String key) throws PropertyHasWrongFormatException, PropertyDoesNotExistException {
+        List<Integer> result = new ArrayList<>();
+        for (String value : readListOfStrings(properties, key)) {
+            value = value.trim();
+            try {
+                result.add(Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                throw new PropertyHasWrongFormatException(key, "list of integers", value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a comma-separated list of integers from the properties object or dies in case of an exception.
+     *
+     * @param properties Properties object
+     * @param key        Key
+     * @return List of integers
+     */
+    public static List<Integer> readListOfIntegersOrDie(Properties properties, String key) {
+        try {
+            return readListOfIntegers(properties, key);
+        } catch (Exception e) {
+            logger.error("Unable to read list of integers for key {} from properties", key, e);
+            System.exit(1);
+            return null; // never reached
+        }
+    }
+
+    /**
+     * Reads a comma-separated list of doubles from the properties object
+     *
+     * @param properties Properties object
+     * @param key        Key
+     * @return List of doubles
+     * @throws PropertyHasWrongFormatException Thrown if a value has the wrong format.
+     * @throws PropertyDoesNotExistException   Thrown if the key does not exist.
+     */
+    public static List<Double> readListOfDoubles(Properties properties, String key) throws PropertyHasWrongFormatException, PropertyDoesNotExistException {
+        List<Double> result = new ArrayList<>();
+        for (String value : readListOfStrings(properties, key)) {
+            value = value.trim();
+            try {
+                result.add(Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                throw new PropertyHasWrongFormatException(key, "list of doubles", value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a comma-separated list of doubles from the properties object or dies in case of an exception.
+     *
+     * @param properties Properties object
+     * @param key        Key
+     * @return List of doubles
+     */
+    public static List<Double> readListOfDoublesOrDie(Properties properties, String key) {
+        try {
+            return readListOfDoubles(properties, key);
+        } catch (Exception e) {
+            logger.error("Unable to read list of doubles for key {} from properties", key, e);
+            System.exit(1);
+            return null; // never reached
+        }
+    }
+}
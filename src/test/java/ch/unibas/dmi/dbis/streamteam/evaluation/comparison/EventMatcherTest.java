@@ -0,0 +1,405 @@
+/*
+ * StreamTeam
+ * Copyright (C) 2019  University of Basel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package ch.unibas.dmi.dbis.streamteam.evaluation.comparison;
+
+import ch.unibas.dmi.dbis.streamteam.evaluation.event.EventSet;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential test of the event matching (SpatioTemporalEventIndex, CandidatePairs, and HopcroftKarpMatching) against the former nested-loop implementation of the EventComparer.
+ * The greedy assignment has to produce exactly the same counts as the nested loop over the CSV lines (including the handling of identical lines) and the maximum assignment has to produce the same counts as a simple augmenting path matching over the same comparisons.
+ */
+public class EventMatcherTest {
+
+    /**
+     * Time thresholds (in ms) for which the events are matched (0 matches nothing)
+     */
+    private static final int[] TIME_THRESHOLDS = {0, 1000, 2000, 5000};
+
+    /**
+     * Distance thresholds (in m) for which the events are matched (0 matches nothing and infinity maps every position to the same grid cell)
+     */
+    private static final double[] DIST_THRESHOLDS = {0.0, 1.0, 3.0, 9.0, Double.POSITIVE_INFINITY};
+
+    /**
+     * Checks the greedy assignment on events on a football field (with and without a second position and with identical lines).
+     */
+    @Test
+    public void greedyMatchingEqualsNestedLoop() {
+        for (int seed = 0; seed < 10; ++seed) {
+            boolean withSecondPosition = seed % 2 == 0;
+            EventSet optaEvents = generateEvents(new Random(seed), 300, withSecondPosition, 50.0, 0.0);
+            EventSet streamTeamEvents = generateDetections(new Random(seed + 1000), optaEvents, 3000, 2.0, 0.05);
+            assertAllThresholdsEqualNestedLoop("seed " + seed, streamTeamEvents, optaEvents);
+        }
+    }
+
+    /**
+     * Checks the greedy assignment on events which are so far apart that the cell coordinates of the grid are clamped (which merges far away cells).
+     */
+    @Test
+    public void greedyMatchingEqualsNestedLoopWithClampedGridCells() {
+        for (int seed = 0; seed < 10; ++seed) {
+            EventSet optaEvents = generateEvents(new Random(seed), 300, seed % 2 == 0, 1e9, 1.5);
+            EventSet streamTeamEvents = generateDetections(new Random(seed + 1000), optaEvents, 3000, 0.5, 0.05);
+            assertAllThresholdsEqualNestedLoop("seed " + seed, streamTeamEvents, optaEvents);
+        }
+
+        // Positions around the boundary of the clamped cell coordinates (32767 for a cell size of 1 m)
+        EventSet.Builder optaBuilder = new EventSet.Builder(false);
+        EventSet.Builder streamTeamBuilder = new EventSet.Builder(false);
+        double[] coordinates = {32766.9, 32767.2, 32768.1, 40000.0, -32767.8, -32768.5, -32769.3, -1e12};
+        for (int i = 0; i < coordinates.length; ++i) {
+            optaBuilder.add(i * 100, coordinates[i], -coordinates[i]);
+            streamTeamBuilder.add(i * 100 + 50, coordinates[i] + 0.6, -coordinates[i] - 0.3);
+            streamTeamBuilder.add(i * 100 + 70, coordinates[(i + 1) % coordinates.length] - 0.4, -coordinates[(i + 1) % coordinates.length]);
+        }
+        assertAllThresholdsEqualNestedLoop("cell boundary", streamTeamBuilder.build(), optaBuilder.build());
+    }
+
+    /**
+     * Checks the greedy assignment for the infinite distance threshold (every position is in cell 0) and the largest finite distance threshold of the former implementation.
+     */
+    @Test
+    public void greedyMatchingEqualsNestedLoopWithUnboundedDistanceThreshold() {
+        for (int seed = 0; seed < 10; ++seed) {
+            EventSet optaEvents = generateEvents(new Random(seed), 300, seed % 2 == 0, 1e6, 10.0);
+            EventSet streamTeamEvents = generateDetections(new Random(seed + 1000), optaEvents, 3000, 5.0, 0.05);
+            for (double distThreshold : new double[]{Double.POSITIVE_INFINITY, Double.MAX_VALUE}) {
+                for (int timeThreshold : TIME_THRESHOLDS) {
+                    EventMatchingResult expected = matchWithNestedLoop(streamTeamEvents, optaEvents, timeThreshold, distThreshold);
+                    EventMatchingResult actual = EventMatcher.match(streamTeamEvents, optaEvents, timeThreshold, distThreshold, AssignmentMode.GREEDY);
+                    assertResultEquals("seed " + seed + ", " + timeThreshold + " ms, " + distThreshold + " m", expected, actual);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the maximum assignment against a simple augmenting path matching on dense events (on which the greedy assignment is not maximal).
+     */
+    @Test
+    public void maximumMatchingEqualsAugmentingPathMatching() {
+        int improvedCombinations = 0;
+        for (int seed = 0; seed < 20; ++seed) {
+            boolean withSecondPosition = seed % 2 == 0;
+            EventSet optaEvents = generateEvents(new Random(seed), 200, withSecondPosition, 5.0, 0.0);
+            EventSet streamTeamEvents = generateDetections(new Random(seed + 1000), optaEvents, 3000, 2.0, 0.0);
+            EventMatchingResult[][] greedyResults = EventMatcher.matchAll(streamTeamEvents, optaEvents, TIME_THRESHOLDS, DIST_THRESHOLDS, AssignmentMode.GREEDY);
+            EventMatchingResult[][] maximumResults = EventMatcher.matchAll(streamTeamEvents, optaEvents, TIME_THRESHOLDS, DIST_THRESHOLDS, AssignmentMode.MAXIMUM);
+            for (int t = 0; t < TIME_THRESHOLDS.length; ++t) {
+                for (int d = 0; d < DIST_THRESHOLDS.length; ++d) {
+                    String message = "seed " + seed + ", " + TIME_THRESHOLDS[t] + " ms, " + DIST_THRESHOLDS[d] + " m";
+                    assertResultEquals(message, matchWithAugmentingPaths(streamTeamEvents, optaEvents, TIME_THRESHOLDS[t], DIST_THRESHOLDS[d]), maximumResults[t][d]);
+                    assertTrue(message, maximumResults[t][d].getCorrectDetections() >= greedyResults[t][d].getCorrectDetections());
+                    if (maximumResults[t][d].getCorrectDetections() > greedyResults[t][d].getCorrectDetections()) {
+                        improvedCombinations++;
+                    }
+                }
+            }
+        }
+        assertTrue("The generated events never required an augmenting path.", improvedCombinations > 0);
+    }
+
+    /**
+     * Checks that the maximum assignment reassigns an OPTA event which the greedy assignment has taken for the first StreamTeam event.
+     */
+    @Test
+    public void maximumMatchingAugmentsGreedyAssignment() {
+        EventSet.Builder optaBuilder = new EventSet.Builder(false);
+        optaBuilder.add(1000, 0.0, 0.0);
+        optaBuilder.add(1100, 2.0, 0.0);
+        EventSet optaEvents = optaBuilder.build();
+
+        // The first StreamTeam event is close to both OPTA events, the second one only to the first OPTA event
+        EventSet.Builder streamTeamBuilder = new EventSet.Builder(false);
+        streamTeamBuilder.add(1050, 1.0, 0.0);
+        streamTeamBuilder.add(1000, -0.5, 0.0);
+        EventSet streamTeamEvents = streamTeamBuilder.build();
+
+        assertResultEquals("greedy", new EventMatchingResult(1, 1, 1), EventMatcher.match(streamTeamEvents, optaEvents, 1000, 1.5, AssignmentMode.GREEDY));
+        assertResultEquals("maximum", new EventMatchingResult(2, 0, 0), EventMatcher.match(streamTeamEvents, optaEvents, 1000, 1.5, AssignmentMode.MAXIMUM));
+    }
+
+    /**
+     * Checks the greedy assignment for all combinations of the thresholds (via matchAll, which shares the candidate pairs, and via match) against the nested loop.
+     *
+     * @param message          Message which identifies the event sets
+     * @param streamTeamEvents StreamTeam events
+     * @param optaEvents       OPTA events
+     */
+    private static void assertAllThresholdsEqualNestedLoop(String message, EventSet streamTeamEvents, EventSet optaEvents) {
+        EventMatchingResult[][] results = EventMatcher.matchAll(streamTeamEvents, optaEvents, TIME_THRESHOLDS, DIST_THRESHOLDS, AssignmentMode.GREEDY);
+        for (int t = 0; t < TIME_THRESHOLDS.length; ++t) {
+            for (int d = 0; d < DIST_THRESHOLDS.length; ++d) {
+                String combinationMessage = message + ", " + TIME_THRESHOLDS[t] + " ms, " + DIST_THRESHOLDS[d] + " m";
+                EventMatchingResult expected = matchWithNestedLoop(streamTeamEvents, optaEvents, TIME_THRESHOLDS[t], DIST_THRESHOLDS[d]);
+                assertResultEquals(combinationMessage, expected, results[t][d]);
+                assertResultEquals(combinationMessage, expected, EventMatcher.match(streamTeamEvents, optaEvents, TIME_THRESHOLDS[t], DIST_THRESHOLDS[d], AssignmentMode.GREEDY));
+            }
+        }
+    }
+
+    /**
+     * Asserts that two matching results have the same counts.
+     *
+     * @param message  Message which identifies the matching
+     * @param expected Expected matching result
+     * @param actual   Actual matching result
+     */
+    private static void assertResultEquals(String message, EventMatchingResult expected, EventMatchingResult actual) {
+        assertEquals(message + " (correct detections)", expected.getCorrectDetections(), actual.getCorrectDetections());
+        assertEquals(message + " (wrong detections)", expected.getWrongDetections(), actual.getWrongDetections());
+        assertEquals(message + " (missed detections)", expected.getMissedDetections(), actual.getMissedDetections());
+    }
+
+    /**
+     * Generates events which are distributed over a match of 90 minutes (in random order).
+     * The positions lie around a few random centers which makes neighbouring events likely even for large coordinate ranges.
+     *
+     * @param random             Random number generator
+     * @param numberOfEvents     Number of events
+     * @param withSecondPosition Flag which indicates if the events have a second position
+     * @param centerRange        Maximum absolute value of the coordinates of the centers (in m)
+     * @param spread             Maximum distance of the coordinates from their center (in m, 0 uses the center range)
+     * @return Events
+     */
+    private static EventSet generateEvents(Random random, int numberOfEvents, boolean withSecondPosition, double centerRange, double spread) {
+        double[] centers = new double[8];
+        for (int i = 0; i < centers.length; ++i) {
+            centers[i] = (random.nextDouble() * 2 - 1) * centerRange;
+        }
+        double offsetRange = spread > 0 ? spread : centerRange;
+
+        EventSet.Builder builder = new EventSet.Builder(withSecondPosition);
+        for (int i = 0; i < numberOfEvents; ++i) {
+            int timestamp = random.nextInt(90 * 60 * 1000);
+            double x = centers[random.nextInt(centers.length)] + (random.nextDouble() * 2 - 1) * offsetRange;
+            double y = centers[random.nextInt(centers.length)] + (random.nextDouble() * 2 - 1) * offsetRange;
+            if (withSecondPosition) {
+                builder.add(timestamp, x, y, x + random.nextGaussian() * offsetRange, y + random.nextGaussian() * offsetRange);
+            } else {
+                builder.add(timestamp, x, y);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Generates StreamTeam events which detect about 80% of the OPTA events with a time and position error and contain about 20% wrong detections (detections of a random OPTA event).
+     *
+     * @param random              Random number generator
+     * @param optaEvents          OPTA events
+     * @param maxTimeErrorInMs    Maximum time error (in ms) of a detection
+     * @param positionErrorStdDev Standard deviation of the position error (in m) of a detection
+     * @param duplicateRate       Share of the detections which are written twice (identical lines)
+     * @return StreamTeam events
+     */
+    private static EventSet generateDetections(Random random, EventSet optaEvents, int maxTimeErrorInMs, double positionErrorStdDev, double duplicateRate) {
+        boolean withSecondPosition = optaEvents.hasSecondPosition();
+        EventSet.Builder builder = new EventSet.Builder(withSecondPosition);
+        for (int i = 0; i < optaEvents.size(); ++i) {
+            int event = random.nextDouble() < 0.2 ? random.nextInt(optaEvents.size()) : i;
+            if (random.nextDouble() >= 0.8) {
+                continue;
+            }
+            int timestamp = optaEvents.getTimestamp(event) + random.nextInt(2 * maxTimeErrorInMs + 1) - maxTimeErrorInMs;
+            double x = optaEvents.getX(event) + random.nextGaussian() * positionErrorStdDev;
+            double y = optaEvents.getY(event) + random.nextGaussian() * positionErrorStdDev;
+            int copies = random.nextDouble() < duplicateRate ? 2 : 1;
+            for (int copy = 0; copy < copies; ++copy) {
+                if (withSecondPosition) {
+                    builder.add(timestamp, x, y, optaEvents.getX2(event) + positionErrorStdDev, optaEvents.getY2(event) - positionErrorStdDev);
+                } else {
+                    builder.add(timestamp, x, y);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Matches the events like the former EventComparer: a nested loop over the CSV lines in which each StreamTeam line is matched with the first OPTA line which lies within the thresholds and has not been matched yet (identical lines are removed together from the sets).
+     *
+     * @param streamTeamEvents StreamTeam events
+     * @param optaEvents       OPTA events
+     * @param timeThreshold    Time threshold (in ms)
+     * @param distThreshold    Distance threshold (in m)
+     * @return Matching result
+     */
+    private static EventMatchingResult matchWithNestedLoop(EventSet streamTeamEvents, EventSet optaEvents, int timeThreshold, double distThreshold) {
+        List<String> streamTeamEventLines = getCsvLines(streamTeamEvents);
+        List<String> optaEventLines = getCsvLines(optaEvents);
+        boolean withSecondPosition = streamTeamEvents.hasSecondPosition();
+
+        int correctDetections = 0;
+
+        Set<String> streamTeamEventLinesSet = new HashSet<>(streamTeamEventLines);
+        Set<String> optaEventLinesSet = new HashSet<>(optaEventLines);
+
+        for (String streamTeamEventLine : streamTeamEventLines) {
+            for (String optaEventLine : optaEventLines) {
+                if (optaEventLinesSet.contains(optaEventLine)) {
+                    if (compareEventLines(streamTeamEventLine, optaEventLine, withSecondPosition, timeThreshold, distThreshold)) {
+                        correctDetections++;
+                        streamTeamEventLinesSet.remove(streamTeamEventLine);
+                        optaEventLinesSet.remove(optaEventLine);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return new EventMatchingResult(correctDetections, streamTeamEventLinesSet.size(), optaEventLinesSet.size());
+    }
+
+    /**
+     * Matches the StreamTeam events with the distinct OPTA lines such that the number of correct detections is maximal by searching an augmenting path for each StreamTeam event (the comparisons are the ones of the nested loop).
+     * The number of wrong detections is only unique if the StreamTeam events have distinct lines (no duplicates in maximumMatchingEqualsAugmentingPathMatching).
+     *
+     * @param streamTeamEvents StreamTeam events
+     * @param optaEvents       OPTA events
+     * @param timeThreshold    Time threshold (in ms)
+     * @param distThreshold    Distance threshold (in m)
+     * @return Matching result
+     */
+    private static EventMatchingResult matchWithAugmentingPaths(EventSet streamTeamEvents, EventSet optaEvents, int timeThreshold, double distThreshold) {
+        List<String> streamTeamEventLines = getCsvLines(streamTeamEvents);
+        List<String> optaLines = new ArrayList<>(new LinkedHashSet<>(getCsvLines(optaEvents)));
+        boolean withSecondPosition = streamTeamEvents.hasSecondPosition();
+
+        List<List<Integer>> adjacency = new ArrayList<>();
+        for (String streamTeamEventLine : streamTeamEventLines) {
+            List<Integer> optaLineIds = new ArrayList<>();
+            for (int optaLineId = 0; optaLineId < optaLines.size(); ++optaLineId) {
+                if (compareEventLines(streamTeamEventLine, optaLines.get(optaLineId), withSecondPosition, timeThreshold, distThreshold)) {
+                    optaLineIds.add(optaLineId);
+                }
+            }
+            adjacency.add(optaLineIds);
+        }
+
+        int[] matchOfOptaLine = new int[optaLines.size()];
+        Arrays.fill(matchOfOptaLine, -1);
+        int correctDetections = 0;
+        for (int streamTeamEvent = 0; streamTeamEvent < streamTeamEventLines.size(); ++streamTeamEvent) {
+            if (augment(streamTeamEvent, adjacency, matchOfOptaLine, new boolean[optaLines.size()])) {
+                correctDetections++;
+            }
+        }
+
+        Set<String> matchedStreamTeamLines = new HashSet<>();
+        for (int streamTeamEvent : matchOfOptaLine) {
+            if (streamTeamEvent >= 0) {
+                matchedStreamTeamLines.add(streamTeamEventLines.get(streamTeamEvent));
+            }
+        }
+        return new EventMatchingResult(correctDetections, new HashSet<>(streamTeamEventLines).size() - matchedStreamTeamLines.size(), optaLines.size() - correctDetections);
+    }
+
+    /**
+     * Searches an augmenting path which starts at a StreamTeam event (depth-first) and flips the matching along the path.
+     *
+     * @param streamTeamEvent StreamTeam event
+     * @param adjacency       OPTA lines which lie within the thresholds of each StreamTeam event
+     * @param matchOfOptaLine StreamTeam event which is matched with each OPTA line (-1 if the OPTA line is not matched)
+     * @param visited         Flag for each OPTA line which indicates if it has already been visited by the search
+     * @return True if an augmenting path was found, otherwise false
+     */
+    private static boolean augment(int streamTeamEvent, List<List<Integer>> adjacency, int[] matchOfOptaLine, boolean[] visited) {
+        for (int optaLineId : adjacency.get(streamTeamEvent)) {
+            if (!visited[optaLineId]) {
+                visited[optaLineId] = true;
+                if (matchOfOptaLine[optaLineId] < 0 || augment(matchOfOptaLine[optaLineId], adjacency, matchOfOptaLine, visited)) {
+                    matchOfOptaLine[optaLineId] = streamTeamEvent;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the CSV lines of the events (in the order of the file).
+     *
+     * @param eventSet Events
+     * @return CSV lines
+     */
+    private static List<String> getCsvLines(EventSet eventSet) {
+        List<String> lines = new ArrayList<>();
+        for (int event = 0; event < eventSet.size(); ++event) {
+            lines.add(eventSet.getCsvLine(event));
+        }
+        return lines;
+    }
+
+    /**
+     * Compares a StreamTeam event with an OPTA event like the former EventComparer (on the parsed CSV lines).
+     *
+     * @param streamTeamEventLine Line describing the StreamTeam event
+     * @param optaEventLine       Line describing the OPTA event
+     * @param withSecondPosition  Flag which indicates if the events have a second position
+     * @param timeThreshold       Time threshold (in ms)
+     * @param distThreshold       Distance threshold (in m)
+     * @return True if the StreamTeam event matches the OPTA event, otherwise false
+     */
+    private static boolean compareEventLines(String streamTeamEventLine, String optaEventLine, boolean withSecondPosition, int timeThreshold, double distThreshold) {
+        String[] splittedStreamTeamEventLine = streamTeamEventLine.split(",");
+        String[] splittedOptaEventLine = optaEventLine.split(",");
+
+        int streamTeamTs = Integer.parseInt(splittedStreamTeamEventLine[0]);
+        int optaTs = Integer.parseInt(splittedOptaEventLine[0]);
+        if (Math.abs(streamTeamTs - optaTs) < timeThreshold) {
+            double streamTeamX = Double.parseDouble(splittedStreamTeamEventLine[1]);
+            double streamTeamY = Double.parseDouble(splittedStreamTeamEventLine[2]);
+            double optaX = Double.parseDouble(splittedOptaEventLine[1]);
+            double optaY = Double.parseDouble(splittedOptaEventLine[2]);
+            if (euclideanDist(streamTeamX, streamTeamY, optaX, optaY) < distThreshold) {
+                if (withSecondPosition) {
+                    double streamTeamX2 = Double.parseDouble(splittedStreamTeamEventLine[3]);
+                    double streamTeamY2 = Double.parseDouble(splittedStreamTeamEventLine[4]);
+                    double optaX2 = Double.parseDouble(splittedOptaEventLine[3]);
+                    double optaY2 = Double.parseDouble(splittedOptaEventLine[4]);
+                    return euclideanDist(streamTeamX2, streamTeamY2, optaX2, optaY2) < distThreshold;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the euclidean distance between two positions.
+     *
+     * @param x1 X-coordinate of the first position
+     * @param y1 Y-Coordinate of the first position
+     * @param x2 X-coordinate of the second position
+     * @param y2 Y-coordinate of the second position
+     * @return Euclidean distance
+     */
+    private static double euclideanDist(double x1, double y1, double x2, double y2) {
+        return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    }
+}
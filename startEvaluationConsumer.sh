@@ -22,5 +22,6 @@
 DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
 
 cd $DIR
-java -DlogFileName=evaluationConsumer -cp ./target/streamteam-evaluation-1.2.0-jar-with-dependencies.jar ch.unibas.dmi.dbis.streamteam.evaluation.EvaluationConsumer
+# The automatic shutdown hook of Log4j2 is disabled since the EvaluationConsumer shuts down the logging context itself after the remaining receive system times are written
+java -DlogFileName=evaluationConsumer -Dlog4j.shutdownHookEnabled=false -cp ./target/streamteam-evaluation-1.2.0-jar-with-dependencies.jar ch.unibas.dmi.dbis.streamteam.evaluation.EvaluationConsumer
 